@@ -127,14 +127,22 @@ public class ClusterStateGenerator {
     }
 
     static AnnotatedClusterState generatedStateFrom(final Params params) {
-        final ContentCluster cluster = params.cluster;
         final ClusterState workingState = ClusterState.emptyState();
-        final Map<Node, NodeStateReason> nodeStateReasons = new HashMap<>();
-
-        for (final NodeInfo nodeInfo : cluster.getNodeInfo()) {
+        for (final NodeInfo nodeInfo : params.cluster.getNodeInfo()) {
             final NodeState nodeState = computeEffectiveNodeState(nodeInfo, params);
             workingState.setNodeState(nodeInfo.getNode(), nodeState);
         }
+        return annotatedStateFrom(workingState, params);
+    }
+
+    /**
+     * Completes a working state containing the effective state of each node by applying the
+     * decisions which depend on the state of the cluster as a whole: Taking down groups, taking down
+     * the cluster and setting the distribution bit count. The given working state is modified.
+     */
+    static AnnotatedClusterState annotatedStateFrom(final ClusterState workingState, final Params params) {
+        final ContentCluster cluster = params.cluster;
+        final Map<Node, NodeStateReason> nodeStateReasons = new HashMap<>();
 
         takeDownGroupsWithTooLowAvailability(workingState, nodeStateReasons, params);
 
@@ -147,7 +155,7 @@ public class ClusterStateGenerator {
         return new AnnotatedClusterState(workingState, reasonToBeDown, nodeStateReasons);
     }
 
-    private static boolean nodeIsConsideredTooUnstable(final NodeInfo nodeInfo, final Params params) {
+    static boolean nodeIsConsideredTooUnstable(final NodeInfo nodeInfo, final Params params) {
         return (params.maxPrematureCrashes != 0
                 && nodeInfo.getPrematureCrashCount() > params.maxPrematureCrashes);
     }
@@ -159,7 +167,7 @@ public class ClusterStateGenerator {
         baseline.setDescription(wanted.getDescription());
     }
 
-    private static NodeState computeEffectiveNodeState(final NodeInfo nodeInfo, final Params params) {
+    static NodeState computeEffectiveNodeState(final NodeInfo nodeInfo, final Params params) {
         final NodeState reported = nodeInfo.getReportedState();
         final NodeState wanted   = nodeInfo.getWantedState();
         final NodeState baseline = reported.clone();
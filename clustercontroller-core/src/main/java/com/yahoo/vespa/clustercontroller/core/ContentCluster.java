@@ -104,6 +104,9 @@ public class ContentCluster {
 
     public void setStartTimestamp(Node n, long startTimestamp) {
         nodeStartTimestamps.put(n, startTimestamp);
+        NodeInfo nodeInfo = clusterInfo.getNodeInfo(n);
+        if (nodeInfo != null)
+            nodeInfo.markModified();
     }
 
     public long getStartTimestamp(Node n) {
@@ -62,6 +62,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
     private final RpcServer rpcServer;
     private final DatabaseHandler database;
     private final MasterElectionHandler masterElectionHandler;
+    private final IncrementalClusterStateGenerator stateGenerator;
     private Thread runner = null;
     private AtomicBoolean running = new AtomicBoolean(true);
     private FleetControllerOptions options;
@@ -134,6 +135,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
         this.stateChangeHandler = stateChangeHandler;
         this.systemStateBroadcaster = systemStateBroadcaster;
         this.stateVersionTracker = new StateVersionTracker(options.minMergeCompletionRatio);
+        this.stateGenerator = new IncrementalClusterStateGenerator(options.verifyIncrementalStateGeneration);
         this.metricUpdater = metricUpdater;
 
         this.statusPageServer = statusPage;
@@ -891,7 +893,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
         params.currentTimeInMilllis(timer.getCurrentTimeInMillis())
                 .cluster(cluster)
                 .lowestObservedDistributionBitCount(stateVersionTracker.getLowestObservedDistributionBits());
-        return ClusterStateGenerator.generatedStateFrom(params);
+        return stateGenerator.generatedStateFrom(params);
     }
 
     private void emitEventsForAlteredStateEdges(final ClusterStateBundle fromState,
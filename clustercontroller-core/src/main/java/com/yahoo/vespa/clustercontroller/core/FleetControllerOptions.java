@@ -121,6 +121,9 @@ public class FleetControllerOptions implements Cloneable {
 
     public boolean clusterHasGlobalDocumentTypes = false;
 
+    /** Set by tests to verify that each incrementally generated cluster state equals a fully generated one. */
+    public boolean verifyIncrementalStateGeneration = false;
+
     // TODO: Choose a default value
     public double minMergeCompletionRatio = 1.0;
 
@@ -0,0 +1,139 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.clustercontroller.core;
+
+import com.yahoo.vdslib.state.ClusterState;
+import com.yahoo.vdslib.state.Node;
+import com.yahoo.vdslib.state.NodeState;
+import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cluster state generator which keeps the effective state of each node between generations,
+ * and only recomputes it for the nodes whose information has changed since the last generation,
+ * or whose effective state depends on the current time. The decisions which depend on the
+ * cluster as a whole are made on a copy of the node states on each generation.
+ *
+ * The generated states are always identical to those of {@link ClusterStateGenerator#generatedStateFrom}.
+ * If verification is enabled, this is checked on each generation.
+ *
+ * This is not thread safe.
+ */
+class IncrementalClusterStateGenerator {
+
+    private final boolean verify;
+
+    /** The effective states of all nodes, as of the last generation */
+    private ClusterState nodeStates = null;
+
+    /** What is known about the effective state of each node in nodeStates */
+    private final Map<Node, Entry> entries = new HashMap<>();
+
+    // The cluster and the node parameters of the last generation. Changes to these invalidate all node states.
+    private ContentCluster cluster = null;
+    private int maxPrematureCrashes;
+    private Map<NodeType, Integer> transitionTimes;
+    private int maxInitProgressTimeMs;
+
+    private int nodesRecomputed = 0;
+
+    IncrementalClusterStateGenerator(boolean verify) {
+        this.verify = verify;
+    }
+
+    AnnotatedClusterState generatedStateFrom(ClusterStateGenerator.Params params) {
+        if ( ! isValidFor(params))
+            reset(params);
+
+        nodesRecomputed = 0;
+        for (NodeInfo nodeInfo : params.cluster.getNodeInfo()) {
+            Entry entry = entries.get(nodeInfo.getNode());
+            if (entry.modificationCount == nodeInfo.getModificationCount() && ! entry.timeDependent) continue;
+
+            nodeStates.setNodeState(nodeInfo.getNode(), canonical(ClusterStateGenerator.computeEffectiveNodeState(nodeInfo, params), nodeInfo));
+            entry.modificationCount = nodeInfo.getModificationCount();
+            entry.timeDependent = isTimeDependent(nodeInfo, params);
+            nodesRecomputed++;
+        }
+
+        AnnotatedClusterState state = ClusterStateGenerator.annotatedStateFrom(nodeStates.clone(), params);
+        if (verify)
+            verify(state, params);
+        return state;
+    }
+
+    /** Returns the number of nodes whose effective state was computed in the last generation */
+    int nodesRecomputed() { return nodesRecomputed; }
+
+    private boolean isValidFor(ClusterStateGenerator.Params params) {
+        if (nodeStates == null) return false;
+        if (params.cluster != cluster) return false;
+        if (params.maxPrematureCrashes != maxPrematureCrashes) return false;
+        if ( ! params.transitionTimes.equals(transitionTimes)) return false;
+        if (params.maxInitProgressTimeMs != maxInitProgressTimeMs) return false;
+        if (params.cluster.getNodeInfo().size() != entries.size()) return false;
+        for (NodeInfo nodeInfo : params.cluster.getNodeInfo()) {
+            Entry entry = entries.get(nodeInfo.getNode());
+            if (entry == null || entry.nodeInfo != nodeInfo) return false;
+        }
+        return true;
+    }
+
+    private void reset(ClusterStateGenerator.Params params) {
+        nodeStates = ClusterState.emptyState();
+        entries.clear();
+        for (NodeInfo nodeInfo : params.cluster.getNodeInfo())
+            entries.put(nodeInfo.getNode(), new Entry(nodeInfo));
+        cluster = params.cluster;
+        maxPrematureCrashes = params.maxPrematureCrashes;
+        transitionTimes = new HashMap<>(params.transitionTimes);
+        maxInitProgressTimeMs = params.maxInitProgressTimeMs;
+    }
+
+    /**
+     * Returns whether the effective state of the given node may change with the current time alone:
+     * Storage nodes which are not up may time out of initializing, and into or out of maintenance.
+     */
+    private static boolean isTimeDependent(NodeInfo nodeInfo, ClusterStateGenerator.Params params) {
+        if ( ! nodeInfo.isStorage()) return false;
+        return nodeInfo.getReportedState().getState() != State.UP
+               || ClusterStateGenerator.nodeIsConsideredTooUnstable(nodeInfo, params);
+    }
+
+    /**
+     * A full generation sets node states in node order, and a cluster state drops trailing down nodes
+     * without a description and fills the gap with plain down states when a later node is set.
+     * Replacing such states by plain down states makes the resulting cluster state independent of
+     * the order in which node states are set, such that they can be set in any order here.
+     */
+    private static NodeState canonical(NodeState nodeState, NodeInfo nodeInfo) {
+        if (nodeState.getState() != State.DOWN || nodeState.hasDescription()) return nodeState;
+        return new NodeState(nodeInfo.getNode().getType(), State.DOWN);
+    }
+
+    private void verify(AnnotatedClusterState state, ClusterStateGenerator.Params params) {
+        AnnotatedClusterState expected = ClusterStateGenerator.generatedStateFrom(params);
+        if ( ! state.equals(expected))
+            throw new IllegalStateException("Incrementally generated cluster state '" + state.toString(true) +
+                                            "' differs from the fully generated state '" + expected.toString(true) + "'");
+    }
+
+    private static class Entry {
+
+        final NodeInfo nodeInfo;
+
+        /** The modification count of the node when its effective state was computed, or -1 if it has not been */
+        long modificationCount = -1;
+
+        /** Whether the effective state of this node must be recomputed on each generation */
+        boolean timeDependent = false;
+
+        Entry(NodeInfo nodeInfo) {
+            this.nodeInfo = nodeInfo;
+        }
+
+    }
+
+}
@@ -100,6 +100,9 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
 
     private Group group;
 
+    /** Incremented on each change to the information the effective state of this node is derived from */
+    private long modificationCount = 0;
+
     // NOTE: See update(node) below
     NodeInfo(ContentCluster cluster, Node n, boolean configuredRetired, String rpcAddress, Distribution distribution) {
         if (cluster == null) throw new IllegalArgumentException("Cluster not set");
@@ -136,10 +139,16 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
     public long getStartTimestamp() { return cluster.getStartTimestamp(node); }
     public void setStartTimestamp(long ts) { cluster.setStartTimestamp(node, ts); }
 
-    public void setTransitionTime(long time) { transitionTime = time; }
+    public void setTransitionTime(long time) {
+        transitionTime = time;
+        markModified();
+    }
     public long getTransitionTime() { return transitionTime; }
 
-    public void setInitProgressTime(long time) { initProgressTime = time; }
+    public void setInitProgressTime(long time) {
+        initProgressTime = time;
+        markModified();
+    }
     public long getInitProgressTime() { return initProgressTime; }
 
     public long getUpStableStateTime() { return upStableStateTime; }
@@ -153,6 +162,7 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
     }
     public void setRecentlyObservedUnstableDuringInit(boolean unstable) {
         recentlyObservedUnstableDuringInit = unstable;
+        markModified();
     }
 
     public void setPrematureCrashCount(int count) {
@@ -163,9 +173,19 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
             prematureCrashCount = count;
             log.log(LogLevel.DEBUG, "Premature crash count on " + toString() + " set to " + count);
         }
+        markModified();
     }
     public int getPrematureCrashCount() { return prematureCrashCount; }
 
+    /**
+     * Returns a counter which changes whenever any of the information the effective state of this node
+     * is derived from changes, such that the effective state need only be recomputed when this changes
+     * (or time passes, for nodes whose effective state depends on the time).
+     */
+    long getModificationCount() { return modificationCount; }
+
+    void markModified() { modificationCount++; }
+
     public boolean isPendingGetNodeStateRequest(GetNodeStateRequest r) {
         for(Pair<GetNodeStateRequest, Long> it : pendingNodeStateRequests) {
             if (it.getFirst() == r) return true;
@@ -174,6 +194,8 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
     }
 
     public void setConfiguredRetired(boolean retired) {
+        if (retired != configuredRetired)
+            markModified();
         this.configuredRetired = retired;
     }
 
@@ -348,6 +370,7 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
                 nextAttemptTime = time;
             }
         }
+        markModified();
         log.log(LogLevel.SPAM, "Set reported state of node " + this + " to " + reportedState + ". Next connection attempt is at " + nextAttemptTime);
     }
 
@@ -367,6 +390,7 @@ abstract public class NodeInfo implements Comparable<NodeInfo> {
             }
         }
         wantedState = newWanted;
+        markModified();
         log.log(LogLevel.SPAM, "Set wanted state of node " + this + " to " + wantedState + ".");
     }
 
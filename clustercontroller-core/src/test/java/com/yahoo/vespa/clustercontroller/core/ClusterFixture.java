@@ -27,6 +27,7 @@ public class ClusterFixture {
     public final EventLogInterface eventLog;
     public final StateChangeHandler nodeStateChangeHandler;
     public final ClusterStateGenerator.Params params = new ClusterStateGenerator.Params();
+    private final IncrementalClusterStateGenerator stateGenerator = new IncrementalClusterStateGenerator(true);
 
     public ClusterFixture(ContentCluster cluster, Distribution distribution) {
         this.cluster = cluster;
@@ -179,7 +180,7 @@ public class ClusterFixture {
 
     public AnnotatedClusterState annotatedGeneratedClusterState() {
         params.currentTimeInMilllis(timer.getCurrentTimeInMillis());
-        return ClusterStateGenerator.generatedStateFrom(params);
+        return stateGenerator.generatedStateFrom(params);
     }
 
     public ClusterState rawGeneratedClusterState() {
@@ -130,6 +130,7 @@ public abstract class FleetControllerTest implements Waiter {
         }
         this.options.slobrokConnectionSpecs = new String[1];
         this.options.slobrokConnectionSpecs[0] = "tcp/localhost:" + slobrok.port();
+        this.options.verifyIncrementalStateGeneration = true;
         this.usingFakeTimer = useFakeTimer;
     }
 
@@ -0,0 +1,92 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.clustercontroller.core;
+
+import com.yahoo.vdslib.state.NodeState;
+import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class IncrementalClusterStateGeneratorTest {
+
+    @Test
+    public void only_changed_and_time_dependent_nodes_are_recomputed() {
+        ClusterFixture fixture = ClusterFixture.forFlatCluster(10).bringEntireClusterUp();
+        fixture.enableTransientMaintenanceModeOnDown(1000);
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator(true);
+
+        assertThat(generate(generator, fixture), is("distributor:10 storage:10"));
+        assertThat(generator.nodesRecomputed(), is(20));
+
+        assertThat(generate(generator, fixture), is("distributor:10 storage:10"));
+        assertThat(generator.nodesRecomputed(), is(0));
+
+        fixture.reportStorageNodeState(3, State.DOWN);
+        fixture.reportDistributorNodeState(9, State.DOWN);
+        assertThat(generate(generator, fixture), is("distributor:9 storage:10 .3.s:m"));
+        assertThat(generator.nodesRecomputed(), is(2));
+
+        // The down storage node is recomputed as its state depends on the time
+        fixture.timer.advanceTime(1000);
+        assertThat(generate(generator, fixture), is("distributor:9 storage:10 .3.s:d"));
+        assertThat(generator.nodesRecomputed(), is(1));
+
+        fixture.reportStorageNodeState(3, State.UP);
+        fixture.reportDistributorNodeState(9, State.UP);
+        assertThat(generate(generator, fixture), is("distributor:10 storage:10"));
+        assertThat(generator.nodesRecomputed(), is(2));
+
+        assertThat(generate(generator, fixture), is("distributor:10 storage:10"));
+        assertThat(generator.nodesRecomputed(), is(0));
+    }
+
+    @Test
+    public void all_nodes_are_recomputed_when_node_parameters_or_nodes_change() {
+        ClusterFixture fixture = ClusterFixture.forFlatCluster(5).bringEntireClusterUp();
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator(true);
+        generate(generator, fixture);
+
+        fixture.params.maxPrematureCrashes(3);
+        generate(generator, fixture);
+        assertThat(generator.nodesRecomputed(), is(10));
+
+        fixture.markNodeAsConfigRetired(2);
+        assertThat(generate(generator, fixture), is("distributor:5 storage:5 .2.s:r"));
+        assertThat(generator.nodesRecomputed(), is(1));
+
+        fixture.cluster.setNodes(DistributionBuilder.buildConfiguredNodes(6));
+        fixture.reportDistributorNodeState(5, State.UP);
+        fixture.reportStorageNodeState(5, State.UP);
+        assertThat(generate(generator, fixture), is("distributor:6 storage:6"));
+        assertThat(generator.nodesRecomputed(), is(12));
+    }
+
+    @Test
+    public void states_equal_fully_generated_states_as_nodes_go_down_and_come_up() {
+        ClusterFixture fixture = ClusterFixture.forFlatCluster(8).bringEntireClusterUp();
+        fixture.disableAutoClusterTakedown();
+        IncrementalClusterStateGenerator generator = new IncrementalClusterStateGenerator(true);
+
+        // Reported down states without a description make generated states depend on the order nodes are set in
+        int[] indexes = { 7, 6, 2, 0, 5, 1, 7, 3, 4, 6 };
+        for (int i = 0; i < indexes.length; i++) {
+            fixture.reportDistributorNodeState(indexes[i], i % 3 == 0 ? State.UP : State.DOWN);
+            fixture.reportStorageNodeState(indexes[i], new NodeState(NodeType.STORAGE, i % 2 == 0 ? State.DOWN : State.UP));
+            generate(generator, fixture); // verifies
+        }
+        for (int index : indexes) {
+            fixture.reportDistributorNodeState(index, State.UP);
+            fixture.reportStorageNodeState(index, State.UP);
+            generate(generator, fixture); // verifies
+        }
+        assertThat(generate(generator, fixture), is("distributor:8 storage:8"));
+    }
+
+    private String generate(IncrementalClusterStateGenerator generator, ClusterFixture fixture) {
+        fixture.params.currentTimeInMilllis(fixture.timer.getCurrentTimeInMillis());
+        return generator.generatedStateFrom(fixture.params).toString();
+    }
+
+}
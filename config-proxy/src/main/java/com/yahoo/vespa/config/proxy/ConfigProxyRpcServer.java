@@ -10,7 +10,6 @@ import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -300,12 +299,11 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher, RpcServer
     @Override
     public void notifyTargetInvalid(Target target) {
         log.log(LogLevel.DEBUG, () -> "Target invalid " + target);
-        for (Iterator<DelayedResponse> it = proxyServer.delayedResponses.responses().iterator(); it.hasNext(); ) {
-            DelayedResponse delayed = it.next();
+        for (DelayedResponse delayed : proxyServer.delayedResponses.responses()) {
             JRTServerConfigRequest request = delayed.getRequest();
             if (request.getRequest().target().equals(target)) {
                 log.log(LogLevel.DEBUG, () -> "Removing " + request.getShortDescription());
-                it.remove();
+                proxyServer.delayedResponses.remove(delayed);
             }
         }
         // TODO: Could we also cancel active getConfig requests upstream if the client was the only one
@@ -39,12 +39,12 @@ public class DelayedResponseHandler implements Runnable {
         try {
             long start = System.currentTimeMillis();
             if (log.isLoggable(LogLevel.SPAM)) {
-                log.log(LogLevel.SPAM, "Running DelayedResponseHandler. There are " + delayedResponses.size() + " delayed responses. First one is " + delayedResponses.responses().peek());
+                log.log(LogLevel.SPAM, "Running DelayedResponseHandler. There are " + delayedResponses.size() + " delayed responses");
             }
             DelayedResponse response;
             int i = 0;
 
-            while ((response = delayedResponses.responses().poll()) != null) {
+            while ((response = delayedResponses.pollExpired()) != null) {
                 if (log.isLoggable(LogLevel.DEBUG)) {
                     log.log(LogLevel.DEBUG, "Returning with response that has return time " + new Date(response.getReturnTime()));
                 }
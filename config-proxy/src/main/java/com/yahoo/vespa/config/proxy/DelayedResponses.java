@@ -1,16 +1,36 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.proxy;
 
+import com.yahoo.vespa.config.ConfigKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Queue for requests that have no corresponding config in cache and which we are awaiting response from server for
+ * Queue for requests that have no corresponding config in cache and which we are awaiting response from server for.
+ * <p>
+ * Responses are indexed by config key, such that returning the responses waiting for a config is linear
+ * in the number of responses waiting for that config rather than in all waiting responses.
+ * Responses removed are left in the timeout queue until they expire,
+ * as removing from it is linear in its size.
  *
  * @author hmusum
  */
 class DelayedResponses {
 
+    /** All responses ordered by return time. May also contain responses which are already removed */
     private final DelayQueue<DelayedResponse> delayedResponses = new DelayQueue<>();
+
+    /** The responses which are not removed, by config key */
+    private final Map<ConfigKey<?>, Set<DelayedResponse>> responsesByKey = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
     private final ConfigProxyStatistics statistics;
 
     DelayedResponses(ConfigProxyStatistics statistics) {
@@ -18,21 +38,63 @@ class DelayedResponses {
     }
 
     void add(DelayedResponse response) {
+        responsesByKey.compute(response.getRequest().getConfigKey(), (key, responses) -> {
+            if (responses == null)
+                responses = ConcurrentHashMap.newKeySet();
+            if (responses.add(response))
+                size.incrementAndGet();
+            return responses;
+        });
         delayedResponses.add(response);
-        statistics.delayedResponses(delayedResponses.size());
+        statistics.delayedResponses(size.get());
     }
 
+    /**
+     * Removes a response.
+     *
+     * @return true if the response was removed by this call, false if it was not present,
+     *         e.g because it was already removed by another thread
+     */
     boolean remove(DelayedResponse response) {
+        boolean[] removed = new boolean[1];
+        responsesByKey.computeIfPresent(response.getRequest().getConfigKey(), (key, responses) -> {
+            removed[0] = responses.remove(response);
+            return responses.isEmpty() ? null : responses;
+        });
+        if ( ! removed[0]) return false;
+
+        size.decrementAndGet();
         statistics.decDelayedResponses();
-        return delayedResponses.remove(response);
+        return true;
+    }
+
+    /** Removes and returns the response which has timed out first, or null if no responses have timed out */
+    DelayedResponse pollExpired() {
+        DelayedResponse response;
+        while ((response = delayedResponses.poll()) != null) {
+            if (remove(response))
+                return response;
+        }
+        return null;
+    }
+
+    /** Returns the responses waiting for the given config. The returned list is owned by the caller */
+    List<DelayedResponse> responsesFor(ConfigKey<?> key) {
+        Set<DelayedResponse> responses = responsesByKey.get(key);
+        if (responses == null) return Collections.emptyList();
+        return new ArrayList<>(responses);
     }
 
-    DelayQueue<DelayedResponse> responses() {
-        return delayedResponses;
+    /** Returns all the responses in this. The returned list is owned by the caller */
+    List<DelayedResponse> responses() {
+        List<DelayedResponse> responses = new ArrayList<>(size.get());
+        for (Set<DelayedResponse> keyResponses : responsesByKey.values())
+            responses.addAll(keyResponses);
+        return responses;
     }
 
     int size() {
-        return responses().size();
+        return size.get();
     }
 
 }
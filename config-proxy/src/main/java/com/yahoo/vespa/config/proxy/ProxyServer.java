@@ -263,6 +263,7 @@ public class ProxyServer implements Runnable {
         if (rpcServer != null) rpcServer.shutdown();
         if (delayedResponseScheduler != null) delayedResponseScheduler.cancel(true);
         flush();
+        fileDownloader.close();
         if (statistics != null) {
             statistics.stop();
         }
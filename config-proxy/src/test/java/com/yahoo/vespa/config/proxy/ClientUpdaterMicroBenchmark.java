@@ -0,0 +1,65 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.proxy;
+
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.RawConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulates a redeployment seen from a config proxy serving many nodes: Each node has an outstanding
+ * request for each of its configs, and all the configs change. Measures the time used to
+ * return all the delayed responses.
+ */
+public class ClientUpdaterMicroBenchmark {
+
+    private static final int nodeCount = 5000;
+    private static final int configsPerNode = 4;
+
+    private final ConfigTester tester = new ConfigTester();
+
+    public void benchmark() {
+        for (int i = 0; i < 3; i++) // warmup
+            redeploy();
+
+        int runs = 5;
+        long totalTime = 0;
+        for (int i = 0; i < runs; i++)
+            totalTime += redeploy();
+        System.out.println("Time to return " + (nodeCount * configsPerNode) + " delayed responses for " +
+                           nodeCount + " nodes: " + (totalTime / runs) + " ms");
+    }
+
+    /** Returns the time in milliseconds spent returning responses after a redeployment */
+    private long redeploy() {
+        MockRpcServer rpcServer = new MockRpcServer();
+        ConfigProxyStatistics statistics = new ConfigProxyStatistics();
+        DelayedResponses delayedResponses = new DelayedResponses(statistics);
+        ClientUpdater clientUpdater = new ClientUpdater(rpcServer, statistics, delayedResponses);
+
+        List<RawConfig> configs = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            for (int config = 0; config < configsPerNode; config++) {
+                RawConfig nodeConfig = new RawConfig(new ConfigKey<>("config" + config, "node" + node, "bench"),
+                                                     ConfigTester.fooConfig.getDefMd5());
+                delayedResponses.add(new DelayedResponse(tester.createRequest(nodeConfig, 60000)));
+                configs.add(nodeConfig);
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        for (RawConfig config : configs)
+            clientUpdater.updateSubscribers(config);
+        long time = System.currentTimeMillis() - startTime;
+
+        if (rpcServer.responses != configs.size())
+            throw new IllegalStateException("Expected " + configs.size() + " responses, got " + rpcServer.responses);
+        return time;
+    }
+
+    public static void main(String[] args) {
+        new ClientUpdaterMicroBenchmark().benchmark();
+    }
+
+}
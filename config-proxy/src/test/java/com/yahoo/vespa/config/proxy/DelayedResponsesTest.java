@@ -3,8 +3,14 @@ package com.yahoo.vespa.config.proxy;
 
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author hmusum
@@ -13,20 +19,47 @@ import static org.junit.Assert.assertThat;
 public class DelayedResponsesTest {
 
     @Test
-    public void basic() throws InterruptedException {
+    public void basic() {
         ConfigTester tester = new ConfigTester();
         DelayedResponses responses = new DelayedResponses(new ConfigProxyStatistics());
-        DelayedResponse delayedResponse = new DelayedResponse(tester.createRequest("foo", "id", "bar", 10));
+        DelayedResponse delayedResponse = new DelayedResponse(tester.createRequest("foo", "id", "bar", 10), 0);
         responses.add(delayedResponse);
 
         assertThat(responses.size(), is(1));
-        assertThat(responses.responses().take(), is(delayedResponse));
+        assertThat(responses.pollExpired(), is(delayedResponse));
         assertThat(responses.size(), is(0));
 
         responses.add(delayedResponse);
         assertThat(responses.size(), is(1));
-        responses.remove(delayedResponse);
+        assertTrue(responses.remove(delayedResponse));
         assertThat(responses.size(), is(0));
+        assertFalse("Already removed", responses.remove(delayedResponse));
+        assertNull("Removed responses are not returned on expiry", responses.pollExpired());
+    }
+
+    @Test
+    public void responsesByKey() {
+        ConfigTester tester = new ConfigTester();
+        DelayedResponses responses = new DelayedResponses(new ConfigProxyStatistics());
+        DelayedResponse foo1 = new DelayedResponse(tester.createRequest("foo", "id1", "bar", 10000));
+        DelayedResponse foo2 = new DelayedResponse(tester.createRequest("foo", "id1", "bar", 10000));
+        DelayedResponse fooOther = new DelayedResponse(tester.createRequest("foo", "id2", "bar", 10000));
+        responses.add(foo1);
+        responses.add(foo2);
+        responses.add(fooOther);
+
+        assertEquals(3, responses.size());
+        assertEquals(3, responses.responses().size());
+        assertEquals(2, responses.responsesFor(foo1.getRequest().getConfigKey()).size());
+        assertTrue(responses.responsesFor(foo1.getRequest().getConfigKey()).contains(foo2));
+        assertEquals(1, responses.responsesFor(fooOther.getRequest().getConfigKey()).size());
+
+        responses.remove(foo1);
+        assertEquals(Collections.singletonList(foo2), responses.responsesFor(foo1.getRequest().getConfigKey()));
+        responses.remove(foo2);
+        assertTrue(responses.responsesFor(foo1.getRequest().getConfigKey()).isEmpty());
+        assertEquals(1, responses.size());
+        assertNull("Not expired", responses.pollExpired());
     }
 
 }
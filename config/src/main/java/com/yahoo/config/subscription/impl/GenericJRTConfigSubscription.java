@@ -2,6 +2,7 @@
 package com.yahoo.config.subscription.impl;
 
 import java.util.List;
+import java.util.Optional;
 
 import com.yahoo.config.subscription.ConfigSource;
 import com.yahoo.config.subscription.ConfigSubscriber;
@@ -11,6 +12,7 @@ import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.TimingValues;
 import com.yahoo.vespa.config.protocol.DefContent;
 import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
+import com.yahoo.vespa.config.protocol.Payload;
 
 /**
  * A JRT subscription which does not use the config class, but {@link com.yahoo.vespa.config.RawConfig} instead.
@@ -61,6 +63,19 @@ public class GenericJRTConfigSubscription extends JRTConfigSubscription<RawConfi
         }
     }
 
+    // Overridden because the raw config holds its payload, which a response diff can be applied to
+    @Override
+    public boolean acceptsPayloadDiffs() {
+        return true;
+    }
+
+    @Override
+    public Optional<Payload> getPayloadDiffBase() {
+        RawConfig config = getConfigState().getConfig();
+        if (config == null || config.getConfigMd5().isEmpty()) return Optional.empty();
+        return Optional.ofNullable(config.getPayload());
+    }
+
     public RawConfig getRawConfig() {
         return getConfigState().getConfig();
     }
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.config.subscription.impl;
 
+import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -129,6 +130,22 @@ public class JRTConfigSubscription<T extends ConfigInstance> extends ConfigSubsc
         return configInstance;
     }
 
+    /**
+     * Returns whether this holds the payloads it receives, such that responses to its requests may contain only
+     * the diff against the payload it has. False here, as this only keeps the config instance.
+     */
+    public boolean acceptsPayloadDiffs() {
+        return false;
+    }
+
+    /**
+     * Returns the payload of the config this currently holds if responses to requests from this may
+     * contain only the diff against it, or empty to always receive full payloads.
+     */
+    public Optional<Payload> getPayloadDiffBase() {
+        return Optional.empty();
+    }
+
     LinkedBlockingQueue<JRTClientConfigRequest> getReqQueue() {
         return reqQueue;
     }
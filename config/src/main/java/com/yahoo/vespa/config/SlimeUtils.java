@@ -28,7 +28,8 @@ public class SlimeUtils {
 
     }
 
-    private static void setObjectEntry(Inspector from, String name, Cursor to) {
+    /** Sets a copy of the given value as the field with the given name in the given object */
+    public static void setObjectEntry(Inspector from, String name, Cursor to) {
         switch (from.type()) {
             case NIX:
                 to.setNix(name);
@@ -69,7 +70,8 @@ public class SlimeUtils {
 
     }
 
-    private static void addValue(Inspector from, Cursor to) {
+    /** Adds a copy of the given value to the given array */
+    public static void addValue(Inspector from, Cursor to) {
         switch (from.type()) {
             case NIX:
                 to.addNix();
@@ -7,6 +7,7 @@ import com.yahoo.config.subscription.impl.JRTConfigSubscription;
 import com.yahoo.jrt.Request;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.ErrorCode;
 import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.util.ConfigUtils;
@@ -23,6 +24,18 @@ import java.util.Optional;
  */
 public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
 
+    /** Whether the client holds the payloads it receives, such that responses may contain diffs against them */
+    private final boolean acceptsPayloadDiffs;
+
+    /** The payload having the config md5 of this request, which the response payload may be a diff against */
+    private final Optional<Payload> payloadDiffBase;
+
+    /** The payload of the response, resolved by applying the diff if the response contains one */
+    private Payload newPayload = null;
+
+    /** Whether the response contained a diff which could not be applied */
+    private boolean payloadDiffFailed = false;
+
     protected JRTClientConfigRequestV3(ConfigKey<?> key,
                                        String hostname,
                                        DefContent defSchema,
@@ -32,7 +45,24 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
                                        Trace trace,
                                        CompressionType compressionType,
                                        Optional<VespaVersion> vespaVersion) {
-        super(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion);
+        this(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion, false, Optional.empty());
+    }
+
+    JRTClientConfigRequestV3(ConfigKey<?> key,
+                             String hostname,
+                             DefContent defSchema,
+                             String configMd5,
+                             long generation,
+                             long timeout,
+                             Trace trace,
+                             CompressionType compressionType,
+                             Optional<VespaVersion> vespaVersion,
+                             boolean acceptsPayloadDiffs,
+                             Optional<Payload> payloadDiffBase) {
+        super(key, hostname, defSchema, configMd5, generation, timeout, trace, compressionType, vespaVersion,
+              acceptsPayloadDiffs && payloadDiffBase.isPresent());
+        this.acceptsPayloadDiffs = acceptsPayloadDiffs;
+        this.payloadDiffBase = acceptsPayloadDiffs ? payloadDiffBase : Optional.empty();
     }
 
     @Override
@@ -45,11 +75,50 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
         return JRTMethods.checkV3ReturnTypes(request);
     }
 
+    /**
+     * Validates the response, and applies the payload diff if the response contains one.
+     * If the diff cannot be applied, or does not produce the config md5 of the response, the request is set to
+     * failed, such that the next request is made for the same config without accepting a diff.
+     */
+    @Override
+    public boolean validateResponse() {
+        if ( ! super.validateResponse()) return false;
+
+        String diffBase = getResponseData().getResponsePayloadDiffBase();
+        if (diffBase.isEmpty()) return true;
+        try {
+            if ( ! payloadDiffBase.isPresent() || ! diffBase.equals(getRequestConfigMd5()))
+                return failPayloadDiff("Got a diff against config md5 " + diffBase + " which is not held by the client");
+            if ( ! ConfigUtils.getMd5(getNewPayload().getData()).equals(getNewConfigMd5()))
+                return failPayloadDiff("Applying the payload diff did not produce config md5 " + getNewConfigMd5());
+            return true;
+        }
+        catch (IllegalArgumentException e) {
+            return failPayloadDiff("Could not apply the payload diff: " + e.getMessage());
+        }
+    }
+
+    private boolean failPayloadDiff(String message) {
+        payloadDiffFailed = true;
+        newPayload = null;
+        request.setError(ErrorCode.INCONSISTENT_CONFIG_MD5, message);
+        return false;
+    }
+
     @Override
     public Payload getNewPayload() {
+        if (newPayload == null)
+            newPayload = resolveNewPayload();
+        return newPayload;
+    }
+
+    private Payload resolveNewPayload() {
         CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
-        Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
-        return Payload.from(payload, compressionInfo);
+        Utf8Array data = new Utf8Array(request.returnValues().get(1).asData());
+        Payload payload = Payload.from(data, compressionInfo);
+        if (getResponseData().getResponsePayloadDiffBase().isEmpty()) return payload;
+        return PayloadDiff.apply(payloadDiffBase.orElseThrow(() -> new IllegalArgumentException("No diff base")),
+                                 payload);
     }
 
     @Override
@@ -67,7 +136,18 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
                 timeout,
                 Trace.createNew(),
                 requestData.getCompressionType(),
-                requestData.getVespaVersion());
+                requestData.getVespaVersion(),
+                acceptsPayloadDiffs,
+                nextPayloadDiffBase());
+    }
+
+    /** Returns the payload the next request may receive a diff against */
+    private Optional<Payload> nextPayloadDiffBase() {
+        if ( ! acceptsPayloadDiffs) return Optional.empty();
+        if (isError()) return payloadDiffFailed ? Optional.empty() : payloadDiffBase;
+        if ( ! hasUpdatedConfig()) return payloadDiffBase;
+        if (hasUpdatedGeneration()) return Optional.of(getNewPayload()); // the response contains the new payload
+        return Optional.empty();
     }
 
     public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
@@ -78,15 +158,17 @@ public class JRTClientConfigRequestV3 extends SlimeClientConfigRequest {
         ConfigKey<T> key = sub.getKey();
         ConfigSubscription.ConfigState<T> configState = sub.getConfigState();
         T i = configState.getConfig();
-        return createWithParams(key,
-                sub.getDefContent(),
+        return new JRTClientConfigRequestV3(key,
                 hostname,
+                sub.getDefContent(),
                 i != null ? i.getConfigMd5() : "",
                 configState.getGeneration() != null ? configState.getGeneration() : 0L,
                 sub.timingValues().getSubscribeTimeout(),
                 trace,
                 compressionType,
-                vespaVersion);
+                vespaVersion,
+                sub.acceptsPayloadDiffs(),
+                i != null ? sub.getPayloadDiffBase() : Optional.empty());
     }
 
 
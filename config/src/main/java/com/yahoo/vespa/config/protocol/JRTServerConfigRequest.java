@@ -3,6 +3,8 @@ package com.yahoo.vespa.config.protocol;
 
 import com.yahoo.vespa.config.GetConfigRequest;
 
+import java.util.Optional;
+
 /**
  * Interface for config requests at the server end point.
  *
@@ -38,6 +40,26 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     void addOkResponse(Payload payload, long generation, boolean internalRedeployment, String configMd5);
 
+    /**
+     * Signal that the request was handled, and send only the given diff instead of the payload if the client
+     * accepts diffs and should receive a new payload.
+     *
+     * @param payload The config payload that the client should receive.
+     * @param generation The config generation of the given payload.
+     * @param internalRedeployment whether this payload was generated from an internal redeployment not an
+     *                             application package change
+     * @param configMd5 The md5sum of the given payload.
+     * @param payloadDiff the {@link PayloadDiff} from the payload having the config md5 of the request to the given
+     *                    payload, or empty to send the payload
+     */
+    void addOkResponse(Payload payload, long generation, boolean internalRedeployment, String configMd5,
+                       Optional<Payload> payloadDiff);
+
+    /**
+     * Returns whether the client can apply a payload diff to the payload of the config md5 it requested with.
+     */
+    boolean acceptsPayloadDiff();
+
     /**
      * Get the current config md5 of the client config.
      *
@@ -9,6 +9,7 @@ import com.yahoo.vespa.config.util.ConfigUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * The V3 config protocol implemented on the server side. The V3 protocol uses 2 fields JRT
@@ -16,6 +17,8 @@ import java.io.IOException;
  * * A metadata field containing json data describing config generation, md5 and compression info
  * * A data field containing compressed or uncompressed json config payload. This field can be empty if the payload
  *   has not changed since last request, triggering an optimization at the client where the previous payload is used instead.
+ *   If the client accepts payload diffs and the payload it has is known, this may contain only the diff against that
+ *   payload (see {@link PayloadDiff}), in which case the metadata field payloadDiffBase is the md5 of that payload.
  *
  * The implementation of addOkResponse is optimized for doing as little copying of payload data as possible, ensuring
  * that we get a lower memory footprint.
@@ -34,10 +37,17 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
 
     @Override
     public void addOkResponse(Payload payload, long generation, boolean internalRedeploy, String configMd5) {
+        addOkResponse(payload, generation, internalRedeploy, configMd5, Optional.empty());
+    }
+
+    @Override
+    public void addOkResponse(Payload payload, long generation, boolean internalRedeploy, String configMd5,
+                              Optional<Payload> payloadDiff) {
         this.internalRedeploy = internalRedeploy;
         boolean changedConfig = !configMd5.equals(getRequestConfigMd5());
         boolean changedConfigAndNewGeneration = changedConfig && ConfigUtils.isGenerationNewer(generation, getRequestGeneration());
-        Payload responsePayload = payload.withCompression(getCompressionType());
+        Optional<Payload> diff = changedConfigAndNewGeneration && acceptsPayloadDiff() ? payloadDiff : Optional.empty();
+        Payload responsePayload = diff.orElse(payload).withCompression(getCompressionType());
         ByteArrayOutputStream byteArrayOutputStream = new NoCopyByteArrayOutputStream(4096);
         try {
             JsonGenerator jsonGenerator = createJsonGenerator(byteArrayOutputStream);
@@ -46,6 +56,8 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_MD5, configMd5);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_GENERATION, generation);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_INTERNAL_REDEPLOY, internalRedeploy);
+            if (diff.isPresent())
+                setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_PAYLOAD_DIFF_BASE, getRequestConfigMd5());
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
             if (responsePayload == null) {
                 throw new RuntimeException("Payload is null for ' " + this + ", not able to create response");
@@ -0,0 +1,189 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.ObjectTraverser;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.Type;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.SlimeUtils;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Creates and applies diffs between config payloads, such that a client holding one version of a config
+ * can be sent only the parts which have changed in a new version.
+ * <p>
+ * A diff is itself a json payload. The diff of an object is an object containing
+ * "set": the fields which are new or have new values,
+ * "remove": an array of the names of the fields which are removed, and
+ * "diff": the diffs of the object and array fields which have changed.
+ * The diff of an array is an object containing the "length" of the new array, and "set" and "diff" objects
+ * keyed by array index.
+ * <p>
+ * Applying a diff keeps the field order of the base payload and appends new fields, so a diff is only created
+ * when applying it reproduces the target payload exactly, as verified by the client using the config md5.
+ */
+public class PayloadDiff {
+
+    private static final String SET = "set";
+    private static final String REMOVE = "remove";
+    private static final String DIFF = "diff";
+    private static final String LENGTH = "length";
+
+    private PayloadDiff() {}
+
+    /**
+     * Returns a payload containing the diff which transforms the base payload into the target payload,
+     * or empty if no diff which is smaller than the target payload can be created.
+     */
+    public static Optional<Payload> create(Payload base, Payload target) {
+        Utf8Array baseData = uncompressed(base).getData();
+        Utf8Array targetData = uncompressed(target).getData();
+        Inspector baseRoot = ConfigPayload.fromUtf8Array(baseData).getSlime().get();
+        Inspector targetRoot = ConfigPayload.fromUtf8Array(targetData).getSlime().get();
+        if (baseRoot.type() != Type.OBJECT || targetRoot.type() != Type.OBJECT) return Optional.empty();
+
+        Slime diff = new Slime();
+        diffObject(baseRoot, targetRoot, diff.setObject());
+        Utf8Array diffData = new ConfigPayload(diff).toUtf8Array(true);
+        if (diffData.getByteLength() >= targetData.getByteLength()) return Optional.empty();
+        if ( ! Arrays.equals(apply(baseRoot, diff.get()).getData().getBytes(), targetData.getBytes())) return Optional.empty();
+        return Optional.of(Payload.from(diffData));
+    }
+
+    /** Returns the uncompressed payload resulting from applying the given diff to the given base payload */
+    public static Payload apply(Payload base, Payload diff) {
+        Inspector baseRoot = ConfigPayload.fromUtf8Array(uncompressed(base).getData()).getSlime().get();
+        Inspector diffRoot = ConfigPayload.fromUtf8Array(uncompressed(diff).getData()).getSlime().get();
+        return apply(baseRoot, diffRoot);
+    }
+
+    private static Payload apply(Inspector baseRoot, Inspector diffRoot) {
+        Slime result = new Slime();
+        applyObject(baseRoot, diffRoot, result.setObject());
+        return Payload.from(new ConfigPayload(result));
+    }
+
+    private static Payload uncompressed(Payload payload) {
+        return payload.withCompression(CompressionType.UNCOMPRESSED);
+    }
+
+    private static void diffObject(Inspector base, Inspector target, Cursor diff) {
+        Cursor set = diff.setObject(SET);
+        Cursor remove = diff.setArray(REMOVE);
+        Cursor diffs = diff.setObject(DIFF);
+        target.traverse((ObjectTraverser) (name, targetValue) ->
+                diffValue(base.field(name), targetValue, name, set, diffs));
+        base.traverse((ObjectTraverser) (name, baseValue) -> {
+            if ( ! target.field(name).valid())
+                remove.addString(name);
+        });
+    }
+
+    private static void diffArray(Inspector base, Inspector target, Cursor diff) {
+        diff.setLong(LENGTH, target.entries());
+        Cursor set = diff.setObject(SET);
+        Cursor diffs = diff.setObject(DIFF);
+        target.traverse((ArrayTraverser) (index, targetValue) ->
+                diffValue(base.entry(index), targetValue, String.valueOf(index), set, diffs));
+    }
+
+    private static void diffValue(Inspector base, Inspector target, String name, Cursor set, Cursor diffs) {
+        if ( ! base.valid() || base.type() != target.type())
+            SlimeUtils.setObjectEntry(target, name, set);
+        else if (equal(base, target))
+            return;
+        else if (target.type() == Type.OBJECT)
+            diffObject(base, target, diffs.setObject(name));
+        else if (target.type() == Type.ARRAY)
+            diffArray(base, target, diffs.setObject(name));
+        else
+            SlimeUtils.setObjectEntry(target, name, set);
+    }
+
+    private static void applyObject(Inspector base, Inspector diff, Cursor result) {
+        Inspector set = diff.field(SET);
+        Inspector diffs = diff.field(DIFF);
+        Inspector remove = diff.field(REMOVE);
+        base.traverse((ObjectTraverser) (name, baseValue) -> {
+            if (isRemoved(name, remove)) return;
+            applyValue(baseValue, set.field(name), diffs.field(name), name, result);
+        });
+        set.traverse((ObjectTraverser) (name, value) -> {
+            if ( ! base.field(name).valid())
+                SlimeUtils.setObjectEntry(value, name, result);
+        });
+    }
+
+    private static void applyArray(Inspector base, Inspector diff, Cursor result) {
+        Inspector set = diff.field(SET);
+        Inspector diffs = diff.field(DIFF);
+        Slime entry = new Slime();
+        Cursor entryHolder = entry.setObject();
+        for (int i = 0; i < diff.field(LENGTH).asLong(); i++) {
+            String index = String.valueOf(i);
+            Inspector value = set.field(index);
+            if (value.valid()) {
+                SlimeUtils.addValue(value, result);
+            }
+            else if (diffs.field(index).valid()) {
+                applyValue(base.entry(i), value, diffs.field(index), index, entryHolder);
+                SlimeUtils.addValue(entryHolder.field(index), result);
+            }
+            else {
+                SlimeUtils.addValue(base.entry(i), result);
+            }
+        }
+    }
+
+    private static void applyValue(Inspector base, Inspector set, Inspector diff, String name, Cursor result) {
+        if (set.valid())
+            SlimeUtils.setObjectEntry(set, name, result);
+        else if ( ! diff.valid())
+            SlimeUtils.setObjectEntry(base, name, result);
+        else if (base.type() == Type.OBJECT)
+            applyObject(base, diff, result.setObject(name));
+        else if (base.type() == Type.ARRAY)
+            applyArray(base, diff, result.setArray(name));
+        else
+            throw new IllegalArgumentException("Cannot apply a diff to field '" + name + "' of type " + base.type());
+    }
+
+    private static boolean isRemoved(String name, Inspector remove) {
+        for (int i = 0; i < remove.entries(); i++)
+            if (remove.entry(i).asString().equals(name)) return true;
+        return false;
+    }
+
+    private static boolean equal(Inspector a, Inspector b) {
+        if (a.type() != b.type()) return false;
+        switch (a.type()) {
+            case NIX: return true;
+            case BOOL: return a.asBool() == b.asBool();
+            case LONG: return a.asLong() == b.asLong();
+            case DOUBLE: return Double.compare(a.asDouble(), b.asDouble()) == 0;
+            case STRING: return Arrays.equals(a.asUtf8(), b.asUtf8());
+            case DATA: return Arrays.equals(a.asData(), b.asData());
+            case ARRAY:
+                if (a.entries() != b.entries()) return false;
+                for (int i = 0; i < a.entries(); i++)
+                    if ( ! equal(a.entry(i), b.entry(i))) return false;
+                return true;
+            case OBJECT:
+                if (a.fields() != b.fields()) return false;
+                boolean[] equal = { true };
+                a.traverse((ObjectTraverser) (name, value) -> {
+                    if (equal[0] && ! equal(value, b.field(name)))
+                        equal[0] = false;
+                });
+                return equal[0];
+            default: throw new IllegalArgumentException("Unknown type " + a.type());
+        }
+    }
+
+}
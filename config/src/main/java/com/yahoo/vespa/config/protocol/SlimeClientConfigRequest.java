@@ -35,7 +35,8 @@ public abstract class SlimeClientConfigRequest implements JRTClientConfigRequest
                                        long timeout,
                                        Trace trace,
                                        CompressionType compressionType,
-                                       Optional<VespaVersion> vespaVersion) {
+                                       Optional<VespaVersion> vespaVersion,
+                                       boolean acceptsPayloadDiff) {
         Slime data = SlimeRequestData.encodeRequest(key,
                 hostname,
                 defSchema,
@@ -45,7 +46,8 @@ public abstract class SlimeClientConfigRequest implements JRTClientConfigRequest
                 trace,
                 getProtocolVersion(),
                 compressionType,
-                vespaVersion);
+                vespaVersion,
+                acceptsPayloadDiff);
         Request jrtReq = new Request(getJRTMethodName());
         jrtReq.parameters().add(new StringValue(encodeAsUtf8String(data, true)));
 
@@ -33,6 +33,7 @@ class SlimeRequestData {
     private static final String REQUEST_DEF_MD5 = "defMD5";
     private static final String REQUEST_COMPRESSION_TYPE = "compressionType";
     private static final String REQUEST_VESPA_VERSION = "vespaVersion";
+    private static final String REQUEST_ACCEPTS_PAYLOAD_DIFF = "acceptsPayloadDiff";
 
     private final Request request;
     private Slime data = null;
@@ -98,7 +99,8 @@ class SlimeRequestData {
                                Trace trace,
                                long protocolVersion,
                                CompressionType compressionType,
-                               Optional<VespaVersion> vespaVersion) {
+                               Optional<VespaVersion> vespaVersion,
+                               boolean acceptsPayloadDiff) {
         Slime data = new Slime();
         Cursor request = data.setObject();
         request.setLong(REQUEST_VERSION, protocolVersion);
@@ -114,6 +116,8 @@ class SlimeRequestData {
         request.setLong(REQUEST_TIMEOUT, timeout);
         request.setString(REQUEST_COMPRESSION_TYPE, compressionType.name());
         vespaVersion.ifPresent(version -> request.setString(REQUEST_VESPA_VERSION, version.toString()));
+        if (acceptsPayloadDiff)
+            request.setBool(REQUEST_ACCEPTS_PAYLOAD_DIFF, true);
         trace.serialize(request.setObject(REQUEST_TRACE));
         return data;
     }
@@ -132,4 +136,9 @@ class SlimeRequestData {
         return versionString.isEmpty() ? Optional.empty() : Optional.of(VespaVersion.fromString(versionString));
     }
 
+    /** Returns whether the client holds the payload of the config md5 in the request and can apply a diff to it */
+    boolean acceptsPayloadDiff() {
+        return getRequestField(REQUEST_ACCEPTS_PAYLOAD_DIFF).asBool();
+    }
+
 }
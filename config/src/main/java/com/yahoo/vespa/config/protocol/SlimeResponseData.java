@@ -26,6 +26,7 @@ class SlimeResponseData {
     static final String RESPONSE_CONFIG_GENERATION = "generation";
     static final String RESPONSE_INTERNAL_REDEPLOY = "internalRedeploy";
     static final String RESPONSE_COMPRESSION_INFO = "compressionInfo";
+    static final String RESPONSE_PAYLOAD_DIFF_BASE = "payloadDiffBase";
 
     private final Request request;
     private Slime data = null;
@@ -73,4 +74,10 @@ class SlimeResponseData {
         return inspector.valid() ? inspector.asBool() : false;
     }
 
+    /** Returns the md5 of the config the payload of this response is a diff against, or empty if it is a full payload */
+    String getResponsePayloadDiffBase() {
+        Inspector inspector = getResponseField(RESPONSE_PAYLOAD_DIFF_BASE);
+        return inspector.valid() ? inspector.asString() : "";
+    }
+
 }
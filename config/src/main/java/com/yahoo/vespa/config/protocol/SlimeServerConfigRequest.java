@@ -192,6 +192,11 @@ abstract class SlimeServerConfigRequest implements JRTServerConfigRequest {
         return toString();
     }
 
+    @Override
+    public boolean acceptsPayloadDiff() {
+        return requestData.acceptsPayloadDiff();
+    }
+
     protected CompressionType getCompressionType() {
         return requestData.getCompressionType();
     }
@@ -9,6 +9,7 @@ import com.yahoo.vespa.config.util.ConfigUtils;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
@@ -78,4 +79,103 @@ public class JRTConfigRequestV3Test extends JRTConfigRequestBase {
         assertThat(clientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString(), is("{}"));
         assertFalse(clientReq.responseIsInternalRedeploy());
     }
+
+    @Test
+    public void payload_diff_is_sent_when_client_has_the_requested_payload() {
+        JRTClientConfigRequest diffClientReq = createReqAcceptingPayloadDiffs();
+        JRTServerConfigRequest diffServerReq = createReq(diffClientReq.getRequest());
+        assertFalse(diffServerReq.acceptsPayloadDiff()); // No payload yet
+        Payload first = listPayload(4);
+        diffServerReq.addOkResponse(first, 4L, false, ConfigUtils.getMd5(first.getData()));
+        assertTrue(diffClientReq.validateResponse());
+        assertThat(diffClientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString(),
+                   is(first.getData().toString()));
+
+        // The next request accepts a diff against the payload received
+        JRTClientConfigRequest nextClientReq = diffClientReq.nextRequest(timeout);
+        JRTServerConfigRequest nextServerReq = createReq(nextClientReq.getRequest());
+        assertTrue(nextServerReq.acceptsPayloadDiff());
+        Payload second = listPayload(5);
+        String secondMd5 = ConfigUtils.getMd5(second.getData());
+        nextServerReq.addOkResponse(second, 5L, false, secondMd5, PayloadDiff.create(first, second));
+        assertTrue(nextClientReq.validateResponse());
+        assertTrue(nextServerReq.getRequest().returnValues().get(1).asData().length < second.getData().getByteLength() / 10);
+        assertThat(nextClientReq.getNewPayload().getData().toString(), is(second.getData().toString()));
+        assertThat(nextClientReq.getNewConfigMd5(), is(secondMd5));
+    }
+
+    @Test
+    public void payload_diff_is_not_sent_to_clients_not_accepting_it() {
+        Payload first = listPayload(4);
+        serverReq.addOkResponse(first, 4L, false, ConfigUtils.getMd5(first.getData()));
+        assertTrue(clientReq.validateResponse());
+
+        JRTClientConfigRequest nextClientReq = clientReq.nextRequest(timeout);
+        JRTServerConfigRequest nextServerReq = createReq(nextClientReq.getRequest());
+        assertFalse(nextServerReq.acceptsPayloadDiff());
+        Payload second = listPayload(5);
+        nextServerReq.addOkResponse(second, 5L, false, ConfigUtils.getMd5(second.getData()), PayloadDiff.create(first, second));
+        assertTrue(nextClientReq.validateResponse());
+        assertThat(nextServerReq.getRequest().returnValues().get(1).asData().length,
+                   is(second.withCompression(CompressionType.LZ4).getData().getByteLength()));
+        assertThat(nextClientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString(),
+                   is(second.getData().toString()));
+    }
+
+    @Test
+    public void full_payload_is_requested_when_payload_diff_cannot_be_applied() {
+        JRTClientConfigRequest diffClientReq = createReqAcceptingPayloadDiffs();
+        JRTServerConfigRequest diffServerReq = createReq(diffClientReq.getRequest());
+        Payload first = listPayload(4);
+        String firstMd5 = ConfigUtils.getMd5(first.getData());
+        diffServerReq.addOkResponse(first, 4L, false, firstMd5);
+        assertTrue(diffClientReq.validateResponse());
+
+        JRTClientConfigRequest nextClientReq = diffClientReq.nextRequest(timeout);
+        JRTServerConfigRequest nextServerReq = createReq(nextClientReq.getRequest());
+        nextServerReq.addOkResponse(listPayload(6), 6L, false, ConfigUtils.getMd5(listPayload(6).getData()),
+                                    PayloadDiff.create(listPayload(6, "other"), listPayload(6))); // Not against the payload the client has
+        assertFalse(nextClientReq.validateResponse());
+        assertThat(nextClientReq.errorCode(), is(ErrorCode.INCONSISTENT_CONFIG_MD5));
+
+        JRTClientConfigRequest retryClientReq = nextClientReq.nextRequest(timeout);
+        assertThat(retryClientReq.getRequestConfigMd5(), is(firstMd5));
+        JRTServerConfigRequest retryServerReq = createReq(retryClientReq.getRequest());
+        assertFalse(retryServerReq.acceptsPayloadDiff());
+        Payload sixth = listPayload(6);
+        retryServerReq.addOkResponse(sixth, 6L, false, ConfigUtils.getMd5(sixth.getData()), PayloadDiff.create(first, sixth));
+        assertTrue(retryClientReq.validateResponse());
+        assertThat(retryServerReq.getRequest().returnValues().get(1).asData().length,
+                   is(sixth.withCompression(CompressionType.LZ4).getData().getByteLength()));
+        assertThat(retryClientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString(),
+                   is(sixth.getData().toString()));
+    }
+
+    /** Returns a request from a client holding the payloads it receives, like the generic subscriptions of the proxy */
+    private JRTClientConfigRequest createReqAcceptingPayloadDiffs() {
+        return new JRTClientConfigRequestV3(ConfigKey.createFull(defName, configId, defNamespace, defMd5),
+                                            hostname,
+                                            DefContent.fromList(Arrays.asList("namespace=my.name.space", "myfield string")),
+                                            "",
+                                            0L,
+                                            timeout,
+                                            Trace.createNew(),
+                                            CompressionType.LZ4,
+                                            vespaVersion,
+                                            true,
+                                            Optional.empty());
+    }
+
+    private static Payload listPayload(int version) {
+        return listPayload(version, "host0.example.com");
+    }
+
+    private static Payload listPayload(int version, String firstHost) {
+        StringBuilder json = new StringBuilder("{\"version\":" + version + ",\"hosts\":[\"" + firstHost + "\"");
+        for (int i = 1; i < 200; i++)
+            json.append(",\"host").append(i).append(".example.com\"");
+        json.append("]}");
+        return Payload.from(ConfigPayload.fromString(json.toString()));
+    }
+
 }
@@ -0,0 +1,98 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.ObjectTraverser;
+import com.yahoo.slime.Slime;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.SlimeUtils;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadDiffTest {
+
+    @Test
+    public void testDiffIsCreatedAndApplied() {
+        Payload base = payload(100, "old", 37);
+        Payload target = payload(100, "new", 38);
+
+        Optional<Payload> diff = PayloadDiff.create(base, target);
+        assertTrue(diff.isPresent());
+        assertTrue(diff.get().getData().getByteLength() < target.getData().getByteLength() / 10);
+        assertEquals(target.getData().toString(), PayloadDiff.apply(base, diff.get()).getData().toString());
+    }
+
+    @Test
+    public void testDiffOfCompressedPayloads() {
+        Payload base = payload(100, "old", 37);
+        Payload target = payload(100, "new", 38);
+
+        Optional<Payload> diff = PayloadDiff.create(base.withCompression(CompressionType.LZ4),
+                                                    target.withCompression(CompressionType.LZ4));
+        assertTrue(diff.isPresent());
+        Payload applied = PayloadDiff.apply(base.withCompression(CompressionType.LZ4),
+                                            diff.get().withCompression(CompressionType.LZ4));
+        assertEquals(target.getData().toString(), applied.getData().toString());
+    }
+
+    @Test
+    public void testFieldsAndArrayEntriesAreAddedAndRemoved() {
+        Payload base = payload(100, "old", 37);
+        Payload target = payload(99, "old", 37, "extra");
+        Optional<Payload> diff = PayloadDiff.create(base, target);
+        assertTrue(diff.isPresent());
+        assertEquals(target.getData().toString(), PayloadDiff.apply(base, diff.get()).getData().toString());
+
+        Payload longer = payload(101, "old", 37);
+        diff = PayloadDiff.create(base, longer);
+        assertTrue(diff.isPresent());
+        assertEquals(longer.getData().toString(), PayloadDiff.apply(base, diff.get()).getData().toString());
+
+        diff = PayloadDiff.create(target, base);
+        assertTrue(diff.isPresent());
+        assertEquals(base.getData().toString(), PayloadDiff.apply(target, diff.get()).getData().toString());
+    }
+
+    @Test
+    public void testNoDiffWhenItIsNotSmaller() {
+        assertFalse(PayloadDiff.create(Payload.from("{\"a\":1}"), Payload.from("{\"b\":2}")).isPresent());
+    }
+
+    @Test
+    public void testNoDiffWhenApplyingItCannotReproduceTheFieldOrder() {
+        Payload base = payload(100, "old", 37);
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("first", "a new field before the others");
+        ConfigPayload.fromUtf8Array(base.getData()).getSlime().get()
+                     .traverse((ObjectTraverser) (name, value) -> SlimeUtils.setObjectEntry(value, name, root));
+        assertFalse(PayloadDiff.create(base, Payload.from(new ConfigPayload(slime))).isPresent());
+    }
+
+    private static Payload payload(int nodeCount, String name, long version, String... extraFields) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("name", name);
+        root.setLong("version", version);
+        Cursor nodes = root.setArray("nodes");
+        for (int i = 0; i < nodeCount; i++) {
+            Cursor node = nodes.addObject();
+            node.setString("hostname", "host" + i + ".example.com");
+            node.setLong("port", 19070 + i);
+            node.setDouble("weight", i == 7 ? version : 1.0);
+            node.setBool("up", true);
+        }
+        Cursor settings = root.setObject("settings");
+        settings.setLong("timeout", 30);
+        settings.setString("mode", "normal");
+        for (String field : extraFields)
+            root.setString(field, "value of " + field);
+        return Payload.from(new ConfigPayload(slime));
+    }
+
+}
@@ -121,7 +121,9 @@ class GetConfigProcessor implements Runnable {
         // config == null is not an error, but indicates that the config will be returned later.
         if ((config != null) && (!config.hasEqualConfig(request) || config.hasNewerGeneration(request) || forceResponse)) {
             // debugLog(trace, "config response before encoding:" + config.toString());
-            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.isInternalRedeploy(), config.getConfigMd5());
+            Payload payload = request.payloadFromResponse(config);
+            request.addOkResponse(payload, config.getGeneration(), config.isInternalRedeploy(), config.getConfigMd5(),
+                                  rpcServer.payloadDiff(request, payload, config.getConfigMd5()));
             if (logDebug(trace)) {
                 debugLog(trace, "return response: " + request.getShortDescription());
             }
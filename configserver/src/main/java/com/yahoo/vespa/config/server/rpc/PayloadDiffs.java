@@ -0,0 +1,120 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.PayloadDiff;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+/**
+ * The payloads most recently sent to clients, by config md5, and the payload diffs computed between them.
+ * This lets clients which accept payload diffs, and still have a payload sent earlier, be sent only the diff
+ * from that to the new payload. As all clients of a config move between the same two payloads on a deployment,
+ * each diff is kept and reused for the next client. Both are bounded by bytes, evicting the least recently used.
+ */
+class PayloadDiffs {
+
+    /** The bytes assumed held by an entry in addition to its data */
+    private static final int entryOverhead = 64;
+
+    private final long maxPayloadBytes;
+    private final long maxDiffBytes;
+
+    private final LinkedHashMap<String, Payload> payloads = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<DiffKey, Optional<Payload>> diffs = new LinkedHashMap<>(16, 0.75f, true);
+    private long payloadBytes = 0;
+    private long diffBytes = 0;
+
+    PayloadDiffs(long maxPayloadBytes, long maxDiffBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxDiffBytes = maxDiffBytes;
+    }
+
+    /** Remembers that the given payload, having the given config md5, is sent to a client */
+    synchronized void put(String configMd5, Payload payload) {
+        if (configMd5.isEmpty()) return;
+        Payload replaced = payloads.put(configMd5, payload);
+        if (replaced != null) payloadBytes -= bytesOf(replaced);
+        payloadBytes += bytesOf(payload);
+        payloadBytes -= evict(payloads, payloadBytes, maxPayloadBytes, PayloadDiffs::bytesOf);
+    }
+
+    /**
+     * Returns the diff from the payload having the given base md5 to the given payload, having the given
+     * config md5, or empty if the base payload is not known, or no diff smaller than the payload exists.
+     */
+    Optional<Payload> diff(String baseMd5, Payload payload, String configMd5) {
+        if (baseMd5.isEmpty() || baseMd5.equals(configMd5)) return Optional.empty();
+
+        DiffKey key = new DiffKey(baseMd5, configMd5);
+        Payload base;
+        synchronized (this) {
+            Optional<Payload> diff = diffs.get(key);
+            if (diff != null) return diff;
+            base = payloads.get(baseMd5);
+        }
+        if (base == null) return Optional.empty();
+
+        // Computed without holding the lock, so two clients racing for a new diff may both compute it
+        Optional<Payload> diff = PayloadDiff.create(base, payload);
+        synchronized (this) {
+            Optional<Payload> replaced = diffs.put(key, diff);
+            if (replaced != null) diffBytes -= bytesOf(replaced);
+            diffBytes += bytesOf(diff);
+            diffBytes -= evict(diffs, diffBytes, maxDiffBytes, PayloadDiffs::bytesOf);
+        }
+        return diff;
+    }
+
+    synchronized int payloadCount() { return payloads.size(); }
+
+    synchronized int diffCount() { return diffs.size(); }
+
+    /** Evicts the least recently used entries until the given size is within the given max, and returns the bytes evicted */
+    private static <K, V> long evict(LinkedHashMap<K, V> map, long bytes, long maxBytes, ToLongFunction<V> counter) {
+        long evicted = 0;
+        for (Iterator<V> values = map.values().iterator(); bytes - evicted > maxBytes && values.hasNext(); ) {
+            evicted += counter.applyAsLong(values.next());
+            values.remove();
+        }
+        return evicted;
+    }
+
+    private static long bytesOf(Payload payload) {
+        return entryOverhead + payload.getData().getByteLength();
+    }
+
+    private static long bytesOf(Optional<Payload> diff) {
+        return diff.map(PayloadDiffs::bytesOf).orElse((long) entryOverhead);
+    }
+
+    private static class DiffKey {
+
+        private final String baseMd5;
+        private final String targetMd5;
+
+        DiffKey(String baseMd5, String targetMd5) {
+            this.baseMd5 = baseMd5;
+            this.targetMd5 = targetMd5;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if ( ! (o instanceof DiffKey)) return false;
+            DiffKey other = (DiffKey) o;
+            return baseMd5.equals(other.baseMd5) && targetMd5.equals(other.targetMd5);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseMd5, targetMd5);
+        }
+
+    }
+
+}
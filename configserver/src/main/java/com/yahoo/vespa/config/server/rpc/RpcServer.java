@@ -27,6 +27,7 @@ import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.protocol.Trace;
 import com.yahoo.vespa.config.server.SuperModelRequestHandler;
 import com.yahoo.vespa.config.server.application.ApplicationSet;
@@ -99,6 +100,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
 
     private final ThreadPoolExecutor executorService;
     private final FileDownloader downloader;
+    private final PayloadDiffs payloadDiffs = new PayloadDiffs(64 * 1024 * 1024, 16 * 1024 * 1024);
     private volatile boolean allTenantsLoaded = false;
     private boolean isRunning = false;
 
@@ -321,6 +323,18 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
         return context.requestHandler().resolveConfig(context.applicationId(), request, vespaVersion);
     }
 
+    /**
+     * Returns the payload diff to send instead of the given payload in the response to the given request, if any,
+     * and remembers the payload as sent, such that later requests having it may get a diff against it.
+     */
+    Optional<Payload> payloadDiff(JRTServerConfigRequest request, Payload payload, String configMd5) {
+        Optional<Payload> diff = request.acceptsPayloadDiff()
+                                 ? payloadDiffs.diff(request.getRequestConfigMd5(), payload, configMd5)
+                                 : Optional.empty();
+        payloadDiffs.put(configMd5, payload);
+        return diff;
+    }
+
     protected Supervisor getSupervisor() {
         return supervisor;
     }
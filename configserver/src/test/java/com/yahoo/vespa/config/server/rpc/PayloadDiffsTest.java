@@ -0,0 +1,81 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.PayloadDiff;
+import com.yahoo.vespa.config.util.ConfigUtils;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadDiffsTest {
+
+    @Test
+    public void diff_is_computed_against_a_known_payload_and_reused() {
+        PayloadDiffs diffs = new PayloadDiffs(1 << 20, 1 << 20);
+        Payload first = listPayload(1);
+        Payload second = listPayload(2);
+        String firstMd5 = md5(first);
+        String secondMd5 = md5(second);
+
+        assertFalse(diffs.diff(firstMd5, second, secondMd5).isPresent()); // First payload not sent yet
+        assertEquals(0, diffs.diffCount());
+
+        diffs.put(firstMd5, first);
+        Optional<Payload> diff = diffs.diff(firstMd5, second, secondMd5);
+        assertTrue(diff.isPresent());
+        assertEquals(second.getData().toString(), PayloadDiff.apply(first, diff.get()).getData().toString());
+        assertSame(diff, diffs.diff(firstMd5, second, secondMd5));
+        assertEquals(1, diffs.diffCount());
+
+        assertFalse(diffs.diff("", second, secondMd5).isPresent());
+        assertFalse(diffs.diff(secondMd5, second, secondMd5).isPresent());
+    }
+
+    @Test
+    public void diff_is_computed_against_compressed_payloads() {
+        PayloadDiffs diffs = new PayloadDiffs(1 << 20, 1 << 20);
+        Payload first = listPayload(1).withCompression(CompressionType.LZ4);
+        Payload second = listPayload(2).withCompression(CompressionType.LZ4);
+        diffs.put(md5(listPayload(1)), first);
+
+        Optional<Payload> diff = diffs.diff(md5(listPayload(1)), second, md5(listPayload(2)));
+        assertTrue(diff.isPresent());
+        assertEquals(listPayload(2).getData().toString(),
+                     PayloadDiff.apply(first, diff.get()).withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+    }
+
+    @Test
+    public void payloads_and_diffs_are_bounded_by_bytes() {
+        long payloadBytes = listPayload(0).getData().getByteLength() + 64;
+        PayloadDiffs diffs = new PayloadDiffs(3 * payloadBytes, 1);
+        for (int i = 0; i < 5; i++)
+            diffs.put(md5(listPayload(i)), listPayload(i));
+        assertEquals(3, diffs.payloadCount());
+
+        // The least recently used payloads are evicted
+        assertFalse(diffs.diff(md5(listPayload(1)), listPayload(5), md5(listPayload(5))).isPresent());
+        assertTrue(diffs.diff(md5(listPayload(2)), listPayload(5), md5(listPayload(5))).isPresent());
+        assertEquals(0, diffs.diffCount());
+    }
+
+    private static String md5(Payload payload) {
+        return ConfigUtils.getMd5(payload.getData());
+    }
+
+    private static Payload listPayload(int version) {
+        StringBuilder json = new StringBuilder("{\"version\":" + version + ",\"hosts\":[\"host0.example.com\"");
+        for (int i = 1; i < 200; i++)
+            json.append(",\"host").append(i).append(".example.com\"");
+        json.append("]}");
+        return Payload.from(ConfigPayload.fromString(json.toString()));
+    }
+
+}
@@ -25,14 +25,14 @@ import java.util.logging.Logger;
 public class JSONFormatter {
 
     private AccessLogEntry accessLogEntry;
-    private final JsonFactory generatorFactory;
+
+    /** Shared by all formatters, as factories are thread safe and expensive to create */
+    private static final JsonFactory generatorFactory = new JsonFactory(new ObjectMapper());
 
     private static Logger logger = Logger.getLogger(JSONFormatter.class.getName());
 
     public JSONFormatter(final AccessLogEntry entry) {
         accessLogEntry = entry;
-        generatorFactory = new JsonFactory();
-        generatorFactory.setCodec(new ObjectMapper());
     }
 
     /**
@@ -41,7 +41,7 @@ public class JSONFormatter {
      * @return The Vespa JSON access log string without trailing newline
      */
     public String format() {
-        ByteArrayOutputStream logLine = new ByteArrayOutputStream();
+        ByteArrayOutputStream logLine = new ByteArrayOutputStream(512);
         try {
             JsonGenerator generator = generatorFactory.createGenerator(logLine, JsonEncoding.UTF8);
             generator.writeStartObject();
@@ -7,6 +7,7 @@ import com.yahoo.io.NativeIO;
 import com.yahoo.log.LogFileDb;
 import com.yahoo.system.ProcessExecuter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -14,10 +15,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -51,11 +55,27 @@ public class LogFileHandler extends StreamHandler {
     private String symlinkName = null;
     private ArrayBlockingQueue<LogRecord> logQueue = new ArrayBlockingQueue<>(100000);
     private LogRecord rotateCmd = new LogRecord(Level.SEVERE, "rotateNow");
-    private ExecutorService executor = Executors.newCachedThreadPool(ThreadFactoryFactory.getDaemonThreadFactory("logfilehandler.compression"));
+
+    /** The number of records (including rotate commands) added to the queue, and the number of those handled */
+    private final AtomicLong queuedRecords = new AtomicLong(0);
+    private volatile long handledRecords = 0;
+
+    /** Compresses rotated files. One thread is sufficient, as rotations are far apart */
+    private ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                              ThreadFactoryFactory.getDaemonThreadFactory("logfilehandler.compression"));
+
+    /** The size of the buffer between the formatted records and the log file */
+    private static final int outputBufferSize = 256 * 1024;
 
     static private class LogThread extends Thread {
+
+        /** The max number of records written per batch */
+        private static final int maxBatchSize = 1000;
+
         LogFileHandler logFileHandler;
         long lastFlush = 0;
+        private final List<LogRecord> batch = new ArrayList<>(maxBatchSize);
+
         LogThread(LogFileHandler logFile) {
             super("Logger");
             setDaemon(true);
@@ -73,16 +93,23 @@ public class LogFileHandler extends StreamHandler {
             logFileHandler.flush();
         }
 
+        /** Waits for records, and then stores all the records available in batches, to avoid contention on the queue */
         private void storeLogRecords() throws InterruptedException {
             while (!isInterrupted()) {
                 LogRecord r = logFileHandler.logQueue.poll(100, TimeUnit.MILLISECONDS);
                 if (r != null) {
-                    if (r == logFileHandler.rotateCmd) {
-                        logFileHandler.internalRotateNow();
-                        lastFlush = System.nanoTime();
-                    } else {
-                        logFileHandler.internalPublish(r);
+                    batch.add(r);
+                    logFileHandler.logQueue.drainTo(batch, maxBatchSize - 1);
+                    for (LogRecord record : batch) {
+                        if (record == logFileHandler.rotateCmd) {
+                            logFileHandler.internalRotateNow();
+                            lastFlush = System.nanoTime();
+                        } else {
+                            logFileHandler.internalPublish(record);
+                        }
                     }
+                    logFileHandler.handledRecords += batch.size();
+                    batch.clear();
                     flushIfOld(3, TimeUnit.SECONDS);
                 } else {
                     flushIfOld(100, TimeUnit.MILLISECONDS);
@@ -125,6 +152,7 @@ public class LogFileHandler extends StreamHandler {
     public void publish(LogRecord r) {
         try {
             logQueue.put(r);
+            queuedRecords.incrementAndGet();
         } catch (InterruptedException e) {
         }
     }
@@ -197,8 +225,9 @@ public class LogFileHandler extends StreamHandler {
         return next;
     }
 
+    /** Waits until all records published so far are written to the current log file */
     void waitDrained() {
-        while(! logQueue.isEmpty()) {
+        while (handledRecords < queuedRecords.get()) {
             try {
                 Thread.sleep(1);
             } catch (InterruptedException e) {
@@ -242,7 +271,8 @@ public class LogFileHandler extends StreamHandler {
 
         try {
             checkAndCreateDir(fileName);
-            FileOutputStream os = new FileOutputStream(fileName, true); // append mode, for safety
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(fileName, true), // append mode, for safety
+                                                       outputBufferSize);
             super.setOutputStream(os);
             currentOutputStream = os;
             if (! useSequenceNameScheme) LogFileDb.nowLoggingTo(fileName);
@@ -174,6 +174,33 @@ public class LogFileHandlerTestCase {
             deleteOnExit(f2);
     }
 
+    @Test
+    public void testConcurrentPublishingIsWrittenInBatches() throws InterruptedException, IOException {
+        IOUtils.recursiveDeleteDir(new File("./testbatching"));
+        LogFileHandler h = new LogFileHandler();
+        h.setFilePattern("./testbatching/logfilehandlertest.%Y%m%d%H%M%S%s");
+        h.setFormatter(new Formatter() {
+            public String format(LogRecord r) {
+                return formatMessage(r) + "\n";
+            }
+        } );
+        Thread[] publishers = new Thread[4];
+        for (int t = 0; t < publishers.length; t++) {
+            publishers[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++)
+                    h.publish(new LogRecord(Level.INFO, "test"));
+            });
+            publishers[t].start();
+        }
+        for (Thread publisher : publishers)
+            publisher.join();
+        h.waitDrained();
+        String content = IOUtils.readFile(new File(h.getFileName()));
+        assertEquals(4 * 5000 * "test\n".length(), content.length());
+        h.shutdown();
+        IOUtils.recursiveDeleteDir(new File("./testbatching"));
+    }
+
     @Test
     public void testcompression() throws InterruptedException, IOException {
         IOUtils.recursiveDeleteDir(new File("./testcompression"));
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc.state;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,14 +22,17 @@ public final class GaugeMetric extends MetricValue {
     private double sum;
     private long count;
     private Optional<List<Tuple2<String, Double>>> percentiles;
+    private Optional<MetricHistogram> histogram;
 
-    private GaugeMetric(double last, double max, double min, double sum, long count, Optional<List<Tuple2<String, Double>>> percentiles) {
+    private GaugeMetric(double last, double max, double min, double sum, long count,
+                        Optional<List<Tuple2<String, Double>>> percentiles, Optional<MetricHistogram> histogram) {
         this.last = last;
         this.max = max;
         this.min = min;
         this.sum = sum;
         this.count = count;
         this.percentiles = percentiles;
+        this.histogram = histogram;
     }
 
     @Override
@@ -55,10 +59,33 @@ public final class GaugeMetric extends MetricValue {
         if (rhs.min < min) {
             min = rhs.min;
         }
+        if (rhs.count == 0) {
+            // nothing recorded in rhs
+        }
+        else if (count == 0) {
+            histogram = rhs.histogram;
+            percentiles = rhs.percentiles;
+        }
+        else if (histogram.isPresent() && rhs.histogram.isPresent()) {
+            histogram = Optional.of(histogram.get().merge(rhs.histogram.get()));
+            percentiles = percentiles.map(this::percentilesFromHistogram);
+        }
+        else { // the values of one side are missing from any histogram, so percentiles can no longer be computed from it
+            histogram = Optional.empty();
+        }
         sum += rhs.sum;
         count += rhs.count;
     }
 
+    /** Returns the given percentiles with their values recomputed from the histogram of this */
+    private List<Tuple2<String, Double>> percentilesFromHistogram(List<Tuple2<String, Double>> percentiles) {
+        List<Tuple2<String, Double>> recomputed = new ArrayList<>(percentiles.size());
+        for (Tuple2<String, Double> percentile : percentiles)
+            recomputed.add(new Tuple2<>(percentile.first,
+                                        histogram.get().getValueAtPercentile(Double.parseDouble(percentile.first))));
+        return recomputed;
+    }
+
     /**
      * Returns the average reading of this value in the time interval, or--if no
      * value has been set within this period--the value of 'last' from the
@@ -108,6 +135,14 @@ public final class GaugeMetric extends MetricValue {
         return percentiles;
     }
 
+    /**
+     * Returns the histogram of the values of this in the time interval, if it is recorded.
+     * Unlike percentiles, this is merged without loss when metrics are aggregated.
+     */
+    public Optional<MetricHistogram> getHistogram() {
+        return histogram;
+    }
+
     /**
      * Create a partial clone of this gauge where the value of 'last' is
      * carried over to the new gauge with all other fields left at defaults
@@ -119,20 +154,30 @@ public final class GaugeMetric extends MetricValue {
      */
     public GaugeMetric newWithPreservedLastValue() {
         // min/max set to enforce update of these values on first call to add()
-        return new GaugeMetric(last, Double.MIN_VALUE, Double.MAX_VALUE, 0, 0, Optional.empty());
+        return new GaugeMetric(last, Double.MIN_VALUE, Double.MAX_VALUE, 0, 0, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newSingleValue(Number val) {
         double dval = val.doubleValue();
-        return new GaugeMetric(dval, dval, dval, dval, 1, Optional.empty());
+        return new GaugeMetric(dval, dval, dval, dval, 1, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newInstance(double last, double max, double min, double sum, long count) {
-        return new GaugeMetric(last, max, min, sum, count, Optional.empty());
+        return new GaugeMetric(last, max, min, sum, count, Optional.empty(), Optional.empty());
     }
 
     public static GaugeMetric newInstance(double last, double max, double min, double sum, long count, Optional<List<Tuple2<String, Double>>> percentiles) {
-        return new GaugeMetric(last, max, min, sum, count, percentiles);
+        return new GaugeMetric(last, max, min, sum, count, percentiles, Optional.empty());
+    }
+
+    /**
+     * Creates a gauge having a histogram of its values, where the given percentiles are
+     * recomputed from the histogram whenever it is merged with the histogram of another gauge.
+     * The names of the percentiles must be their number, e.g "95" or "99.9".
+     */
+    public static GaugeMetric newInstance(double last, double max, double min, double sum, long count,
+                                          List<Tuple2<String, Double>> percentiles, MetricHistogram histogram) {
+        return new GaugeMetric(last, max, min, sum, count, Optional.of(percentiles), Optional.of(histogram));
     }
 
 }
@@ -0,0 +1,28 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.state;
+
+/**
+ * A histogram of the values assigned to a gauge in some time interval.
+ * Unlike percentiles, histograms can be merged without loss, such that percentiles may be
+ * computed correctly over values recorded in multiple snapshots or containers.
+ * <p>
+ * Implementations must be immutable.
+ */
+public interface MetricHistogram {
+
+    /** Returns the value at the given percentile (in the range 0-100) of the values recorded in this */
+    double getValueAtPercentile(double percentile);
+
+    /**
+     * Returns a new histogram containing the values recorded in this and the given histogram.
+     * This is never modified.
+     */
+    MetricHistogram merge(MetricHistogram other);
+
+    /**
+     * Returns a compact encoding of this as text, from which an equal histogram can be
+     * recreated by the implementation producing it.
+     */
+    String encode();
+
+}
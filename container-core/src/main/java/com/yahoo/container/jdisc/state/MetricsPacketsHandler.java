@@ -31,6 +31,8 @@ import static com.yahoo.container.jdisc.state.StateHandler.getSnapshotPreprocess
  * This handler outputs metrics in a json-like format, consisting of a series of metrics packets.
  * Each packet is a json object but there is no outer array or object that wraps the packets.
  * To reduce the amount of output, a packet contains all metrics that share the same set of dimensions.
+ * The encoded histograms of gauges which record them are in a separate "histograms" object in the packet,
+ * as the "metrics" object holds only numbers.
  *
  * This handler is not set up by default, but can be added to the applications's services configuration.
  *
@@ -48,6 +50,7 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
     static final String STATUS_MSG_KEY  = "status_msg";
     static final String METRICS_KEY     = "metrics";
     static final String DIMENSIONS_KEY  = "dimensions";
+    static final String HISTOGRAMS_KEY  = "histograms";
 
     static final String PACKET_SEPARATOR = "\n\n";
 
@@ -169,6 +172,8 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
     private void addMetrics(MetricSet metricSet, JSONObjectWithLegibleException packet) throws JSONException {
         JSONObjectWithLegibleException metrics = new JSONObjectWithLegibleException();
         packet.put(METRICS_KEY, metrics);
+        // Kept apart from the metrics, which consumers expect to be numbers only
+        JSONObjectWithLegibleException histograms = new JSONObjectWithLegibleException();
         for (Map.Entry<String, MetricValue> metric : metricSet) {
             String name = metric.getKey();
             MetricValue value = metric.getValue();
@@ -184,10 +189,15 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
                         metrics.put(name + "." + prefixAndValue.first + "percentile", prefixAndValue.second.doubleValue());
                     }
                 }
+                if (gauge.getHistogram().isPresent()) {
+                    histograms.put(name, gauge.getHistogram().get().encode());
+                }
             } else {
                 throw new UnsupportedOperationException("Unknown metric class: " + value.getClass().getName());
             }
         }
+        if (histograms.length() > 0)
+            packet.put(HISTOGRAMS_KEY, histograms);
     }
 
 }
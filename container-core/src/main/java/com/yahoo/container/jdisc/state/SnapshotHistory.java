@@ -0,0 +1,133 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.state;
+
+import com.yahoo.collections.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The values of each metric series in the most recently rendered snapshots, used to find the series
+ * which have changed since a given snapshot generation, such that consumers polling frequently
+ * can receive only the changes.
+ * <p>
+ * This is multithread safe.
+ */
+class SnapshotHistory {
+
+    /** The number of generations kept. Consumers lagging further behind will receive all series */
+    private static final int maxGenerations = 3;
+
+    /** The values of each series by generation, oldest first */
+    private final LinkedHashMap<Long, Map<Series, double[]>> generations = new LinkedHashMap<>();
+
+    /**
+     * Records the values of the given metrics as the given generation, unless that generation is already recorded.
+     * This is linear in the number of series when a new generation is recorded and constant otherwise.
+     */
+    synchronized void record(long generation, List<StateHandler.Tuple> metrics, long periodInMillis) {
+        if (generations.containsKey(generation)) return;
+
+        Map<Series, double[]> values = new HashMap<>(metrics.size() * 2);
+        for (StateHandler.Tuple metric : metrics)
+            values.put(new Series(metric.dim, metric.key), valuesOf(metric.val, periodInMillis));
+        generations.put(generation, values);
+
+        for (Iterator<Long> i = generations.keySet().iterator(); generations.size() > maxGenerations; ) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Returns the difference between the two given generations,
+     * or null if either of them is not (or no longer) recorded in this.
+     */
+    synchronized Delta delta(long fromGeneration, long toGeneration, List<StateHandler.Tuple> toMetrics) {
+        Map<Series, double[]> from = generations.get(fromGeneration);
+        Map<Series, double[]> to = generations.get(toGeneration);
+        if (from == null || to == null) return null;
+
+        List<StateHandler.Tuple> changed = new ArrayList<>();
+        for (StateHandler.Tuple metric : toMetrics) {
+            Series series = new Series(metric.dim, metric.key);
+            if ( ! Arrays.equals(from.get(series), to.get(series)))
+                changed.add(metric);
+        }
+        List<Series> removed = new ArrayList<>();
+        for (Series series : from.keySet()) {
+            if ( ! to.containsKey(series))
+                removed.add(series);
+        }
+        return new Delta(changed, removed);
+    }
+
+    /** Returns the values of a metric which are rendered, such that different values means a different rendering */
+    private static double[] valuesOf(MetricValue value, long periodInMillis) {
+        if (value instanceof CountMetric)
+            return new double[] { periodInMillis, ((CountMetric)value).getCount() };
+
+        if ( ! (value instanceof GaugeMetric))
+            throw new UnsupportedOperationException(value.getClass().getName());
+        GaugeMetric gauge = (GaugeMetric)value;
+        List<Tuple2<String, Double>> percentiles = gauge.getPercentiles().orElse(Collections.emptyList());
+        double[] values = new double[6 + percentiles.size()];
+        values[0] = periodInMillis;
+        values[1] = gauge.getCount();
+        values[2] = gauge.getLast();
+        values[3] = gauge.getMax();
+        values[4] = gauge.getMin();
+        values[5] = gauge.getAverage();
+        for (int i = 0; i < percentiles.size(); i++)
+            values[6 + i] = percentiles.get(i).second;
+        return values;
+    }
+
+    /** A metric series: A metric name and a set of dimension values */
+    static final class Series {
+
+        final MetricDimensions dimensions;
+        final String name;
+
+        Series(MetricDimensions dimensions, String name) {
+            this.dimensions = dimensions;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(dimensions, name); }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Series)) return false;
+            Series other = (Series)o;
+            return this.name.equals(other.name) && Objects.equals(this.dimensions, other.dimensions);
+        }
+
+    }
+
+    /** The series which are changed and removed between two generations */
+    static final class Delta {
+
+        /** The metrics of the series which are new or changed */
+        final List<StateHandler.Tuple> changed;
+
+        /** The series which are no longer present */
+        final List<Series> removed;
+
+        Delta(List<StateHandler.Tuple> changed, List<Series> removed) {
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+    }
+
+}
@@ -15,6 +15,9 @@ import com.yahoo.jdisc.handler.ResponseDispatch;
 import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.jdisc.http.HttpHeaders;
 import com.yahoo.metrics.MetricsPresentationConfig;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -30,6 +33,15 @@ import java.io.ByteArrayOutputStream;
 
 /**
  * A handler which returns state (health) information from this container instance: Status, metrics and vespa version.
+ * <p>
+ * Metrics consumers which poll frequently may reduce the cost of doing so by these request parameters:
+ * <ul>
+ *     <li><b>generation</b>: The generation (found in the snapshot object) of the last metrics received.
+ *     If this generation is still known to this, only the series which are new or changed since it are returned,
+ *     "delta" is set to true, and the series which are no longer present are listed in "removed".
+ *     Otherwise, all series are returned as usual.
+ *     <li><b>format=slime</b>: Return metrics in binary Slime format rather than JSON.
+ * </ul>
  *
  * @author Simon Thoresen Hult
  */
@@ -41,12 +53,17 @@ public class StateHandler extends AbstractRequestHandler {
     private static final String CONFIG_GENERATION_PATH = "config";
     private static final String HEALTH_PATH = "health";
     private static final String VERSION_PATH = "version";
-    
+    private static final String GENERATION_PARAMETER = "generation";
+    private static final String FORMAT_PARAMETER = "format";
+    private static final String SLIME_FORMAT = "slime";
+    private static final String SLIME_CONTENT_TYPE = "application/x-vespa-slime";
+
     private final static MetricDimensions NULL_DIMENSIONS = StateMetricContext.newInstance(null);
     private final StateMonitor monitor;
     private final Timer timer;
     private final byte[] config;
     private final SnapshotProvider snapshotPreprocessor;
+    private final SnapshotHistory history = new SnapshotHistory();
 
     @Inject
     public StateHandler(StateMonitor monitor, Timer timer, ApplicationMetadataConfig config,
@@ -88,6 +105,8 @@ public class StateHandler extends AbstractRequestHandler {
     private String resolveContentType(URI requestUri) {
         if (resolvePath(requestUri).equals(HISTOGRAMS_PATH)) {
             return "text/plain; charset=utf-8";
+        } else if (isMetricsPath(resolvePath(requestUri)) && isSlimeRequested(requestUri)) {
+            return SLIME_CONTENT_TYPE;
         } else {
             return "application/json";
         }
@@ -104,13 +123,37 @@ public class StateHandler extends AbstractRequestHandler {
                 return ByteBuffer.wrap(buildHistogramsOutput());
             case HEALTH_PATH:
             case METRICS_PATH:
-                return ByteBuffer.wrap(buildMetricOutput(suffix));
+                return ByteBuffer.wrap(buildMetricOutput(suffix, requestUri));
             case VERSION_PATH:
                 return ByteBuffer.wrap(buildVersionOutput());
             default:
                 // XXX should possibly do something else here
-                return ByteBuffer.wrap(buildMetricOutput(suffix));
+                return ByteBuffer.wrap(buildMetricOutput(suffix, requestUri));
+        }
+    }
+
+    private static boolean isMetricsPath(String path) {
+        return ! path.isEmpty() && ! path.equals(CONFIG_GENERATION_PATH) && ! path.equals(HISTOGRAMS_PATH) &&
+               ! path.equals(VERSION_PATH);
+    }
+
+    private static boolean isSlimeRequested(URI requestUri) {
+        return SLIME_FORMAT.equals(queryParameters(requestUri).get(FORMAT_PARAMETER));
+    }
+
+    private static Map<String, String> queryParameters(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) return Collections.emptyMap();
+
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            int equalsIndex = parameter.indexOf('=');
+            if (equalsIndex < 0)
+                parameters.put(parameter, "");
+            else
+                parameters.put(parameter.substring(0, equalsIndex), parameter.substring(equalsIndex + 1));
         }
+        return parameters;
     }
 
     private byte[] apiLinks(URI requestUri) {
@@ -175,14 +218,48 @@ public class StateHandler extends AbstractRequestHandler {
         }
     }
 
-    private byte[] buildMetricOutput(String consumer) {
+    private byte[] buildMetricOutput(String consumer, URI requestUri) {
+        MetricSnapshot snapshot = getSnapshot();
+        List<Tuple> metrics = snapshot == null ? Collections.emptyList() : collapseMetrics(snapshot, consumer);
+        SnapshotHistory.Delta delta = snapshot == null ? null : delta(consumer, snapshot, metrics,
+                                                                      queryParameters(requestUri).get(GENERATION_PARAMETER));
+        if (isSlimeRequested(requestUri))
+            return BinaryFormat.encode(buildSlimeForConsumer(consumer, snapshot, metrics, delta));
+
         try {
-            return buildJsonForConsumer(consumer).toString(4).getBytes(StandardCharsets.UTF_8);
+            return buildJsonForConsumer(consumer, snapshot, metrics, delta).toString(4).getBytes(StandardCharsets.UTF_8);
         } catch (JSONException e) {
             throw new RuntimeException("Bad JSON construction.", e);
         }
     }
 
+    /**
+     * Records the given metrics as the generation of the given snapshot, and returns the changes to them
+     * since the given generation, or null if all metrics should be returned.
+     */
+    private SnapshotHistory.Delta delta(String consumer, MetricSnapshot snapshot, List<Tuple> metrics, String fromGeneration) {
+        if (consumer.equals(HEALTH_PATH)) return null;
+
+        long generation = generationOf(snapshot);
+        history.record(generation, metrics, periodInMillis(snapshot));
+        if (fromGeneration == null) return null;
+        try {
+            return history.delta(Long.parseLong(fromGeneration), generation, metrics);
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Returns the generation of a snapshot, which is the time in milliseconds when it was taken */
+    private static long generationOf(MetricSnapshot snapshot) {
+        return snapshot.getToTime(TimeUnit.MILLISECONDS);
+    }
+
+    private static long periodInMillis(MetricSnapshot snapshot) {
+        return snapshot.getToTime(TimeUnit.MILLISECONDS) - snapshot.getFromTime(TimeUnit.MILLISECONDS);
+    }
+
     private byte[] buildHistogramsOutput() {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         if (snapshotPreprocessor != null) {
@@ -191,11 +268,12 @@ public class StateHandler extends AbstractRequestHandler {
         return baos.toByteArray();
     }
 
-    private JSONObjectWithLegibleException buildJsonForConsumer(String consumer) throws JSONException {
+    private JSONObjectWithLegibleException buildJsonForConsumer(String consumer, MetricSnapshot snapshot,
+                                                                List<Tuple> metrics, SnapshotHistory.Delta delta) throws JSONException {
         JSONObjectWithLegibleException ret = new JSONObjectWithLegibleException();
         ret.put("time", timer.currentTimeMillis());
         ret.put("status", new JSONObjectWithLegibleException().put("code", getStatus().name()));
-        ret.put(METRICS_PATH, buildJsonForSnapshot(consumer, getSnapshot()));
+        ret.put(METRICS_PATH, buildJsonForSnapshot(consumer, snapshot, metrics, delta));
         return ret;
     }
 
@@ -211,19 +289,30 @@ public class StateHandler extends AbstractRequestHandler {
         return monitor.status();
     }
 
-    private JSONObjectWithLegibleException buildJsonForSnapshot(String consumer, MetricSnapshot metricSnapshot) throws JSONException {
+    private JSONObjectWithLegibleException buildJsonForSnapshot(String consumer, MetricSnapshot metricSnapshot,
+                                                                List<Tuple> metrics, SnapshotHistory.Delta delta) throws JSONException {
         if (metricSnapshot == null) {
             return new JSONObjectWithLegibleException();
         }
         JSONObjectWithLegibleException jsonMetric = new JSONObjectWithLegibleException();
         jsonMetric.put("snapshot", new JSONObjectWithLegibleException()
                 .put("from", metricSnapshot.getFromTime(TimeUnit.MILLISECONDS) / 1000.0)
-                .put("to", metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0));
+                .put("to", metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0)
+                .put("generation", generationOf(metricSnapshot)));
+        if (delta != null) {
+            jsonMetric.put("delta", true);
+            for (SnapshotHistory.Series series : delta.removed) {
+                JSONObjectWithLegibleException jsonSeries = new JSONObjectWithLegibleException();
+                jsonSeries.put("name", series.name);
+                putJsonDimensions(series.dimensions, jsonSeries);
+                jsonMetric.append("removed", jsonSeries);
+            }
+            metrics = delta.changed;
+        }
 
         boolean includeDimensions = !consumer.equals(HEALTH_PATH);
-        long periodInMillis = metricSnapshot.getToTime(TimeUnit.MILLISECONDS) -
-                              metricSnapshot.getFromTime(TimeUnit.MILLISECONDS);
-        for (Tuple tuple : collapseMetrics(metricSnapshot, consumer)) {
+        long periodInMillis = periodInMillis(metricSnapshot);
+        for (Tuple tuple : metrics) {
             JSONObjectWithLegibleException jsonTuple = new JSONObjectWithLegibleException();
             jsonTuple.put("name", tuple.key);
             if (tuple.val instanceof CountMetric) {
@@ -249,20 +338,99 @@ public class StateHandler extends AbstractRequestHandler {
             } else {
                 throw new UnsupportedOperationException(tuple.val.getClass().getName());
             }
-            Iterator<Map.Entry<String, String>> it = tuple.dim.iterator();
-            if (it.hasNext() && includeDimensions) {
-                JSONObjectWithLegibleException jsonDim = new JSONObjectWithLegibleException();
-                while (it.hasNext()) {
-                    Map.Entry<String, String> entry = it.next();
-                    jsonDim.put(entry.getKey(), entry.getValue());
-                }
-                jsonTuple.put("dimensions", jsonDim);
+            if (includeDimensions) {
+                putJsonDimensions(tuple.dim, jsonTuple);
             }
             jsonMetric.append("values", jsonTuple);
         }
         return jsonMetric;
     }
 
+    private static void putJsonDimensions(MetricDimensions dimensions, JSONObjectWithLegibleException json) throws JSONException {
+        Iterator<Map.Entry<String, String>> it = dimensions.iterator();
+        if ( ! it.hasNext()) return;
+
+        JSONObjectWithLegibleException jsonDim = new JSONObjectWithLegibleException();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            jsonDim.put(entry.getKey(), entry.getValue());
+        }
+        json.put("dimensions", jsonDim);
+    }
+
+    /** Returns the same content as {@link #buildJsonForConsumer} as Slime */
+    private Slime buildSlimeForConsumer(String consumer, MetricSnapshot metricSnapshot,
+                                        List<Tuple> metrics, SnapshotHistory.Delta delta) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setLong("time", timer.currentTimeMillis());
+        root.setObject("status").setString("code", getStatus().name());
+        Cursor slimeMetrics = root.setObject(METRICS_PATH);
+        if (metricSnapshot == null) return slime;
+
+        Cursor slimeSnapshot = slimeMetrics.setObject("snapshot");
+        slimeSnapshot.setDouble("from", metricSnapshot.getFromTime(TimeUnit.MILLISECONDS) / 1000.0);
+        slimeSnapshot.setDouble("to", metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0);
+        slimeSnapshot.setLong("generation", generationOf(metricSnapshot));
+        if (delta != null) {
+            slimeMetrics.setBool("delta", true);
+            if ( ! delta.removed.isEmpty()) {
+                Cursor slimeRemoved = slimeMetrics.setArray("removed");
+                for (SnapshotHistory.Series series : delta.removed) {
+                    Cursor slimeSeries = slimeRemoved.addObject();
+                    slimeSeries.setString("name", series.name);
+                    setSlimeDimensions(series.dimensions, slimeSeries);
+                }
+            }
+            metrics = delta.changed;
+        }
+        if (metrics.isEmpty()) return slime;
+
+        boolean includeDimensions = !consumer.equals(HEALTH_PATH);
+        long periodInMillis = periodInMillis(metricSnapshot);
+        Cursor slimeValues = slimeMetrics.setArray("values");
+        for (Tuple tuple : metrics) {
+            Cursor slimeTuple = slimeValues.addObject();
+            slimeTuple.setString("name", tuple.key);
+            Cursor valueFields = slimeTuple.setObject("values");
+            if (tuple.val instanceof CountMetric) {
+                CountMetric count = (CountMetric)tuple.val;
+                valueFields.setLong("count", count.getCount());
+                valueFields.setDouble("rate", (count.getCount() * 1000.0) / periodInMillis);
+            } else if (tuple.val instanceof GaugeMetric) {
+                GaugeMetric gauge = (GaugeMetric) tuple.val;
+                valueFields.setDouble("average", gauge.getAverage());
+                valueFields.setLong("count", gauge.getCount());
+                valueFields.setDouble("last", gauge.getLast());
+                valueFields.setDouble("max", gauge.getMax());
+                valueFields.setDouble("min", gauge.getMin());
+                valueFields.setDouble("rate", (gauge.getCount() * 1000.0) / periodInMillis);
+                if (gauge.getPercentiles().isPresent()) {
+                    for (Tuple2<String, Double> prefixAndValue : gauge.getPercentiles().get()) {
+                        valueFields.setDouble(prefixAndValue.first + "percentile", prefixAndValue.second);
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException(tuple.val.getClass().getName());
+            }
+            if (includeDimensions) {
+                setSlimeDimensions(tuple.dim, slimeTuple);
+            }
+        }
+        return slime;
+    }
+
+    private static void setSlimeDimensions(MetricDimensions dimensions, Cursor slime) {
+        Iterator<Map.Entry<String, String>> it = dimensions.iterator();
+        if ( ! it.hasNext()) return;
+
+        Cursor slimeDimensions = slime.setObject("dimensions");
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            slimeDimensions.setString(entry.getKey(), entry.getValue());
+        }
+    }
+
     private static List<Tuple> collapseMetrics(MetricSnapshot snapshot, String consumer) {
         switch (consumer) {
             case HEALTH_PATH:
@@ -1,11 +1,15 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc.state;
 
+import com.yahoo.collections.Tuple2;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -33,4 +37,79 @@ public class MetricSnapshotTest {
         assertEquals(Collections.unmodifiableMap(new HashMap(0)), Collections.emptyMap());
     }
 
+    @Test
+    public void testHistogramsAreMergedWhenSnapshotsAreAdded() {
+        StateMetricContext ctx = StateMetricContext.newInstance(null);
+        MetricSnapshot first = new MetricSnapshot();
+        first.add(gaugeSnapshot(ctx, 1, 2, 3));
+        first.add(gaugeSnapshot(ctx, 4, 5, 6, 7, 8, 9, 10));
+
+        GaugeMetric gauge = (GaugeMetric)first.metricSet(ctx).get("latency");
+        assertEquals(10, gauge.getCount());
+        assertEquals(10, ((ValueListHistogram)gauge.getHistogram().get()).values.size());
+        assertEquals("90", gauge.getPercentiles().get().get(0).first);
+        assertEquals(9.0, gauge.getPercentiles().get().get(0).second, 0.0001);
+    }
+
+    @Test
+    public void testHistogramIsDroppedWhenMergedWithValuesNotInAHistogram() {
+        StateMetricContext ctx = StateMetricContext.newInstance(null);
+        MetricSnapshot first = new MetricSnapshot();
+        first.add(gaugeSnapshot(ctx, 1, 2, 3));
+        first.add(new MetricSnapshot(0, 1, TimeUnit.SECONDS,
+                                     Collections.singletonMap(ctx, new MetricSet(Collections.singletonMap("latency",
+                                                                                                          GaugeMetric.newSingleValue(100))))));
+
+        GaugeMetric gauge = (GaugeMetric)first.metricSet(ctx).get("latency");
+        assertEquals(4, gauge.getCount());
+        assertFalse("The histogram would miss the last value", gauge.getHistogram().isPresent());
+
+        first.add(gaugeSnapshot(ctx, 4, 5));
+        assertFalse(gauge.getHistogram().isPresent());
+        assertEquals(6, gauge.getCount());
+    }
+
+    private MetricSnapshot gaugeSnapshot(MetricDimensions dimensions, double ... values) {
+        ValueListHistogram histogram = new ValueListHistogram(values);
+        double sum = 0;
+        for (double value : values)
+            sum += value;
+        GaugeMetric gauge = GaugeMetric.newInstance(values[values.length - 1], histogram.values.get(values.length - 1),
+                                                    histogram.values.get(0), sum, values.length,
+                                                    Collections.singletonList(new Tuple2<>("90", histogram.getValueAtPercentile(90))),
+                                                    histogram);
+        return new MetricSnapshot(0, 1, TimeUnit.SECONDS,
+                                  Collections.singletonMap(dimensions, new MetricSet(Collections.singletonMap("latency", gauge))));
+    }
+
+    /** A histogram which just keeps all the values */
+    private static class ValueListHistogram implements MetricHistogram {
+
+        final List<Double> values = new ArrayList<>();
+
+        ValueListHistogram(double ... values) {
+            for (double value : values)
+                this.values.add(value);
+            Collections.sort(this.values);
+        }
+
+        @Override
+        public double getValueAtPercentile(double percentile) {
+            return values.get((int)Math.ceil(percentile / 100 * values.size()) - 1);
+        }
+
+        @Override
+        public MetricHistogram merge(MetricHistogram other) {
+            ValueListHistogram merged = new ValueListHistogram();
+            merged.values.addAll(values);
+            merged.values.addAll(((ValueListHistogram)other).values);
+            Collections.sort(merged.values);
+            return merged;
+        }
+
+        @Override
+        public String encode() { return values.toString(); }
+
+    }
+
 }
@@ -4,6 +4,8 @@ package com.yahoo.container.jdisc.state;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.yahoo.component.Vtag;
 import com.yahoo.jdisc.Metric;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Inspector;
 import com.yahoo.vespa.defaults.Defaults;
 import org.junit.Test;
 
@@ -118,6 +120,7 @@ public class StateHandlerTest extends StateHandlerTestBase {
                      "    \"metrics\": {\n" +
                      "        \"snapshot\": {\n" +
                      "            \"from\": 0,\n" +
+                     "            \"generation\": 300000,\n" +
                      "            \"to\": 300\n" +
                      "        },\n" +
                      "        \"values\": [{\n" +
@@ -143,6 +146,7 @@ public class StateHandlerTest extends StateHandlerTestBase {
                      "    \"metrics\": {\n" +
                      "        \"snapshot\": {\n" +
                      "            \"from\": 300,\n" +
+                     "            \"generation\": 600000,\n" +
                      "            \"to\": 600\n" +
                      "        },\n" +
                      "        \"values\": [\n" +
@@ -307,6 +311,57 @@ public class StateHandlerTest extends StateHandlerTestBase {
                      json.get("metrics").get("values").get(1).get("values").get("average").asDouble(), 0.001);
     }
 
+    @Test
+    public void testDeltaSinceGeneration() throws Exception {
+        metric.add("foo", 1, null);
+        metric.add("baz", 1, null);
+        metric.set("bar", 4, null);
+        incrementCurrentTimeAndAssertSnapshot(SNAPSHOT_INTERVAL);
+        JsonNode json1 = requestAsJson("http://localhost/state/v1/metrics");
+        assertEquals(json1.toString(), 3, json1.get("metrics").get("values").size());
+        assertFalse(json1.toString(), json1.get("metrics").has("delta"));
+        long generation = json1.get("metrics").get("snapshot").get("generation").asLong();
+
+        metric.add("foo", 1, null);
+        metric.set("bar", 5, null);
+        incrementCurrentTimeAndAssertSnapshot(SNAPSHOT_INTERVAL);
+        JsonNode json2 = requestAsJson("http://localhost/state/v1/metrics?generation=" + generation);
+        assertTrue(json2.toString(), json2.get("metrics").get("delta").asBoolean());
+        assertFalse(json2.toString(), json2.get("metrics").has("removed"));
+        JsonNode values = json2.get("metrics").get("values");
+        assertEquals("Unchanged foo is omitted", 2, values.size());
+        assertEquals(json2.toString(), "bar", values.get(0).get("name").asText());
+        assertEquals(json2.toString(), "baz", values.get(1).get("name").asText());
+        assertEquals(json2.toString(), 0, values.get(1).get("values").get("count").asLong());
+
+        JsonNode json3 = requestAsJson("http://localhost/state/v1/metrics?generation=" + (generation - 1));
+        assertFalse("Unknown generation: All series are returned", json3.get("metrics").has("delta"));
+        assertEquals(json3.toString(), 3, json3.get("metrics").get("values").size());
+    }
+
+    @Test
+    public void testSlimeFormat() throws Exception {
+        metric.add("foo", 3, null);
+        metric.set("bar", 4, metric.createContext(Collections.singletonMap("dim", "value")));
+        incrementCurrentTimeAndAssertSnapshot(SNAPSHOT_INTERVAL);
+        Inspector root = BinaryFormat.decode(requestAsBytes("http://localhost/state/v1/metrics?format=slime")).get();
+        assertEquals("up", root.field("status").field("code").asString());
+        assertEquals(SNAPSHOT_INTERVAL / 1000.0, root.field("metrics").field("snapshot").field("to").asDouble(), 0.001);
+        Inspector values = root.field("metrics").field("values");
+        assertEquals(2, values.entries());
+        for (int i = 0; i < values.entries(); i++) {
+            Inspector value = values.entry(i);
+            if (value.field("name").asString().equals("foo")) {
+                assertEquals(3, value.field("values").field("count").asLong());
+            }
+            else {
+                assertEquals("bar", value.field("name").asString());
+                assertEquals(4, value.field("values").field("last").asDouble(), 0.001);
+                assertEquals("value", value.field("dimensions").field("dim").asString());
+            }
+        }
+    }
+
     @Test
     public void testStateConfig() throws Exception {
         JsonNode root = requestAsJson("http://localhost/state/v1/config");
@@ -18,6 +18,8 @@ import com.yahoo.metrics.MetricsPresentationConfig;
 import org.junit.After;
 import org.junit.Before;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
@@ -85,6 +87,24 @@ public class StateHandlerTestBase {
     }
 
     String requestAsString(String requestUri) throws Exception {
+        StringBuilder str = new StringBuilder();
+        Reader in = new InputStreamReader(request(requestUri), StandardCharsets.UTF_8);
+        for (int c; (c = in.read()) != -1; ) {
+            str.append((char)c);
+        }
+        return str.toString();
+    }
+
+    byte[] requestAsBytes(String requestUri) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream in = request(requestUri);
+        for (int b; (b = in.read()) != -1; ) {
+            bytes.write(b);
+        }
+        return bytes.toByteArray();
+    }
+
+    private InputStream request(String requestUri) throws Exception {
         final BufferedContentChannel content = new BufferedContentChannel();
         Response response = driver.dispatchRequest(requestUri, new ResponseHandler() {
 
@@ -95,12 +115,7 @@ public class StateHandlerTestBase {
         }).get(60, TimeUnit.SECONDS);
         assertNotNull(response);
         assertEquals(Response.Status.OK, response.getStatus());
-        StringBuilder str = new StringBuilder();
-        Reader in = new InputStreamReader(content.toStream(), StandardCharsets.UTF_8);
-        for (int c; (c = in.read()) != -1; ) {
-            str.append((char)c);
-        }
-        return str.toString();
+        return content.toStream();
     }
 
     JsonNode requestAsJson(String requestUri) throws Exception {
@@ -4,6 +4,7 @@ package com.yahoo.prelude.fastsearch;
 import com.yahoo.container.search.LegacyEmulationConfig;
 import com.yahoo.data.access.Inspector;
 import com.yahoo.log.LogLevel;
+import com.yahoo.search.result.Hit;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -96,7 +97,14 @@ public abstract class DocsumField {
      */
     public abstract Object convert(Inspector value);
 
-    /** Returns whether this is the string field type. */
-    boolean isString() { return false; }
+    /**
+     * Passes the given value of this field to the consumer in the cheapest form it accepts.
+     * This default implementation passes the converted value, unless it is null.
+     */
+    void accept(Inspector value, Hit.RawUtf8Consumer consumer) {
+        Object convertedValue = convert(value);
+        if (convertedValue != null)
+            consumer.accept(getName(), convertedValue);
+    }
 
 }
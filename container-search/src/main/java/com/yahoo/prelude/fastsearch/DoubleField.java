@@ -4,6 +4,7 @@ package com.yahoo.prelude.fastsearch;
 
 import java.nio.ByteBuffer;
 
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.NanNumber;
 import com.yahoo.data.access.Inspector;
 
@@ -31,4 +32,14 @@ public class DoubleField extends DocsumField {
         return convert(value.asDouble(EMPTY_VALUE));
     }
 
+    /** Passes the value to the consumer unboxed */
+    @Override
+    void accept(Inspector inspector, Hit.RawUtf8Consumer consumer) {
+        double value = inspector.asDouble(EMPTY_VALUE);
+        if (Double.isNaN(value))
+            consumer.accept(getName(), NanNumber.NaN);
+        else
+            consumer.accept(getName(), value);
+    }
+
 }
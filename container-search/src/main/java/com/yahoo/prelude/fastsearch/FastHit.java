@@ -557,16 +557,8 @@ public class FastHit extends Hit {
             data.traverse((ObjectTraverser)(name, value) -> {
                 if (!shadowed(name) && !removed(name)) {
                     DocsumField fieldType = type.getField(name);
-                    if (fieldType != null) {
-                        if (fieldType.isString()) {
-                            byte[] utf8Value = value.asUtf8();
-                            consumer.accept(name, utf8Value, 0, utf8Value.length);
-                        } else {
-                            Object convertedValue = fieldType.convert(value);
-                            if (convertedValue != null)
-                                consumer.accept(name, convertedValue);
-                        }
-                    }
+                    if (fieldType != null)
+                        fieldType.accept(value, consumer);
                 }
             });
         }
@@ -4,6 +4,7 @@ package com.yahoo.prelude.fastsearch;
 
 import java.nio.ByteBuffer;
 
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.NanNumber;
 import com.yahoo.data.access.Inspector;
 
@@ -32,4 +33,14 @@ public class FloatField extends DocsumField {
         return convert((float)value.asDouble(EMPTY_VALUE));
     }
 
+    /** Passes the value to the consumer unboxed */
+    @Override
+    void accept(Inspector inspector, Hit.RawUtf8Consumer consumer) {
+        float value = (float)inspector.asDouble(EMPTY_VALUE);
+        if (Float.isNaN(value))
+            consumer.accept(getName(), NanNumber.NaN);
+        else
+            consumer.accept(getName(), value);
+    }
+
 }
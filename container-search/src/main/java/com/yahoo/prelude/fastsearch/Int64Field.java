@@ -8,6 +8,7 @@ package com.yahoo.prelude.fastsearch;
 
 import java.nio.ByteBuffer;
 
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.NanNumber;
 import com.yahoo.data.access.Inspector;
 
@@ -41,4 +42,14 @@ public class Int64Field extends DocsumField {
         return convert(value.asLong(EMPTY_VALUE));
     }
 
+    /** Passes the value to the consumer unboxed */
+    @Override
+    void accept(Inspector inspector, Hit.RawUtf8Consumer consumer) {
+        long value = inspector.asLong(EMPTY_VALUE);
+        if (value == EMPTY_VALUE)
+            consumer.accept(getName(), NanNumber.NaN);
+        else
+            consumer.accept(getName(), value);
+    }
+
 }
@@ -8,6 +8,7 @@ package com.yahoo.prelude.fastsearch;
 
 import java.nio.ByteBuffer;
 
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.NanNumber;
 import com.yahoo.data.access.Inspector;
 
@@ -40,4 +41,14 @@ public class IntegerField extends DocsumField {
         return convert((int)value.asLong(EMPTY_VALUE));
     }
 
+    /** Passes the value to the consumer unboxed */
+    @Override
+    void accept(Inspector inspector, Hit.RawUtf8Consumer consumer) {
+        int value = (int)inspector.asLong(EMPTY_VALUE);
+        if (value == EMPTY_VALUE)
+            consumer.accept(getName(), NanNumber.NaN);
+        else
+            consumer.accept(getName(), value);
+    }
+
 }
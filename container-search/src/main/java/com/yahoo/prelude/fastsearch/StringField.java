@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 
 import com.yahoo.text.Utf8;
 import com.yahoo.data.access.Inspector;
+import com.yahoo.search.result.Hit;
 
 
 /**
@@ -31,6 +32,11 @@ public class StringField extends DocsumField {
         return value.asString("");
     }
 
-    boolean isString() { return true; }
+    /** Passes the raw utf-8 data of the value to the consumer without decoding it */
+    @Override
+    void accept(Inspector value, Hit.RawUtf8Consumer consumer) {
+        byte[] utf8Value = value.asUtf8();
+        consumer.accept(getName(), utf8Value, 0, utf8Value.length);
+    }
 
 }
@@ -119,26 +119,21 @@ public class PhraseMatcher {
     private List<Phrase> matchSingleItem(TermItem termItem) {
         String matchWord=toLowerCase(termItem.stringValue());
         String replaceWord=null;
-        FSA.State state = phraseFSA.getState();
-        if (!matches(state,matchWord)) {
+        int state=phraseFSA.delta(phraseFSA.start(),matchWord);
+        if (!phraseFSA.isFinal(state)) {
             if (!ignorePluralForm) return null;
             matchWord=switchForm(matchWord);
-            if (!matches(state,matchWord)) return null;
+            state=phraseFSA.delta(phraseFSA.start(),matchWord);
+            if (!phraseFSA.isFinal(state)) return null;
             replaceWord=matchWord;
         }
 
         List<Phrase> itemList=new java.util.ArrayList<>(1);
-        itemList.add(new Phrase(termItem,replaceWord,state.dataString()));
+        itemList.add(new Phrase(termItem,replaceWord,phraseFSA.dataString(state)));
         return itemList;
 
     }
 
-    private boolean matches(FSA.State state,String word) {
-        state.start();
-        state.delta(word);
-        return state.isFinal();
-    }
-
     /** Find matches within a composite */
     private void recursivelyMatchPhrases(Item item, MatchedPhrases phrases) {
         if (item == null) return;
@@ -173,13 +168,13 @@ public class PhraseMatcher {
      * @return the length of the largest phrase found at this starting point, or 0 if none
      */
     private int findPhrasesAtStartpoint(int startIndex,CompositeItem owner,MatchedPhrases phrases) {
-        FSA.State state = phraseFSA.getState();
+        int startState=phraseFSA.start();
+        int state=startState;
         int currentIndex=startIndex;
         Phrase phrase=null;
         List<String> replaceList=null;
 
         String index=null;
-        state.start();
 
         while (currentIndex<owner.getItemCount()) { // Loop until the largest possible phrase is passed
             Item current=owner.getItem(currentIndex);
@@ -187,23 +182,24 @@ public class PhraseMatcher {
 
             TermItem termItem=(TermItem)current;
 
-            if (state.isStartState())
+            if (state==startState)
                 index=termItem.getIndexName();
             else
                 if (!termItem.getIndexName().equals(index)) break;
 
             String lowercased = toLowerCase(termItem.stringValue());
-            boolean matched=state.tryDeltaWord(lowercased);
-            if (!matched && ignorePluralForm) {
+            int nextState=phraseFSA.tryDeltaWord(state,lowercased);
+            if (nextState==0 && ignorePluralForm) {
                 String invertedWord=switchForm(lowercased);
-                matched=state.tryDeltaWord(invertedWord);
-                if (matched)
+                nextState=phraseFSA.tryDeltaWord(state,invertedWord);
+                if (nextState!=0)
                     replaceList=setReplace(replaceList,currentIndex-startIndex,invertedWord);
             }
-            if (!matched) break;
+            if (nextState==0) break;
+            state=nextState;
 
-            if (state.isFinal()) // Legal return point reached, but we'll look for longer ones too
-                phrase=new Phrase(owner,replaceList,startIndex,currentIndex-startIndex+1,state.dataString());
+            if (phraseFSA.isFinal(state)) // Legal return point reached, but we'll look for longer ones too
+                phrase=new Phrase(owner,replaceList,startIndex,currentIndex-startIndex+1,phraseFSA.dataString(state));
             if (matchAll)
                 phrases.add(phrase);
             currentIndex++;
@@ -302,6 +302,7 @@ public class RuleBase {
     public void initialize() {
         inlineIncluded();
         makeReferences();
+        analyzer.compile();
     }
 
     /**
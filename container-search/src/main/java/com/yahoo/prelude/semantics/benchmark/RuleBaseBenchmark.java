@@ -5,6 +5,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -28,6 +29,24 @@ public class RuleBaseBenchmark {
             }
         }
         RuleBase ruleBase = new RuleImporter().importFile(ruleBaseFile,fsaFile);
+        benchmark(ruleBase, ruleBaseFile, fsaFile, queryFile, iterations);
+    }
+
+    /**
+     * Benchmarks a generated rule base of the given number of rules, each adding a synonym to a term,
+     * to measure how the cost of analyzing a query depends on the size of the rule base.
+     */
+    public void benchmarkSynonyms(int ruleCount, String queryFile, int iterations)
+            throws IOException, ParseException {
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < ruleCount; i++)
+            rules.append("term").append(i).append(" +> synonym").append(i).append(";\n");
+        RuleBase ruleBase = new RuleImporter().importString(rules.toString(), null);
+        benchmark(ruleBase, ruleCount + " synonym rules", null, queryFile, iterations);
+    }
+
+    private void benchmark(RuleBase ruleBase, String ruleBaseName, String fsaFile, String queryFile, int iterations)
+            throws IOException {
         ArrayList<String> queries = new ArrayList<>();
         BufferedReader reader = new BufferedReader(new FileReader(queryFile));
         String line;
@@ -38,28 +57,33 @@ public class RuleBaseBenchmark {
         for (int i=0;i<iterations;i++){
             for (Iterator<String> iter = queries.iterator(); iter.hasNext(); ){
                 String queryString = iter.next();
-                Query query = new Query("?query="+queryString);
+                Query query = new Query("?query=" + URLEncoder.encode(queryString, "UTF-8"));
                 ruleBase.analyze(query,0);
             }
         }
         Date end = new Date();
         long elapsed = end.getTime()-start.getTime();
-        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
+        System.out.print("BENCHMARK: rulebase=" + ruleBaseName +
                 "\n           fsa=" + fsaFile +
                 "\n           queries=" + queryFile +
                 "\n           iterations=" + iterations +
-                "\n           elapsed=" + elapsed + "ms\n");
+                "\n           elapsed=" + elapsed + "ms" +
+                "\n           per query=" + elapsed * 1000 / Math.max(1, (long)iterations * queries.size()) + "us\n");
     }
 
 
     public static void main(String[] args) {
-        if(args.length<3){
+        if(args.length<3 || (args[0].equals("-synonyms") && args.length<4)){
             System.out.println("USAGE: RuleBaseBenchmark ruleBaseFile queryFile iterations");
+            System.out.println("       RuleBaseBenchmark -synonyms ruleCount queryFile iterations");
             System.exit(1);
         }
 
         try {
-            new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
+            if (args[0].equals("-synonyms"))
+                new RuleBaseBenchmark().benchmarkSynonyms(Integer.parseInt(args[1]),args[2],Integer.parseInt(args[3]));
+            else
+                new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
         }
         catch (Exception e) {
             System.out.println("ERROR: " + collectMessage(e));
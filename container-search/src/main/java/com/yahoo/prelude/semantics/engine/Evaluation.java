@@ -110,6 +110,9 @@ public class Evaluation {
 
     public int getQuerySize() { return flattenedItems.size(); }
 
+    /** Returns the items of the query as of the last reset */
+    List<FlattenedItem> flattenedItems() { return flattenedItems; }
+
     /** Advances to the next item as current item */
     public void next() {
         currentIndex++;
@@ -7,6 +7,7 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
+import java.util.BitSet;
 import java.util.ListIterator;
 
 /**
@@ -19,10 +20,21 @@ public class RuleEngine {
 
     private RuleBase rules;
 
+    /** The index of the rules of the rule base, or null if it is not compiled */
+    private RuleIndex index=null;
+
     public RuleEngine(RuleBase rules) {
         this.rules=rules;
     }
 
+    /**
+     * Compiles the rules of the rule base into an index used to evaluate only the rules which may match
+     * each query. This must be called again if the rule base is changed after it is called.
+     */
+    public void compile() {
+        index=new RuleIndex(rules.rules());
+    }
+
     /**
      * Evaluates a rule base over a query
      *
@@ -32,19 +44,29 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query,int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
         boolean matchedAnything=false;
         Evaluation evaluation=new Evaluation(query,traceLevel);
         evaluation.setStemming(rules.getStemming());
         evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
-        for (ListIterator<ProductionRule> i=rules.ruleIterator(); i.hasNext(); ) {
-            evaluation.reset();
-            ProductionRule rule=i.next();
-            boolean matched=matchRuleAtAllStartPoints(evaluation,rule);
-            matchedAnything|=matched;
+        RuleIndex index=this.index;
+        if (index==null) {
+            for (ListIterator<ProductionRule> i=rules.ruleIterator(); i.hasNext(); ) {
+                evaluation.reset();
+                ProductionRule rule=i.next();
+                boolean matched=matchRuleAtAllStartPoints(evaluation,rule);
+                matchedAnything|=matched;
+            }
+        }
+        else {
+            // Evaluate the candidate rules in order, and find the candidates again when a rule changes the query
+            BitSet candidates=index.candidates(evaluation.flattenedItems(),evaluation.getStemming());
+            for (int i=candidates.nextSetBit(0); i>=0; i=candidates.nextSetBit(i+1)) {
+                evaluation.reset();
+                boolean matched=matchRuleAtAllStartPoints(evaluation,index.rules().get(i));
+                if (matched)
+                    candidates=index.candidates(evaluation.flattenedItems(),evaluation.getStemming());
+                matchedAnything|=matched;
+            }
         }
 
         if (!matchedAnything) return null;
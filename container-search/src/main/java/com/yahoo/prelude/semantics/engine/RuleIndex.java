@@ -0,0 +1,76 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the rules of a rule base by the query terms they require, used to find the rules
+ * which may match a query by looking up each term of the query once, instead of evaluating all rules.
+ * Rules which do not require any known term, such as rules consisting of negations or automata references,
+ * are always candidates.
+ *
+ * This is immutable.
+ */
+class RuleIndex {
+
+    /** The rules of this, in evaluation order */
+    private final List<ProductionRule> rules;
+
+    /** The indexes of the rules requiring each term */
+    private final Map<String, BitSet> rulesByTerm = new HashMap<>();
+
+    /** The indexes of the rules which are not indexed by any term */
+    private final BitSet unindexedRules = new BitSet();
+
+    /** Creates an index of the given rules. References must be made in the rules before calling this. */
+    RuleIndex(List<ProductionRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        for (int i = 0; i < this.rules.size(); i++) {
+            Set<String> requiredTerms = this.rules.get(i).getCondition().requiredTerms();
+            if (requiredTerms == null) {
+                unindexedRules.set(i);
+                continue;
+            }
+            for (String term : requiredTerms)
+                rulesByTerm.computeIfAbsent(term, __ -> new BitSet()).set(i);
+        }
+    }
+
+    /** Returns the rules of this, in evaluation order */
+    List<ProductionRule> rules() { return rules; }
+
+    /**
+     * Returns the indexes of the rules which may match the given terms.
+     *
+     * @param items the flattened items of the query
+     * @param stemming whether terms may also match their singular or plural form, see TermCondition
+     */
+    BitSet candidates(List<FlattenedItem> items, boolean stemming) {
+        BitSet candidates = (BitSet)unindexedRules.clone();
+        for (FlattenedItem item : items) {
+            String term = item.getItem().stringValue();
+            addRulesRequiring(term, candidates);
+            if (stemming && term.length() >= 3) {
+                addRulesRequiring(term + "s", candidates);
+                if (term.endsWith("s"))
+                    addRulesRequiring(term.substring(0, term.length() - 1), candidates);
+            }
+        }
+        return candidates;
+    }
+
+    private void addRulesRequiring(String term, BitSet candidates) {
+        BitSet rules = rulesByTerm.get(term);
+        if (rules != null)
+            candidates.or(rules);
+    }
+
+}
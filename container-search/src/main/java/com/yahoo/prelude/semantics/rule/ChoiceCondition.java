@@ -1,7 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.prelude.semantics.rule;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
@@ -26,6 +28,18 @@ public class ChoiceCondition extends CompositeCondition {
         return false;
     }
 
+    /** Returns the union of the required terms of the alternatives, or null if any alternative has none */
+    @Override
+    Set<String> requiredTerms(Set<ConditionReference> visitedReferences) {
+        Set<String> union=new HashSet<>();
+        for (Iterator<Condition> i=conditionIterator(); i.hasNext(); ) {
+            Set<String> requiredTerms=i.next().requiredTerms(visitedReferences);
+            if (requiredTerms==null) return null;
+            union.addAll(requiredTerms);
+        }
+        return union.isEmpty() ? null : union;
+    }
+
     protected String toInnerString() {
          return toInnerString(", ");
      }
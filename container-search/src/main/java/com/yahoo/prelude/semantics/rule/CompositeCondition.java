@@ -3,6 +3,7 @@ package com.yahoo.prelude.semantics.rule;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -113,6 +114,20 @@ public abstract class CompositeCondition extends Condition {
         return buffer.toString();
     }
 
+    /**
+     * Returns the smallest set of required terms of any subcondition, or null if none is known.
+     * This is the required terms of composites which match only if all their subconditions do.
+     */
+    protected final Set<String> smallestRequiredTermsOfAnySubCondition(Set<ConditionReference> visitedReferences) {
+        Set<String> smallest=null;
+        for (Iterator<Condition> i=conditionIterator(); i.hasNext(); ) {
+            Set<String> requiredTerms=i.next().requiredTerms(visitedReferences);
+            if (requiredTerms!=null && (smallest==null || requiredTerms.size()<smallest.size()))
+                smallest=requiredTerms;
+        }
+        return smallest;
+    }
+
     /** Returns whether all the conditions of this matches the current evaluation state */
     protected final boolean allSubConditionsMatches(RuleEvaluation e) {
         for (Iterator<Condition> i=conditionIterator(); i.hasNext(); ) {
@@ -6,6 +6,9 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.FlattenedItem;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Superclass of all kinds of conditions of production rules
  *
@@ -211,6 +214,22 @@ public abstract class Condition {
     /** Override if references needs to be set in this condition of its children */
     public void makeReferences(RuleBase rules) { }
 
+    /**
+     * Returns a set of query terms of which at least one must be present in the query for this condition
+     * to match, or null if no such set is known. References must be made before calling this.
+     */
+    public final Set<String> requiredTerms() {
+        return requiredTerms(new HashSet<>());
+    }
+
+    /**
+     * Override if this condition can only match when some term is present in the query.
+     * Returns null (no known required terms) by default.
+     *
+     * @param visitedReferences the condition references visited while resolving this, to avoid cycles
+     */
+    Set<String> requiredTerms(Set<ConditionReference> visitedReferences) { return null; }
+
     protected String getLabelString() {
         if (label==null) return "";
         return label + ":";
@@ -12,6 +12,7 @@ import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 import com.yahoo.protect.Validator;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A reference to a named condition
@@ -109,6 +110,15 @@ public class ConditionReference extends Condition {
         }
     }
 
+    @Override
+    Set<String> requiredTerms(Set<ConditionReference> visitedReferences) {
+        if (namedCondition==null) return null; // Automata lookup or not initialized
+        if ( ! visitedReferences.add(this)) return null; // Recursive
+        Set<String> requiredTerms=namedCondition.getCondition().requiredTerms(visitedReferences);
+        visitedReferences.remove(this);
+        return requiredTerms;
+    }
+
     protected boolean hasOpenChoicepoint(RuleEvaluation e) {
         if (namedCondition==null) return false;
         return namedCondition.getCondition().hasOpenChoicepoint(e);
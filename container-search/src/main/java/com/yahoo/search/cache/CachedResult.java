@@ -0,0 +1,131 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.yahoo.collections.ListMap;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The content of a result, detached from the query which produced it, such that it can be kept
+ * beyond the lifetime of that query and handed to other queries. This is immutable.
+ */
+final class CachedResult {
+
+    /** The estimated heap use of a hit, not counting its fields */
+    private static final int bytesPerHit = 256;
+
+    /** The estimated heap use of a field of a hit, not counting its value */
+    private static final int bytesPerField = 32;
+
+    /** The hits of the result, where no hit references a query */
+    private final HitGroup hits;
+    private final long totalHitCount;
+    private final long deepHitCount;
+    private final Coverage coverage;
+    private final ListMap<String, String> headers;
+    private final long byteSize;
+
+    CachedResult(Result result) {
+        this.hits = result.hits().detachedClone();
+        this.totalHitCount = result.getTotalHitCount();
+        this.deepHitCount = result.getDeepHitCount();
+        this.coverage = result.getCoverage(false);
+        this.headers = copy(result.getHeaders(false));
+        this.byteSize = bytesPerHit + estimateSize(hits);
+    }
+
+    /** Returns whether all the hits of this are filled with the given summary class */
+    boolean isFilled(String summaryClass) { return hits.isFilled(summaryClass); }
+
+    /** Returns the estimated number of bytes of heap used by this */
+    long byteSize() { return byteSize; }
+
+    /** Returns a new result containing a copy of the content of this, owned by the given query */
+    Result toResult(Query query) {
+        Result result = new Result(query, hits.detachedClone());
+        setQuery(result.hits(), query);
+        result.setTotalHitCount(totalHitCount);
+        result.setDeepHitCount(deepHitCount);
+        result.setCoverage(coverage);
+        if (headers != null)
+            copy(headers, result.getHeaders(true));
+        return result;
+    }
+
+    private static void setQuery(HitGroup group, Query query) {
+        for (Hit hit : group.asList()) {
+            hit.setQuery(query);
+            if (hit instanceof HitGroup)
+                setQuery((HitGroup)hit, query);
+        }
+    }
+
+    private static ListMap<String, String> copy(ListMap<String, String> headers) {
+        if (headers == null) return null;
+        return copy(headers, new ListMap<>());
+    }
+
+    private static ListMap<String, String> copy(ListMap<String, String> from, ListMap<String, String> to) {
+        for (Map.Entry<String, List<String>> header : from.entrySet())
+            for (String value : header.getValue())
+                to.put(header.getKey(), value);
+        return to;
+    }
+
+    /** Returns an estimate of the number of bytes of heap used by the hits in the given group */
+    private static long estimateSize(HitGroup group) {
+        FieldSizeEstimator fieldSizes = new FieldSizeEstimator();
+        long size = 0;
+        for (Hit hit : group.asList()) {
+            size += bytesPerHit;
+            hit.forEachFieldAsRaw(fieldSizes);
+            if (hit instanceof HitGroup)
+                size += estimateSize((HitGroup)hit);
+        }
+        return size + fieldSizes.size;
+    }
+
+    /** Sums the estimated heap use of the field values it is given */
+    private static class FieldSizeEstimator implements Hit.RawUtf8Consumer {
+
+        long size = 0;
+
+        @Override
+        public void accept(String fieldName, byte[] utf8Data, int offset, int length) {
+            size += bytesPerField + length;
+        }
+
+        @Override
+        public void accept(String fieldName, int value) { size += bytesPerField; }
+
+        @Override
+        public void accept(String fieldName, long value) { size += bytesPerField; }
+
+        @Override
+        public void accept(String fieldName, float value) { size += bytesPerField; }
+
+        @Override
+        public void accept(String fieldName, double value) { size += bytesPerField; }
+
+        @Override
+        public void accept(String fieldName, Object value) {
+            size += bytesPerField + sizeOf(value);
+        }
+
+        private static long sizeOf(Object value) {
+            if (value == null) return 0;
+            if (value instanceof Number || value instanceof Boolean) return 16;
+            if (value instanceof byte[]) return 16 + ((byte[])value).length;
+            if (value instanceof CharSequence) return 40 + 2 * ((CharSequence)value).length();
+            return 40 + 2 * value.toString().length(); // structured values: Estimate by their rendered size
+        }
+
+    }
+
+}
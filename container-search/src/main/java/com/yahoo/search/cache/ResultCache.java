@@ -0,0 +1,137 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache of results bounded by the estimated number of bytes of the cached results,
+ * where each entry is valid for a limited time.
+ * <p>
+ * This is thread safe. The cache stores a copy of the content of results which does not reference
+ * the query producing them, and returns a new result for each lookup.
+ */
+public class ResultCache {
+
+    private final LinkedHashMap<ResultCacheKey, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    /** The max number of bytes of results in this cache */
+    private final long capacity;
+
+    /** The max size of a single cached result */
+    private final long maxEntrySize;
+
+    /** The max age of a valid cache entry in milliseconds */
+    private final long timeToLive;
+
+    private final Clock clock;
+
+    /** The current estimated number of bytes of results in this cache */
+    private long size = 0;
+
+    /**
+     * Creates a result cache
+     *
+     * @param capacity the max number of bytes to use for cached results
+     * @param maxEntryPercentage the max size of a single result as a percentage of the capacity.
+     *        Larger results are not cached
+     * @param timeToLiveMillis the max age of a valid cache entry in milliseconds
+     * @param clock the clock to use for determining entry age
+     */
+    public ResultCache(long capacity, int maxEntryPercentage, long timeToLiveMillis, Clock clock) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity must be positive, was " + capacity);
+        if (timeToLiveMillis <= 0)
+            throw new IllegalArgumentException("Cache time to live must be positive, was " + timeToLiveMillis);
+        this.capacity = capacity;
+        this.maxEntrySize = capacity * maxEntryPercentage / 100;
+        this.timeToLive = timeToLiveMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a new result owned by the given query containing the result cached for this key,
+     * or null if none or if it is expired
+     */
+    public Result get(ResultCacheKey key, Query query) {
+        CachedResult cached = get(key);
+        return cached == null ? null : cached.toResult(query);
+    }
+
+    /**
+     * Adds the content of a result to this cache, replacing any existing result for the same key.
+     * Results estimated to be larger than the max entry size are not added.
+     *
+     * @return true if the result was added, false if it was too large
+     */
+    public boolean put(ResultCacheKey key, Result result) {
+        return put(key, new CachedResult(result));
+    }
+
+    synchronized CachedResult get(ResultCacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+
+        if (clock.millis() - entry.timestamp > timeToLive) {
+            remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    synchronized boolean put(ResultCacheKey key, CachedResult result) {
+        long entrySize = key.byteSize() + result.byteSize();
+        if (entrySize > maxEntrySize) return false;
+
+        remove(key);
+        entries.put(key, new Entry(result, entrySize, clock.millis()));
+        size += entrySize;
+        removeOverflow();
+        return true;
+    }
+
+    /** Returns the current estimated number of bytes in use by this cache */
+    public synchronized long byteSize() { return size; }
+
+    /** Returns the number of results in this cache, including any expired ones not yet evicted */
+    public synchronized int entryCount() { return entries.size(); }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private void remove(ResultCacheKey key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            size -= removed.size;
+    }
+
+    /** Removes the least recently used entries until this is within capacity */
+    private void removeOverflow() {
+        for (Iterator<Map.Entry<ResultCacheKey, Entry>> i = entries.entrySet().iterator(); size > capacity && i.hasNext(); ) {
+            size -= i.next().getValue().size;
+            i.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        final CachedResult result;
+        final long size;
+        final long timestamp;
+
+        Entry(CachedResult result, long size, long timestamp) {
+            this.result = result;
+            this.size = size;
+            this.timestamp = timestamp;
+        }
+
+    }
+
+}
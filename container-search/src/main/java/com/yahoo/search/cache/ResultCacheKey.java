@@ -0,0 +1,143 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.google.common.collect.ImmutableSet;
+import com.yahoo.search.Query;
+import com.yahoo.search.query.ranking.MatchPhase;
+import com.yahoo.search.query.ranking.Matching;
+import com.yahoo.search.query.ranking.SoftTimeout;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The key of a cached result: The parts of a query which determines the content of its result.
+ * The query tree must be canonicalized before creating a key from the query, such that semantically
+ * equivalent queries have equal keys.
+ * <p>
+ * As any searcher may read any request parameter, the key also contains all the parameters of the request
+ * except the query text, which is represented by the canonical query tree, and the parameters which only
+ * affect tracing, timing or rendering.
+ * <p>
+ * Keys are immutable: All mutable state is copied from the query on creation, and no reference
+ * to the query (or anything referencing it) is kept, as keys may outlive their query for the time to live of the cache.
+ */
+public final class ResultCacheKey {
+
+    /** The request parameters which do not change the content of the result */
+    private static final Set<String> ignoredRequestParameters =
+            ImmutableSet.of("query", "yql", "timeout", "tracelevel", "trace.level", "trace.timestamps",
+                            "format", "presentation.format", "nocachewrite");
+
+    private final String queryTree;
+    private final String filter;
+    private final Set<String> sources;
+    private final Set<String> restrict;
+    private final String searchPath;
+    private final String rankProfile;
+    private final String rankFeatures;
+    private final String rankProperties;
+    private final boolean listFeatures;
+    private final String sorting;
+    private final String location;
+    private final MatchPhase matchPhase;
+    private final Matching matching;
+    private final SoftTimeout softTimeout;
+    private final String summary;
+    private final boolean bolding;
+    private final Set<String> summaryFields;
+    private final int offset;
+    private final int hits;
+    private final Map<String, String> requestParameters;
+
+    private final int hashCode;
+
+    public ResultCacheKey(Query query) {
+        this.queryTree = query.getModel().getQueryTree().toString();
+        this.filter = query.getModel().getFilter();
+        this.sources = ImmutableSet.copyOf(query.getModel().getSources());
+        this.restrict = ImmutableSet.copyOf(query.getModel().getRestrict());
+        this.searchPath = query.getModel().getSearchPath();
+        this.rankProfile = query.getRanking().getProfile();
+        this.rankFeatures = query.getRanking().getFeatures().toString();
+        this.rankProperties = query.getRanking().getProperties().toString();
+        this.listFeatures = query.getRanking().getListFeatures();
+        this.sorting = query.getRanking().getSorting() == null ? null : query.getRanking().getSorting().fieldOrders().toString();
+        this.location = Objects.toString(query.getRanking().getLocation(), null);
+        this.matchPhase = query.getRanking().getMatchPhase().clone();
+        this.matching = query.getRanking().getMatching().clone();
+        this.softTimeout = query.getRanking().getSoftTimeout().clone();
+        this.summary = query.getPresentation().getSummary();
+        this.bolding = query.getPresentation().getBolding();
+        this.summaryFields = ImmutableSet.copyOf(query.getPresentation().getSummaryFields());
+        this.offset = query.getOffset();
+        this.hits = query.getHits();
+        this.requestParameters = requestParameters(query);
+        this.hashCode = Objects.hash(queryTree, filter, sources, restrict, searchPath,
+                                     rankProfile, rankFeatures, rankProperties, listFeatures, sorting, location,
+                                     summary, bolding, summaryFields, offset, hits, requestParameters);
+    }
+
+    private static Map<String, String> requestParameters(Query query) {
+        if (query.getHttpRequest() == null) return Collections.emptyMap();
+
+        SortedMap<String, String> parameters = new TreeMap<>();
+        for (Map.Entry<String, String> parameter : query.getHttpRequest().propertyMap().entrySet()) {
+            if (ignoredRequestParameters.contains(parameter.getKey())) continue;
+            parameters.put(parameter.getKey(), parameter.getValue());
+        }
+        return Collections.unmodifiableSortedMap(parameters);
+    }
+
+    /** Returns an estimate of the number of bytes of heap used by this */
+    public int byteSize() {
+        int size = 256 + 2 * (queryTree.length() + rankFeatures.length() + rankProperties.length())
+                   + (filter == null ? 0 : 2 * filter.length());
+        for (Map.Entry<String, String> parameter : requestParameters.entrySet())
+            size += 64 + 2 * (parameter.getKey().length() + parameter.getValue().length());
+        return size;
+    }
+
+    @Override
+    public int hashCode() { return hashCode; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if ( ! (o instanceof ResultCacheKey)) return false;
+
+        ResultCacheKey other = (ResultCacheKey)o;
+        if (this.hashCode != other.hashCode) return false;
+        if (this.offset != other.offset) return false;
+        if (this.hits != other.hits) return false;
+        if (this.bolding != other.bolding) return false;
+        if (this.listFeatures != other.listFeatures) return false;
+        if ( ! this.queryTree.equals(other.queryTree)) return false;
+        if ( ! Objects.equals(this.filter, other.filter)) return false;
+        if ( ! this.sources.equals(other.sources)) return false;
+        if ( ! this.restrict.equals(other.restrict)) return false;
+        if ( ! Objects.equals(this.searchPath, other.searchPath)) return false;
+        if ( ! Objects.equals(this.summary, other.summary)) return false;
+        if ( ! this.summaryFields.equals(other.summaryFields)) return false;
+        if ( ! this.rankProfile.equals(other.rankProfile)) return false;
+        if ( ! this.rankFeatures.equals(other.rankFeatures)) return false;
+        if ( ! this.rankProperties.equals(other.rankProperties)) return false;
+        if ( ! Objects.equals(this.sorting, other.sorting)) return false;
+        if ( ! Objects.equals(this.location, other.location)) return false;
+        if ( ! this.matchPhase.equals(other.matchPhase)) return false;
+        if ( ! this.matching.equals(other.matching)) return false;
+        if ( ! this.softTimeout.equals(other.softTimeout)) return false;
+        if ( ! this.requestParameters.equals(other.requestParameters)) return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "result cache key for query '" + queryTree + "' [offset: " + offset + ", hits: " + hits + "]";
+    }
+
+}
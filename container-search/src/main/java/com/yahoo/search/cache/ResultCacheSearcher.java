@@ -0,0 +1,222 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.google.inject.Inject;
+import com.yahoo.component.chain.dependencies.After;
+import com.yahoo.component.chain.dependencies.Before;
+import com.yahoo.metrics.simple.Counter;
+import com.yahoo.metrics.simple.Gauge;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.prelude.fastsearch.CacheControl;
+import com.yahoo.prelude.query.QueryCanonicalizer;
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchchain.PhaseNames;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caches results of queries, such that frequently repeated queries can be answered without
+ * contacting the backends.
+ * <p>
+ * The cache key is the canonicalized query tree together with the ranking and presentation
+ * properties which determines the content of the result (see {@link ResultCacheKey}).
+ * Results are written to the cache once they are filled with the summary class requested by the query,
+ * and cached results are only returned to queries when they are filled for the summary class
+ * the query requests, such that cache hits require no further backend requests.
+ * <p>
+ * Additionally, identical queries arriving while a query is already executing will wait for
+ * and receive a copy of the result of that query once it is filled for the summary class the query requests,
+ * rather than executing it again. If the executing query is not filled within its timeout, the waiting
+ * queries are executed themselves. This is turned off by setting coalesceRequests to false in the config.
+ * <p>
+ * Queries are not cached if they set nocache, use grouping or freshness, and results are not written
+ * to the cache if they contain errors or if the query sets nocachewrite.
+ * <p>
+ * Metrics: This emits the counts resultCacheHits, resultCacheMisses and resultCacheCoalescedRequests,
+ * the gauge resultCacheHitRatio, which is 1 for hits and 0 for misses such that its average is the hit ratio,
+ * and the gauge resultCacheBytes, the estimated heap size of the cached results.
+ */
+@After(PhaseNames.TRANSFORMED_QUERY)
+@Before(PhaseNames.BLENDED_RESULT)
+public class ResultCacheSearcher extends Searcher {
+
+    /** The property holding the key of a query whose result should be written to the cache when filled */
+    private static final CompoundName cacheKeyName = new CompoundName("resultCache.key");
+
+    /** The property holding the pending result of a query to which identical queries are coalesced */
+    private static final CompoundName pendingName = new CompoundName("resultCache.pending");
+
+    /** The cache, or null if caching is disabled */
+    private final ResultCache cache;
+
+    private final boolean coalesceRequests;
+
+    /** The queries currently executing, to which identical queries are coalesced */
+    private final Map<ResultCacheKey, Pending> inFlight = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Gauge hitRatioGauge;
+    private final Gauge sizeGauge;
+
+    @Inject
+    public ResultCacheSearcher(ResultCacheConfig config, MetricReceiver metric) {
+        this(config, metric, Clock.systemUTC());
+    }
+
+    /** For testing - allows injection of a timer to avoid depending on the system clock */
+    public ResultCacheSearcher(ResultCacheConfig config, MetricReceiver metric, Clock clock) {
+        if (config.sizeMegaBytes() > 0)
+            this.cache = new ResultCache((long)config.sizeMegaBytes() << 20,
+                                         config.maxEntryPercentage(),
+                                         (long)(config.timeToLiveSeconds() * 1000),
+                                         clock);
+        else
+            this.cache = null;
+        this.coalesceRequests = config.coalesceRequests();
+        this.clock = clock;
+
+        this.hitCounter = metric.declareCounter("resultCacheHits");
+        this.missCounter = metric.declareCounter("resultCacheMisses");
+        this.coalescedCounter = metric.declareCounter("resultCacheCoalescedRequests");
+        this.hitRatioGauge = metric.declareGauge("resultCacheHitRatio");
+        this.sizeGauge = metric.declareGauge("resultCacheBytes");
+    }
+
+    @Override
+    public Result search(Query query, Execution execution) {
+        if (cache == null || ! isCacheable(query)) return execution.search(query);
+
+        // Invalid queries are passed on to let the backends produce the appropriate error
+        if (QueryCanonicalizer.canonicalize(query) != null) return execution.search(query);
+
+        ResultCacheKey key = new ResultCacheKey(query);
+        CachedResult cached = cache.get(key);
+        if (cached != null && cached.isFilled(query.getPresentation().getSummary())) {
+            hitCounter.add(1);
+            hitRatioGauge.sample(1);
+            query.trace("Returning cached result", false, 3);
+            return cached.toResult(query);
+        }
+        missCounter.add(1);
+        hitRatioGauge.sample(0);
+
+        if ( ! coalesceRequests) return executeAndCacheOnFill(key, query, execution);
+
+        Pending pending = new Pending(key, clock.millis() + query.getTimeLeft());
+        Pending executing = inFlight.putIfAbsent(key, pending);
+        if (executing != null && executing.isExpired(clock.millis()) && inFlight.replace(key, executing, pending)) {
+            executing.complete(null); // the executing query was never filled
+            executing = null;
+        }
+        if (executing != null) {
+            CachedResult coalesced = await(executing, query);
+            if (coalesced == null) return executeAndCacheOnFill(key, query, execution);
+            coalescedCounter.add(1);
+            query.trace("Returning result of an identical, concurrently executing query", false, 3);
+            return coalesced.toResult(query);
+        }
+
+        query.properties().set(pendingName, pending);
+        Result result = null;
+        try {
+            result = executeAndCacheOnFill(key, query, execution);
+            return result;
+        }
+        finally {
+            if (result == null || result.hits().getErrorHit() != null)
+                release(pending, null);
+            else if (result.isFilled(query.getPresentation().getSummary()))
+                release(pending, new CachedResult(result));
+            // otherwise the coalesced queries are released when the result is filled
+        }
+    }
+
+    @Override
+    public void fill(Result result, String summaryClass, Execution execution) {
+        execution.fill(result, summaryClass);
+
+        Query query = result.getQuery();
+        Object key = query.properties().get(cacheKeyName);
+        Object pending = query.properties().get(pendingName);
+        if ( ! (key instanceof ResultCacheKey) && ! (pending instanceof Pending)) return;
+
+        boolean failed = result.hits().getErrorHit() != null;
+        if ( ! failed && ! result.isFilled(query.getPresentation().getSummary())) return;
+
+        CachedResult filled = failed ? null : new CachedResult(result);
+        if (pending instanceof Pending)
+            release((Pending)pending, filled);
+        if (key instanceof ResultCacheKey && ! failed) {
+            cache.put((ResultCacheKey)key, filled);
+            sizeGauge.sample(cache.byteSize());
+        }
+    }
+
+    /** Returns the cache used by this, or null if caching is disabled */
+    ResultCache getCache() { return cache; }
+
+    private boolean isCacheable(Query query) {
+        if (query.getNoCache()) return false;
+        if ( ! query.getSelect().getGrouping().isEmpty()) return false;
+        if (query.getRanking().getFreshness() != null) return false; // depends on the current time
+        return true;
+    }
+
+    private Result executeAndCacheOnFill(ResultCacheKey key, Query query, Execution execution) {
+        if ( ! query.properties().getBoolean(CacheControl.nocachewrite))
+            query.properties().set(cacheKeyName, key);
+        return execution.search(query);
+    }
+
+    /** Hands the given result, or null if it is not usable, to the queries coalesced to this */
+    private void release(Pending pending, CachedResult result) {
+        inFlight.remove(pending.key, pending);
+        pending.complete(result);
+    }
+
+    /** Waits for the filled result of an executing query, and returns it, or null if it is not available in time */
+    private CachedResult await(Pending executing, Query query) {
+        try {
+            return executing.result.get(Math.min(query.getTimeLeft(), executing.deadline - clock.millis()),
+                                        TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException | ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /** The result of a query which is executing, which identical queries may wait for */
+    private static final class Pending {
+
+        final ResultCacheKey key;
+        final CompletableFuture<CachedResult> result = new CompletableFuture<>();
+
+        /** The time in ms after which this should no longer be waited for */
+        final long deadline;
+
+        Pending(ResultCacheKey key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        boolean isExpired(long now) { return now > deadline; }
+
+        void complete(CachedResult filledResult) { result.complete(filledResult); }
+
+    }
+
+}
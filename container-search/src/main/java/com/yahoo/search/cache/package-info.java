@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 /**
- * Cache package, exported to keep the ignored legacy cache config around until Vespa 7.
+ * A result cache which can be added to search chains to avoid sending repeated queries to the backends.
+ * The legacy binary cache config in this package is ignored and will be removed on Vespa 7.
  *
  * @author bratseth
  */
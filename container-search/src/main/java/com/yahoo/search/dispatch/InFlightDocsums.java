@@ -0,0 +1,125 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.data.access.Inspector;
+import com.yahoo.document.GlobalId;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The document summaries currently being fetched from content nodes. This allows concurrent fills
+ * requesting the same summary to wait for the request already in flight instead of requesting it again.
+ * <p>
+ * This is multithread safe.
+ */
+class InFlightDocsums {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Inspector>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Claims the fetching of the summary with the given key.
+     * If the returned claim is owned, the caller must fetch the summary and complete the claim,
+     * otherwise the caller should wait for the summary fetched by the owner.
+     */
+    Claim claim(Key key) {
+        CompletableFuture<Inspector> summary = new CompletableFuture<>();
+        CompletableFuture<Inspector> existing = inFlight.putIfAbsent(key, summary);
+        if (existing == null)
+            return new Claim(key, summary, true);
+        else
+            return new Claim(key, existing, false);
+    }
+
+    /** Returns the number of summaries currently in flight */
+    int size() { return inFlight.size(); }
+
+    /** A claim to, or a wait for, a summary in flight */
+    final class Claim {
+
+        private final Key key;
+        private final CompletableFuture<Inspector> summary;
+        private final boolean owned;
+
+        private Claim(Key key, CompletableFuture<Inspector> summary, boolean owned) {
+            this.key = key;
+            this.summary = summary;
+            this.owned = owned;
+        }
+
+        /** Returns whether the summary must be fetched by the holder of this */
+        boolean isOwned() { return owned; }
+
+        /**
+         * Completes an owned claim, making the summary available to all waiting fills.
+         *
+         * @param value the summary, or null if it could not be fetched
+         */
+        void complete(Inspector value) {
+            if ( ! owned) throw new IllegalStateException("Cannot complete " + key + ": Not owned by this");
+            inFlight.remove(key, summary);
+            summary.complete(value);
+        }
+
+        /** Waits for the owner of this summary to complete it, and returns it, or null if it was not fetched in time */
+        Inspector await(long timeoutMillis) {
+            try {
+                return summary.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException | ExecutionException | TimeoutException e) {
+                return null;
+            }
+        }
+
+    }
+
+    /** Identifies a summary: Requesting summaries with equal keys will return equal summaries */
+    static final class Key {
+
+        private final int nodeId;
+        private final GlobalId globalId;
+        private final String summaryClass;
+        private final String rankProfile;
+        private final String documentDb;
+        private final String docType;
+        private final int hashCode;
+
+        Key(int nodeId, GlobalId globalId, String summaryClass, String rankProfile, String documentDb, String docType) {
+            this.nodeId = nodeId;
+            this.globalId = globalId;
+            this.summaryClass = summaryClass;
+            this.rankProfile = rankProfile;
+            this.documentDb = documentDb;
+            this.docType = docType;
+            this.hashCode = Objects.hash(nodeId, globalId, summaryClass, rankProfile, documentDb, docType);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            if (this.nodeId != other.nodeId) return false;
+            if ( ! this.globalId.equals(other.globalId)) return false;
+            if ( ! Objects.equals(this.summaryClass, other.summaryClass)) return false;
+            if ( ! Objects.equals(this.rankProfile, other.rankProfile)) return false;
+            if ( ! Objects.equals(this.documentDb, other.documentDb)) return false;
+            if ( ! Objects.equals(this.docType, other.docType)) return false;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "summary '" + summaryClass + "' of " + globalId + " on node " + nodeId;
+        }
+
+    }
+
+}
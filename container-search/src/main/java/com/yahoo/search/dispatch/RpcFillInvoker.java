@@ -2,6 +2,7 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.collections.ListMap;
+import com.yahoo.collections.Pair;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.protect.Error;
@@ -20,6 +21,9 @@ import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +46,10 @@ public class RpcFillInvoker extends FillInvoker {
     private final RpcResourcePool resourcePool;
 
     private GetDocsumsResponseReceiver responseReceiver;
+    private CompressionType compression;
+
+    /** Hits whose summaries are fetched by other, concurrent fills, which we wait for rather than requesting again */
+    private final List<Pair<FastHit, InFlightDocsums.Claim>> coalescedHits = new ArrayList<>();
 
 
     RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb) {
@@ -51,17 +59,20 @@ public class RpcFillInvoker extends FillInvoker {
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
-
-        CompressionType compression = CompressionType
+        // Resolve everything which may fail before claiming summaries which other fills may wait for
+        compression = CompressionType
                 .valueOf(result.getQuery().properties().getString(RpcResourcePool.dispatchCompression, "LZ4").toUpperCase());
 
-        if (result.getQuery().getTraceLevel() >= 3)
-            result.getQuery().trace("Sending " + hitsByNode.size() + " summary fetch RPC requests", 3);
-
-        responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(), result);
-        for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
-            sendGetDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), summaryClass, compression, result, responseReceiver);
+        Map<FastHit, InFlightDocsums.Claim> claims = new IdentityHashMap<>();
+        try {
+            ListMap<Integer, FastHit> hitsByNode = hitsByNode(result, summaryClass, claims);
+            responseReceiver = sendGetDocsumsRequests(hitsByNode, claims, summaryClass, result);
+        }
+        catch (RuntimeException e) { // release the fills waiting for the summaries we won't fetch
+            for (InFlightDocsums.Claim claim : claims.values())
+                claim.complete(null);
+            claims.clear();
+            throw e;
         }
     }
 
@@ -69,11 +80,42 @@ public class RpcFillInvoker extends FillInvoker {
     protected void getFillResults(Result result, String summaryClass) {
         try {
             responseReceiver.processResponses(result.getQuery(), summaryClass, documentDb);
+            List<FastHit> notCoalesced = fillCoalesced(result.getQuery(), summaryClass);
+            if ( ! notCoalesced.isEmpty()) { // the fill we waited for failed: Fetch these ourselves
+                ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+                notCoalesced.forEach(hit -> hitsByNode.put(hit.getDistributionKey(), hit));
+                sendGetDocsumsRequests(hitsByNode, new IdentityHashMap<>(), summaryClass, result)
+                        .processResponses(result.getQuery(), summaryClass, documentDb);
+            }
             result.hits().setSorted(false);
             result.analyzeHits();
         } catch (TimeoutException e) {
             result.hits().addError(ErrorMessage.createTimeout("Summary data is incomplete: " + e.getMessage()));
         }
+        finally {
+            responseReceiver.completeRemainingClaims();
+        }
+    }
+
+    /**
+     * Waits for the summaries of hits fetched by concurrent fills and adds them to the hits.
+     *
+     * @return the hits whose summaries could not be fetched by the concurrent fill
+     */
+    private List<FastHit> fillCoalesced(Query query, String summaryClass) {
+        if (coalescedHits.isEmpty()) return Collections.emptyList();
+
+        if (query.getTraceLevel() >= 3)
+            query.trace("Waiting for " + coalescedHits.size() + " summaries requested by concurrent fills", 3);
+        List<FastHit> notCoalesced = new ArrayList<>();
+        for (Pair<FastHit, InFlightDocsums.Claim> coalescedHit : coalescedHits) {
+            Inspector summary = coalescedHit.getSecond().await(query.getTimeLeft());
+            if (summary != null)
+                GetDocsumsResponseReceiver.fillHit(coalescedHit.getFirst(), summaryClass, documentDb, summary);
+            else
+                notCoalesced.add(coalescedHit.getFirst());
+        }
+        return notCoalesced;
     }
 
     @Override
@@ -81,8 +123,14 @@ public class RpcFillInvoker extends FillInvoker {
         // nothing to release
     }
 
-    /** Return a map of hits by their search node (partition) id */
-    private static ListMap<Integer, FastHit> hitsByNode(Result result) {
+    /**
+     * Return a map of the hits to fetch summaries for by their search node (partition) id.
+     * Hits whose summaries are already being fetched by a concurrent fill are not included but
+     * added to coalescedHits, while the claims of the summaries to fetch are added to the given claims.
+     */
+    private ListMap<Integer, FastHit> hitsByNode(Result result, String summaryClass, Map<FastHit, InFlightDocsums.Claim> claims) {
+        Query query = result.getQuery();
+        boolean coalesce = resourcePool.coalesceSummaries(query);
         ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
         for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext();) {
             Hit h = i.next();
@@ -90,11 +138,36 @@ public class RpcFillInvoker extends FillInvoker {
                 continue;
             FastHit hit = (FastHit) h;
 
+            if (coalesce) {
+                InFlightDocsums.Claim claim = resourcePool.inFlightDocsums().claim(
+                        new InFlightDocsums.Key(hit.getDistributionKey(), hit.getGlobalId(), summaryClass,
+                                                query.getRanking().getProfile(), documentDb.getName(), query.getModel().getDocumentDb()));
+                if ( ! claim.isOwned()) {
+                    coalescedHits.add(new Pair<>(hit, claim));
+                    continue;
+                }
+                claims.put(hit, claim);
+            }
             hitsByNode.put(hit.getDistributionKey(), hit);
         }
         return hitsByNode;
     }
 
+    /** Sends getDocsums requests for the given hits, and returns the receiver of the responses */
+    private GetDocsumsResponseReceiver sendGetDocsumsRequests(ListMap<Integer, FastHit> hitsByNode,
+                                                              Map<FastHit, InFlightDocsums.Claim> claims,
+                                                              String summaryClass, Result result) {
+        if (result.getQuery().getTraceLevel() >= 3)
+            result.getQuery().trace("Sending " + hitsByNode.size() + " summary fetch RPC requests", 3);
+
+        GetDocsumsResponseReceiver responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(),
+                                                                                     result, claims);
+        for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
+            sendGetDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), summaryClass, compression, result, responseReceiver);
+        }
+        return responseReceiver;
+    }
+
     /** Send a getDocsums request to a node. Responses will be added to the given receiver. */
     private void sendGetDocsumsRequest(int nodeId, List<FastHit> hits, String summaryClass, CompressionType compression,
                                        Result result, GetDocsumsResponseReceiver responseReceiver) {
@@ -146,6 +219,9 @@ public class RpcFillInvoker extends FillInvoker {
         private final Compressor compressor;
         private final Result result;
 
+        /** The claims on the summaries fetched by this, which must be completed to release concurrent fills waiting for them */
+        private final Map<FastHit, InFlightDocsums.Claim> claims;
+
         /** Whether we have already logged/notified about an error - to avoid spamming */
         private boolean hasReportedError = false;
 
@@ -153,10 +229,15 @@ public class RpcFillInvoker extends FillInvoker {
         private int outstandingResponses;
 
         GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result) {
+            this(requestCount, compressor, result, new IdentityHashMap<>());
+        }
+
+        GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result, Map<FastHit, InFlightDocsums.Claim> claims) {
             this.compressor = compressor;
-            responses = new LinkedBlockingQueue<>(requestCount);
+            responses = new LinkedBlockingQueue<>(Math.max(1, requestCount)); // there may be no requests when all summaries are coalesced
             outstandingResponses = requestCount;
             this.result = result;
+            this.claims = claims;
         }
 
         /** Called by a thread belonging to the client when a valid response becomes available */
@@ -239,9 +320,8 @@ public class RpcFillInvoker extends FillInvoker {
             for (int i = 0; i < hits.size(); i++) {
                 Inspector summary = summaries.entry(i).field("docsum");
                 if (summary.fieldCount() != 0) {
-                    hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
-                    hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
-                    hits.get(i).setFilled(summaryClass);
+                    fillHit(hits.get(i), summaryClass, documentDb, summary);
+                    completeClaim(hits.get(i), summary);
                 } else {
                     skippedHits++;
                 }
@@ -249,5 +329,24 @@ public class RpcFillInvoker extends FillInvoker {
             return skippedHits;
         }
 
+        static void fillHit(FastHit hit, String summaryClass, DocumentDatabase documentDb, Inspector summary) {
+            hit.setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
+            hit.addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
+            hit.setFilled(summaryClass);
+        }
+
+        private void completeClaim(FastHit hit, Inspector summary) {
+            InFlightDocsums.Claim claim = claims.remove(hit);
+            if (claim != null)
+                claim.complete(summary);
+        }
+
+        /** Releases fills waiting for summaries this failed to fetch */
+        void completeRemainingClaims() {
+            for (InFlightDocsums.Claim claim : claims.values())
+                claim.complete(null);
+            claims.clear();
+        }
+
     }
 }
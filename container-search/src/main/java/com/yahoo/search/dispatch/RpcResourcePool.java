@@ -26,8 +26,15 @@ public class RpcResourcePool {
     /** Unless turned off this will fill summaries by dispatching directly to search nodes over RPC when possible */
     private final static CompoundName dispatchSummaries = new CompoundName("dispatch.summaries");
 
+    /**
+     * Unless turned off, concurrent fills requesting the same summaries will wait for the request already
+     * in flight instead of requesting them again
+     */
+    private final static CompoundName coalesceSummaries = new CompoundName("dispatch.coalesceSummaries");
+
     private final Compressor compressor = new Compressor();
     private final Client client;
+    private final InFlightDocsums inFlightDocsums = new InFlightDocsums();
 
     /** Connections to the search nodes this talks to, indexed by node id ("partid") */
     private final ImmutableMap<Integer, Client.NodeConnection> nodeConnections;
@@ -77,6 +84,18 @@ public class RpcResourcePool {
         return false;
     }
 
+    /**
+     * Returns whether fills for this query can reuse summaries fetched by concurrent fills.
+     * This is not the case with sessions, as the summaries may then depend on session state.
+     */
+    boolean coalesceSummaries(Query query) {
+        return query.properties().getBoolean(coalesceSummaries, true) && query.getSessionId() == null;
+    }
+
+    InFlightDocsums inFlightDocsums() {
+        return inFlightDocsums;
+    }
+
     public Compressor compressor() {
         return compressor;
     }
@@ -5,9 +5,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Logger;
 
 import com.yahoo.component.ComponentId;
@@ -321,30 +324,44 @@ public class GroupingExecutor extends Searcher {
     /**
      * Merges the grouping content of the given result object. The first grouping hit found by iterating over the result
      * content is kept, and all consecutive matching hits are merged into this.
+     * <p>
+     * Results from many content nodes are merged pairwise in a tree, with subtrees merged in parallel
+     * in the common fork-join pool. As grouping results of distinct ids, and results from distinct nodes,
+     * share no state, this produces the same result as merging them one by one in order.
      *
      * @param result The result to traverse.
      * @return A map of merged grouping objects.
      */
     private Map<Integer, Grouping> mergeGroupingResults(Result result) {
-        Map<Integer, Grouping> ret = new HashMap<>();
+        Map<Integer, List<Grouping>> groupingsById = new LinkedHashMap<>();
         for (Iterator<Hit> i = result.hits().unorderedIterator(); i.hasNext(); ) {
             Hit hit = i.next();
             if (hit instanceof GroupingListHit) {
                 ContextInjector injector = new ContextInjector(hit);
                 for (Grouping grp : ((GroupingListHit)hit).getGroupingList()) {
                     grp.select(injector, injector);
-                    Grouping old = ret.get(grp.getId());
-                    if (old != null) {
-                        old.merge(grp);
-                    } else {
-                        ret.put(grp.getId(), grp);
-                    }
+                    groupingsById.computeIfAbsent(grp.getId(), __ -> new ArrayList<>()).add(grp);
                 }
                 i.remove();
             }
         }
-        for (Grouping grouping : ret.values()) {
-            grouping.postMerge();
+
+        List<MergeTask> tasks = new ArrayList<>(groupingsById.size());
+        List<MergeTask> forkingTasks = new ArrayList<>();
+        for (List<Grouping> groupings : groupingsById.values()) {
+            MergeTask task = new MergeTask(groupings, 0, groupings.size(), true);
+            tasks.add(task);
+            if (task.isForking())
+                forkingTasks.add(task);
+            else
+                task.invoke(); // not worth handing off to the pool
+        }
+        ForkJoinTask.invokeAll(forkingTasks);
+
+        Map<Integer, Grouping> ret = new HashMap<>();
+        for (MergeTask task : tasks) {
+            Grouping merged = task.join();
+            ret.put(merged.getId(), merged);
         }
         return ret;
     }
@@ -404,6 +421,58 @@ public class GroupingExecutor extends Searcher {
         }
     }
 
+    /**
+     * Merges a range of grouping results into the first one by recursively merging each half,
+     * forking the merging of large ranges. The root task also invokes post merge on the merged result.
+     */
+    private static class MergeTask extends RecursiveTask<Grouping> {
+
+        /** The max number of results to merge in the current thread */
+        private static final int sequentialThreshold = 8;
+
+        private final List<Grouping> groupings;
+        private final int from, to;
+        private final boolean root;
+
+        MergeTask(List<Grouping> groupings, int from, int to, boolean root) {
+            this.groupings = groupings;
+            this.from = from;
+            this.to = to;
+            this.root = root;
+        }
+
+        /** Returns whether this will fork subtasks, i.e whether it is worth executing this in the pool */
+        boolean isForking() { return to - from > sequentialThreshold; }
+
+        @Override
+        protected Grouping compute() {
+            Grouping merged;
+            if (isForking()) {
+                int middle = (from + to) >>> 1;
+                MergeTask right = new MergeTask(groupings, middle, to, false);
+                right.fork();
+                merged = new MergeTask(groupings, from, middle, false).compute();
+                merged.merge(right.join());
+            }
+            else {
+                merged = merge(from, to);
+            }
+            if (root)
+                merged.postMerge();
+            return merged;
+        }
+
+        /** Merges the given range in this thread, pairwise to avoid repeatedly copying the growing merged result */
+        private Grouping merge(int from, int to) {
+            if (to - from == 1) return groupings.get(from);
+            int middle = (from + to) >>> 1;
+            Grouping merged = merge(from, middle);
+            merged.merge(merge(middle, to));
+            return merged;
+        }
+
+    }
+
     private static class RequestContext {
 
         final List<Integer> idList = new LinkedList<>();
@@ -60,15 +60,16 @@ public class Binding implements Comparable<Binding> {
     private Binding(int generality, Map<String, String> binding) {
         this.generality = generality;
 
-        // Map -> arrays to limit memory consumption and speed up evaluation
+        // Map -> arrays to limit memory consumption and speed up evaluation.
+        // Names and values are interned as they are repeated across the bindings of all values in all profiles
         dimensions = new String[binding.size()];
         dimensionValues = new String[binding.size()];
 
         int i = 0;
         int bindingHash = 0;
         for (Map.Entry<String,String> entry : binding.entrySet()) {
-            dimensions[i] = entry.getKey();
-            dimensionValues[i] = entry.getValue();
+            dimensions[i] = entry.getKey().intern();
+            dimensionValues[i] = entry.getValue().intern();
             bindingHash += i * entry.getKey().hashCode() +  11 * i * entry.getValue().hashCode();
             i++;
         }
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.query.profile.compiled;
 
+import com.google.common.collect.ImmutableMap;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
 import com.yahoo.processing.request.CompoundName;
@@ -42,6 +43,12 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Values which are not overridable in this. Used as a set. */
     private final DimensionalMap<CompoundName, Object> unoverridables;
 
+    /**
+     * The entries of this indexed by each proper prefix of their key, and then by the remaining suffix,
+     * such that listing values below a prefix does not require scanning all entries.
+     */
+    private final Map<CompoundName, Map<String, DimensionalValue<Object>>> entriesByPrefix;
+
     /**
      * Creates a new query profile from an id.
      */
@@ -60,6 +67,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
+        this.entriesByPrefix = indexByPrefix(entries);
         if ( ! id.isAnonymous())
             validateName(id.getName());
     }
@@ -130,16 +138,14 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
      */
     public Map<String, Object> listValues(CompoundName prefix, Map<String, String> context, Properties substitution) {
         Map<String, Object> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<Object>> entry : entries.entrySet()) {
-            if ( entry.getKey().size() <= prefix.size()) continue;
-            if ( ! entry.getKey().hasPrefix(prefix)) continue;
+        Map<String, DimensionalValue<Object>> entriesBelowPrefix = entriesByPrefix.get(prefix);
+        if (entriesBelowPrefix == null) return values;
 
+        for (Map.Entry<String, DimensionalValue<Object>> entry : entriesBelowPrefix.entrySet()) {
             Object value = entry.getValue().get(context);
             if (value == null) continue;
 
-            value = substitute(value, context, substitution);
-            CompoundName suffixName = entry.getKey().rest(prefix.size());
-            values.put(suffixName.toString(), value);
+            values.put(entry.getKey(), substitute(value, context, substitution));
         }
         return values;
     }
@@ -164,6 +170,21 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return ((SubstituteString)value).substitute(context, substitution);
     }
 
+    private static Map<CompoundName, Map<String, DimensionalValue<Object>>> indexByPrefix(DimensionalMap<CompoundName, Object> entries) {
+        Map<CompoundName, ImmutableMap.Builder<String, DimensionalValue<Object>>> builders = new HashMap<>();
+        for (Map.Entry<CompoundName, DimensionalValue<Object>> entry : entries.entrySet()) {
+            CompoundName key = entry.getKey();
+            for (int prefixSize = 0; prefixSize < key.size(); prefixSize++) {
+                builders.computeIfAbsent(key.first(prefixSize), k -> new ImmutableMap.Builder<>())
+                        .put(key.rest(prefixSize).toString(), entry.getValue());
+            }
+        }
+        ImmutableMap.Builder<CompoundName, Map<String, DimensionalValue<Object>>> index = new ImmutableMap.Builder<>();
+        for (Map.Entry<CompoundName, ImmutableMap.Builder<String, DimensionalValue<Object>>> entry : builders.entrySet())
+            index.put(entry.getKey(), entry.getValue().build());
+        return index.build();
+    }
+
     /** Throws IllegalArgumentException if the given string is not a valid query profile name */
     private static void validateName(String name) {
         Matcher nameMatcher = namePattern.matcher(name);
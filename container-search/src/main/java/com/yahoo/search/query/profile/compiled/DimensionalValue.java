@@ -4,6 +4,7 @@ package com.yahoo.search.query.profile.compiled;
 import com.yahoo.search.query.profile.DimensionBinding;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,25 +19,32 @@ import java.util.Set;
  */
 public class DimensionalValue<VALUE> {
 
-    private final List<Value<VALUE>> values;
+    /** The variants of this, most specific first. Unenforced invariant: Content never changes. */
+    private final Value<VALUE>[] values;
+
+    /**
+     * The value of this if it is the same in all contexts (the common case), or null if it varies.
+     * Returned directly without any binding matching.
+     */
+    private final VALUE unconditionalValue;
 
     /** Create a set of variants which is a single value regardless of dimensions */
     public DimensionalValue(Value<VALUE> value) {
-        this.values = Collections.singletonList(value);
+        this(Collections.singletonList(value));
     }
 
+    @SuppressWarnings("unchecked")
     public DimensionalValue(List<Value<VALUE>> valueVariants) {
-        if (valueVariants.size() == 1) { // special cased for efficiency
-            this.values = Collections.singletonList(valueVariants.get(0));
-        }
-        else {
-            this.values = new ArrayList<>(valueVariants);
-            Collections.sort(this.values);
-        }
+        List<Value<VALUE>> sortedVariants = new ArrayList<>(valueVariants);
+        Collections.sort(sortedVariants);
+        this.values = sortedVariants.toArray(new Value[sortedVariants.size()]);
+        this.unconditionalValue = values.length > 0 && values[0].binding().isNull() ? values[0].value() : null;
     }
 
     /** Returns the value matching this context, or null if none */
     public VALUE get(Map<String, String> context) {
+        if (unconditionalValue != null) return unconditionalValue;
+
         if (context == null)
             context = Collections.emptyMap();
         for (Value<VALUE> value : values) {
@@ -46,11 +54,11 @@ public class DimensionalValue<VALUE> {
         return null;
     }
 
-    public boolean isEmpty() { return values.isEmpty(); }
+    public boolean isEmpty() { return values.length == 0; }
 
     @Override
     public String toString() {
-        return values.toString();
+        return Arrays.toString(values);
     }
 
     public static class Builder<VALUE> {
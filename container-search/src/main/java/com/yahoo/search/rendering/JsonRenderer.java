@@ -17,7 +17,6 @@ import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.json.JsonWriter;
-import com.yahoo.lang.MutableBoolean;
 import com.yahoo.processing.Response;
 import com.yahoo.processing.execution.Execution.Trace;
 import com.yahoo.processing.rendering.AsynchronousSectionedRenderer;
@@ -670,7 +669,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         private final JsonGenerator generator;
         private final boolean debugRendering;
 
-        private MutableBoolean hasFieldsField;
+        private boolean hasFieldsField;
 
         public FieldConsumer(JsonGenerator generator, boolean debugRendering) {
             this.generator = generator;
@@ -682,21 +681,21 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
          * have created the "fields" field of the JSON object
          */
         void startHitFields() {
-            this.hasFieldsField = new MutableBoolean(false);
+            this.hasFieldsField = false;
         }
 
         /** Call before rendering a field to the generator */
         void ensureFieldsField() throws IOException {
-            if (hasFieldsField.get()) return;
+            if (hasFieldsField) return;
             generator.writeObjectFieldStart(FIELDS);
-            hasFieldsField.set(true);
+            hasFieldsField = true;
         }
 
         /** Call after all fields in a hit to close the "fields" field of the JSON object */
         void endHitFields() throws IOException {
-            if ( ! hasFieldsField.get()) return;
+            if ( ! hasFieldsField) return;
             generator.writeEndObject();
-            this.hasFieldsField = null;
+            this.hasFieldsField = false;
         }
 
         @Override
@@ -727,6 +726,58 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             }
         }
 
+        @Override
+        public void accept(String name, int value) {
+            try {
+                if (shouldRenderNumber(name)) {
+                    ensureFieldsField();
+                    generator.writeNumberField(name, value);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void accept(String name, long value) {
+            try {
+                if (shouldRenderNumber(name)) {
+                    ensureFieldsField();
+                    generator.writeNumberField(name, value);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void accept(String name, float value) {
+            try {
+                if (shouldRenderNumber(name)) {
+                    ensureFieldsField();
+                    generator.writeNumberField(name, value);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void accept(String name, double value) {
+            try {
+                if (shouldRenderNumber(name)) {
+                    ensureFieldsField();
+                    generator.writeNumberField(name, value);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         private boolean shouldRender(String name, Object value) {
             if (debugRendering) return true;
             if (name.startsWith(VESPA_HIDDEN_FIELD_PREFIX)) return false;
@@ -737,6 +788,11 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             return true;
         }
 
+        private boolean shouldRenderNumber(String name) {
+            if (debugRendering) return true;
+            return ! name.startsWith(VESPA_HIDDEN_FIELD_PREFIX);
+        }
+
         private boolean shouldRenderUtf8Value(String name, int length) {
             if (debugRendering) return true;
             if (name.startsWith(VESPA_HIDDEN_FIELD_PREFIX)) return false;
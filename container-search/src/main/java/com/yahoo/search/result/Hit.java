@@ -414,7 +414,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
     /**
      * Receive a callback on the given object for each field in this hit,
      * where the callback will provide raw utf-8 byte data for strings whose data
-     * is already available at this form.
+     * is already available at this form, and unboxed values for numeric fields where available.
      * This is the most resource efficient way of traversing all the fields of a hit
      * in renderers which produces utf-8.
      */
@@ -806,6 +806,21 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
             return this.getId().compareTo(other.getId());
     }
 
+    /**
+     * Returns a clone of this which does not reference the query producing it, such that it can be kept
+     * beyond the lifetime of that query. The query of the clone is set when it is added to another result.
+     */
+    public Hit detachedClone() {
+        Hit hit = clone();
+        hit.detach();
+        return hit;
+    }
+
+    /** Removes the references of this to the query producing it */
+    void detach() {
+        query = null;
+    }
+
     @Override
     public Hit clone() {
         Hit hit = (Hit) super.clone();
@@ -837,6 +852,30 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
          */
         void accept(String fieldName, byte[] utf8Data, int offset, int length);
 
+        /**
+         * Called for int fields whose value is available unboxed instead of accept(String, Object).
+         * This default implementation boxes the value and calls accept(String, Object).
+         */
+        default void accept(String fieldName, int value) { accept(fieldName, (Object)value); }
+
+        /**
+         * Called for long fields whose value is available unboxed instead of accept(String, Object).
+         * This default implementation boxes the value and calls accept(String, Object).
+         */
+        default void accept(String fieldName, long value) { accept(fieldName, (Object)value); }
+
+        /**
+         * Called for float fields whose value is available unboxed instead of accept(String, Object).
+         * This default implementation boxes the value and calls accept(String, Object).
+         */
+        default void accept(String fieldName, float value) { accept(fieldName, (Object)value); }
+
+        /**
+         * Called for double fields whose value is available unboxed instead of accept(String, Object).
+         * This default implementation boxes the value and calls accept(String, Object).
+         */
+        default void accept(String fieldName, double value) { accept(fieldName, (Object)value); }
+
     }
 
 }
@@ -81,9 +81,9 @@ public class HitGroup extends Hit implements DataList<Hit>, Cloneable, Iterable<
      */
     private DefaultErrorHit errorHit = null;
 
-    private final ListenableFuture<DataList<Hit>> completedFuture;
+    private ListenableFuture<DataList<Hit>> completedFuture;
 
-    private final IncomingData<Hit> incomingHits;
+    private IncomingData<Hit> incomingHits;
 
     /** Creates an invalid group of hits. Id must be set before handoff. */
     public HitGroup() {
@@ -810,6 +810,24 @@ public class HitGroup extends Hit implements DataList<Hit>, Cloneable, Iterable<
         }
     }
 
+    /**
+     * Returns a clone of this and the hits in it which does not reference the query producing it,
+     * see {@link Hit#detachedClone}. The clone contains the hits received so far, and receives no more.
+     */
+    @Override
+    public HitGroup detachedClone() {
+        return (HitGroup) super.detachedClone();
+    }
+
+    @Override
+    void detach() {
+        super.detach();
+        incomingHits = new IncomingData.NullIncomingData<>(this); // the incoming data of a clone references the original
+        completedFuture = new IncomingData.NullIncomingData.ImmediateFuture<>(this);
+        for (Hit hit : hits)
+            hit.detach();
+    }
+
     public HitGroup clone() {
         HitGroup hitGroupClone = (HitGroup) super.clone();
         hitGroupClone.hits = new ListenableArrayList<>(this.hits.size());
@@ -16,6 +16,9 @@ final class Location {
         this.characterOffset = characterOffset;
     }
 
+    public String getProgramName() {
+        return programName;
+    }
 
     public int getLineNumber() {
         return lineNumber;
@@ -0,0 +1,441 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache of parsed YQL programs, keyed on the program text with the literal values lifted out.
+ * Programs which differ only in their literal values therefore share a parsed template, which is
+ * bound to the literal values of each program by copying the nodes leading to literals, instead of
+ * parsing each program.
+ * <p>
+ * A template is only used if each literal of the program it is created from is parsed to a literal node holding
+ * its value. Literals in annotations, in grouping expressions, in limits and offsets
+ * and in negative numbers are kept in the key, as these are not parsed to literal nodes.
+ * <p>
+ * This is thread safe.
+ */
+final class ProgramCache {
+
+    private final Cache<String, Template> templates;
+
+    ProgramCache(int maxSize) {
+        templates = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /** Returns the parsed program, which must not be modified */
+    OperatorNode<StatementOperator> parse(String program) throws IOException, RecognitionException {
+        LiftedProgram lifted = LiftedProgram.from(program);
+        if (lifted == null) return parseProgram(program);
+
+        Template template = templates.getIfPresent(lifted.key());
+        if (template != null)
+            return template.isBindable() ? template.bind(lifted) : parseProgram(program);
+
+        OperatorNode<StatementOperator> ast = parseProgram(program);
+        templates.put(lifted.key(), Template.create(lifted, ast));
+        return ast;
+    }
+
+    /** Returns the number of templates in this */
+    long size() { return templates.size(); }
+
+    private static OperatorNode<StatementOperator> parseProgram(String program) throws IOException, RecognitionException {
+        return new ProgramParser().parse("query", program);
+    }
+
+    /** A parsed program with the literal nodes which may be bound to other values */
+    private static class Template {
+
+        private static final Template unbindable = new Template(null, null, Collections.emptyMap(), Collections.emptySet());
+
+        /** The program this is parsed from */
+        private final LiftedProgram program;
+
+        private final OperatorNode<StatementOperator> ast;
+
+        /** The literal nodes of the ast, with the index of the literal value they are bound to */
+        private final Map<OperatorNode<?>, Integer> literalNodes;
+
+        /** The nodes of the ast which have a literal node below them */
+        private final Set<OperatorNode<?>> literalAncestors;
+
+        private Template(LiftedProgram program,
+                         OperatorNode<StatementOperator> ast,
+                         Map<OperatorNode<?>, Integer> literalNodes,
+                         Set<OperatorNode<?>> literalAncestors) {
+            this.program = program;
+            this.ast = ast;
+            this.literalNodes = literalNodes;
+            this.literalAncestors = literalAncestors;
+        }
+
+        /** Returns whether this can be bound to literals, or whether programs with this key must always be parsed */
+        boolean isBindable() { return ast != null; }
+
+        /**
+         * Returns this bound to the literals of the given program, which must have the key of this.
+         * If the literals of the given program have other lengths than those of the program of this,
+         * the nodes following them are copied with their locations moved to the same place in the given program.
+         */
+        @SuppressWarnings("unchecked")
+        OperatorNode<StatementOperator> bind(LiftedProgram boundProgram) {
+            return (OperatorNode<StatementOperator>)bind(ast, boundProgram, ! program.hasSameLayoutAs(boundProgram));
+        }
+
+        private Object bind(Object target, LiftedProgram boundProgram, boolean relocate) {
+            if (target instanceof List) {
+                List<Object> bound = new ArrayList<>(((List<?>)target).size());
+                for (Object element : (List<?>)target)
+                    bound.add(bind(element, boundProgram, relocate));
+                return bound;
+            }
+            if ( ! (target instanceof OperatorNode)) return target;
+
+            OperatorNode<?> node = (OperatorNode<?>)target;
+            Integer literalIndex = literalNodes.get(node);
+            if (literalIndex != null)
+                return withValue(node, relocate(node.getLocation(), boundProgram), boundProgram.values().get(literalIndex));
+            if ( ! relocate)
+                return literalAncestors.contains(node) ? node.transform(argument -> bind(argument, boundProgram, false)) : node;
+
+            Location location = relocate(node.getLocation(), boundProgram);
+            Object[] arguments = node.getArguments();
+            boolean changed = location != node.getLocation();
+            for (int i = 0; i < arguments.length; i++) {
+                Object argument = arguments[i];
+                arguments[i] = bind(argument, boundProgram, true);
+                changed |= arguments[i] != argument;
+            }
+            return changed ? OperatorNode.create(location, node.getAnnotations(), node.getOperator(), arguments) : node;
+        }
+
+        /** Returns the location in the given program corresponding to the given location in the program of this */
+        private Location relocate(Location location, LiftedProgram boundProgram) {
+            if (location == null) return null;
+            int offset = program.offsetOf(location);
+            if (offset < 0) return location;
+            Location relocated = boundProgram.locationOf(location.getProgramName(), program.correspondingOffset(offset, boundProgram));
+            if (relocated.getLineNumber() == location.getLineNumber() && relocated.getCharacterOffset() == location.getCharacterOffset())
+                return location;
+            return relocated;
+        }
+
+        private static <T extends Operator> OperatorNode<T> withValue(OperatorNode<T> literal, Location location, Object value) {
+            return OperatorNode.create(location, literal.getAnnotations(), literal.getOperator(), value);
+        }
+
+        /**
+         * Creates a template from a program and its parsed ast, by finding the literal node parsed from each literal
+         * of the program. Returns a template which is not bindable if any literal of the program
+         * is not parsed to exactly one literal node holding its value.
+         */
+        static Template create(LiftedProgram program, OperatorNode<StatementOperator> ast) {
+            Map<OperatorNode<?>, Integer> literalNodes = new IdentityHashMap<>();
+            Set<OperatorNode<?>> literalAncestors = Collections.newSetFromMap(new IdentityHashMap<>());
+            findLiterals(ast, program, literalNodes, literalAncestors);
+            if (literalNodes.size() != program.values().size()) return unbindable;
+            if (new HashSet<>(literalNodes.values()).size() != program.values().size()) return unbindable;
+            return new Template(program, ast, literalNodes, literalAncestors);
+        }
+
+        /**
+         * Adds the literal nodes located at a literal of the program and holding its value, and their ancestors,
+         * and returns whether any was found
+         */
+        private static boolean findLiterals(Object target,
+                                            LiftedProgram program,
+                                            Map<OperatorNode<?>, Integer> literalNodes,
+                                            Set<OperatorNode<?>> literalAncestors) {
+            if (target instanceof List) {
+                boolean found = false;
+                for (Object element : (List<?>)target)
+                    found |= findLiterals(element, program, literalNodes, literalAncestors);
+                return found;
+            }
+            if ( ! (target instanceof OperatorNode)) return false;
+
+            OperatorNode<?> node = (OperatorNode<?>)target;
+            if (node.getOperator() == ExpressionOperator.LITERAL) {
+                int literalIndex = program.literalAt(node.getLocation());
+                if (literalIndex < 0 || ! program.values().get(literalIndex).equals(node.getArgument(0))) return false;
+                literalNodes.put(node, literalIndex);
+                return true;
+            }
+            boolean found = false;
+            for (Object argument : node.getArguments())
+                found |= findLiterals(argument, program, literalNodes, literalAncestors);
+            if (found)
+                literalAncestors.add(node);
+            return found;
+        }
+
+    }
+
+    /** A program split into a key, which is the program with each literal replaced by a placeholder, and the literals */
+    static final class LiftedProgram {
+
+        private static final char placeholder = '\u0000';
+
+        private final String key;
+        private final List<Literal> literals;
+        private final List<Object> values;
+
+        /** The offset of the first character of each line of the program */
+        private final int[] lineStarts;
+
+        private LiftedProgram(String program, String key, List<Literal> literals) {
+            this.key = key;
+            this.literals = literals;
+            this.values = new ArrayList<>(literals.size());
+            for (Literal literal : literals)
+                values.add(literal.value);
+            this.lineStarts = lineStarts(program);
+        }
+
+        String key() { return key; }
+
+        /** Returns the values of the literals of this program, in the order they occur */
+        List<Object> values() { return values; }
+
+        /** Returns whether the literals of the given program, and so all its locations, are where those of this are */
+        boolean hasSameLayoutAs(LiftedProgram other) {
+            if ( ! Arrays.equals(lineStarts, other.lineStarts)) return false;
+            for (int i = 0; i < literals.size(); i++)
+                if (literals.get(i).start != other.literals.get(i).start || literals.get(i).end != other.literals.get(i).end)
+                    return false;
+            return true;
+        }
+
+        /** Returns the index of the literal starting at the given location, or -1 if none */
+        int literalAt(Location location) {
+            int offset = offsetOf(location);
+            for (int i = 0; i < literals.size() && literals.get(i).start <= offset; i++)
+                if (literals.get(i).start == offset) return i;
+            return -1;
+        }
+
+        /**
+         * Returns the offset in the given program, which must have the key of this, of the text at the given
+         * offset in this. An offset inside a literal corresponds to the start of that literal in the other program.
+         */
+        int correspondingOffset(int offset, LiftedProgram other) {
+            for (int i = literals.size() - 1; i >= 0; i--) {
+                Literal literal = literals.get(i);
+                if (literal.start > offset) continue;
+                if (offset < literal.end) return other.literals.get(i).start;
+                return offset - literal.end + other.literals.get(i).end;
+            }
+            return offset;
+        }
+
+        /** Returns the offset in the program of the given location, or -1 if it is not in this program */
+        int offsetOf(Location location) {
+            if (location == null) return -1;
+            int line = location.getLineNumber() - 1;
+            if (line < 0 || line >= lineStarts.length) return -1;
+            return lineStarts[line] + location.getCharacterOffset();
+        }
+
+        /** Returns the location of the given offset in the program, in the line numbering of the parser */
+        Location locationOf(String programName, int offset) {
+            int line = Arrays.binarySearch(lineStarts, offset);
+            if (line < 0)
+                line = -line - 2; // the line starting before the offset
+            return new Location(programName, line + 1, offset - lineStarts[line]);
+        }
+
+        private static int[] lineStarts(String program) {
+            List<Integer> lineStarts = new ArrayList<>();
+            lineStarts.add(0);
+            for (int i = 0; i < program.length(); i++)
+                if (program.charAt(i) == '\n')
+                    lineStarts.add(i + 1);
+            return lineStarts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /** Returns the given program lifted, or null if it cannot be lifted */
+        static LiftedProgram from(String program) {
+            if (program == null || program.indexOf(placeholder) >= 0) return null;
+
+            StringBuilder key = new StringBuilder(program.length());
+            List<Literal> literals = new ArrayList<>();
+            int braceDepth = 0;
+            String previousWord = null; // the preceding identifier, if only whitespace follows it
+            int i = 0;
+            while (i < program.length()) {
+                char c = program.charAt(i);
+                int start = i;
+                Literal literal = null;
+                if (c == '"' || c == '\'') {
+                    i = endOfString(program, i);
+                    if (i < 0) { // unterminated: leave the rest to the parser
+                        i = start;
+                        break;
+                    }
+                    literal = Literal.string(program, start, i);
+                }
+                else if (isDigit(c) || (c == '.' && i + 1 < program.length() && isDigit(program.charAt(i + 1)))) {
+                    i = endOfNumber(program, i);
+                    boolean negative = start > 0 && program.charAt(start - 1) == '-';
+                    boolean offsetOrLimit = "limit".equalsIgnoreCase(previousWord) || "offset".equalsIgnoreCase(previousWord);
+                    boolean startsWord = i < program.length() && isIdentifierPart(program.charAt(i));
+                    if ( ! negative && ! offsetOrLimit && ! startsWord)
+                        literal = Literal.number(program, start, i);
+                }
+                else if (isIdentifierStart(c)) {
+                    while (i < program.length() && isIdentifierPart(program.charAt(i)))
+                        i++;
+                    key.append(program, start, i);
+                    previousWord = program.substring(start, i);
+                    continue;
+                }
+                else if (program.startsWith("//", i) || program.startsWith("/*", i)) {
+                    break; // leave the rest to the parser
+                }
+                else if (c == '|' && braceDepth == 0) {
+                    break; // literals in grouping expressions are not parsed as literals
+                }
+                else {
+                    if (c == '{') braceDepth++;
+                    if (c == '}') braceDepth--;
+                    i++;
+                }
+
+                if (literal != null && braceDepth == 0) {
+                    literals.add(literal);
+                    key.append(placeholder).append(literal.type.code);
+                }
+                else {
+                    key.append(program, start, i);
+                }
+                if ( ! Character.isWhitespace(c))
+                    previousWord = null;
+            }
+            key.append(program, i, program.length());
+            return new LiftedProgram(program, key.toString(), literals);
+        }
+
+        /** Returns the index after the string starting at the given index, or -1 if it is not terminated */
+        private static int endOfString(String program, int start) {
+            char quote = program.charAt(start);
+            for (int i = start + 1; i < program.length(); i++) {
+                char c = program.charAt(i);
+                if (c == '\\')
+                    i++;
+                else if (c == quote)
+                    return i + 1;
+            }
+            return -1;
+        }
+
+        /** Returns the index after the number starting at the given index, following the number tokens of the grammar */
+        private static int endOfNumber(String program, int i) {
+            while (i < program.length() && isDigit(program.charAt(i)))
+                i++;
+            if (i < program.length() && (program.charAt(i) == 'L' || program.charAt(i) == 'l'))
+                return i + 1;
+            if (i < program.length() && program.charAt(i) == '.') {
+                i++;
+                while (i < program.length() && isDigit(program.charAt(i)))
+                    i++;
+            }
+            if (i < program.length() && (program.charAt(i) == 'e' || program.charAt(i) == 'E')) {
+                int exponentStart = i;
+                i++;
+                if (i < program.length() && (program.charAt(i) == '+' || program.charAt(i) == '-'))
+                    i++;
+                if (i >= program.length() || ! isDigit(program.charAt(i))) return exponentStart;
+                while (i < program.length() && isDigit(program.charAt(i)))
+                    i++;
+            }
+            return i;
+        }
+
+        private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+
+        private static boolean isIdentifierStart(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return isIdentifierStart(c) || isDigit(c) || c == ':';
+        }
+
+    }
+
+    private enum LiteralType {
+
+        STRING('s'), INT('i'), LONG('l'), FLOAT('f');
+
+        final char code;
+
+        LiteralType(char code) {
+            this.code = code;
+        }
+
+    }
+
+    private static final class Literal {
+
+        final int start, end;
+        final LiteralType type;
+        final Object value;
+
+        private Literal(int start, int end, LiteralType type, Object value) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.value = value;
+        }
+
+        /** Returns a string literal, or null if it is not valid, to leave reporting it to the parser */
+        static Literal string(String program, int start, int end) {
+            if ( ! hasValidEscapes(program, start + 1, end - 1)) return null;
+            return new Literal(start, end, LiteralType.STRING, StringUnescaper.unquote(program.substring(start, end)));
+        }
+
+        /** Returns a number literal, or null if it is not valid, to leave reporting it to the parser */
+        static Literal number(String program, int start, int end) {
+            String text = program.substring(start, end);
+            try {
+                if (text.endsWith("L") || text.endsWith("l"))
+                    return new Literal(start, end, LiteralType.LONG, Long.parseLong(text.substring(0, text.length() - 1)));
+                if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0)
+                    return new Literal(start, end, LiteralType.FLOAT, Double.valueOf(text));
+                return new Literal(start, end, LiteralType.INT, Integer.valueOf(text));
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /** Returns whether the given string content only contains escape sequences accepted by the grammar */
+        private static boolean hasValidEscapes(String program, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (program.charAt(i) != '\\') continue;
+                if (i + 1 >= end) return false;
+                char escaped = program.charAt(++i);
+                if ("btnfr\"'\\/".indexOf(escaped) >= 0) continue;
+                if (escaped != 'u' || i + 4 >= end) return false;
+                for (int h = 0; h < 4; h++)
+                    if (Character.digit(program.charAt(++i), 16) < 0) return false;
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -3,8 +3,10 @@ package com.yahoo.prelude.semantics.test;
 
 import com.yahoo.search.Query;
 import com.yahoo.prelude.semantics.RuleBase;
+import com.yahoo.prelude.semantics.RuleImporter;
 import com.yahoo.prelude.semantics.engine.Evaluation;
 import com.yahoo.prelude.semantics.rule.ChoiceCondition;
+import com.yahoo.prelude.semantics.rule.Condition;
 import com.yahoo.prelude.semantics.rule.ConditionReference;
 import com.yahoo.prelude.semantics.rule.NamedCondition;
 import com.yahoo.prelude.semantics.rule.ProductionList;
@@ -14,7 +16,11 @@ import com.yahoo.prelude.semantics.rule.SequenceCondition;
 import com.yahoo.prelude.semantics.rule.TermCondition;
 import org.junit.Test;
 
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -79,4 +85,28 @@ public class ConditionTestCase {
         assertTrue(query + "  matches " + reference,reference.matches(new Evaluation(query).freshRuleEvaluation()));
     }
 
+    @Test
+    public void testRequiredTerms() throws Exception {
+        RuleBase ruleBase = new RuleImporter().importString("[brand] :- sony, dell;\n" +
+                                                            "[recursive] :- foo [recursive], foo;\n" +
+                                                            "a b -> c;\n" +
+                                                            "[brand] -> brand:[brand];\n" +
+                                                            "x, [brand] -> y;\n" +
+                                                            "!a -> b;\n" +
+                                                            "a ... -> d;\n" +
+                                                            "[recursive] -> e;\n" +
+                                                            "x, !y -> z;\n", null);
+        assertEquals("[a]", requiredTerms(ruleBase.rules().get(0).getCondition()));
+        assertEquals("[dell, sony]", requiredTerms(ruleBase.rules().get(1).getCondition()));
+        assertEquals("[dell, sony, x]", requiredTerms(ruleBase.rules().get(2).getCondition()));
+        assertNull(ruleBase.rules().get(3).getCondition().requiredTerms());
+        assertEquals("[a]", requiredTerms(ruleBase.rules().get(4).getCondition()));
+        assertEquals("[foo]", requiredTerms(ruleBase.rules().get(5).getCondition()));
+        assertNull(ruleBase.rules().get(6).getCondition().requiredTerms());
+    }
+
+    private String requiredTerms(Condition condition) {
+        return new TreeSet<>(condition.requiredTerms()).toString();
+    }
+
 }
@@ -0,0 +1,304 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache.test;
+
+import com.yahoo.component.chain.Chain;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.cache.ResultCache;
+import com.yahoo.search.cache.ResultCacheConfig;
+import com.yahoo.search.cache.ResultCacheKey;
+import com.yahoo.search.cache.ResultCacheSearcher;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCacheSearcherTestCase {
+
+    @Test
+    public void testCaching() {
+        ManualClock clock = new ManualClock();
+        MetricReceiver.MockReceiver metric = new MetricReceiver.MockReceiver();
+        MockBackend backend = new MockBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(config(true), metric, clock), backend);
+
+        Result first = searchAndFill(chain, "?query=foo");
+        assertEquals(1, backend.searchCount.get());
+        assertEquals(1, backend.fillCount.get());
+        assertEquals("foo", first.hits().get(0).getField("title"));
+
+        Result second = searchAndFill(chain, "?query=foo");
+        assertEquals("Served from cache", 1, backend.searchCount.get());
+        assertEquals("Served from cache", 1, backend.fillCount.get());
+        assertEquals("foo", second.hits().get(0).getField("title"));
+        assertNotSame(first.hits().get(0), second.hits().get(0));
+        assertSame(second.getQuery(), second.hits().get(0).getQuery());
+
+        searchAndFill(chain, "?query=foo&hits=5");
+        assertEquals("Different hits is a different key", 2, backend.searchCount.get());
+
+        searchAndFill(chain, "?query=foo&ranking=other");
+        assertEquals("Different ranking is a different key", 3, backend.searchCount.get());
+
+        searchAndFill(chain, "?query=foo&nocache=true");
+        assertEquals("nocache bypasses the cache", 4, backend.searchCount.get());
+
+        clock.advance(Duration.ofSeconds(61));
+        searchAndFill(chain, "?query=foo");
+        assertEquals("Entry is expired", 5, backend.searchCount.get());
+
+        assertEquals(1, metric.getSnapshot().getMapForMetric("resultCacheHits").values().iterator().next().getCount());
+    }
+
+    @Test
+    public void testKeyContainsAllParametersAffectingTheResult() {
+        MockBackend backend = new MockBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(config(true), new MetricReceiver.MockReceiver(), new ManualClock()),
+                                            backend);
+        searchAndFill(chain, "?query=foo");
+        searchAndFill(chain, "?query=foo&ranking.listFeatures=true");
+        assertEquals("Listing rank features is a different key", 2, backend.searchCount.get());
+        searchAndFill(chain, "?query=foo&myapp.option=1");
+        assertEquals("Any request parameter may be read by a later searcher", 3, backend.searchCount.get());
+        searchAndFill(chain, "?query=foo&timeout=3s&tracelevel=1");
+        assertEquals("Timeout and tracing does not change the result", 3, backend.searchCount.get());
+    }
+
+    @Test
+    public void testCoalescedQueriesReceiveTheFilledResult() throws InterruptedException {
+        MetricReceiver.MockReceiver metric = new MetricReceiver.MockReceiver();
+        BlockingBackend backend = new BlockingBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(config(true), metric, new ManualClock()), backend);
+
+        Thread leader = new Thread(() -> searchAndFill(chain, "?query=foo"));
+        leader.start();
+        assertTrue(backend.searching.await(60, TimeUnit.SECONDS));
+
+        AtomicReference<Result> coalesced = new AtomicReference<>();
+        Thread follower = new Thread(() -> coalesced.set(searchAndFill(chain, "?query=foo")));
+        follower.start();
+        while (follower.getState() != Thread.State.TIMED_WAITING) // waiting for the leader
+            Thread.sleep(1);
+        backend.proceed.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals(1, backend.searchCount.get());
+        assertEquals("The follower receives the leader's filled result", 1, backend.fillCount.get());
+        assertEquals("foo", coalesced.get().hits().get(0).getField("title"));
+        assertEquals(1, metric.getSnapshot().getMapForMetric("resultCacheCoalescedRequests").values().iterator().next().getCount());
+    }
+
+    @Test
+    public void testQueriesAreNotCoalescedToAnExpiredQuery() {
+        ManualClock clock = new ManualClock();
+        MockBackend backend = new MockBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(config(true), new MetricReceiver.MockReceiver(), clock), backend);
+
+        new Execution(chain, Execution.Context.createContextStub()).search(new Query("?query=foo")); // never filled
+        clock.advance(Duration.ofMinutes(1));
+        Result result = searchAndFill(chain, "?query=foo");
+        assertEquals(2, backend.searchCount.get());
+        assertEquals("foo", result.hits().get(0).getField("title"));
+    }
+
+    @Test
+    public void testResultCacheTimeToLive() {
+        ManualClock clock = new ManualClock();
+        ResultCache cache = new ResultCache(1 << 20, 100, 1000, clock);
+        ResultCacheKey key = new ResultCacheKey(new Query("?query=foo"));
+        assertTrue(cache.put(key, result("foo")));
+
+        clock.advance(Duration.ofMillis(1000));
+        assertNotNull(cache.get(key, new Query("?query=foo")));
+        clock.advance(Duration.ofMillis(1));
+        assertNull("Expired", cache.get(key, new Query("?query=foo")));
+        assertEquals(0, cache.entryCount());
+        assertEquals(0, cache.byteSize());
+    }
+
+    @Test
+    public void testResultCacheIsBoundedByBytes() {
+        ResultCacheKey[] keys = new ResultCacheKey[4];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = new ResultCacheKey(new Query("?query=foo" + i));
+        ResultCache probe = new ResultCache(1 << 20, 100, 1000, new ManualClock());
+        probe.put(keys[0], result("foo0"));
+        long entrySize = probe.byteSize();
+
+        ResultCache cache = new ResultCache(3 * entrySize + entrySize / 2, 100, 1000, new ManualClock());
+        for (int i = 0; i < 3; i++)
+            assertTrue(cache.put(keys[i], result("foo" + i)));
+        assertNotNull(cache.get(keys[0], new Query())); // now more recently used than 1
+        assertTrue(cache.put(keys[3], result("foo3")));
+        assertEquals(3, cache.entryCount());
+        assertTrue(cache.byteSize() <= 3 * entrySize + entrySize / 2);
+        assertNull("The least recently used is evicted", cache.get(keys[1], new Query()));
+        assertNotNull(cache.get(keys[0], new Query()));
+        assertNotNull(cache.get(keys[2], new Query()));
+        assertNotNull(cache.get(keys[3], new Query()));
+
+        ResultCache smallEntries = new ResultCache(3 * entrySize + entrySize / 2, 10, 1000, new ManualClock());
+        assertFalse("Larger than the max entry size", smallEntries.put(keys[0], result("foo0")));
+        assertEquals(0, smallEntries.byteSize());
+    }
+
+    @Test
+    public void testCachedHitsDoNotReferenceTheOriginatingQuery() {
+        ResultCache cache = new ResultCache(1 << 20, 100, 1000, new ManualClock());
+        ResultCacheKey key = new ResultCacheKey(new Query("?query=foo"));
+        Result original = result("foo");
+        HitGroup group = new HitGroup("group");
+        group.add(new Hit("hit:grouped", 0.1, original.getQuery()));
+        original.hits().add(group);
+        assertTrue(cache.put(key, original));
+
+        Query query = new Query("?query=foo");
+        Result cached = cache.get(key, query);
+        assertSame(query, cached.getQuery());
+        assertEquals(4, cached.hits().size());
+        for (Hit hit : cached.hits().asList())
+            assertSame(hit + " references the query it is returned to", query, hit.getQuery());
+        Hit grouped = ((HitGroup)cached.hits().get("group")).get("hit:grouped");
+        assertSame(query, grouped.getQuery());
+        assertSame(cached.hits().get("group"), ((HitGroup)cached.hits().get("group")).incoming().getOwner());
+
+        cached.hits().get(0).setField("title", "modified");
+        assertEquals("Results returned are copies", "foo", cache.get(key, new Query()).hits().get(0).getField("title"));
+    }
+
+    @Test
+    public void testResultSizeIsEstimatedFromFieldContent() {
+        ResultCacheKey key = new ResultCacheKey(new Query("?query=foo"));
+        ResultCache small = new ResultCache(1 << 20, 100, 1000, new ManualClock());
+        small.put(key, result("foo"));
+        ResultCache large = new ResultCache(1 << 20, 100, 1000, new ManualClock());
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            title.append('x');
+        large.put(key, result(title.toString()));
+        assertTrue(small.byteSize() < 10000);
+        assertTrue("Three 10000 character titles take at least 60000 bytes", large.byteSize() > 3 * 2 * 10000);
+    }
+
+    @Test
+    public void testResultsWithErrorsAreNotCached() {
+        MockBackend backend = new MockBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(config(true), new MetricReceiver.MockReceiver(), new ManualClock()),
+                                            backend);
+        searchAndFill(chain, "?query=error");
+        searchAndFill(chain, "?query=error");
+        assertEquals(2, backend.searchCount.get());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        ResultCacheConfig.Builder config = new ResultCacheConfig.Builder();
+        config.sizeMegaBytes(0);
+        MockBackend backend = new MockBackend();
+        Chain<Searcher> chain = new Chain<>(new ResultCacheSearcher(new ResultCacheConfig(config), new MetricReceiver.MockReceiver()),
+                                            backend);
+        searchAndFill(chain, "?query=foo");
+        searchAndFill(chain, "?query=foo");
+        assertEquals(2, backend.searchCount.get());
+    }
+
+    private ResultCacheConfig config(boolean coalesceRequests) {
+        ResultCacheConfig.Builder config = new ResultCacheConfig.Builder();
+        config.timeToLiveSeconds(60);
+        config.maxEntryPercentage(10);
+        config.coalesceRequests(coalesceRequests);
+        return new ResultCacheConfig(config);
+    }
+
+    private Result result(String title) {
+        Result result = new Result(new Query("?query=" + title));
+        for (int i = 0; i < 3; i++) {
+            Hit hit = new Hit("hit:" + i, 1.0 / (i + 1), result.getQuery());
+            hit.setField("title", title);
+            result.hits().add(hit);
+        }
+        return result;
+    }
+
+    private Result searchAndFill(Chain<Searcher> chain, String request) {
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        Result result = execution.search(new Query(request));
+        execution.fill(result);
+        return result;
+    }
+
+    /** A backend which signals when it is searching, and waits to be allowed to proceed */
+    private static class BlockingBackend extends MockBackend {
+
+        final CountDownLatch searching = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            searching.countDown();
+            try {
+                proceed.await(60, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.search(query, execution);
+        }
+
+    }
+
+    private static class MockBackend extends Searcher {
+
+        final AtomicInteger searchCount = new AtomicInteger();
+        final AtomicInteger fillCount = new AtomicInteger();
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            searchCount.incrementAndGet();
+            Result result = new Result(query);
+            if (query.getModel().getQueryString().equals("error")) {
+                result.hits().addError(ErrorMessage.createBackendCommunicationError("Failed"));
+                return result;
+            }
+            for (int i = 0; i < 3; i++) {
+                Hit hit = new Hit("hit:" + i, 1.0 / (i + 1), query);
+                hit.setFillable();
+                result.hits().add(hit);
+            }
+            return result;
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) {
+            fillCount.incrementAndGet();
+            for (Iterator<Hit> i = result.hits().deepIterator(); i.hasNext(); ) {
+                Hit hit = i.next();
+                hit.setField("title", result.getQuery().getModel().getQueryString());
+                hit.setFilled(summaryClass);
+            }
+            assertTrue(result.isFilled(summaryClass));
+        }
+
+    }
+
+}
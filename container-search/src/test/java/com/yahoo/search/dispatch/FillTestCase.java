@@ -18,6 +18,7 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 
 /**
@@ -104,6 +105,124 @@ public class FillTestCase {
         assertEquals("Missing hit summary data for summary summaryClass1 for 2 hits", result.hits().getError().getDetailedMessage());
     }
 
+    @Test
+    public void testConcurrentFillsOfTheSameSummariesAreCoalesced() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        nodes.put(1, client.createConnection("host1", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(client, nodes);
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+        client.setDocsumReponse("host1", 1, "summaryClass1", map("field1", "s.1.1", "field2", 1));
+        client.setDocsumReponse("host1", 2, "summaryClass1", map("field1", "s.1.2", "field2", 2));
+
+        Result result1 = new Result(new Query());
+        result1.hits().add(createHit(0, 0));
+        result1.hits().add(createHit(1, 1));
+        Result result2 = new Result(new Query());
+        result2.hits().add(createHit(0, 0));
+        result2.hits().add(createHit(1, 1));
+        result2.hits().add(createHit(1, 2));
+
+        FillInvoker fill1 = rpcResourcePool.getFillInvoker(db());
+        FillInvoker fill2 = rpcResourcePool.getFillInvoker(db());
+        fill1.sendFillRequest(result1, "summaryClass1");
+        fill2.sendFillRequest(result2, "summaryClass1");
+        assertEquals("Only hit 2 is requested by the second fill", 3, client.getDocsumRequestCount());
+        assertEquals(3, rpcResourcePool.inFlightDocsums().size());
+
+        fill1.getFillResults(result1, "summaryClass1");
+        fill2.getFillResults(result2, "summaryClass1");
+        assertEquals(0, rpcResourcePool.inFlightDocsums().size());
+        assertEquals("s.0.0", result1.hits().get("hit:0").getField("field1").toString());
+        assertEquals("s.1.1", result1.hits().get("hit:1").getField("field1").toString());
+        assertEquals("s.0.0", result2.hits().get("hit:0").getField("field1").toString());
+        assertEquals("s.1.1", result2.hits().get("hit:1").getField("field1").toString());
+        assertEquals("s.1.2", result2.hits().get("hit:2").getField("field1").toString());
+        assertNull(result2.hits().getError());
+    }
+
+    @Test
+    public void testCoalescedFillIsRetriedWhenTheFillWaitedForFails() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(client, nodes);
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+
+        Result result1 = new Result(new Query());
+        result1.hits().add(createHit(0, 0));
+        Result result2 = new Result(new Query());
+        result2.hits().add(createHit(0, 0));
+
+        FillInvoker fill1 = rpcResourcePool.getFillInvoker(db());
+        FillInvoker fill2 = rpcResourcePool.getFillInvoker(db());
+        client.setMalfunctioning(true);
+        fill1.sendFillRequest(result1, "summaryClass1");
+        fill2.sendFillRequest(result2, "summaryClass1");
+        fill1.getFillResults(result1, "summaryClass1");
+        client.setMalfunctioning(false);
+        fill2.getFillResults(result2, "summaryClass1");
+
+        assertEquals("Malfunctioning", result1.hits().getError().getDetailedMessage());
+        assertEquals("s.0.0", result2.hits().get("hit:0").getField("field1").toString());
+        assertEquals(2, client.getDocsumRequestCount());
+    }
+
+    @Test
+    public void testInvalidCompressionDoesNotBlockConcurrentFills() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(client, nodes);
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+
+        Result result1 = new Result(new Query("?dispatch.compression=invalid"));
+        result1.hits().add(createHit(0, 0));
+        Result result2 = new Result(new Query());
+        result2.hits().add(createHit(0, 0));
+
+        try {
+            rpcResourcePool.getFillInvoker(db()).fill(result1, "summaryClass1");
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, rpcResourcePool.inFlightDocsums().size());
+
+        FillInvoker fill2 = rpcResourcePool.getFillInvoker(db());
+        fill2.sendFillRequest(result2, "summaryClass1");
+        assertEquals("The second fill fetches the summary itself", 1, client.getDocsumRequestCount());
+        fill2.getFillResults(result2, "summaryClass1");
+        assertEquals("s.0.0", result2.hits().get("hit:0").getField("field1").toString());
+        assertEquals(0, rpcResourcePool.inFlightDocsums().size());
+    }
+
+    @Test
+    public void testClaimsAreReleasedWhenSendingFails() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(client, nodes);
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+
+        Result result1 = new Result(new Query());
+        result1.hits().add(createHit(0, 0));
+        Result result2 = new Result(new Query());
+        result2.hits().add(createHit(0, 0));
+
+        client.setFailingRequests(true);
+        try {
+            rpcResourcePool.getFillInvoker(db()).fill(result1, "summaryClass1");
+            fail("Expected exception");
+        }
+        catch (IllegalStateException expected) {
+        }
+        client.setFailingRequests(false);
+        assertEquals(0, rpcResourcePool.inFlightDocsums().size());
+
+        rpcResourcePool.getFillInvoker(db()).fill(result2, "summaryClass1");
+        assertEquals("s.0.0", result2.hits().get("hit:0").getField("field1").toString());
+        assertEquals(1, client.getDocsumRequestCount());
+    }
+
     @Test
     public void testErrorHandling() {
         client.setMalfunctioning(true);
@@ -25,10 +25,18 @@ public class MockClient implements Client {
     private final Map<DocsumKey, Map<String, Object>> docsums = new HashMap<>();
     private final Compressor compressor = new Compressor();
     private boolean malfunctioning = false;
+    private boolean failingRequests = false;
+    private int docsumRequestCount = 0;
 
     /** Set to true to cause this to produce an error instead of a regular response */
     public void setMalfunctioning(boolean malfunctioning) { this.malfunctioning = malfunctioning; }
 
+    /** Set to true to cause this to throw when requests are sent */
+    public void setFailingRequests(boolean failingRequests) { this.failingRequests = failingRequests; }
+
+    /** Returns the number of getDocsums requests this has received */
+    public int getDocsumRequestCount() { return docsumRequestCount; }
+
     @Override
     public NodeConnection createConnection(String hostname, int port) {
         return new MockNodeConnection(hostname, port);
@@ -38,6 +46,9 @@ public class MockClient implements Client {
     public void getDocsums(List<FastHit> hitsContext, NodeConnection node, CompressionType compression,
                            int uncompressedSize, byte[] compressedSlime, RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver,
                            double timeoutSeconds) {
+        if (failingRequests)
+            throw new IllegalStateException("Failing requests");
+        docsumRequestCount++;
         if (malfunctioning) {
             responseReceiver.receive(GetDocsumsResponseOrError.fromError("Malfunctioning"));
             return;
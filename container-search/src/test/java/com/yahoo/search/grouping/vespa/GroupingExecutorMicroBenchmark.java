@@ -0,0 +1,111 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.prelude.fastsearch.GroupingListHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.grouping.GroupingRequest;
+import com.yahoo.search.grouping.request.GroupingOperation;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchchain.SearchChain;
+import com.yahoo.searchlib.aggregation.AggregationResult;
+import com.yahoo.searchlib.aggregation.CountAggregationResult;
+import com.yahoo.searchlib.aggregation.Group;
+import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.searchlib.aggregation.GroupingLevel;
+import com.yahoo.searchlib.expression.IntegerResultNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the time spent merging and converting the grouping results of a 3-level grouping
+ * returned from 64 content nodes.
+ */
+public class GroupingExecutorMicroBenchmark {
+
+    private static final int nodeCount = 64;
+    private static final int[] groupsPerLevel = { 50, 10, 5 };
+
+    public void benchmark() {
+        Execution.Context context = Execution.Context.createContextStub();
+        SearchChain chain = new SearchChain(new ComponentId("grouping"),
+                                            Arrays.asList(new GroupingExecutor(), new ContentNodes()));
+
+        int runs = 100;
+        for (int i = 0; i < 2 * runs; i++) // warmup
+            new Execution(chain, context).search(newQuery());
+
+        long totalTime = 0;
+        for (int i = 0; i < runs; i++) {
+            Query query = newQuery();
+            long startTime = System.nanoTime();
+            new Execution(chain, context).search(query);
+            totalTime += System.nanoTime() - startTime - (Long)query.properties().get("benchmark.backendTime");
+        }
+        System.out.println("Time per query merging and converting results from " + nodeCount + " nodes: " +
+                           (totalTime / runs / 1000) + " microseconds");
+    }
+
+    private Query newQuery() {
+        Query query = new Query("?query=test");
+        GroupingOperation operation =
+                GroupingOperation.fromString("all(group(a) max(10) each(output(count()) " +
+                                             "all(group(b) max(5) each(output(count()) " +
+                                             "all(group(c) max(5) each(output(count())))))))");
+        forceSinglePass(operation);
+        GroupingRequest.newInstance(query).setRootOperation(operation);
+        return query;
+    }
+
+    private void forceSinglePass(GroupingOperation operation) {
+        operation.setForceSinglePass(true);
+        for (GroupingOperation child : operation.getChildren())
+            forceSinglePass(child);
+    }
+
+    /** Returns a grouping result from each content node, where all nodes return the same groups */
+    private static class ContentNodes extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            long startTime = System.nanoTime();
+            Result result = new Result(query);
+            List<Grouping> requests = GroupingExecutor.getGroupingList(query);
+            for (int node = 0; node < nodeCount; node++) {
+                for (Grouping request : requests) {
+                    Grouping nodeResult = request.clone();
+                    nodeResult.setRoot(createGroup(request.getRoot(), request.getLevels(), 0, node));
+                    result.hits().add(new GroupingListHit(Collections.singletonList(nodeResult), null));
+                }
+            }
+            query.properties().set("benchmark.backendTime", System.nanoTime() - startTime);
+            return result;
+        }
+
+        private Group createGroup(Group prototype, List<GroupingLevel> levels, int level, int node) {
+            Group group = prototype.clone();
+            for (AggregationResult aggregationResult : group.getAggregationResults())
+                if (aggregationResult instanceof CountAggregationResult)
+                    ((CountAggregationResult)aggregationResult).setCount(node + 1);
+            if (level == levels.size()) return group;
+
+            for (int i = 0; i < groupsPerLevel[level]; i++) {
+                Group child = createGroup(levels.get(level).getGroupPrototype(), levels, level + 1, node);
+                child.setId(new IntegerResultNode(i));
+                child.setRank(node * 10 + i);
+                group.addChild(child);
+            }
+            return group;
+        }
+
+    }
+
+    public static void main(String[] args) {
+        new GroupingExecutorMicroBenchmark().benchmark();
+    }
+
+}
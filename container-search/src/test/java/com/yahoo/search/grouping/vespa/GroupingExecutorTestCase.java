@@ -38,6 +38,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -205,6 +206,34 @@ public class GroupingExecutorTestCase {
         assertEquals(9L, hit.getField("max(bar)"));
     }
 
+    @Test
+    public void requireThatResultsFromManyNodesAreMerged() {
+        Query query = newQuery();
+        GroupingRequest req = GroupingRequest.newInstance(query);
+        req.setRootOperation(GroupingOperation.fromString("all(group(foo) each(output(max(bar))))"));
+
+        List<Grouping> nodeResults = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Grouping grp = new Grouping(0);
+            grp.setRoot(new com.yahoo.searchlib.aggregation.Group()
+                    .addChild(new com.yahoo.searchlib.aggregation.Group().setId(new StringResultNode("common")).addAggregationResult(new MaxAggregationResult().setMax(new IntegerResultNode(i)).setTag(3)))
+                    .addChild(new com.yahoo.searchlib.aggregation.Group().setId(new StringResultNode("unique" + i)).addAggregationResult(new MaxAggregationResult().setMax(new IntegerResultNode(i)).setTag(3)))
+            );
+            nodeResults.add(grp);
+        }
+        Execution exec = newExecution(new GroupingExecutor(),
+                                      new ResultProvider(Arrays.asList(
+                                              new GroupingListHit(nodeResults, null),
+                                              new GroupingListHit(Collections.emptyList(), null))));
+        Group grp = req.getResultGroup(exec.search(query));
+        assertEquals(1, grp.size());
+        GroupList lst = (GroupList)grp.get(0);
+        assertEquals(21, lst.size());
+        assertEquals(19L, lst.get("group:string:common").getField("max(bar)"));
+        for (int i = 0; i < 20; i++)
+            assertEquals((long)i, lst.get("group:string:unique" + i).getField("max(bar)"));
+    }
+
     @Test
     public void requireThatUnexpectedGroupingResultsAreIgnored() {
         Query query = newQuery();
@@ -0,0 +1,79 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.test;
+
+import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.search.Query;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.QueryProfileRegistry;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+
+/**
+ * Measures the cost of creating queries from a compiled query profile with many, deeply nested values.
+ */
+public class QueryCreationMicroBenchmark {
+
+    private final String description;
+    private final int depth;
+    private final boolean useDimensions;
+
+    public QueryCreationMicroBenchmark(String description, int depth, boolean useDimensions) {
+        this.description=description;
+        this.depth=depth;
+        this.useDimensions=useDimensions;
+    }
+
+    public void benchmark(int count) {
+        CompiledQueryProfile profile=createProfile();
+        createQueries(10000, profile); // warm-up
+        System.out.println(description);
+        long startTime=System.currentTimeMillis();
+        createQueries(count, profile);
+        long endTime=System.currentTimeMillis();
+        long totalTime=(endTime-startTime);
+        System.out.println("Done in " + totalTime + " ms (" + ((float)totalTime*1000/(count) + " microsecond per query)"));
+    }
+
+    private CompiledQueryProfile createProfile() {
+        QueryProfile main=new QueryProfile("main");
+        if (useDimensions)
+            main.setDimensions(new String[] {"x", "y"});
+        String prefix="";
+        for (int level=0; level<depth; level++) {
+            prefix+="level" + level + ".";
+            for (int i=0; i<50; i++) {
+                main.set(prefix + "property" + i, "value" + i, (QueryProfileRegistry)null);
+                if (useDimensions)
+                    main.set(prefix + "property" + i, "variant" + i, new String[] {"1", "2"}, null);
+            }
+        }
+        main.set("ranking.profile", "default", (QueryProfileRegistry)null);
+        main.set("presentation.summary", "default", (QueryProfileRegistry)null);
+        main.freeze();
+        return main.compile(null);
+    }
+
+    private void createQueries(int count, CompiledQueryProfile profile) {
+        final int dotInterval=1000000;
+        for (int i=0; i<count; i++) {
+            if (count>dotInterval && i%(count/dotInterval)==0)
+                System.out.print(".");
+            Query query = new Query(HttpRequest.createTestRequest("?query=test&x=1&y=2", Method.GET), profile);
+            if ( ! "default".equals(query.getRanking().getProfile()))
+                throw new RuntimeException("Expected ranking profile 'default'");
+        }
+    }
+
+    public static void main(String[] args) {
+        int count=100000;
+        new QueryCreationMicroBenchmark("Creating queries, 1-level profile, no dimensions  ",1,false).benchmark(count);
+        System.out.println("");
+        new QueryCreationMicroBenchmark("Creating queries, 5-level profile, no dimensions  ",5,false).benchmark(count);
+        System.out.println("");
+        new QueryCreationMicroBenchmark("Creating queries, 1-level profile, with dimensions",1,true).benchmark(count);
+        System.out.println("");
+        new QueryCreationMicroBenchmark("Creating queries, 5-level profile, with dimensions",5,true).benchmark(count);
+        System.out.println("");
+    }
+
+}
@@ -0,0 +1,105 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.prelude.fastsearch.DocsumDefinition;
+import com.yahoo.prelude.fastsearch.DocsumField;
+import com.yahoo.prelude.fastsearch.DoubleField;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.fastsearch.Int64Field;
+import com.yahoo.prelude.fastsearch.IntegerField;
+import com.yahoo.prelude.fastsearch.StringField;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Measures the time and the heap allocation per hit of rendering results of
+ * summary hits (400 hits with 40 fields) as JSON.
+ */
+public class JsonRendererMicroBenchmark {
+
+    private static final int hitCount = 400;
+    private static final int fieldsPerType = 10; // string, int, long and double fields
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    public void benchmark() throws InterruptedException, ExecutionException {
+        JsonRenderer prototype = new JsonRenderer();
+        DocsumDefinition docsum = createDocsumDefinition();
+
+        int runs = 1000;
+        for (int i = 0; i < 2 * runs; i++) // warmup
+            render(prototype, createResult(docsum));
+
+        long startTime = System.currentTimeMillis();
+        long startBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long totalLength = 0;
+        for (int i = 0; i < runs; i++)
+            totalLength += render(prototype, createResult(docsum));
+        long allocatedBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes;
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Rendered " + totalLength + " bytes");
+        System.out.println("Time per result: " + (totalTime * 1000 / runs) + " microseconds");
+        System.out.println("Allocated per rendered hit (including hit creation): " +
+                           (allocatedBytes / ((long)runs * hitCount)) + " bytes");
+    }
+
+    private int render(JsonRenderer prototype, Result result) throws InterruptedException, ExecutionException {
+        JsonRenderer renderer = (JsonRenderer)prototype.clone();
+        renderer.init();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(256 * 1024);
+        renderer.render(stream, result, new Execution(Execution.Context.createContextStub()), null).get();
+        return stream.size();
+    }
+
+    private DocsumDefinition createDocsumDefinition() {
+        List<DocsumField> fields = new ArrayList<>();
+        for (int i = 0; i < fieldsPerType; i++) {
+            fields.add(new StringField("string" + i));
+            fields.add(new IntegerField("int" + i));
+            fields.add(new Int64Field("long" + i));
+            fields.add(new DoubleField("double" + i));
+        }
+        return new DocsumDefinition("default", fields);
+    }
+
+    private Result createResult(DocsumDefinition docsum) {
+        Result result = new Result(new Query("?query=test&hits=" + hitCount));
+        for (int i = 0; i < hitCount; i++) {
+            FastHit hit = new FastHit();
+            hit.setRelevance(1.0 / (i + 1));
+            hit.setSource("test");
+            hit.addSummary(docsum, new SlimeAdapter(createSummary(i).get()));
+            result.hits().add(hit);
+        }
+        return result;
+    }
+
+    private Slime createSummary(int hitNumber) {
+        Slime slime = new Slime();
+        Cursor summary = slime.setObject();
+        for (int i = 0; i < fieldsPerType; i++) {
+            summary.setString("string" + i, "The value of string field " + i + " in hit " + hitNumber);
+            summary.setLong("int" + i, hitNumber * i);
+            summary.setLong("long" + i, (1L << 40) + hitNumber * i);
+            summary.setDouble("double" + i, hitNumber / (i + 1.0));
+        }
+        return slime;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        new JsonRendererMicroBenchmark().benchmark();
+    }
+
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.data.access.simple.Value;
@@ -19,7 +20,13 @@ import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.predicate.Predicate;
+import com.yahoo.prelude.fastsearch.DocsumDefinition;
+import com.yahoo.prelude.fastsearch.DoubleField;
 import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.fastsearch.FloatField;
+import com.yahoo.prelude.fastsearch.Int64Field;
+import com.yahoo.prelude.fastsearch.IntegerField;
+import com.yahoo.prelude.fastsearch.StringField;
 import com.yahoo.prelude.hitfield.JSONString;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
@@ -578,6 +585,58 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testRenderingOfSummaryData() throws InterruptedException, ExecutionException, IOException {
+        String expected = "{\n"
+                + "    \"root\": {\n"
+                + "        \"children\": [\n"
+                + "            {\n"
+                + "                \"fields\": {\n"
+                + "                    \"double\": 0.5,\n"
+                + "                    \"float\": 1.5,\n"
+                + "                    \"int\": 3,\n"
+                + "                    \"long\": 4294967296,\n"
+                + "                    \"string\": \"foo\"\n"
+                + "                },\n"
+                + "                \"id\": \"summary:1\",\n"
+                + "                \"relevance\": 1.0\n"
+                + "            }\n"
+                + "        ],\n"
+                + "        \"fields\": {\n"
+                + "            \"totalCount\": 1\n"
+                + "        },\n"
+                + "        \"id\": \"toplevel\",\n"
+                + "        \"relevance\": 1.0\n"
+                + "    }\n"
+                + "}";
+        DocsumDefinition docsum = new DocsumDefinition("default",
+                                                       ImmutableList.of(new StringField("string"),
+                                                                        new IntegerField("int"),
+                                                                        new Int64Field("long"),
+                                                                        new FloatField("float"),
+                                                                        new DoubleField("double"),
+                                                                        new IntegerField("emptyInt"),
+                                                                        new DoubleField("emptyDouble")));
+        Slime slime = new Slime();
+        Cursor summary = slime.setObject();
+        summary.setString("string", "foo");
+        summary.setLong("int", 3);
+        summary.setLong("long", 1L << 32);
+        summary.setDouble("float", 1.5);
+        summary.setDouble("double", 0.5);
+        summary.setLong("emptyInt", Integer.MIN_VALUE);
+        summary.setDouble("emptyDouble", Double.NaN);
+        FastHit h = new FastHit();
+        h.setId("summary:1");
+        h.setRelevance(1.0);
+        h.addSummary(docsum, new SlimeAdapter(slime.get()));
+        Result r = new Result(new Query("/?query=a"));
+        r.setTotalHitCount(1L);
+        r.hits().add(h);
+        String rendered = render(r);
+        assertEqualJson(expected, rendered);
+    }
+
     @Test
     public void testCoverage() throws InterruptedException, ExecutionException, IOException {
         String expected = "{\n"
@@ -0,0 +1,135 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ProgramCacheTestCase {
+
+    @Test
+    public void programs_differing_only_in_literals_share_a_template() throws Exception {
+        ProgramCache cache = new ProgramCache(10);
+        assertParsed("select * from sources * where title contains \"madonna\" and year > 1980 and price < 10.5 and id = 5L;", cache);
+        assertParsed("select * from sources * where title contains 'prince' and year > 1990 and price < 2e3 and id = 7L;", cache);
+        assertParsed("select * from sources * where title contains \"a \\\"quoted\\\" \\u00e5\" and year > 0 and price < .5 and id = 0L;", cache);
+        assertEquals(1, cache.size());
+
+        assertParsed("select * from sources * where title contains \"madonna\" and year > 1980 and price < 10 and id = 5L;", cache);
+        assertEquals("A different literal type is a different template", 2, cache.size());
+    }
+
+    @Test
+    public void literals_which_are_not_parsed_to_literal_nodes_are_part_of_the_key() throws Exception {
+        ProgramCache cache = new ProgramCache(10);
+        for (String program : Arrays.asList(
+                "select * from sources * where title contains \"a\" limit 10 offset 5;",
+                "select * from sources * where title contains \"a\" limit 20 offset 5;",
+                "select * from sources * where title contains \"b\" limit 20 offset 5;",
+                "select * from sources * where price > -5;",
+                "select * from sources * where price > -6;",
+                "select * from sources * where [{\"id\": 1, \"label\": \"x\"}]title contains \"a\";",
+                "select * from sources * where [{\"id\": 2, \"label\": \"x\"}]title contains \"a\";",
+                "select * from sources * where [{\"id\": 2, \"label\": \"x\"}]title contains \"b\";",
+                "select * from sources * where title contains \"a\" | all(group(a) each(output(count())));",
+                "select * from sources * where title contains \"a\" | all(group(b) each(output(count())));",
+                "select * from sources * where title contains ([{\"distance\": 5}]near(\"a\", \"b\")) timeout 10;",
+                "select * from sources * where title contains ([{\"distance\": 5}]near(\"c\", \"d\")) timeout 20;",
+                "select * from sources * where weightedSet(tags, {\"a\":1, \"b\":2});",
+                "select * from sources * where weightedSet(tags, {\"c\":3, \"d\":4});",
+                "select * from sources * where userInput(@query) and range(year, 1990, 2000);",
+                "select * from sources * where userInput(@query) and range(year, 2010, 2020);",
+                "select * from sources * where title contains \"a\" // a \"comment\"\n;",
+                "select * from sources * where title contains \"b\" /* a \"comment\" */;"))
+            assertParsed(program, cache);
+    }
+
+    @Test
+    public void bound_programs_have_the_locations_of_the_program_they_are_bound_to() throws Exception {
+        ProgramCache cache = new ProgramCache(10);
+        assertParsed("select * from sources * where title contains \"a\" and\n year > 1 and price < 2.5;", cache);
+        assertParsed("select * from sources * where title contains \"a much longer title\" and\n year > 1980 and price < 2.5;", cache);
+        assertParsed("select * from sources * where title contains \"on\ntwo lines\" and\n year > 1980 and price < 1e3;", cache);
+        assertParsed("select * from sources * where title contains \"a\" and\n year > 1 and price < 2.5;", cache);
+        assertEquals(1, cache.size());
+
+        String program = "select * from sources * where title contains \"a much longer title\" and\n year > 1980;";
+        cache.parse("select * from sources * where title contains \"b\" and\n year > 1;");
+        OperatorNode<StatementOperator> bound = cache.parse(program);
+        assertEquals(2, cache.size());
+        assertEquals(new ProgramParser().parse("query", program).toString(), bound.toString());
+        OperatorNode<ExpressionOperator> year = findLiteral(1980, bound);
+        assertEquals("Locations refer to the program bound to", 2, year.getLocation().getLineNumber());
+        assertEquals(8, year.getLocation().getCharacterOffset());
+    }
+
+    @Test
+    public void invalid_programs_are_not_bound_to_templates() throws Exception {
+        ProgramCache cache = new ProgramCache(10);
+        assertParsed("select * from sources * where title contains \"a\";", cache);
+        assertInvalid("select * from sources * where title contains \"a\\q\";", cache);
+        assertInvalid("select * from sources * where title contains \"a;", cache);
+        assertInvalid("select * from sources * where year > 99999999999;", cache);
+    }
+
+    @Test
+    public void lifting() {
+        assertEquals("select * from a where b contains \u0000s and c > \u0000i and d = \u0000l and e < \u0000f limit 3;",
+                     ProgramCache.LiftedProgram.from("select * from a where b contains 'x' and c > 1 and d = 2L and e < 3.0 limit 3;").key());
+        assertEquals(Arrays.asList("x", 1, 2L, 3.0),
+                     ProgramCache.LiftedProgram.from("select * from a where b contains 'x' and c > 1 and d = 2L and e < 3.0 limit 3;").values());
+        assertEquals("select * from a where f1 contains \u0000s and c > -1 and d > 2abc;",
+                     ProgramCache.LiftedProgram.from("select * from a where f1 contains \"\" and c > -1 and d > 2abc;").key());
+        assertNull(ProgramCache.LiftedProgram.from("select * from a where b contains '\u0000';"));
+    }
+
+    private void assertParsed(String program, ProgramCache cache) throws Exception {
+        OperatorNode<StatementOperator> expected = new ProgramParser().parse("query", program);
+        assertParsed(program, expected, cache.parse(program));
+        assertParsed(program + " (cached)", expected, cache.parse(program));
+    }
+
+    /** Asserts that the given programs are equal, including the source locations of their nodes */
+    private void assertParsed(String message, OperatorNode<StatementOperator> expected, OperatorNode<StatementOperator> actual) {
+        assertEquals(message, expected, actual);
+        assertEquals(message, expected.toString(), actual.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperatorNode<ExpressionOperator> findLiteral(Object value, Object target) {
+        if (target instanceof List) {
+            for (Object element : (List<?>)target) {
+                OperatorNode<ExpressionOperator> literal = findLiteral(value, element);
+                if (literal != null) return literal;
+            }
+        }
+        if ( ! (target instanceof OperatorNode)) return null;
+
+        OperatorNode<?> node = (OperatorNode<?>)target;
+        if (node.getOperator() == ExpressionOperator.LITERAL && value.equals(node.getArgument(0)))
+            return (OperatorNode<ExpressionOperator>)node;
+        for (Object argument : node.getArguments()) {
+            OperatorNode<ExpressionOperator> literal = findLiteral(value, argument);
+            if (literal != null) return literal;
+        }
+        return null;
+    }
+
+    private void assertInvalid(String program, ProgramCache cache) throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.parse(program);
+                fail("Expected an exception parsing " + program);
+            }
+            catch (ProgramCompileException | NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+}
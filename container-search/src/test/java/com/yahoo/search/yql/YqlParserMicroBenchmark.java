@@ -0,0 +1,42 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
+
+/**
+ * Measures the time spent parsing long YQL statements which differ only in their literal values.
+ */
+public class YqlParserMicroBenchmark {
+
+    private static final int statementCount = 100000;
+
+    public void benchmark() {
+        YqlParser parser = new YqlParser(new ParserEnvironment());
+        parse(parser); // warmup
+        parse(parser);
+        long startTime = System.nanoTime();
+        parse(parser);
+        System.out.println("Parsed " + statementCount + " statements using " +
+                           (System.nanoTime() - startTime) / statementCount / 1000 + " us per statement");
+    }
+
+    private void parse(YqlParser parser) {
+        for (int i = 0; i < statementCount; i++)
+            parser.parse(new Parsable().setQuery(statement(i)));
+    }
+
+    private String statement(int i) {
+        return "select id, title, price from sources music, books where " +
+               "(title contains \"title" + i + "\" or artist contains \"artist" + (i % 1000) + "\") and " +
+               "price > " + (i % 100) + " and price < " + (i % 100 + 50) + " and " +
+               "year >= " + (1950 + i % 70) + " and !(genre contains \"genre" + (i % 10) + "\") and " +
+               "description contains ([{\"distance\": 3}]near(\"word" + i + "\", \"other\")) " +
+               "order by price desc limit " + (10 + i % 5) + " offset " + (i % 3) + " timeout " + (100 + i % 10) + ";";
+    }
+
+    public static void main(String[] args) {
+        new YqlParserMicroBenchmark().benchmark();
+    }
+
+}
@@ -6,6 +6,8 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.yahoo.document.*;
 import com.yahoo.document.serialization.*;
@@ -23,6 +25,10 @@ import com.yahoo.vespa.objects.Serializer;
 public class ProgressToken {
 
     private static final Logger log = Logger.getLogger(ProgressToken.class.getName());
+
+    /** The slicing of a sliced token, at the end of the header line of its string form */
+    private static final Pattern headerSlicePattern = Pattern.compile(", slice (\\d+) of (\\d+)\\)$");
+
     /**
      * Any bucket kept track of by a <code>ProgressToken</code> instance may
      * be in one of two states: pending or active. <em>Pending</em> means that
@@ -156,6 +162,13 @@ public class ProgressToken {
      */
     private boolean inconsistentState = false;
 
+    /**
+     * The number of slices of the bucket space, and the slice this is the progress of visiting,
+     * which is set by the visitor iterator when the token is new, and checked when it is resumed
+     */
+    private int slices = 1;
+    private int sliceId = 0;
+
     /**
      * Creates a progress token.
      */
@@ -181,6 +194,11 @@ public class ProgressToken {
                     "valid VDS progress file; expected first line to start with " +
                     "'VDS bucket progress file'");
         }
+        Matcher slice = headerSlicePattern.matcher(header);
+        if (slice.find()) {
+            sliceId = Integer.parseInt(slice.group(1));
+            slices = Integer.parseInt(slice.group(2));
+        }
         // 2nd token contains the distribution bit count the progress file was
         // saved with
         distributionBits = Integer.parseInt(lines[1]);
@@ -225,6 +243,11 @@ public class ProgressToken {
             long value = in.getLong(null);
             addBucket(new BucketId(key), new BucketId(value), BucketState.BUCKET_PENDING);
         }
+        // The slicing is only written for sliced tokens, so tokens from before it was added are not sliced
+        if (in.getBuf().remaining() >= 8) {
+            slices = in.getInt(null);
+            sliceId = in.getInt(null);
+        }
     }
 
     public byte[] serialize() {
@@ -242,6 +265,11 @@ public class ProgressToken {
             out.putLong(null, entry.getValue().getProgress().getRawId());
         }
 
+        if (slices > 1) {
+            out.putInt(null, slices);
+            out.putInt(null, sliceId);
+        }
+
         byte[] ret = new byte[out.getBuf().position()];
         out.getBuf().rewind();
         out.getBuf().get(ret);
@@ -459,6 +487,27 @@ public class ProgressToken {
         this.totalBucketCount = totalBucketCount;
     }
 
+    /** Returns the number of slices of the bucket space this is the progress of visiting one of, 1 if not sliced */
+    public int getSlices() {
+        return slices;
+    }
+
+    /** Returns the slice of the bucket space this is the progress of visiting, in the range [0, getSlices()) */
+    public int getSliceId() {
+        return sliceId;
+    }
+
+    /**
+     * <em>For use by the visitor iterator only!</em>
+     *
+     * @param slices the number of slices of the bucket space
+     * @param sliceId the slice this is the progress of visiting
+     */
+    protected void setSlice(int slices, int sliceId) {
+        this.slices = slices;
+        this.sliceId = sliceId;
+    }
+
     public long getPendingBucketCount() {
         return pendingBucketCount;
     }
@@ -514,7 +563,7 @@ public class ProgressToken {
     /**
      * The format of the bucket progress output is as follows:
      * <pre>
-     *   VDS bucket progress file (n% completed)\n
+     *   VDS bucket progress file (n% completed)\n, or (n% completed, slice i of n)\n if sliced
      *   distribution bit count\n
      *   current bucket cursor\n
      *   number of finished buckets\n
@@ -531,7 +580,11 @@ public class ProgressToken {
         // Append header
         sb.append("VDS bucket progress file (");
         sb.append(percentFinished());
-        sb.append("% completed)\n");
+        sb.append("% completed");
+        if (slices > 1) {
+            sb.append(", slice ").append(sliceId).append(" of ").append(slices);
+        }
+        sb.append(")\n");
         sb.append(distributionBits);
         sb.append('\n');
         sb.append(bucketCursor);
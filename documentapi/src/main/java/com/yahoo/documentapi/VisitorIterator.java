@@ -10,6 +10,7 @@ import com.yahoo.log.LogLevel;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Logger;
 
 /**
@@ -31,6 +32,13 @@ public class VisitorIterator {
 
     private static final Logger log = Logger.getLogger(VisitorIterator.class.getName());
 
+    /**
+     * The max number of slices the buckets may be divided into. Slices are only disjoint when there are
+     * at least log2(slices) distribution bits, and content clusters have at least 8 distribution bits
+     * unless they use the legacy distribution mode.
+     */
+    public static final int MAX_SLICES = 1 << 8;
+
     public static class BucketProgress {
         private BucketId superbucket;
         private BucketId progress;
@@ -75,18 +83,38 @@ public class VisitorIterator {
 
     /**
      * Provides a bucket source that encompasses the entire range available
-     * through a given value of distribution bits
+     * through a given value of distribution bits, or one slice of it.
+     *
+     * Slice <i>n</i> of <i>2<sup>k</sup></i> slices is the contiguous range of
+     * bucket positions whose <i>k</i> most significant position bits equal <i>n</i>,
+     * i.e. the buckets whose <i>k</i> least significant bucket id bits are
+     * <i>n</i> reversed. This is independent of the distribution bit count as
+     * long as it is at least <i>k</i>, so slices stay disjoint when it changes.
+     * A distribution bit count below <i>k</i> is rejected, as slices would then share buckets.
+     * The buckets before and after the slice are skipped by moving the bucket
+     * cursor past them, such that they count as finished in the progress token.
      */
     protected static class DistributionRangeBucketSource implements BucketSource {
         private boolean flushActive = false;
         private int distributionBitCount;
+        private final int sliceBits;
+        private final long sliceId;
         // Wouldn't need this if this were a non-static class, but do it for
         // the sake of keeping things identical in Java and C++
         private ProgressToken progressToken;
 
         public DistributionRangeBucketSource(int distributionBitCount,
                                              ProgressToken progress) {
+            this(distributionBitCount, progress, 1, 0);
+        }
+
+        public DistributionRangeBucketSource(int distributionBitCount,
+                                             ProgressToken progress,
+                                             int slices, int sliceId) {
+            this.sliceBits = sliceBits(slices, sliceId);
+            this.sliceId = sliceId;
             progressToken = progress;
+            requireSliceBits(progress.getTotalBucketCount() == 0 ? distributionBitCount : progress.getDistributionBitCount());
 
             // New progress token (could also be empty, in which this is a
             // no-op anyway)
@@ -150,9 +178,11 @@ public class VisitorIterator {
         }
 
         protected boolean isLosslessResetPossible() {
-            // #pending must be equal to cursor, i.e. all buckets ever fetched
-            // must be located in the set of pending
-            if (progressToken.getPendingBucketCount() != progressToken.getBucketCursor()) {
+            // #pending must be equal to the number of slice buckets before the cursor,
+            // i.e. all buckets ever fetched must be located in the set of pending
+            int bits = progressToken.getDistributionBitCount();
+            long fetched = Math.min(progressToken.getBucketCursor(), sliceEnd(bits)) - sliceStart(bits);
+            if (progressToken.getPendingBucketCount() != Math.max(fetched, 0)) {
                 return false;
             }
             // Check if all pending buckets have a progress of 0
@@ -202,6 +232,7 @@ public class VisitorIterator {
                 assert(p.getActiveBucketCount() == 0);
                 p.clearAllBuckets();
                 p.setBucketCursor(0);
+                p.setFinishedBucketCount(0);
                 return;
             }
 
@@ -291,7 +322,7 @@ public class VisitorIterator {
         }
 
         public boolean hasNext() {
-            return progressToken.getBucketCursor() < (1L << distributionBitCount);
+            return Math.max(progressToken.getBucketCursor(), sliceStart(distributionBitCount)) < sliceEnd(distributionBitCount);
         }
 
         public boolean shouldYield() {
@@ -310,9 +341,11 @@ public class VisitorIterator {
 
         public BucketProgress getNext() {
             assert(hasNext()) : "getNext() called with hasNext() == false";
-            long currentPosition = progressToken.getBucketCursor();
+            long currentPosition = Math.max(progressToken.getBucketCursor(), sliceStart(distributionBitCount));
             long key = ProgressToken.makeNthBucketKey(currentPosition, distributionBitCount);
             ++currentPosition;
+            if (currentPosition == sliceEnd(distributionBitCount)) // skip the buckets after the slice
+                currentPosition = 1L << distributionBitCount;
             progressToken.setBucketCursor(currentPosition);
             return new BucketProgress(
                     new BucketId(ProgressToken.keyToBucketId(key)),
@@ -323,9 +356,26 @@ public class VisitorIterator {
             return distributionBitCount;
         }
 
+        /** Returns the first bucket position of the slice at the given distribution bit count */
+        private long sliceStart(int distributionBitCount) {
+            return sliceId << (distributionBitCount - sliceBits);
+        }
+
+        /** Returns the bucket position after the last one of the slice at the given distribution bit count */
+        private long sliceEnd(int distributionBitCount) {
+            return (sliceId + 1) << (distributionBitCount - sliceBits);
+        }
+
+        private void requireSliceBits(int distributionBitCount) {
+            if (distributionBitCount < sliceBits)
+                throw new IllegalArgumentException("Cannot visit " + (1 << sliceBits) + " slices with " + distributionBitCount +
+                                                   " distribution bits, as the slices would overlap");
+        }
+
         public void setDistributionBitCount(int distributionBitCount,
                                             ProgressToken progress)
         {
+            requireSliceBits(distributionBitCount);
             this.distributionBitCount = distributionBitCount;
 
             // There might be a case where we're waiting for active buckets
@@ -753,6 +803,30 @@ public class VisitorIterator {
             BucketIdFactory idFactory,
             int distributionBitCount,
             ProgressToken progress) throws ParseException {
+        return createFromDocumentSelection(documentSelection, idFactory, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance which iterates over one slice of the
+     * buckets selected by the given document selection string. The slices of a given slice count
+     * are disjoint and together cover all the selected buckets, so they may be iterated independently
+     * and in parallel. A progress token records the slicing it is created with, and must be used with
+     * the same slicing.
+     *
+     * @param slices the number of slices to divide the buckets into, which must be a power of two
+     *               no larger than {@link #MAX_SLICES}, nor than 2^distributionBitCount
+     * @param sliceId the slice to iterate over, in the range [0, slices)
+     * @throws IllegalArgumentException if the given progress token is the progress of another slicing
+     * @see #createFromDocumentSelection(String, BucketIdFactory, int, ProgressToken)
+     */
+    public static VisitorIterator createFromDocumentSelection(
+            String documentSelection,
+            BucketIdFactory idFactory,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) throws ParseException {
+        useSlice(progress, slices, sliceId);
         BucketSelector bucketSel = new BucketSelector(idFactory);
         Set<BucketId> rawBuckets = bucketSel.getBucketList(documentSelection);
         BucketSource src;
@@ -762,15 +836,55 @@ public class VisitorIterator {
         // bit-based range source
         if (rawBuckets == null) {
             // Range source
-            src = new DistributionRangeBucketSource(distributionBitCount, progress);
+            src = new DistributionRangeBucketSource(distributionBitCount, progress, slices, sliceId);
         } else {
             // Explicit source
-            src = new ExplicitBucketSource(rawBuckets, distributionBitCount, progress);
+            int sliceBits = sliceBits(slices, sliceId);
+            Set<BucketId> sliceBuckets = new TreeSet<>();
+            for (BucketId bucket : rawBuckets) {
+                if (isInSlice(bucket, sliceBits, sliceId))
+                    sliceBuckets.add(bucket);
+            }
+            src = new ExplicitBucketSource(sliceBuckets, distributionBitCount, progress);
         }
 
         return new VisitorIterator(progress, src);
     }
 
+    /**
+     * Records the given slicing in the given progress token if it is new, or checks that it is the slicing
+     * the token was created with, as resuming with another slicing would skip some buckets and visit others twice
+     */
+    private static void useSlice(ProgressToken progress, int slices, int sliceId) {
+        sliceBits(slices, sliceId);
+        if (progress.getTotalBucketCount() == 0) {
+            progress.setSlice(slices, sliceId);
+        } else if (progress.getSlices() != slices || progress.getSliceId() != sliceId) {
+            throw new IllegalArgumentException("The progress token is for slice " + progress.getSliceId() + " of " +
+                                               progress.getSlices() + " slices, but slice " + sliceId + " of " +
+                                               slices + " slices is to be visited");
+        }
+    }
+
+    /** Returns the number of bits identifying a slice, i.e. log2(slices), after validating the slicing */
+    private static int sliceBits(int slices, int sliceId) {
+        if (slices < 1 || Integer.bitCount(slices) != 1)
+            throw new IllegalArgumentException("The number of slices must be a positive power of two, but was " + slices);
+        if (slices > MAX_SLICES)
+            throw new IllegalArgumentException("The number of slices can be at most " + MAX_SLICES + ", but was " + slices);
+        if (sliceId < 0 || sliceId >= slices)
+            throw new IllegalArgumentException("The slice id must be in the range [0, " + slices + "), but was " + sliceId);
+        return Integer.numberOfTrailingZeros(slices);
+    }
+
+    /** Returns whether the given bucket contains, or is contained in, the given slice */
+    private static boolean isInSlice(BucketId bucket, int sliceBits, long sliceId) {
+        int bits = Math.min(bucket.getUsedBits(), sliceBits);
+        if (bits == 0) return true;
+        long key = ProgressToken.bucketToKey(bucket.getId());
+        return key >>> (64 - bits) == sliceId >>> (sliceBits - bits);
+    }
+
     /**
      * Create a new <code>VisitorIterator</code> instance based on the given
      * set of buckets. This is supported for internal use only, and is required
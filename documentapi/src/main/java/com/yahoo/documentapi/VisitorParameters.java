@@ -50,6 +50,8 @@ public class VisitorParameters extends Parameters {
     private int traceLevel = 0;
     private ThrottlePolicy throttlePolicy = null;
     private boolean skipBucketsOnFatalErrors = false;
+    private int slices = 1;
+    private int sliceId = 0;
 
     // Advanced parameter, only for internal use.
     Set<BucketId> bucketsToVisit = null;
@@ -102,6 +104,7 @@ public class VisitorParameters extends Parameters {
                 params.getDynamicMaxBucketsIncreaseFactor());
         setTraceLevel(params.getTraceLevel());
         skipBucketsOnFatalErrors(params.skipBucketsOnFatalErrors());
+        slice(params.getSlices(), params.getSliceId());
     }
 
     // Get functions
@@ -333,6 +336,34 @@ public class VisitorParameters extends Parameters {
 
     public void skipBucketsOnFatalErrors(boolean skipBucketsOnFatalErrors) { this.skipBucketsOnFatalErrors = skipBucketsOnFatalErrors; }
 
+    /**
+     * Sets this to visit only one of the given number of disjoint slices of the buckets in the bucket space,
+     * such that the slices may be visited in parallel by separate sessions. A resume token records
+     * the slicing it was created with, and a session resuming it with another slicing fails. Slices are only disjoint when the cluster has at least
+     * log2(slices) distribution bits, so visiting fails if it has fewer; see {@link VisitorIterator#MAX_SLICES}.
+     *
+     * @param slices the number of slices to divide the buckets into, a power of two no larger than
+     *               {@link VisitorIterator#MAX_SLICES}
+     * @param sliceId the slice to visit, in the range [0, slices)
+     * @throws IllegalArgumentException if slices is not a power of two in [1, MAX_SLICES], or sliceId is not in [0, slices)
+     */
+    public void slice(int slices, int sliceId) {
+        if (slices < 1 || Integer.bitCount(slices) != 1)
+            throw new IllegalArgumentException("The number of slices must be a positive power of two, but was " + slices);
+        if (slices > VisitorIterator.MAX_SLICES)
+            throw new IllegalArgumentException("The number of slices can be at most " + VisitorIterator.MAX_SLICES + ", but was " + slices);
+        if (sliceId < 0 || sliceId >= slices)
+            throw new IllegalArgumentException("The slice id must be in the range [0, " + slices + "), but was " + sliceId);
+        this.slices = slices;
+        this.sliceId = sliceId;
+    }
+
+    /** Returns the number of slices the buckets are divided into, 1 by default */
+    public int getSlices() { return slices; }
+
+    /** Returns the slice of the buckets to visit, in the range [0, getSlices()) */
+    public int getSliceId() { return sliceId; }
+
     /**
      * Set whether or not max buckets per visitor value should be dynamically
      * increased when using orderdoc and visitors do not return at least half
@@ -382,6 +413,9 @@ public class VisitorParameters extends Parameters {
         sb.append("  Visitor ordering:   ").append(visitorOrdering).append('\n');
         sb.append("  Max buckets:        ").append(maxBucketsPerVisitor).append('\n');
         sb.append("  Priority:           ").append(getPriority().toString()).append('\n');
+        if (slices > 1) {
+            sb.append("  Slice:              ").append(sliceId).append(" of ").append(slices).append('\n');
+        }
         if (dynamicallyIncreaseMaxBucketsPerVisitor) {
             sb.append("  Dynamically increasing max buckets per visitor\n");
             sb.append("  Increase factor:    ")
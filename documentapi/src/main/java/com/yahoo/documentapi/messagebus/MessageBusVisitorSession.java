@@ -542,13 +542,16 @@ public class MessageBusVisitorSession implements VisitorSession {
             // get a fresh system state from the start. Since no buckets should ever
             // return with a OK result in such a case, we recognize this as a special
             // case in the iterator and simply reset its entire internal state using
-            // the new db count rather than doing any splitting.
+            // the new db count rather than doing any splitting. When visiting a slice,
+            // start at the bits needed to keep the slices disjoint instead.
             BucketIdFactory bucketIdFactory = new BucketIdFactory();
             visitorIterator = VisitorIterator.createFromDocumentSelection(
                     params.getDocumentSelection(),
                     bucketIdFactory,
-                    1,
-                    progressToken);
+                    Math.max(1, Integer.numberOfTrailingZeros(params.getSlices())),
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         } else {
             if (log.isLoggable(LogLevel.DEBUG)) {
                 log.log(LogLevel.DEBUG, "parameters specify explicit bucket set " +
@@ -1028,25 +1031,31 @@ public class MessageBusVisitorSession implements VisitorSession {
     }
 
     private void handleWrongDistributionReply(WrongDistributionReply reply) {
+        int stateBits;
         try {
-            ClusterState newState = new ClusterState(reply.getSystemState());
-            int stateBits = newState.getDistributionBitCount();
-            if (stateBits != progress.getIterator().getDistributionBitCount()) {
-                log.log(LogLevel.DEBUG, "System state changed; now at " +
-                        stateBits + " distribution bits");
-                // Update the internal state of the visitor iterator. If we're increasing
-                // the number of distribution bits, this may lead to splitting of pending
-                // buckets. If we're decreasing, it may lead to merging of pending buckets
-                // and potential loss of sub-bucket progress. In either way, the iterator
-                // will not let any new buckets out before all active buckets have been
-                // updated.
-                progress.getIterator().setDistributionBitCount(stateBits);
-            }
+            stateBits = new ClusterState(reply.getSystemState()).getDistributionBitCount();
         } catch (Exception e) {
             log.log(LogLevel.ERROR, "Failed to parse new system state string: "
                     + reply.getSystemState());
             transitionTo(new StateDescription(State.FAILED, "Failed to parse cluster state '"
                     + reply.getSystemState() + "'"));
+            return;
+        }
+        if (stateBits != progress.getIterator().getDistributionBitCount()) {
+            log.log(LogLevel.DEBUG, "System state changed; now at " +
+                    stateBits + " distribution bits");
+            // Update the internal state of the visitor iterator. If we're increasing
+            // the number of distribution bits, this may lead to splitting of pending
+            // buckets. If we're decreasing, it may lead to merging of pending buckets
+            // and potential loss of sub-bucket progress. In either way, the iterator
+            // will not let any new buckets out before all active buckets have been
+            // updated.
+            try {
+                progress.getIterator().setDistributionBitCount(stateBits);
+            } catch (IllegalArgumentException e) { // Too few distribution bits for the slices visited
+                log.log(LogLevel.ERROR, sessionName + ": " + e.getMessage());
+                transitionTo(new StateDescription(State.FAILED, e.getMessage()));
+            }
         }
     }
 
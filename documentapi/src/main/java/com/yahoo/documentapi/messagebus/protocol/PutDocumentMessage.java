@@ -2,9 +2,11 @@
 package com.yahoo.documentapi.messagebus.protocol;
 
 import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.io.GrowableByteBuffer;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -107,11 +109,12 @@ public class PutDocumentMessage extends TestAndSetMessage {
     /**
      * Returns the raw serialized buffer. This buffer is stored as the message is received from accross the network, and
      * deserialized from as soon as a member is requested. This method will return null if the buffer has been decoded.
+     * The returned buffer is a view which can be read without consuming the buffer of this.
      *
      * @return The buffer containing the serialized data for this message, or null.
      */
     ByteBuffer getSerializedBuffer() {
-        return buffer != null ? buffer.getBuf().getByteBuffer() : null; // TODO: very dirty. Must make interface.
+        return buffer != null ? buffer.getBuf().getByteBuffer().duplicate() : null; // TODO: very dirty. Must make interface.
     }
 
     @Override
@@ -134,8 +137,28 @@ public class PutDocumentMessage extends TestAndSetMessage {
 
     @Override
     public long getSequenceId() {
-        deserialize();
-        return Arrays.hashCode(put.getId().getGlobalId());
+        DocumentId id = buffer != null ? peekDocumentId() : null;
+        if (id == null) {
+            deserialize();
+            id = put.getId();
+        }
+        return Arrays.hashCode(id.getGlobalId());
+    }
+
+    /**
+     * Returns the id of the serialized document without deserializing the rest of this message,
+     * or null if the document is serialized on a version where the id is not at a fixed position.
+     */
+    private DocumentId peekDocumentId() {
+        GrowableByteBuffer buf = buffer.getBuf();
+        int start = buf.position();
+        try {
+            if (buf.getShort() < 7) return null; // older versions have a variable length size before the id
+            buf.getInt(); // document size
+            return buffer.readDocumentId();
+        } finally {
+            buf.position(start);
+        }
     }
 
     @Override
@@ -1,9 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.documentapi.messagebus.protocol;
 
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.io.GrowableByteBuffer;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -134,11 +136,12 @@ public class UpdateDocumentMessage extends TestAndSetMessage {
     /**
      * Returns the raw serialized buffer. This buffer is stored as the message is received from accross the network, and
      * deserialized from as soon as a member is requested. This method will return null if the buffer has been decoded.
+     * The returned buffer is a view which can be read without consuming the buffer of this.
      *
      * @return The buffer containing the serialized data for this message, or null.
      */
     ByteBuffer getSerializedBuffer() {
-        return buffer != null ? buffer.getBuf().getByteBuffer() : null;
+        return buffer != null ? buffer.getBuf().getByteBuffer().duplicate() : null;
     }
 
     @Override
@@ -153,10 +156,22 @@ public class UpdateDocumentMessage extends TestAndSetMessage {
 
     @Override
     public long getSequenceId() {
-        deserialize();
+        if (buffer != null)
+            return Arrays.hashCode(peekDocumentId().getGlobalId());
         return Arrays.hashCode(update.getId().getGlobalId());
     }
 
+    /** Returns the id of the serialized document update without deserializing the rest of this message */
+    private DocumentId peekDocumentId() {
+        GrowableByteBuffer buf = buffer.getBuf();
+        int start = buf.position();
+        try {
+            return new DocumentId(buffer);
+        } finally {
+            buf.position(start);
+        }
+    }
+
     @Override
     public int getType() {
         return DocumentProtocol.MESSAGE_UPDATEDOCUMENT;
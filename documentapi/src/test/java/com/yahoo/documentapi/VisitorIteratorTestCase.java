@@ -7,6 +7,7 @@ import com.yahoo.document.BucketIdFactory;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -15,6 +16,7 @@ import java.util.Vector;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for VisitorIterator and ProgressToken (kept in one test case because their
@@ -1573,4 +1575,159 @@ public class VisitorIteratorTestCase {
         assertEquals(input, p2.toString());
     }
 
+
+    @Test
+    public void testSlicesPartitionBucketSpace() throws ParseException {
+        int db = 6;
+        for (int slices = 1; slices <= 8; slices *= 2) {
+            Set<BucketId> visited = new HashSet<>();
+            for (int sliceId = 0; sliceId < slices; sliceId++) {
+                ProgressToken p = new ProgressToken();
+                VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                        "id.group != \"yahoo.com\"", new BucketIdFactory(), db, p, slices, sliceId);
+                int sliceBuckets = 0;
+                while (iter.hasNext()) {
+                    BucketId bucket = iter.getNext().getSuperbucket();
+                    assertTrue(bucket + " is visited once", visited.add(bucket));
+                    iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+                    sliceBuckets++;
+                }
+                assertEquals((1 << db) / slices, sliceBuckets);
+                assertTrue(iter.isDone());
+                assertTrue(p.isFinished());
+            }
+            assertEquals(1 << db, visited.size());
+        }
+    }
+
+    // Visiting sessions start at the fewest distribution bits allowed by the slicing and get
+    // the real count from the first reply, so slices must survive such a change, as well as resuming
+    @Test
+    public void testSlicesWithDistributionBitChangeAndResume() throws ParseException {
+        int slices = 4;
+        int db = 8;
+        Set<BucketId> visited = new HashSet<>();
+        for (int sliceId = 0; sliceId < slices; sliceId++) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", new BucketIdFactory(), 2, p, slices, sliceId);
+            BucketId first = iter.getNext().getSuperbucket();
+            assertEquals(2, first.getUsedBits());
+            iter.update(first, new BucketId()); // Wrong distribution; no progress
+            iter.setDistributionBitCount(db);
+            assertEquals(0, p.getPendingBucketCount());
+
+            for (int i = 0; i < 10; i++) {
+                BucketId bucket = iter.getNext().getSuperbucket();
+                assertTrue(visited.add(bucket));
+                iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+            }
+            assertFalse(p.isFinished());
+
+            ProgressToken resumed = new ProgressToken(p.toString());
+            iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", new BucketIdFactory(), 1, resumed, slices, sliceId);
+            while (iter.hasNext()) {
+                BucketId bucket = iter.getNext().getSuperbucket();
+                assertEquals(db, bucket.getUsedBits());
+                assertTrue(bucket + " is visited once", visited.add(bucket));
+                iter.update(bucket, ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(iter.isDone());
+            assertTrue(resumed.isFinished());
+        }
+        assertEquals(1 << db, visited.size());
+    }
+
+    @Test
+    public void testSlicesOfExplicitBuckets() throws ParseException {
+        int slices = 4;
+        int bucketsVisited = 0;
+        for (int sliceId = 0; sliceId < slices; sliceId++) {
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.user == 1234", new BucketIdFactory(), 16, new ProgressToken(), slices, sliceId);
+            while (iter.hasNext()) {
+                iter.update(iter.getNext().getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+                bucketsVisited++;
+            }
+            assertTrue(iter.isDone());
+        }
+        assertEquals(1, bucketsVisited);
+    }
+
+    @Test
+    public void testIllegalSlicing() throws ParseException {
+        try {
+            VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 16, new ProgressToken(), 3, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of slices must be a positive power of two, but was 3", e.getMessage());
+        }
+        try {
+            VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 16, new ProgressToken(), 4, 4);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The slice id must be in the range [0, 4), but was 4", e.getMessage());
+        }
+        try {
+            VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 16, new ProgressToken(), 512, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of slices can be at most 256, but was 512", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSlicesRequireAsManyDistributionBits() throws ParseException {
+        try {
+            VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 1, new ProgressToken(), 4, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot visit 4 slices with 1 distribution bits, as the slices would overlap", e.getMessage());
+        }
+
+        VisitorIterator iter = VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 2, new ProgressToken(), 4, 0);
+        try {
+            iter.setDistributionBitCount(1);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot visit 4 slices with 1 distribution bits, as the slices would overlap", e.getMessage());
+        }
+        assertEquals(2, iter.getDistributionBitCount());
+    }
+
+    @Test
+    public void testProgressTokenRecordsItsSlicing() throws ParseException {
+        ProgressToken p = new ProgressToken();
+        VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", new BucketIdFactory(), 8, p, 4, 1);
+        iter.update(iter.getNext().getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+
+        for (ProgressToken resumed : Arrays.asList(ProgressToken.fromSerializedString(p.serializeToString()),
+                                                   new ProgressToken(p.toString()))) {
+            assertEquals(4, resumed.getSlices());
+            assertEquals(1, resumed.getSliceId());
+            assertResumingFails(resumed, 4, 2, "The progress token is for slice 1 of 4 slices, but slice 2 of 4 slices is to be visited");
+            assertResumingFails(resumed, 8, 1, "The progress token is for slice 1 of 4 slices, but slice 1 of 8 slices is to be visited");
+            assertResumingFails(resumed, 1, 0, "The progress token is for slice 1 of 4 slices, but slice 0 of 1 slices is to be visited");
+            VisitorIterator.createFromDocumentSelection("id.group != \"yahoo.com\"", new BucketIdFactory(), 8, resumed, 4, 1);
+        }
+
+        ProgressToken unsliced = new ProgressToken();
+        iter = VisitorIterator.createFromDocumentSelection("id.group != \"yahoo.com\"", new BucketIdFactory(), 8, unsliced);
+        iter.update(iter.getNext().getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+        assertEquals(unsliced.toString(), ProgressToken.fromSerializedString(unsliced.serializeToString()).toString());
+        assertResumingFails(ProgressToken.fromSerializedString(unsliced.serializeToString()), 4, 0,
+                            "The progress token is for slice 0 of 1 slices, but slice 0 of 4 slices is to be visited");
+    }
+
+    private static void assertResumingFails(ProgressToken progress, int slices, int sliceId, String expectedMessage) throws ParseException {
+        try {
+            VisitorIterator.createFromDocumentSelection("id.group != \"yahoo.com\"", new BucketIdFactory(), 8, progress, slices, sliceId);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
 }
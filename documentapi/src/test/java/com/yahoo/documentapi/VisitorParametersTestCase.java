@@ -113,4 +113,23 @@ public class VisitorParametersTestCase {
                 ")",
                 params.toString());
     }
+
+    @Test
+    public void testSliceBounds() {
+        VisitorParameters params = new VisitorParameters("");
+        params.slice(VisitorIterator.MAX_SLICES, VisitorIterator.MAX_SLICES - 1);
+        assertEquals(VisitorIterator.MAX_SLICES, params.getSlices());
+        try {
+            params.slice(2 * VisitorIterator.MAX_SLICES, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of slices can be at most 256, but was 512", e.getMessage());
+        }
+        try {
+            params.slice(6, 0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of slices must be a positive power of two, but was 6", e.getMessage());
+        }
+    }
 }
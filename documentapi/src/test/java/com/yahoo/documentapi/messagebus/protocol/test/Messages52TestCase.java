@@ -52,6 +52,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -608,6 +609,8 @@ public class Messages52TestCase extends MessagesTestBase {
 
             for (Language lang : LANGUAGES) {
                 final PutDocumentMessage deserializedMsg = (PutDocumentMessage)deserialize("PutDocumentMessage", DocumentProtocol.MESSAGE_PUTDOCUMENT, lang);
+                assertEquals(msg.getSequenceId(), deserializedMsg.getSequenceId()); // before the message is deserialized
+                assertArrayEquals(encode(deserializedMsg), encode(deserializedMsg)); // encoding does not consume the message
                 assertEquals(msg.getDocumentPut().getDocument().getDataType().getName(), deserializedMsg.getDocumentPut().getDocument().getDataType().getName());
                 assertEquals(msg.getDocumentPut().getDocument().getId().toString(), deserializedMsg.getDocumentPut().getDocument().getId().toString());
                 assertEquals(msg.getTimestamp(), deserializedMsg.getTimestamp());
@@ -650,6 +653,8 @@ public class Messages52TestCase extends MessagesTestBase {
 
             for (Language lang : LANGUAGES) {
                 final UpdateDocumentMessage deserializedMsg = (UpdateDocumentMessage) deserialize("UpdateDocumentMessage", DocumentProtocol.MESSAGE_UPDATEDOCUMENT, lang);
+                assertEquals(msg.getSequenceId(), deserializedMsg.getSequenceId()); // before the message is deserialized
+                assertArrayEquals(encode(deserializedMsg), encode(deserializedMsg)); // encoding does not consume the message
                 assertEquals(msg.getDocumentUpdate(), deserializedMsg.getDocumentUpdate());
                 assertEquals(msg.getNewTimestamp(), deserializedMsg.getNewTimestamp());
                 assertEquals(msg.getOldTimestamp(), deserializedMsg.getOldTimestamp());
@@ -14,6 +14,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -71,6 +72,14 @@ public class CompressedFileReference {
         }
     }
 
+    /** Decompresses the given stream into the given directory, and closes the stream */
+    static void decompress(InputStream input, File outputDir) throws IOException {
+        log.log(LogLevel.DEBUG, () -> "Decompressing stream into '" + outputDir + "'");
+        try (ArchiveInputStream ais = new TarArchiveInputStream(new GZIPInputStream(input))) {
+            decompress(ais, outputDir);
+        }
+    }
+
     private static void decompress(ArchiveInputStream archiveInputStream, File outputFile) throws IOException {
         int entries = 0;
         ArchiveEntry entry;
@@ -145,4 +145,9 @@ public class FileDownloader {
     public FileReferenceDownloader fileReferenceDownloader() {
         return fileReferenceDownloader;
     }
+
+    /** Stops all downloads in progress and releases the resources of this. This cannot be used after closing. */
+    public void close() {
+        fileReferenceDownloader.close();
+    }
 }
@@ -2,6 +2,7 @@
 
 package com.yahoo.vespa.filedistribution;
 
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.FileReference;
 import com.yahoo.io.IOUtils;
 import com.yahoo.jrt.Int32Value;
@@ -14,13 +15,20 @@ import net.jpountz.xxhash.XXHashFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -37,6 +45,8 @@ public class FileReceiver {
     public final static String RECEIVE_META_METHOD = "filedistribution.receiveFileMeta";
     public final static String RECEIVE_PART_METHOD = "filedistribution.receiveFilePart";
     public final static String RECEIVE_EOF_METHOD = "filedistribution.receiveFileEof";
+    private final static Duration defaultSessionTimeout = Duration.ofMinutes(10);
+    private final static Duration sessionCheckInterval = Duration.ofMinutes(1);
 
     private final Supervisor supervisor;
     private final FileReferenceDownloader downloader;
@@ -46,6 +56,10 @@ public class FileReceiver {
     private final File tmpDirectory;
     private final AtomicInteger nextSessionId = new AtomicInteger(1);
     private final Map<Integer, Session> sessions = new HashMap<>();
+    /** Sessions receiving no parts for this long are abandoned by the sender, and are aborted */
+    private final Duration sessionTimeout;
+    private final ScheduledExecutorService sessionCleaner =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("filereceiver session cleaner"));
 
     final static class Session {
         private final StreamingXXHash64 hasher;
@@ -60,6 +74,11 @@ public class FileReceiver {
         private final File fileReferenceDir;
         private final File tmpDir;
         private final File inprogressFile;
+        private final FileChannel inprogressChannel;
+        private final long startTime = System.nanoTime();
+        private volatile long lastPartTime = startTime;
+        /** Unpacks compressed files while they are received, or null if not used or unpacking failed */
+        private StreamingUnpacker unpacker = null;
 
         Session(File downloadDirectory, File tmpDirectory, int sessionId, FileReference reference,
                 FileReferenceData.Type fileType, String fileName, long fileSize)
@@ -78,14 +97,22 @@ public class FileReceiver {
 
             try {
                 inprogressFile = Files.createTempFile(tmpDirectory.toPath(), fileName, ".inprogress").toFile();
+                inprogressChannel = FileChannel.open(inprogressFile.toPath(), StandardOpenOption.WRITE);
             } catch (IOException e) {
                 String msg = "Failed creating temp file for inprogress file for " + fileName + " in '" + tmpDirectory.toPath() + "': ";
                 log.log(LogLevel.ERROR, msg + e.getMessage(), e);
                 throw new RuntimeException(msg, e);
             }
+            if (fileType == FileReferenceData.Type.compressed) {
+                try {
+                    unpacker = new StreamingUnpacker(Files.createTempDirectory(tmpDir.toPath(), "archive").toFile());
+                } catch (IOException e) {
+                    log.log(LogLevel.DEBUG, () -> "Could not unpack " + fileName + " while receiving, will unpack when complete: " + e.getMessage());
+                }
+            }
         }
 
-        void addPart(int partId, byte [] part) {
+        synchronized void addPart(int partId, byte [] part) {
             if (partId != currentPartId) {
                 throw new IllegalStateException("Received partid " + partId + " while expecting " + currentPartId);
             }
@@ -94,28 +121,45 @@ public class FileReceiver {
                                                 (currentFileSize + part.length) + ", but " + fileSize + " is max.");
             }
             try {
-                Files.write(inprogressFile.toPath(), part, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                ByteBuffer buffer = ByteBuffer.wrap(part);
+                while (buffer.hasRemaining())
+                    inprogressChannel.write(buffer, currentFileSize + buffer.position());
             } catch (IOException e) {
                 log.log(LogLevel.ERROR, "Failed writing to file(" + inprogressFile.toPath() + "): " + e.getMessage(), e);
+                closeChannel();
                 inprogressFile.delete();
                 throw new RuntimeException("Failed writing to file(" + inprogressFile.toPath() + "): ", e);
             }
+            if (unpacker != null && ! unpacker.add(part))
+                discardUnpacking(); // unpack when complete instead
+            lastPartTime = System.nanoTime();
             currentFileSize += part.length;
             currentPartId++;
             hasher.update(part, 0, part.length);
         }
 
-        File close(long hash) {
+        synchronized File close(long hash) {
+            closeChannel();
+            File unpacked = finishUnpacking();
             if (hasher.getValue() != hash) {
+                if (unpacked != null) deleteDirectory(unpacked);
                 throw new RuntimeException("xxhash from content (" + currentHash + ") is not equal to xxhash in request (" + hash + ")");
             }
             File file = new File(fileReferenceDir, fileName);
             try {
                 // Unpack if necessary
                 if (fileType == FileReferenceData.Type.compressed) {
-                    File decompressedDir = Files.createTempDirectory(tmpDir.toPath(), "archive").toFile();
-                    log.log(LogLevel.DEBUG, () -> "Archived file, unpacking " + inprogressFile + " to " + decompressedDir);
-                    CompressedFileReference.decompress(inprogressFile, decompressedDir);
+                    File decompressedDir = unpacked;
+                    if (decompressedDir == null) {
+                        decompressedDir = Files.createTempDirectory(tmpDir.toPath(), "archive").toFile();
+                        log.log(LogLevel.DEBUG, "Archived file, unpacking " + inprogressFile + " to " + decompressedDir);
+                        try {
+                            CompressedFileReference.decompress(inprogressFile, decompressedDir);
+                        } catch (IOException | RuntimeException e) {
+                            deleteDirectory(decompressedDir);
+                            throw e;
+                        }
+                    }
                     moveFileToDestination(decompressedDir, fileReferenceDir);
                 } else {
                     try {
@@ -142,17 +186,116 @@ public class FileReceiver {
             return file;
         }
 
+        /**
+         * Abandons this session, releasing the in-progress file and any unpacking thread, and deleting
+         * the temporary files and directories of this.
+         */
+        synchronized void abort() {
+            closeChannel();
+            discardUnpacking();
+            if (inprogressFile.exists() && ! inprogressFile.delete())
+                log.log(LogLevel.WARNING, "Failed deleting " + inprogressFile.getAbsolutePath());
+        }
+
+        /** Returns whether no part has been received in this session for the given duration */
+        boolean isIdle(Duration duration) {
+            return System.nanoTime() - lastPartTime > duration.toNanos();
+        }
+
         double percentageReceived() {
             return (double)currentFileSize/(double)fileSize;
         }
+
+        /** Returns the average number of bytes received per second in this session */
+        double bytesPerSecond() {
+            long nanos = Math.max(1, System.nanoTime() - startTime);
+            return currentFileSize * 1e9 / nanos;
+        }
+
+        /** Returns the directory the file was unpacked to while receiving it, or null if it was not */
+        private File finishUnpacking() {
+            if (unpacker == null) return null;
+            try {
+                return unpacker.finish();
+            } catch (IOException e) {
+                log.log(LogLevel.DEBUG, () -> "Unpacking " + fileName + " while receiving failed, will unpack the complete file: " +
+                                              e.getMessage());
+                return null;
+            } finally {
+                unpacker = null;
+            }
+        }
+
+        /** Stops unpacking while receiving, and deletes what was unpacked */
+        private void discardUnpacking() {
+            if (unpacker == null) return;
+            unpacker.abort();
+            unpacker = null;
+        }
+
+        private void closeChannel() {
+            try {
+                inprogressChannel.close();
+            } catch (IOException e) {
+                log.log(LogLevel.WARNING, "Failed closing " + inprogressFile.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+
+        private static void deleteDirectory(File directory) {
+            if ( ! IOUtils.recursiveDeleteDir(directory))
+                log.log(LogLevel.WARNING, "Failed deleting " + directory);
+        }
     }
 
     FileReceiver(Supervisor supervisor, FileReferenceDownloader downloader, File downloadDirectory, File tmpDirectory) {
+        this(supervisor, downloader, downloadDirectory, tmpDirectory, defaultSessionTimeout);
+    }
+
+    FileReceiver(Supervisor supervisor, FileReferenceDownloader downloader, File downloadDirectory, File tmpDirectory,
+                 Duration sessionTimeout) {
         this.supervisor = supervisor;
         this.downloader = downloader;
         this.downloadDirectory = downloadDirectory;
         this.tmpDirectory = tmpDirectory;
+        this.sessionTimeout = sessionTimeout;
         registerMethods();
+        long checkMillis = Math.max(1, Math.min(sessionTimeout.toMillis(), sessionCheckInterval.toMillis()));
+        sessionCleaner.scheduleWithFixedDelay(this::abortIdleSessions, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Aborts and removes the sessions which have not received a part within the session timeout */
+    void abortIdleSessions() {
+        List<Session> idle = new ArrayList<>();
+        synchronized (sessions) {
+            for (Iterator<Session> i = sessions.values().iterator(); i.hasNext(); ) {
+                Session session = i.next();
+                if ( ! session.isIdle(sessionTimeout)) continue;
+                i.remove();
+                idle.add(session);
+            }
+        }
+        for (Session session : idle) {
+            log.log(LogLevel.INFO, "Aborting receiving '" + session.reference.value() + "' in session " + session.sessionId +
+                                   " after receiving no parts for " + sessionTimeout);
+            session.abort();
+        }
+    }
+
+    /** Stops checking for idle sessions, and aborts all sessions in progress */
+    void close() {
+        sessionCleaner.shutdownNow();
+        List<Session> open;
+        synchronized (sessions) {
+            open = new ArrayList<>(sessions.values());
+            sessions.clear();
+        }
+        open.forEach(Session::abort);
+    }
+
+    int sessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
     }
 
     private void registerMethods() {
@@ -265,11 +408,22 @@ public class FileReceiver {
         long xxhash = req.parameters().get(2).asInt64();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        File file = session.close(xxhash);
-        downloader.completedDownloading(reference, file);
-        synchronized (sessions) {
-            sessions.remove(sessionId);
+        File file;
+        try {
+            file = session.close(xxhash);
+        }
+        catch (RuntimeException e) {
+            session.abort();
+            throw e;
         }
+        finally {
+            synchronized (sessions) {
+                sessions.remove(sessionId);
+            }
+        }
+        log.log(LogLevel.INFO, () -> String.format("Received '%s' (%d bytes) at %.1f MB/s",
+                                                   reference.value(), session.currentFileSize, session.bytesPerSecond() / (1 << 20)));
+        downloader.completedDownloading(reference, file);
         req.returnValues().add(new Int32Value(retval));
     }
 
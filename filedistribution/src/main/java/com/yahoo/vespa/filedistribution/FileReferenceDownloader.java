@@ -30,7 +30,6 @@ import java.util.logging.Logger;
  *
  * @author hmusum
  */
-// TODO: Handle shutdown of executors
 public class FileReferenceDownloader {
 
     private final static Logger log = Logger.getLogger(FileReferenceDownloader.class.getName());
@@ -39,6 +38,7 @@ public class FileReferenceDownloader {
     private final ExecutorService downloadExecutor =
             Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("filereference downloader"));
     private final ConnectionPool connectionPool;
+    private final FileReceiver fileReceiver;
     private final Map<FileReference, FileReferenceDownload> downloads = new LinkedHashMap<>();
     private final Map<FileReference, Double> downloadStatus = new HashMap<>();  // between 0 and 1
     private final Duration downloadTimeout;
@@ -49,7 +49,13 @@ public class FileReferenceDownloader {
         this.downloadTimeout = timeout;
         this.sleepBetweenRetries = sleepBetweenRetries;
         // Needed to receive RPC calls receiveFile* from server after asking for files
-        new FileReceiver(connectionPool.getSupervisor(), this, downloadDirectory, tmpDirectory);
+        this.fileReceiver = new FileReceiver(connectionPool.getSupervisor(), this, downloadDirectory, tmpDirectory);
+    }
+
+    /** Stops downloading, and releases the threads and temporary files used by this */
+    void close() {
+        downloadExecutor.shutdownNow();
+        fileReceiver.close();
     }
 
     private void startDownload(Duration timeout, FileReferenceDownload fileReferenceDownload) {
@@ -0,0 +1,165 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.log.LogLevel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Unpacks a compressed file reference in a separate thread while its parts are received,
+ * such that unpacking is mostly done when the last part arrives.
+ * If unpacking fails, this stops accepting parts, and the caller should unpack the complete file instead.
+ */
+class StreamingUnpacker {
+
+    private static final Logger log = Logger.getLogger(StreamingUnpacker.class.getName());
+
+    /** Marks the end of the parts in the queue */
+    private static final byte[] end = new byte[0];
+
+    private final File outputDir;
+
+    /** Parts received but not yet unpacked, bounded to avoid buffering the file in memory if unpacking is slow */
+    private final BlockingQueue<byte[]> parts;
+
+    /** How long to wait for the next part before giving up, to avoid keeping a thread for abandoned transfers */
+    private static final long partTimeoutMinutes = 10;
+
+    private final Thread thread;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /** The cause of unpacking failing, or null if it has not failed */
+    private volatile Exception failure = null;
+
+    StreamingUnpacker(File outputDir) {
+        this(outputDir, 64);
+    }
+
+    StreamingUnpacker(File outputDir, int maxQueuedParts) {
+        this.outputDir = outputDir;
+        this.parts = new ArrayBlockingQueue<>(maxQueuedParts);
+        thread = new Thread(this::unpack, "filereference unpacker " + outputDir.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds the next part of the compressed file to be unpacked without waiting.
+     * Returns false if unpacking has failed, or if it has fallen too far behind to accept more parts,
+     * in which case the caller should stop unpacking while receiving.
+     */
+    boolean add(byte[] part) {
+        if (failure != null || done.getCount() == 0) return false;
+        if (part.length == 0) return true;
+        return parts.offer(part);
+    }
+
+    /**
+     * Waits for all added parts to be unpacked, and returns the directory they are unpacked to.
+     *
+     * @throws IOException if unpacking failed, in which case the output directory is deleted
+     */
+    File finish() throws IOException {
+        offerEnd();
+        try {
+            done.await();
+        }
+        catch (InterruptedException e) {
+            throw new IOException("Interrupted while unpacking to " + outputDir, e);
+        }
+        if (failure != null) {
+            IOUtils.recursiveDeleteDir(outputDir);
+            throw new IOException("Unpacking to " + outputDir + " failed", failure);
+        }
+        return outputDir;
+    }
+
+    /** Stops unpacking, waits for the unpacking thread to stop, and deletes the output directory */
+    void abort() {
+        thread.interrupt();
+        try {
+            done.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOUtils.recursiveDeleteDir(outputDir);
+    }
+
+    /** Adds the end marker, waiting for room in the queue unless unpacking stops */
+    private void offerEnd() {
+        try {
+            while (failure == null && done.getCount() > 0) {
+                if (parts.offer(end, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void unpack() {
+        try {
+            PartsInputStream in = new PartsInputStream();
+            CompressedFileReference.decompress(in, outputDir);
+            while (in.read() >= 0) { } // consume any trailing bytes up to the end marker
+        }
+        catch (Exception e) {
+            log.log(LogLevel.DEBUG, () -> "Unpacking to " + outputDir + " while receiving failed: " + e.getMessage());
+            failure = e;
+        }
+        finally {
+            done.countDown();
+        }
+    }
+
+    /** Reads the parts added to this until the end marker. Closing this has no effect. */
+    private class PartsInputStream extends InputStream {
+
+        private byte[] current = null;
+        private int position = 0;
+
+        @Override
+        public int read() throws IOException {
+            if ( ! ensureAvailable()) return -1;
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if ( ! ensureAvailable()) return -1;
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            if (current == end) return false;
+            while (current == null || position == current.length) {
+                try {
+                    current = parts.poll(partTimeoutMinutes, TimeUnit.MINUTES);
+                    position = 0;
+                }
+                catch (InterruptedException e) {
+                    throw new IOException("Interrupted while waiting for parts", e);
+                }
+                if (current == null) throw new IOException("Timed out waiting for parts");
+                if (current == end) return false;
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -3,6 +3,11 @@ package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.config.FileReference;
 import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
 import com.yahoo.text.Utf8;
 import net.jpountz.xxhash.XXHash64;
 import net.jpountz.xxhash.XXHashFactory;
@@ -12,12 +17,17 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
 
 public class FileReceiverTest {
     private File root;
@@ -66,6 +76,155 @@ public class FileReceiverTest {
         assertEquals("2", IOUtils.readFile(new File(downloadDir, "b")));
     }
 
+    @Test
+    public void receiveCompressedFileInManyParts() throws IOException {
+        File dirWithFiles = temporaryFolder.newFolder("manyfiles");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            content.append("line ").append(i).append(" of a file large enough to span many parts\n");
+        for (String name : new String[] { "x", "y", "z" }) {
+            try (FileWriter writer = new FileWriter(new File(dirWithFiles, name))) {
+                writer.write(name + content);
+            }
+        }
+
+        byte[] data = CompressedFileReference.compress(dirWithFiles);
+        int partSize = 1000;
+
+        // Room for all parts, as parts are rejected rather than waited for if unpacking falls behind
+        int partCount = (data.length + partSize - 1) / partSize;
+        StreamingUnpacker unpacker = new StreamingUnpacker(temporaryFolder.newFolder("unpacked"), partCount + 1);
+        for (int pos = 0; pos < data.length; pos += partSize)
+            assertTrue(unpacker.add(Arrays.copyOfRange(data, pos, Math.min(pos + partSize, data.length))));
+        assertEquals("x" + content, IOUtils.readFile(new File(unpacker.finish(), "x")));
+
+        FileReceiver.Session session =
+                new FileReceiver.Session(root, tempDir, 1, new FileReference("many"), FileReferenceData.Type.compressed, "x", data.length);
+        for (int i = 0, pos = 0; pos < data.length; i++, pos += partSize)
+            session.addPart(i, Arrays.copyOfRange(data, pos, Math.min(pos + partSize, data.length)));
+        session.close(hasher.hash(ByteBuffer.wrap(data), 0));
+
+        File downloadDir = new File(root, "many");
+        for (String name : new String[] { "x", "y", "z" })
+            assertEquals(name + content, IOUtils.readFile(new File(downloadDir, name)));
+        assertEquals("Temporary files are removed", 0, tempDir.list().length);
+    }
+
+    @Test
+    public void receiveCorruptCompressedFile() {
+        byte[] data = Utf8.toBytes("not compressed");
+        FileReceiver.Session session =
+                new FileReceiver.Session(root, tempDir, 1, new FileReference("corrupt"), FileReferenceData.Type.compressed, "c", data.length);
+        session.addPart(0, data);
+        try {
+            session.close(hasher.hash(ByteBuffer.wrap(data), 0));
+            fail("Expected exception");
+        }
+        catch (RuntimeException e) {
+            assertFalse(new File(root, "corrupt").exists());
+            assertEquals("Partially unpacked files are removed", 0, tempDir.list().length);
+        }
+    }
+
+    @Test
+    public void abortedSessionRemovesTemporaryFiles() throws IOException {
+        byte[] data = compressedFiles(1000);
+        FileReceiver.Session session =
+                new FileReceiver.Session(root, tempDir, 1, new FileReference("aborted"), FileReferenceData.Type.compressed, "a", data.length);
+        session.addPart(0, Arrays.copyOfRange(data, 0, data.length / 2));
+        assertEquals("In-progress file and unpack directory", 2, tempDir.list().length);
+
+        session.abort();
+        assertFalse(new File(root, "aborted").exists());
+        assertEquals(0, tempDir.list().length);
+    }
+
+    @Test
+    public void failedUnpackingWhileReceivingRemovesUnpackDirectory() throws InterruptedException {
+        byte[] part = Utf8.toBytes("not compressed");
+        int parts = 1000;
+        FileReceiver.Session session =
+                new FileReceiver.Session(root, tempDir, 1, new FileReference("corrupt"), FileReferenceData.Type.compressed, "c",
+                                         (long) part.length * parts);
+        for (int i = 0; i < parts && tempDir.list().length > 1; i++) {
+            session.addPart(i, part);
+            Thread.sleep(10);
+        }
+        assertEquals("Only the in-progress file remains", 1, tempDir.list().length);
+        session.abort();
+        assertEquals(0, tempDir.list().length);
+    }
+
+    @Test
+    public void idleSessionsAreAborted() throws InterruptedException {
+        Supervisor supervisor = new Supervisor(new Transport());
+        try {
+            FileReceiver receiver = new FileReceiver(supervisor, null, root, tempDir, Duration.ofMillis(100));
+            Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
+            request.parameters().add(new StringValue("idle"));
+            request.parameters().add(new StringValue("i"));
+            request.parameters().add(new StringValue(FileReferenceData.Type.compressed.name()));
+            request.parameters().add(new Int64Value(1000));
+            receiver.receiveFileMeta(request);
+            assertEquals(0, request.returnValues().get(0).asInt32());
+
+            long end = System.currentTimeMillis() + 60_000;
+            while ((receiver.sessionCount() > 0 || tempDir.list().length > 0) && System.currentTimeMillis() < end)
+                Thread.sleep(10);
+            assertEquals(0, receiver.sessionCount());
+            assertEquals(0, tempDir.list().length);
+        }
+        finally {
+            supervisor.transport().shutdown().join();
+        }
+    }
+
+    @Test
+    public void closingAbortsSessions() {
+        Supervisor supervisor = new Supervisor(new Transport());
+        try {
+            FileReceiver receiver = new FileReceiver(supervisor, null, root, tempDir);
+            Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
+            request.parameters().add(new StringValue("open"));
+            request.parameters().add(new StringValue("o"));
+            request.parameters().add(new StringValue(FileReferenceData.Type.compressed.name()));
+            request.parameters().add(new Int64Value(1000));
+            receiver.receiveFileMeta(request);
+            assertEquals(1, receiver.sessionCount());
+
+            receiver.close();
+            assertEquals(0, receiver.sessionCount());
+            assertEquals(0, tempDir.list().length);
+        }
+        finally {
+            supervisor.transport().shutdown().join();
+        }
+    }
+
+    @Test
+    public void unpackerFallingBehindRejectsPartsInsteadOfWaiting() throws IOException {
+        byte[] data = compressedFiles(10000);
+        StreamingUnpacker unpacker = new StreamingUnpacker(temporaryFolder.newFolder("unpacked"), 1);
+        boolean rejected = false;
+        for (int i = 0; i < data.length && ! rejected; i++)
+            rejected = ! unpacker.add(new byte[] { data[i] });
+        assertTrue("A part is rejected when the queue is full", rejected);
+        unpacker.abort();
+    }
+
+    private byte[] compressedFiles(int lines) throws IOException {
+        File dirWithFiles = temporaryFolder.newFolder();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            content.append("line ").append(i).append(" of a file large enough to span many parts\n");
+        for (String name : new String[] { "x", "y", "z" }) {
+            try (FileWriter writer = new FileWriter(new File(dirWithFiles, name))) {
+                writer.write(name + content);
+            }
+        }
+        return CompressedFileReference.compress(dirWithFiles);
+    }
+
     private void transferPartsAndAssert(FileReference ref, String fileName, String all, int numParts) throws IOException {
         byte [] allContent = Utf8.toBytes(all);
 
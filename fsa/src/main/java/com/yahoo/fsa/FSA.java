@@ -11,11 +11,18 @@ import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 
 /**
  * Finite-State Automaton.
+ * <p>
+ * The automaton is read through absolute indexes into buffers mapping the automaton file, so an FSA instance may be
+ * used by any number of threads concurrently. States may be walked either by a {@link State} object, which must
+ * be used by a single thread, or without allocation by passing int states to the methods of this, starting
+ * from {@link #start}, where 0 is the invalid state.
  *
  * @author Peter Boros
  */
@@ -322,6 +329,7 @@ public class FSA {
     private MappedByteBuffer _data;
     private MappedByteBuffer _phash;
     private Charset _charset;
+    private boolean _utf8;
 
     /**
      * Loads an FSA from a resource file name, which is resolved from the class path of the
@@ -385,6 +393,7 @@ public class FSA {
     private void init(FileInputStream file, String charsetname) {
         try {
             _charset = Charset.forName(charsetname);
+            _utf8 = _charset.equals(StandardCharsets.UTF_8);
             _header = file.getChannel().map(MapMode.READ_ONLY,0,256);
             _header.order(ByteOrder.LITTLE_ENDIAN);
             if (h_magic()!=2038637673) {
@@ -479,7 +488,8 @@ public class FSA {
         return 0;
     }
 
-    protected int start(){
+    /** Returns the start state of this automaton */
+    public int start(){
         if(_ok){
             return h_start();
         }
@@ -487,7 +497,8 @@ public class FSA {
         return 0;
     }
 
-    protected int delta(int state, byte symbol){
+    /** Returns the state reached from the given state by the given symbol, or 0 if none */
+    public int delta(int state, byte symbol){
         int s=symbol;
         if(s<0){
             s+=256;
@@ -513,7 +524,8 @@ public class FSA {
         return 0;
     }
 
-    protected boolean isFinal(int state){
+    /** Returns whether the given state is final, that is, whether it is reached by a complete entry */
+    public boolean isFinal(int state){
         if(_ok){
             if(getSymbol(state+255)==255){
                 return true;
@@ -527,7 +539,7 @@ public class FSA {
      * @param state The fsa state to retrieve data from.
      * @return A new buffer containing the data for the given state.
      **/
-    protected ByteBuffer data(int state) {
+    public ByteBuffer data(int state) {
         if(_ok && isFinal(state)){
             int offset = _state_tab.getInt(4*(state+255));
             int length;
@@ -554,7 +566,7 @@ public class FSA {
      * @param state The fsa state to retrieve data from.
      * @return A string representation of the data for the given state.
      **/
-    protected String dataString(int state) {
+    public String dataString(int state) {
         ByteBuffer meta = data(state);
         if(meta!=null){
             // Remove trailing '\0' if it exists. This is usually the
@@ -568,6 +580,115 @@ public class FSA {
         return null;
     }
 
+    /**
+     * Returns the state reached from the given state by the encoded characters of the given string, or 0 if none.
+     * This does not allocate when the character encoding of this is utf-8.
+     */
+    public int delta(int state, CharSequence string) {
+        if ( ! _utf8) return delta(state, encode(string.toString()));
+
+        for (int i = 0; i < string.length() && state != 0; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                state = delta(state, (byte)c);
+            }
+            else if (c < 0x800) {
+                state = step(delta(state, (byte)(0xc0 | (c >> 6))), 0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                state = delta(state, (byte)(0xf0 | (codePoint >> 18)));
+                state = step(state, 0x80 | ((codePoint >> 12) & 0x3f));
+                state = step(state, 0x80 | ((codePoint >> 6) & 0x3f));
+                state = step(state, 0x80 | (codePoint & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) { // unpaired: replaced by the encoder
+                state = delta(state, (byte)'?');
+            }
+            else {
+                state = delta(state, (byte)(0xe0 | (c >> 12)));
+                state = step(state, 0x80 | ((c >> 6) & 0x3f));
+                state = step(state, 0x80 | (c & 0x3f));
+            }
+        }
+        return state;
+    }
+
+    private int delta(int state, ByteBuffer bytes) {
+        while (state != 0 && bytes.position() < bytes.limit())
+            state = delta(state, bytes.get());
+        return state;
+    }
+
+    /** Returns delta(state, symbol), or 0 if the state is 0 */
+    private int step(int state, int symbol) {
+        return state == 0 ? 0 : delta(state, (byte)symbol);
+    }
+
+    /**
+     * Returns the state reached from the given state by the given word, preceded by a space unless
+     * the given state is the start state, or 0 if none.
+     */
+    public int deltaWord(int state, CharSequence word) {
+        if (state != start())
+            state = delta(state, (byte)' ');
+        return delta(state, word);
+    }
+
+    /**
+     * Returns the state reached from the given state by the given word, if that is the next complete word
+     * of an entry, or 0 otherwise. This is the int state version of {@link State#tryDeltaWord}.
+     */
+    public int tryDeltaWord(int state, CharSequence word) {
+        int next = delta(state, (byte)' ');
+        next = delta(next == 0 ? state : next, word);
+        if (next != 0 && delta(next, (byte)' ') != 0) return next;
+        if (next != 0 && isFinal(next)) return next;
+        return 0;
+    }
+
+    /** Receives the phrases found by {@link #findPhrases} */
+    public interface PhraseHandler {
+
+        /**
+         * Called for each phrase found.
+         *
+         * @param start the index of the first word of the phrase
+         * @param end the index after the last word of the phrase
+         * @param state the final state reached by the phrase, which may be passed to {@link #data} or {@link #dataString}
+         */
+        void phrase(int start, int end, int state);
+
+    }
+
+    /**
+     * Finds all word sequences of the given words which are complete entries in this, by passing over the words
+     * once while advancing a state for each word where a phrase may start.
+     * The phrases are passed to the handler ordered by their end and then by their start.
+     */
+    public void findPhrases(List<? extends CharSequence> words, PhraseHandler handler) {
+        int[] starts = new int[words.size()];
+        int[] states = new int[words.size()];
+        int active = 0;
+        for (int i = 0; i < words.size(); i++) {
+            starts[active] = i;
+            states[active] = start();
+            active++;
+            CharSequence word = words.get(i);
+            int stillActive = 0;
+            for (int a = 0; a < active; a++) {
+                int state = deltaWord(states[a], word);
+                if (state == 0) continue;
+                if (isFinal(state))
+                    handler.phrase(starts[a], i + 1, state);
+                starts[stillActive] = starts[a];
+                states[stillActive] = state;
+                stillActive++;
+            }
+            active = stillActive;
+        }
+    }
+
     /**
      * Convenience method that returns the metadata string in the fsa
      * for the input lookup String, or null if the input string does
@@ -575,9 +696,7 @@ public class FSA {
      * @param str The string to look up.
      * @return Metadata string from the fsa.  */
     public String lookup(String str){
-        State s = getState();
-        s.lookup(str);
-        return s.dataString();
+        return dataString(delta(start(), str));
     }
 
 
@@ -1,8 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.fsa.segmenter;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.Arrays;
 
 import com.yahoo.fsa.FSA;
 
@@ -38,53 +37,11 @@ public class Segmenter {
     return segment(tokens);
   }
 
-  private class Detector {
-    FSA.State _state;
-    int       _index;
-
-    public Detector(FSA.State s, int i)
-    {
-      _state = s;
-      _index = i;
-    }
-
-    public FSA.State state()
-    {
-      return _state;
-    }
-
-    public int index()
-    {
-      return _index;
-    }
-  }
-
   public Segments segment(String[] tokens)
   {
     Segments segments = new Segments(tokens);
-    LinkedList detectors = new LinkedList();
-
-    int i=0;
-
-
-    while(i<tokens.length){
-      detectors.add(new Detector(_fsa.getState(),i));
-
-      ListIterator det_it = detectors.listIterator();
-      while(det_it.hasNext()){
-        Detector d = (Detector)det_it.next();
-        d.state().deltaWord(tokens[i]);
-        if(d.state().isFinal()){
-          segments.add(new Segment(d.index(),i+1,d.state().data().getInt(0)));
-        }
-
-        if(!d.state().isValid()){
-          det_it.remove();
-        }
-      }
-      i++;
-    }
-
+    _fsa.findPhrases(Arrays.asList(tokens),
+                     (start, end, state) -> segments.add(new Segment(start, end, _fsa.data(state).getInt(0))));
     return segments;
   }
 
@@ -0,0 +1,73 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa.test;
+
+import com.yahoo.fsa.FSA;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares finding phrases in a token sequence by restarting a State at each token
+ * with finding them with the int state api, both per start token and in a single pass.
+ */
+public class FSAMicroBenchmark {
+
+    private static final int iterations = 1000000;
+
+    private final FSA fsa;
+    private final List<String> words = Arrays.asList("so", "this", "is", "a", "test", "of", "aword", "and",
+                                                     "tudor", "vidor", "in", "a", "test", "with", "aword", "too");
+    private int found = 0;
+
+    public FSAMicroBenchmark(FSA fsa) {
+        this.fsa = fsa;
+    }
+
+    public void benchmark() {
+        for (int i = 0; i < 3; i++) { // the first runs are warmup
+            time("State per start", this::statePerStart);
+            time("int state per start", this::intStatePerStart);
+            time("int state single pass", this::intStateSinglePass);
+        }
+        System.out.println("(read " + found + " data bytes)");
+    }
+
+    private void time(String name, Runnable lookups) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            lookups.run();
+        System.out.println(name + ": " + (System.nanoTime() - startTime) / iterations + " ns per " + words.size() + " tokens");
+    }
+
+    private void statePerStart() {
+        FSA.State state = fsa.getState();
+        for (int start = 0; start < words.size(); start++) {
+            state.start();
+            for (int end = start; end < words.size() && state.tryDeltaWord(words.get(end)); end++) {
+                if (state.isFinal())
+                    found += state.data().remaining();
+            }
+        }
+    }
+
+    private void intStatePerStart() {
+        for (int start = 0; start < words.size(); start++) {
+            int state = fsa.start();
+            for (int end = start; end < words.size() && (state = fsa.tryDeltaWord(state, words.get(end))) != 0; end++) {
+                if (fsa.isFinal(state))
+                    found += fsa.data(state).remaining();
+            }
+        }
+    }
+
+    private void intStateSinglePass() {
+        fsa.findPhrases(words, (start, end, state) -> found += fsa.data(state).remaining());
+    }
+
+    public static void main(String[] args) throws IOException {
+        new FSAMicroBenchmark(new FSA(new FileInputStream("src/test/fsa/test-fsa.fsa"))).benchmark();
+    }
+
+}
@@ -7,7 +7,13 @@ import org.junit.Test;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -106,4 +112,68 @@ public class FSATestCase {
         assertTrue(state.isFinal());
     }
 
+    @Test
+    public void testIntStateDelta() {
+        int state = fsa.delta(fsa.start(), "this is a");
+        assertTrue(state != 0);
+        assertFalse(fsa.isFinal(state));
+        state = fsa.delta(state, " test");
+        assertTrue(fsa.isFinal(state));
+        assertEquals(0, fsa.delta(fsa.start(), "this is not"));
+    }
+
+    @Test
+    public void testIntStateDeltaWord() {
+        int state = fsa.start();
+        for (String word : new String[] { "this", "is", "a", "test" }) {
+            assertFalse(fsa.isFinal(state));
+            state = fsa.deltaWord(state, word);
+        }
+        assertTrue(fsa.isFinal(state));
+        assertEquals(0, fsa.deltaWord(fsa.deltaWord(fsa.start(), "th"), "is"));
+    }
+
+    @Test
+    public void testIntStateDeltaWordTry() {
+        int start = fsa.start();
+        assertEquals(0, fsa.tryDeltaWord(start, "thiss"));
+        int state = fsa.tryDeltaWord(start, "this");
+        assertTrue(state != 0);
+        state = fsa.tryDeltaWord(fsa.tryDeltaWord(state, "is"), "a");
+        assertEquals(0, fsa.tryDeltaWord(state, "tes"));
+        assertEquals(0, fsa.tryDeltaWord(state, "teszzzz"));
+        state = fsa.tryDeltaWord(state, "test");
+        assertTrue(fsa.isFinal(state));
+    }
+
+    @Test
+    public void testFindPhrases() {
+        List<String> found = new ArrayList<>();
+        List<String> words = Arrays.asList("so", "this", "is", "a", "test", "aword", "tudor", "vidor", "aword");
+        fsa.findPhrases(words, (start, end, state) -> found.add(start + "-" + end + ":" + String.join(" ", words.subList(start, end))));
+        assertEquals(Arrays.asList("1-5:this is a test", "5-6:aword", "6-8:tudor vidor", "8-9:aword"), found);
+
+        found.clear();
+        fsa.findPhrases(Collections.emptyList(), (start, end, state) -> found.add(start + "-" + end));
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    if ( ! fsa.isFinal(fsa.delta(fsa.start(), "tudor vidor"))) failures.incrementAndGet();
+                    if (fsa.isFinal(fsa.delta(fsa.start(), "tudor"))) failures.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, failures.get());
+    }
+
 }
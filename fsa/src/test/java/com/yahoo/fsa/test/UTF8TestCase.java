@@ -53,6 +53,16 @@ public class UTF8TestCase {
         assertTrue(state.isFinal());
     }
 
+    @Test
+    public void testIntStateStringDelta() {
+        int state = fsa.delta(fsa.start(), prefix);
+        assertTrue(state != 0);
+        assertFalse(fsa.isFinal(state));
+        assertTrue(fsa.isFinal(fsa.delta(state, suffix)));
+        assertEquals(fsa.lookup(word), fsa.dataString(fsa.delta(fsa.start(), new StringBuilder(word))));
+        assertEquals(0, fsa.delta(fsa.start(), "\ud800" + word));
+    }
+
     @Test
     public void testCharDelta() {
         assertEquals(6, word.length());
@@ -3,8 +3,23 @@ package com.yahoo.jdisc.core;
 
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
+ * A hierarchical timing wheel of entries to expire at given times.
+ * <p>
+ * Scheduling and unscheduling entries never locks: Scheduling pushes a ticket onto a lock-free stack of pending
+ * tickets, and unscheduling just invalidates the current ticket of an entry. The wheel itself is only accessed
+ * by the thread draining the queue, which moves pending tickets into the wheel on each drain. This means that
+ * entries which are unscheduled before the next drain, which is the common case, never enter the wheel, and that
+ * invalidated tickets in the wheel are discarded as their slot is drained.
+ * <p>
+ * The first level of the wheel has a slot for each tick of the current iteration, and the second level has a
+ * slot for each iteration, whose tickets are moved into the first level when that iteration starts.
+ * Tickets more than NUM_SLOTS iterations ahead stay in the second level for another round.
+ * This makes the cost of scheduling, unscheduling and expiring an entry constant.
+ *
  * @author <a href="mailto:havardpe@yahoo-inc.com">Haavard Pettersen</a>
  * @author Simon Thoresen Hult
  */
@@ -16,8 +31,15 @@ class ScheduledQueue {
     public static final int SLOT_MASK = 511; // bitmask to modulo NUM_SLOTS
     public static final int ITER_SHIFT = 9; // number of bits to shift off SLOT_MASK
 
-    private final Entry[] slots = new Entry[NUM_SLOTS + 1];
-    private final int[] counts = new int[NUM_SLOTS + 1];
+    private static final AtomicReferenceFieldUpdater<Entry, Ticket> currentTicket =
+            AtomicReferenceFieldUpdater.newUpdater(Entry.class, Ticket.class, "ticket");
+
+    /** Tickets scheduled since the last drain, most recent first */
+    private final AtomicReference<Ticket> pending = new AtomicReference<>();
+
+    // The wheel, accessed only while holding the monitor of this, which is done only by the draining thread
+    private final Slot[] ticks = newSlots();
+    private final Slot[] iterations = newSlots();
     private int currIter = 0;
     private int currSlot = 0;
     private long nextTick;
@@ -32,105 +54,181 @@ class ScheduledQueue {
     }
 
     public synchronized void drainTo(long currentTimeMillis, Queue<Object> out) {
-        if (slots[NUM_SLOTS] == null && currentTimeMillis < nextTick) {
+        if (pending.get() == null && currentTimeMillis < nextTick) {
             return;
         }
-        drainTo(NUM_SLOTS, 0, out);
+        addPending(out);
         for (int i = 0; currentTimeMillis >= nextTick; i++, nextTick += MILLIS_PER_SLOT) {
             if (i < NUM_SLOTS_UNDILATED) {
                 if (++currSlot >= NUM_SLOTS) {
                     currSlot = 0;
                     currIter++;
+                    startIteration();
                 }
-                drainTo(currSlot, currIter, out);
+                expire(ticks[currSlot].removeAll(), out);
             }
         }
     }
 
-    private void drainTo(int slot, int iter, Queue<Object> out) {
-        int cnt = counts[slot];
-        Entry entry = slots[slot];
-        for (int i = 0; i < cnt; i++) {
-            Entry next = entry.next;
-            if (entry.iter == iter) {
-                linkOut(entry);
-                out.add(entry.payload);
+    /** Moves the pending tickets into the wheel in the order they were scheduled, or expires them if they are due */
+    private void addPending(Queue<Object> out) {
+        Ticket ticket = reversed(pending.getAndSet(null));
+        while (ticket != null) {
+            Ticket next = ticket.next;
+            ticket.next = null;
+            if (ticket.isCurrent()) {
+                long delayMillis = ticket.expireAtMillis - nextTick;
+                if (delayMillis < 0) {
+                    ticket.expireTo(out);
+                } else {
+                    long ticks = 1 + (int)((delayMillis + MILLIS_PER_SLOT / 2) / MILLIS_PER_SLOT);
+                    ticket.slot = (int)((ticks + currSlot) & SLOT_MASK);
+                    ticket.iter = currIter + (int)((ticks + currSlot) >> ITER_SHIFT);
+                    add(ticket);
+                }
             }
-            entry = next;
+            ticket = next;
         }
     }
 
-    private synchronized void scheduleAt(Entry entry, long expireAtMillis) {
-        if (entry.next != null) {
-            linkOut(entry);
-        }
-        long delayMillis = expireAtMillis - nextTick;
-        if (delayMillis < 0) {
-            entry.slot = NUM_SLOTS;
-            entry.iter = 0;
+    private void add(Ticket ticket) {
+        if (ticket.iter == currIter) {
+            ticks[ticket.slot].add(ticket);
         } else {
-            long ticks = 1 + (int)((delayMillis + MILLIS_PER_SLOT / 2) / MILLIS_PER_SLOT);
-            entry.slot = (int)((ticks + currSlot) & SLOT_MASK);
-            entry.iter = currIter + (int)((ticks + currSlot) >> ITER_SHIFT);
+            iterations[ticket.iter & SLOT_MASK].add(ticket);
         }
-        linkIn(entry);
     }
 
-    private synchronized void unschedule(Entry entry) {
-        if (entry.next != null) {
-            linkOut(entry);
+    /** Moves the tickets of the iteration now starting from the second level into the first */
+    private void startIteration() {
+        Ticket ticket = iterations[currIter & SLOT_MASK].removeAll();
+        while (ticket != null) {
+            Ticket next = ticket.next;
+            ticket.next = null;
+            if (ticket.isCurrent()) {
+                add(ticket);
+            }
+            ticket = next;
         }
     }
 
-    private void linkIn(Entry entry) {
-        Entry head = slots[entry.slot];
-        if (head == null) {
-            entry.next = entry;
-            entry.prev = entry;
-            slots[entry.slot] = entry;
-        } else {
-            entry.next = head;
-            entry.prev = head.prev;
-            head.prev.next = entry;
-            head.prev = entry;
+    private static void expire(Ticket ticket, Queue<Object> out) {
+        while (ticket != null) {
+            Ticket next = ticket.next;
+            ticket.next = null;
+            ticket.expireTo(out);
+            ticket = next;
         }
-        ++counts[entry.slot];
     }
 
-    private void linkOut(Entry entry) {
-        Entry head = slots[entry.slot];
-        if (entry.next == entry) {
-            slots[entry.slot] = null;
-        } else {
-            entry.prev.next = entry.next;
-            entry.next.prev = entry.prev;
-            if (head == entry) {
-                slots[entry.slot] = entry.next;
+    private void schedule(Ticket ticket) {
+        Ticket head;
+        do {
+            head = pending.get();
+            ticket.next = head;
+        } while ( ! pending.compareAndSet(head, ticket));
+    }
+
+    private static Ticket reversed(Ticket ticket) {
+        Ticket reversed = null;
+        while (ticket != null) {
+            Ticket next = ticket.next;
+            ticket.next = reversed;
+            reversed = ticket;
+            ticket = next;
+        }
+        return reversed;
+    }
+
+    private static Slot[] newSlots() {
+        Slot[] slots = new Slot[NUM_SLOTS];
+        for (int i = 0; i < NUM_SLOTS; i++) {
+            slots[i] = new Slot();
+        }
+        return slots;
+    }
+
+    /** A list of tickets in the order they were added */
+    private static class Slot {
+
+        private Ticket head;
+        private Ticket tail;
+
+        void add(Ticket ticket) {
+            if (head == null) {
+                head = ticket;
+            } else {
+                tail.next = ticket;
             }
+            tail = ticket;
+        }
+
+        /** Removes and returns the first ticket of this, linking to the rest */
+        Ticket removeAll() {
+            Ticket first = head;
+            head = null;
+            tail = null;
+            return first;
         }
-        entry.next = null;
-        entry.prev = null;
-        --counts[entry.slot];
     }
 
-    public class Entry {
+    /** A request to expire an entry at some time, which is invalidated when the entry is scheduled again or unscheduled */
+    private static class Ticket {
 
-        private final Object payload;
+        private Entry entry; // set to null when invalidated, to not keep the entry until the next drain
+        private final long expireAtMillis;
         private int slot;
         private int iter;
-        private Entry next;
-        private Entry prev;
+        private Ticket next;
+
+        Ticket(Entry entry, long expireAtMillis) {
+            this.entry = entry;
+            this.expireAtMillis = expireAtMillis;
+        }
+
+        boolean isCurrent() {
+            Entry entry = this.entry;
+            return entry != null && entry.ticket == this;
+        }
+
+        /** Adds the payload of the entry of this to the given queue unless this has been invalidated */
+        void expireTo(Queue<Object> out) {
+            Entry entry = this.entry;
+            if (entry != null && currentTicket.compareAndSet(entry, this, null)) {
+                out.add(entry.payload);
+            }
+        }
+
+        void invalidate() {
+            entry = null;
+        }
+    }
+
+    public class Entry {
+
+        private final Object payload;
+        volatile Ticket ticket = null; // not private, to be accessible to the field updater
 
         private Entry(Object payload) {
             this.payload = payload;
         }
 
-        public void scheduleAt(long expireAtMillis) {
-            ScheduledQueue.this.scheduleAt(this, expireAtMillis);
+        /** Schedules this to expire at the given time. Returns whether this was not already scheduled. */
+        public boolean scheduleAt(long expireAtMillis) {
+            Ticket ticket = new Ticket(this, expireAtMillis);
+            Ticket previous = currentTicket.getAndSet(this, ticket);
+            ScheduledQueue.this.schedule(ticket);
+            if (previous == null) return true;
+            previous.invalidate();
+            return false;
         }
 
-        public void unschedule() {
-            ScheduledQueue.this.unschedule(this);
+        /** Unschedules this. Returns whether this was scheduled, i.e was not already unscheduled or expired. */
+        public boolean unschedule() {
+            Ticket previous = currentTicket.getAndSet(this, null);
+            if (previous == null) return false;
+            previous.invalidate();
+            return true;
         }
     }
 }
@@ -17,6 +17,8 @@ import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,11 +29,13 @@ public class TimeoutManagerImpl {
 
     private static final ContentChannel IGNORED_CONTENT = new IgnoredContent();
     private static final Logger log = Logger.getLogger(TimeoutManagerImpl.class.getName());
+    private static final AtomicIntegerFieldUpdater<TimeoutHandler> respondedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(TimeoutHandler.class, "responded");
     private final ScheduledQueue schedules[] = new ScheduledQueue[Runtime.getRuntime().availableProcessors()];
     private final Thread thread;
     private final Timer timer;
     private volatile int nextScheduler = 0;
-    private volatile int queueSize = 0;
+    private final LongAdder queueSize = new LongAdder();
     private volatile boolean done = false;
 
     @Inject
@@ -59,7 +63,7 @@ public class TimeoutManagerImpl {
     }
 
     int queueSize() {
-        return queueSize; // unstable snapshot, only for test purposes
+        return queueSize.intValue(); // unstable snapshot, only for test purposes
     }
 
     Timer timer() {
@@ -73,6 +77,7 @@ public class TimeoutManagerImpl {
         }
         while (!queue.isEmpty()) {
             TimeoutHandler timeoutHandler = (TimeoutHandler)queue.poll();
+            queueSize.decrement();
             invokeTimeout(timeoutHandler.requestHandler, timeoutHandler.request, timeoutHandler);
         }
     }
@@ -154,40 +159,42 @@ public class TimeoutManagerImpl {
         }
     }
 
+    /**
+     * Schedules and unschedules the timeout of a request without locking, such that responding,
+     * which unschedules, may happen concurrently with (re)scheduling.
+     */
     private class TimeoutHandler implements ResponseHandler, TimeoutManager {
 
         final ResponseHandler responseHandler;
         final RequestHandler requestHandler;
         final Request request;
-        ScheduledQueue.Entry timeoutQueueEntry = null;
-        boolean responded = false;
+        final ScheduledQueue.Entry timeoutQueueEntry;
+        volatile int responded = 0; // not private, to be accessible to the field updater
 
         TimeoutHandler(Request request, RequestHandler requestHandler, ResponseHandler responseHandler) {
             this.request = request;
             this.requestHandler = requestHandler;
             this.responseHandler = responseHandler;
+            this.timeoutQueueEntry = schedules[(++nextScheduler & 0xffff) % schedules.length].newEntry(this);
         }
 
         @Override
-        public synchronized void scheduleTimeout(Request request) {
-            if (responded) {
+        public void scheduleTimeout(Request request) {
+            if (responded != 0) {
                 return;
             }
-            if (timeoutQueueEntry == null) {
-                timeoutQueueEntry = schedules[(++nextScheduler & 0xffff) % schedules.length].newEntry(this);
+            if (timeoutQueueEntry.scheduleAt(request.creationTime(TimeUnit.MILLISECONDS) + request.getTimeout(TimeUnit.MILLISECONDS))) {
+                queueSize.increment();
+            }
+            if (responded != 0) { // responded while scheduling, in which case the response may not have unscheduled
+                unscheduleTimeout();
             }
-            timeoutQueueEntry.scheduleAt(request.creationTime(TimeUnit.MILLISECONDS) + request.getTimeout(TimeUnit.MILLISECONDS));
-            ++queueSize;
         }
 
-        synchronized void unscheduleTimeout() {
-            if (!responded && timeoutQueueEntry != null) {
-                timeoutQueueEntry.unschedule();
-                //guard against unscheduling from ManagedRequestHandler.handleRequest catch block
-                //followed by unscheduling in another thread from TimeoutHandler.handleResponse
-                timeoutQueueEntry = null;
+        void unscheduleTimeout() {
+            if (timeoutQueueEntry.unschedule()) {
+                queueSize.decrement();
             }
-            --queueSize;
         }
 
         @Override
@@ -197,13 +204,10 @@ public class TimeoutManagerImpl {
 
         @Override
         public ContentChannel handleResponse(Response response) {
-            synchronized (this) {
-                unscheduleTimeout();
-                if (responded) {
-                    return IGNORED_CONTENT;
-                }
-                responded = true;
+            if ( ! respondedUpdater.compareAndSet(this, 0, 1)) {
+                return IGNORED_CONTENT;
             }
+            unscheduleTimeout();
             return responseHandler.handleResponse(response);
         }
 
@@ -2,25 +2,36 @@
 package com.yahoo.jdisc.handler;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * This class implements an unlimited, non-blocking content queue. All {@link ContentChannel} methods are implemented
  * by pushing to a thread-safe internal queue. All of the queued calls are forwarded to another ContentChannel when
  * {@link #connectTo(ContentChannel)} is called. Once connected, this class becomes a non-buffering proxy for the
  * connected ContentChannel.
+ * <p>
+ * This does not lock: Calls made before connecting are pushed onto a lock-free stack, and once connected,
+ * calls are forwarded after a single volatile read.
  *
  * @author Simon Thoresen Hult
  */
 public final class BufferedContentChannel implements ContentChannel {
 
-    private final Object lock = new Object();
-    private List<Entry> queue = new LinkedList<>();
-    private ContentChannel content = null;
-    private boolean closed = false;
-    private CompletionHandler closeCompletion = null;
+    private static final AtomicReferenceFieldUpdater<BufferedContentChannel, Object> stateUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(BufferedContentChannel.class, Object.class, "state");
+    private static final AtomicIntegerFieldUpdater<BufferedContentChannel> connectCalledUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(BufferedContentChannel.class, "connectCalled");
+
+    /**
+     * Either null if nothing is queued and this is not connected, the most recent of the queued calls,
+     * which links to the earlier ones, or a {@link Connected} once all queued calls are forwarded.
+     */
+    private volatile Object state = null;
+    private volatile int connectCalled = 0;
 
     /**
      * <p>Connects this BufferedContentChannel to a ContentChannel. First, this method forwards all queued calls to the
@@ -34,25 +45,33 @@ public final class BufferedContentChannel implements ContentChannel {
      */
     public void connectTo(ContentChannel content) {
         Objects.requireNonNull(content, "content");
-        boolean closed;
-        List<Entry> queue;
-        synchronized (lock) {
-            if (this.content != null || this.queue == null) {
-                throw new IllegalStateException();
-            }
-            closed = this.closed;
-            queue = this.queue;
-            this.queue = null;
+        if ( ! connectCalledUpdater.compareAndSet(this, 0, 1)) {
+            throw new IllegalStateException();
         }
-        for (Entry entry : queue) {
-            content.write(entry.buf, entry.handler);
+        Call forwarded = null;
+        while (true) { // forward until no calls are queued while forwarding
+            Call queued = (Call)state;
+            forward(queued, forwarded, content);
+            forwarded = queued;
+            if (stateUpdater.compareAndSet(this, queued, new Connected(content, queued != null && queued.close))) {
+                return;
+            }
         }
-        if (closed) {
-            content.close(closeCompletion);
+    }
+
+    /** Forwards the given queued call and those before it, down to but excluding the given one, in the order made */
+    private static void forward(Call call, Call alreadyForwarded, ContentChannel content) {
+        List<Call> calls = new ArrayList<>();
+        for (; call != alreadyForwarded; call = call.previous) {
+            calls.add(call);
         }
-        synchronized (lock) {
-            this.content = content;
-            lock.notifyAll();
+        for (int i = calls.size() - 1; i >= 0; i--) {
+            Call next = calls.get(i);
+            if (next.close) {
+                content.close(next.handler);
+            } else {
+                content.write(next.buf, next.handler);
+            }
         }
     }
 
@@ -63,9 +82,7 @@ public final class BufferedContentChannel implements ContentChannel {
      * @return True if {@link #connectTo(ContentChannel)} has been called.
      */
     public boolean isConnected() {
-        synchronized (lock) {
-            return content != null;
-        }
+        return state instanceof Connected;
     }
 
     /**
@@ -91,66 +108,82 @@ public final class BufferedContentChannel implements ContentChannel {
 
     @Override
     public void write(ByteBuffer buf, CompletionHandler handler) {
-        ContentChannel content;
-        synchronized (lock) {
-            if (closed) {
-                throw new IllegalStateException();
-            }
-            if (queue != null) {
-                queue.add(new Entry(buf, handler));
-                return;
-            }
-            try {
-                while (this.content == null) {
-                    lock.wait(); // waiting for connecTo()
+        Call call = null;
+        while (true) {
+            Object state = this.state;
+            if (state instanceof Connected) {
+                Connected connected = (Connected)state;
+                if (connected.closed) {
+                    throw new IllegalStateException();
                 }
-            } catch (InterruptedException e) {
-                throw new IllegalStateException(e);
+                connected.content.write(buf, handler);
+                return;
             }
-            if (closed) {
+            if (state != null && ((Call)state).close) {
                 throw new IllegalStateException();
             }
-            content = this.content;
+            if (call == null) {
+                call = new Call(buf, handler, false);
+            }
+            call.previous = (Call)state;
+            if (stateUpdater.compareAndSet(this, state, call)) {
+                return;
+            }
         }
-        content.write(buf, handler);
     }
 
     @Override
     public void close(CompletionHandler handler) {
-        ContentChannel content;
-        synchronized (lock) {
-            if (closed) {
-                throw new IllegalStateException();
-            }
-            if (queue != null) {
-                closed = true;
-                closeCompletion = handler;
-                return;
-            }
-            try {
-                while (this.content == null) {
-                    lock.wait(); // waiting for connecTo()
+        Call call = null;
+        while (true) {
+            Object state = this.state;
+            if (state instanceof Connected) {
+                Connected connected = (Connected)state;
+                if (connected.closed) {
+                    throw new IllegalStateException();
+                }
+                if (stateUpdater.compareAndSet(this, connected, new Connected(connected.content, true))) {
+                    connected.content.close(handler);
+                    return;
                 }
-            } catch (InterruptedException e) {
-                throw new IllegalStateException(e);
+                continue;
             }
-            if (closed) {
+            if (state != null && ((Call)state).close) {
                 throw new IllegalStateException();
             }
-            closed = true;
-            content = this.content;
+            if (call == null) {
+                call = new Call(null, handler, true);
+            }
+            call.previous = (Call)state;
+            if (stateUpdater.compareAndSet(this, state, call)) {
+                return;
+            }
         }
-        content.close(handler);
     }
 
-    private static class Entry {
+    /** A write or close call made before this was connected */
+    private static class Call {
 
         final ByteBuffer buf;
         final CompletionHandler handler;
+        final boolean close;
+        Call previous; // only changed before this is published
 
-        Entry(ByteBuffer buf, CompletionHandler handler) {
-            this.handler = handler;
+        Call(ByteBuffer buf, CompletionHandler handler, boolean close) {
             this.buf = buf;
+            this.handler = handler;
+            this.close = close;
+        }
+    }
+
+    private static class Connected {
+
+        final ContentChannel content;
+        final boolean closed;
+
+        Connected(ContentChannel content, boolean closed) {
+            this.content = content;
+            this.closed = closed;
         }
     }
 
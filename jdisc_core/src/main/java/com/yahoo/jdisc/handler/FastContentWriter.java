@@ -11,8 +11,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * <p>This class provides a non-blocking, awaitable <em>write</em>-interface to a {@link ContentChannel}.
@@ -27,8 +26,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class FastContentWriter implements ListenableFuture<Boolean>, AutoCloseable {
 
-    private final AtomicBoolean closed = new AtomicBoolean(false);
-    private final AtomicInteger numPendingCompletions = new AtomicInteger();
+    private static final AtomicIntegerFieldUpdater<FastContentWriter> numPendingCompletionsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(FastContentWriter.class, "numPendingCompletions");
+
+    // Not atomic objects, as a writer is created for every response
+    private volatile boolean closed = false;
+    private volatile int numPendingCompletions = 0;
     private final CompletionHandler completionHandler = new SimpleCompletionHandler();
     private final ContentChannel out;
     private final SettableFuture<Boolean> future = SettableFuture.create();
@@ -83,7 +86,7 @@ public class FastContentWriter implements ListenableFuture<Boolean>, AutoCloseab
      * @param buf The ByteBuffer to write.
      */
     public void write(ByteBuffer buf) {
-        numPendingCompletions.incrementAndGet();
+        numPendingCompletionsUpdater.incrementAndGet(this);
         try {
             out.write(buf, completionHandler);
         } catch (Throwable t) {
@@ -98,8 +101,8 @@ public class FastContentWriter implements ListenableFuture<Boolean>, AutoCloseab
      */
     @Override
     public void close() {
-        numPendingCompletions.incrementAndGet();
-        closed.set(true);
+        numPendingCompletionsUpdater.incrementAndGet(this);
+        closed = true;
         try {
             out.close(completionHandler);
         } catch (Throwable t) {
@@ -142,8 +145,8 @@ public class FastContentWriter implements ListenableFuture<Boolean>, AutoCloseab
 
         @Override
         public void completed() {
-            numPendingCompletions.decrementAndGet();
-            if (closed.get() && numPendingCompletions.get() == 0) {
+            int pending = numPendingCompletionsUpdater.decrementAndGet(FastContentWriter.this);
+            if (closed && pending == 0) {
                 future.set(true);
             }
         }
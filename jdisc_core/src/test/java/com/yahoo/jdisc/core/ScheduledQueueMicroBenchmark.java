@@ -0,0 +1,85 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the CPU time spent scheduling and then unscheduling timeouts, which is what happens for each
+ * request handled in time, by a number of threads sharing the queues of a timeout manager at 100k requests
+ * per second in total, and the CPU time spent draining the queues at each tick.
+ */
+public class ScheduledQueueMicroBenchmark {
+
+    private static final int requestsPerSecond = 100000;
+    private static final int batchSize = 100;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final int threadCount = Runtime.getRuntime().availableProcessors() * 4;
+    private final ScheduledQueue[] queues = new ScheduledQueue[Runtime.getRuntime().availableProcessors()];
+
+    public void benchmark() throws InterruptedException {
+        for (int i = 0; i < queues.length; i++)
+            queues[i] = new ScheduledQueue(System.currentTimeMillis());
+
+        run(5); // warmup
+        run(10);
+    }
+
+    private void run(int seconds) throws InterruptedException {
+        AtomicLong pairs = new AtomicLong();
+        AtomicLong requestCpuNanos = new AtomicLong();
+        long endTime = System.nanoTime() + seconds * 1000000000L;
+        long nanosPerBatch = 1000000000L * batchSize * threadCount / requestsPerSecond;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int threadIndex = t;
+            threads.add(new Thread(() -> {
+                long count = 0;
+                long cpuNanos = 0;
+                for (long nextBatch = System.nanoTime(); nextBatch < endTime; nextBatch += nanosPerBatch) {
+                    LockSupport.parkNanos(nextBatch - System.nanoTime());
+                    long startCpuNanos = threadBean.getCurrentThreadCpuTime();
+                    for (int i = 0; i < batchSize; i++, count++) {
+                        ScheduledQueue queue = queues[(int)((threadIndex + count) % queues.length)];
+                        ScheduledQueue.Entry entry = queue.newEntry(this);
+                        entry.scheduleAt(System.currentTimeMillis() + 5000);
+                        entry.unschedule();
+                    }
+                    cpuNanos += threadBean.getCurrentThreadCpuTime() - startCpuNanos;
+                }
+                pairs.addAndGet(count);
+                requestCpuNanos.addAndGet(cpuNanos);
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        Queue<Object> expired = new LinkedList<>();
+        long drainCpuNanos = 0;
+        while (System.nanoTime() < endTime) {
+            Thread.sleep(ScheduledQueue.MILLIS_PER_SLOT);
+            long startCpuNanos = threadBean.getCurrentThreadCpuTime();
+            for (ScheduledQueue queue : queues)
+                queue.drainTo(System.currentTimeMillis(), expired);
+            drainCpuNanos += threadBean.getCurrentThreadCpuTime() - startCpuNanos;
+        }
+        for (Thread thread : threads)
+            thread.join();
+        if ( ! expired.isEmpty()) throw new IllegalStateException("Unscheduled entries expired");
+
+        System.out.println(threadCount + " threads scheduled and unscheduled " + pairs.get() / seconds + " timeouts per second, " +
+                           "using " + requestCpuNanos.get() / pairs.get() + " ns CPU per timeout to schedule and unschedule, " +
+                           "and " + drainCpuNanos / pairs.get() + " ns to drain");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new ScheduledQueueMicroBenchmark().benchmark();
+    }
+
+}
@@ -11,7 +11,10 @@ import java.util.Arrays;
 public enum FlagId {
 
     /** Indicates whether a exclusive load balancer should be provisioned */
-    exclusiveLoadBalancer("exclusive-load-balancer");
+    exclusiveLoadBalancer("exclusive-load-balancer"),
+
+    /** Indicates whether nodes should be stored in the binary format, which requires all servers to read it */
+    binaryNodeFormat("binary-node-format");
 
     private final String serializedValue;
 
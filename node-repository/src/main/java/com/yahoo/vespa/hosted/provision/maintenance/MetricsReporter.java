@@ -13,6 +13,7 @@ import com.yahoo.vespa.hosted.provision.Node;
 import com.yahoo.vespa.hosted.provision.NodeRepository;
 import com.yahoo.vespa.hosted.provision.node.Allocation;
 import com.yahoo.vespa.hosted.provision.node.History;
+import com.yahoo.vespa.hosted.provision.persistence.CuratorDatabase;
 import com.yahoo.vespa.hosted.provision.provisioning.DockerHostCapacity;
 import com.yahoo.vespa.orchestrator.HostNameNotFoundException;
 import com.yahoo.vespa.orchestrator.Orchestrator;
@@ -39,6 +40,9 @@ public class MetricsReporter extends Maintainer {
     private final Map<Map<String, String>, Metric.Context> contextMap = new HashMap<>();
     private final Supplier<Integer> pendingRedeploymentsSupplier;
 
+    /** The node repository cache statistics at the previous run of this */
+    private CuratorDatabase.CacheStats previousCacheStats;
+
     public MetricsReporter(NodeRepository nodeRepository,
                            Metric metric,
                            Orchestrator orchestrator,
@@ -51,6 +55,7 @@ public class MetricsReporter extends Maintainer {
         this.orchestrator = orchestrator;
         this.serviceMonitor = serviceMonitor;
         this.pendingRedeploymentsSupplier = pendingRedeploymentsSupplier;
+        this.previousCacheStats = nodeRepository.database().curator().cacheStats();
     }
 
     @Override
@@ -64,12 +69,25 @@ public class MetricsReporter extends Maintainer {
         updateStateMetrics(nodes);
         updateMaintenanceMetrics();
         updateDockerMetrics(nodes);
+        updateCacheMetrics();
     }
 
     private void updateMaintenanceMetrics() {
         metric.set("hostedVespa.pendingRedeployments", pendingRedeploymentsSupplier.get(), null);
     }
 
+    private void updateCacheMetrics() {
+        CuratorDatabase.CacheStats cacheStats = nodeRepository().database().curator().cacheStats();
+        CuratorDatabase.CacheStats stats = cacheStats.since(previousCacheStats);
+        previousCacheStats = cacheStats;
+
+        metric.set("hostedVespa.nodeRepository.cache.hitRate",
+                   stats.reads() == 0 ? 0.0 : (double)stats.hits() / stats.reads(), null);
+        metric.set("hostedVespa.nodeRepository.cache.refreshes", stats.invalidations(), null);
+        metric.set("hostedVespa.nodeRepository.readLatencyMicros",
+                   stats.reads() == 0 ? 0.0 : stats.readNanos() / 1000.0 / stats.reads(), null);
+    }
+
     private void updateNodeMetrics(Node node, Map<HostName, List<ServiceInstance>> servicesByHost) {
         Metric.Context context;
 
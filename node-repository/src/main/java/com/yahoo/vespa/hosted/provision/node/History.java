@@ -1,6 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.hosted.provision.node;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.vespa.hosted.provision.Node;
 
@@ -19,16 +21,28 @@ import java.util.stream.Collectors;
  */
 public class History {
 
-    private final ImmutableMap<Event.Type, Event> events;
+    private final Supplier<ImmutableMap<Event.Type, Event>> events;
 
     public History(Collection<Event> events) {
         this(toImmutableMap(events));
     }
 
     private History(ImmutableMap<Event.Type, Event> events) {
+        this(Suppliers.ofInstance(events));
+    }
+
+    private History(Supplier<ImmutableMap<Event.Type, Event>> events) {
         this.events = events;
     }
 
+    /**
+     * Returns a history whose events are not created until they are first accessed.
+     * This is useful for histories read in bulk, where most are never accessed.
+     */
+    public static History lazy(Supplier<Collection<Event>> events) {
+        return new History(Suppliers.memoize(() -> toImmutableMap(events.get())));
+    }
+
     private static ImmutableMap<Event.Type, Event> toImmutableMap(Collection<Event> events) {
         ImmutableMap.Builder<Event.Type, Event> builder = new ImmutableMap.Builder<>();
         for (Event event : events)
@@ -37,7 +51,7 @@ public class History {
     }
 
     /** Returns this event if it is present in this history */
-    public Optional<Event> event(Event.Type type) { return Optional.ofNullable(events.get(type)); }
+    public Optional<Event> event(Event.Type type) { return Optional.ofNullable(events.get().get(type)); }
 
     /** Returns true if a given event is registered in this history after the given time */
     public boolean hasEventAfter(Event.Type type, Instant time) {
@@ -53,7 +67,7 @@ public class History {
                 .orElse(false);
     }
 
-    public Collection<Event> events() { return events.values(); }
+    public Collection<Event> events() { return events.get().values(); }
 
     /** Returns a copy of this history with the given event added */
     public History with(Event event) {
@@ -69,7 +83,7 @@ public class History {
 
     private ImmutableMap.Builder<Event.Type, Event> builderWithout(Event.Type type) {
         ImmutableMap.Builder<Event.Type, Event> builder = new ImmutableMap.Builder<>();
-        for (Event event : events.values())
+        for (Event event : events.get().values())
             if (event.type() != type)
                 builder.put(event.type(), event);
         return builder;
@@ -105,9 +119,9 @@ public class History {
 
     @Override
     public String toString() {
-        if (events.isEmpty()) return "history: (empty)";
+        if (events.get().isEmpty()) return "history: (empty)";
         StringBuilder b = new StringBuilder("history: ");
-        for (Event e : events.values())
+        for (Event e : events.get().values())
             b.append(e).append(", ");
          b.setLength(b.length() -2); // remove last comma
         return b.toString();
@@ -9,38 +9,51 @@ import com.yahoo.vespa.curator.Curator;
 import com.yahoo.vespa.curator.Lock;
 import com.yahoo.vespa.curator.recipes.CuratorCounter;
 import com.yahoo.vespa.curator.transaction.CuratorTransaction;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * This encapsulated the curator database of the node repo.
- * It serves reads from an in-memory cache of the content which is invalidated when changed on another node
- * using a global, shared counter. The counter is updated on all write operations, ensured by wrapping write
- * operations in a 2pc transaction containing the counter update.
+ * It serves reads from an in-memory cache of the content. Each cached path is watched in ZooKeeper, and is
+ * removed from the cache when it is changed, by this or any other node. After we acquire a lock or write,
+ * the next read waits for all watch events which ZooKeeper has sent us so far to be processed, which makes reads
+ * consistent with our own writes and with writes done by others holding a lock we have since acquired.
+ * Other writes are seen when their watch events arrive.
  *
  * @author bratseth
  */
 public class CuratorDatabase {
 
+    private static final Logger log = Logger.getLogger(CuratorDatabase.class.getName());
+
     private final Curator curator;
 
-    /** A shared atomic counter which is incremented every time we write to the curator database */
+    /**
+     * A shared atomic counter which is incremented every time we write to the curator database.
+     * The cache no longer depends on this, but it is kept up to date for nodes running older versions, which do.
+     */
     private final CuratorCounter changeGenerationCounter;
 
-    /** A partial cache of the Curator database, which is only valid if generations match */
-    private final AtomicReference<CuratorDatabaseCache> cache = new AtomicReference<>();
-
-    /** Whether we should return data from the cache or always read fro ZooKeeper */
-    private final boolean useCache;
-
-    private final Object cacheCreationLock = new Object();
+    /** A partial cache of the Curator database */
+    private final CuratorDatabaseCache cache;
 
     /**
      * All keys, to allow reentrancy.
@@ -53,12 +66,13 @@ public class CuratorDatabase {
      *
      * @param curator the curator instance
      * @param root the file system root of the db
+     * @param useCache whether we should return data from the cache or always read from ZooKeeper
      */
     public CuratorDatabase(Curator curator, Path root, boolean useCache) {
-        this.useCache = useCache;
         this.curator = curator;
-        changeGenerationCounter = new CuratorCounter(curator, root.append("changeCounter").getAbsolute());
-        cache.set(newCache(changeGenerationCounter.get()));
+        Path changeGenerationPath = root.append("changeCounter");
+        changeGenerationCounter = new CuratorCounter(curator, changeGenerationPath.getAbsolute());
+        cache = useCache ? new CuratorDatabaseCache(curator, changeGenerationPath) : new DeactivatedCache(curator);
     }
 
     /** Returns all hosts configured to be part of this ZooKeeper cluster */
@@ -75,6 +89,7 @@ public class CuratorDatabase {
     public Lock lock(Path path, Duration timeout) {
         Lock lock = locks.computeIfAbsent(path, (pathArg) -> new Lock(pathArg.getAbsolute(), curator));
         lock.acquire(timeout);
+        cache.syncBeforeNextRead(); // see the writes of the previous holder of the lock
         return lock;
     }
 
@@ -86,10 +101,11 @@ public class CuratorDatabase {
      * Important: It is the nested transaction which must be committed - never the curator transaction directly.
      */
     public CuratorTransaction newCuratorTransactionIn(NestedTransaction transaction) {
-        // Add a counting transaction first, to make sure we always invalidate the current state on any transaction commit
+        // Add a counting transaction first, to make sure nodes running older versions invalidate their caches on any commit
         transaction.add(new EagerCountingCuratorTransaction(changeGenerationCounter), CuratorTransaction.class);
         CuratorTransaction curatorTransaction = new CuratorTransaction(curator);
         transaction.add(curatorTransaction);
+        transaction.onCommitted(cache::syncBeforeNextRead);
         return curatorTransaction;
     }
 
@@ -97,6 +113,7 @@ public class CuratorDatabase {
     // As this operation does not depend on the prior state we do not need to increment the write counter
     public void create(Path path) {
         curator.create(path);
+        cache.syncBeforeNextRead();
     }
 
     /** Returns whether given path exists */
@@ -108,107 +125,273 @@ public class CuratorDatabase {
     // These can read from the memory file system, which accurately mirrors the ZooKeeper content IF
 
     /** Returns the immediate, local names of the children under this node in any order */
-    public List<String> getChildren(Path path) { return getCache().getChildren(path); }
+    public List<String> getChildren(Path path) { return cache.getChildren(path); }
 
-    public Optional<byte[]> getData(Path path) { return getCache().getData(path); }
+    public Optional<byte[]> getData(Path path) { return cache.getData(path); }
 
-    private static class CacheAndGeneration {
-        public CacheAndGeneration(CuratorDatabaseCache cache, long generation)
-        {
-            this.cache = cache;
-            this.generation = generation;
-        }
-        public boolean expired() {
-            return generation != cache.generation();
-        }
-        public CuratorDatabaseCache validCache() {
-            if (expired()) {
-                throw new IllegalStateException("The cache has generation " + cache.generation() +
-                        " while the root genration counter in zookeeper says " + generation +
-                        ". That is totally unacceptable and must be a sever programming error in my close vicinity.");
-            }
-            return cache;
+    /** Returns the statistics of the cache of this since it was created */
+    public CacheStats cacheStats() { return cache.stats(); }
+
+    /** Statistics of the reads of a curator database */
+    public static class CacheStats {
+
+        private final long hits;
+        private final long misses;
+        private final long invalidations;
+        private final long syncs;
+        private final long readNanos;
+
+        CacheStats(long hits, long misses, long invalidations, long syncs, long readNanos) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.syncs = syncs;
+            this.readNanos = readNanos;
         }
 
-        private CuratorDatabaseCache cache;
-        private long generation;
-    }
-    private CacheAndGeneration getCacheSnapshot() {
-        return new CacheAndGeneration(cache.get(), changeGenerationCounter.get());
-    }
-    private CuratorDatabaseCache getCache() {
-        CacheAndGeneration cacheAndGeneration = getCacheSnapshot();
-        while (cacheAndGeneration.expired()) {
-            synchronized (cacheCreationLock) { // Prevent a race for creating new caches
-                cacheAndGeneration = getCacheSnapshot();
-                if (cacheAndGeneration.expired()) {
-                    cache.set(newCache(changeGenerationCounter.get()));
-                    cacheAndGeneration = getCacheSnapshot();
-                }
-            }
+        /** Returns the number of reads answered from the cache */
+        public long hits() { return hits; }
+
+        /** Returns the number of reads which had to read from ZooKeeper */
+        public long misses() { return misses; }
+
+        /** Returns the number of cache entries removed because the path changed in ZooKeeper */
+        public long invalidations() { return invalidations; }
+
+        /** Returns the number of times a read waited for watch events to be processed */
+        public long syncs() { return syncs; }
+
+        /** Returns the total time spent reading, including waiting for watch events to be processed */
+        public long readNanos() { return readNanos; }
+
+        /** Returns the number of reads */
+        public long reads() { return hits + misses; }
+
+        /** Returns the statistics of the reads done after the given earlier statistics of the same database */
+        public CacheStats since(CacheStats earlier) {
+            return new CacheStats(hits - earlier.hits, misses - earlier.misses, invalidations - earlier.invalidations,
+                                  syncs - earlier.syncs, readNanos - earlier.readNanos);
         }
-        return cacheAndGeneration.validCache();
-    }
 
-    /** Caches must only be instantiated using this method */
-    private CuratorDatabaseCache newCache(long generation) {
-        return useCache ? new CuratorDatabaseCache(generation, curator) : new DeactivatedCache(generation, curator);
     }
 
     /**
-     * A thread safe partial snapshot of the curator database content with a given generation.
-     * This is merely a recording of what Curator returned at various points in time when 
-     * it had the counter at this generation.
+     * A thread safe partial mirror of the curator database content.
+     * Each path is mirrored the first time it is read, at which point a watch is set on it in ZooKeeper,
+     * and removed from the mirror when the watch is triggered.
      */
-    private static class CuratorDatabaseCache {
+    private static class CuratorDatabaseCache implements Watcher {
+
+        /** How long to wait for pending watch events to be processed before reading from ZooKeeper instead */
+        private static final Duration syncTimeout = Duration.ofSeconds(10);
 
-        private final long generation;
-        
         /** The curator instance used to fetch missing data */
         protected final Curator curator;
 
-        // The data of this partial state mirror. The amount of curator state mirrored in this may grow
-        // over time by multiple threads. Growing is the only operation permitted by this.
-        // The content of the map is immutable.
+        /** The path we check the existence of to know that all earlier watch events are processed */
+        private final String syncPath;
+
+        // The content of the maps is immutable.
         private final Map<Path, List<String>> children = new ConcurrentHashMap<>();
         private final Map<Path, Optional<byte[]>> data = new ConcurrentHashMap<>();
 
-        /** Create an empty snapshot at a given generation (as an empty snapshot is a valid partial snapshot) */
-        public CuratorDatabaseCache(long generation, Curator curator) {
-            this.generation = generation;
+        /**
+         * A token for each path being read from ZooKeeper, which is removed when the path is invalidated.
+         * Values read are only added if their token is still present, as the watch set by the read
+         * may already have been triggered. Access only when synchronized on this.
+         */
+        private final Map<Path, Object> readingChildren = new HashMap<>();
+        private final Map<Path, Object> readingData = new HashMap<>();
+
+        /** The generation of this which reads must be synced with, incremented when a read must see all prior changes */
+        private final AtomicLong generation = new AtomicLong(0);
+
+        /** The latest generation which has been synced with */
+        private final AtomicLong syncedGeneration = new AtomicLong(0);
+
+        protected final LongAdder hits = new LongAdder();
+        protected final LongAdder misses = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+        private final LongAdder syncs = new LongAdder();
+        protected final LongAdder readNanos = new LongAdder();
+
+        CuratorDatabaseCache(Curator curator, Path syncPath) {
             this.curator = curator;
+            this.syncPath = syncPath.getAbsolute();
+        }
+
+        /** Returns the children of this path, which may be empty */
+        public List<String> getChildren(Path path) {
+            return read(path, children, readingChildren,
+                        () -> ImmutableList.copyOf(readWatched(path, () -> curator.framework().getChildren().usingWatcher(this)
+                                                                                  .forPath(path.getAbsolute()))
+                                                           .orElse(Collections.emptyList())));
         }
 
-        public long generation() { return generation; }
+        /** Returns the content of this path, or empty if it does not exist */
+        public Optional<byte[]> getData(Path path) {
+            return read(path, data, readingData,
+                        () -> readWatched(path, () -> curator.framework().getData().usingWatcher(this)
+                                                             .forPath(path.getAbsolute()))
+                                      .map(data -> Arrays.copyOf(data, data.length)));
+        }
+
+        /** Makes the next read wait for all watch events sent before this is called to be processed */
+        void syncBeforeNextRead() {
+            generation.incrementAndGet();
+        }
+
+        /** Returns the cached value of a path, or reads it from ZooKeeper and caches it if it is not cached */
+        private <T> T read(Path path, Map<Path, T> cache, Map<Path, Object> reading, Supplier<T> reader) {
+            long startTime = System.nanoTime();
+            try {
+                sync();
+                T cached = cache.get(path);
+                if (cached != null) {
+                    hits.increment();
+                    return cached;
+                }
+
+                misses.increment();
+                Object token = startReading(path, reading);
+                T value = null;
+                try {
+                    value = reader.get();
+                    return value;
+                }
+                finally {
+                    endReading(token, path, value, cache, reading);
+                }
+            }
+            finally {
+                readNanos.add(System.nanoTime() - startTime);
+            }
+        }
 
         /**
-         * Returns the children of this path, which may be empty.
-         * Returns null only if it is not present in this state mirror
+         * Reads a path and sets a watch on it. If the path does not exist, an existence watch is set instead,
+         * such that we are notified when it is created.
          */
-        public List<String> getChildren(Path path) { 
-            return children.computeIfAbsent(path, key -> ImmutableList.copyOf(curator.getChildren(path)));
+        private <T> Optional<T> readWatched(Path path, WatchedRead<T> read) {
+            try {
+                try {
+                    return Optional.of(read.read());
+                }
+                catch (KeeperException.NoNodeException e) {
+                    if (curator.framework().checkExists().usingWatcher(this).forPath(path.getAbsolute()) != null)
+                        invalidate(path); // created since the read: Make sure we do not cache the absence of it
+                    return Optional.empty();
+                }
+            }
+            catch (Exception e) {
+                throw new RuntimeException("Could not read " + path.getAbsolute(), e);
+            }
         }
 
         /**
-         * Returns the content of this child - which may be empty.
-         * Returns null only if it is not present in this state mirror
+         * Waits until all watch events sent by ZooKeeper before the current generation was started are processed,
+         * unless this is already done.
+         * ZooKeeper delivers watch events and the results of background operations to the client in order,
+         * so this is done by waiting for the result of a background operation.
+         * If this fails, the cache is cleared instead.
          */
-        public Optional<byte[]> getData(Path path) {
-            return data.computeIfAbsent(path, key -> curator.getData(path).map(data -> Arrays.copyOf(data, data.length)));
+        private void sync() {
+            long current = generation.get();
+            if (syncedGeneration.get() >= current) return;
+
+            syncs.increment();
+            CountDownLatch synced = new CountDownLatch(1);
+            try {
+                curator.framework().checkExists().inBackground((client, event) -> synced.countDown()).forPath(syncPath);
+                if ( ! synced.await(syncTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.log(Level.WARNING, "Timed out waiting for ZooKeeper watch events to be processed: Clearing the node repository cache");
+                    invalidateAll();
+                }
+            }
+            catch (Exception e) {
+                log.log(Level.WARNING, "Failed waiting for ZooKeeper watch events to be processed: Clearing the node repository cache", e);
+                invalidateAll();
+            }
+            syncedGeneration.accumulateAndGet(current, Math::max);
+        }
+
+        /** Called by ZooKeeper when a watched path is changed, or the connection state changes */
+        @Override
+        public void process(WatchedEvent event) {
+            if (event.getType() == Event.EventType.None) {
+                // We may miss changes when not connected, and all watches are lost if the session expires
+                if (event.getState() != Event.KeeperState.SyncConnected)
+                    invalidateAll();
+            }
+            else {
+                invalidate(Path.fromString(event.getPath()));
+            }
         }
 
+        private synchronized Object startReading(Path path, Map<Path, Object> reading) {
+            Object token = new Object();
+            reading.put(path, token);
+            return token;
+        }
+
+        /** Caches the given value, unless it is null or the path is invalidated since the read started */
+        private synchronized <T> void endReading(Object token, Path path, T value, Map<Path, T> cache, Map<Path, Object> reading) {
+            if (reading.remove(path, token) && value != null)
+                cache.put(path, value);
+        }
+
+        private synchronized void invalidate(Path path) {
+            readingChildren.remove(path);
+            readingData.remove(path);
+            if (children.remove(path) != null)
+                invalidations.increment();
+            if (data.remove(path) != null)
+                invalidations.increment();
+        }
+
+        private synchronized void invalidateAll() {
+            readingChildren.clear();
+            readingData.clear();
+            invalidations.add(children.size() + data.size());
+            children.clear();
+            data.clear();
+        }
+
+        CacheStats stats() {
+            return new CacheStats(hits.sum(), misses.sum(), invalidations.sum(), syncs.sum(), readNanos.sum());
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface WatchedRead<T> {
+
+        T read() throws Exception;
+
     }
 
     /** An implementation of the curator database cache which does no caching */
     private static class DeactivatedCache extends CuratorDatabaseCache {
-        
-        public DeactivatedCache(long generation, Curator curator) { super(generation, curator); }
+
+        DeactivatedCache(Curator curator) { super(curator, Path.createRoot()); }
 
         @Override
-        public List<String> getChildren(Path path) { return curator.getChildren(path); }
+        public List<String> getChildren(Path path) {
+            long startTime = System.nanoTime();
+            List<String> children = curator.getChildren(path);
+            misses.increment();
+            readNanos.add(System.nanoTime() - startTime);
+            return children;
+        }
 
         @Override
-        public Optional<byte[]> getData(Path path) { return curator.getData(path); }
+        public Optional<byte[]> getData(Path path) {
+            long startTime = System.nanoTime();
+            Optional<byte[]> data = curator.getData(path);
+            misses.increment();
+            readNanos.add(System.nanoTime() - startTime);
+            return data;
+        }
 
     }
 
@@ -97,12 +97,13 @@ public class CuratorDatabaseClient {
     public List<Node> addNodesInState(List<Node> nodes, Node.State expectedState) {
         NestedTransaction transaction = new NestedTransaction();
         CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+        boolean binary = writeBinaryNodes();
         for (Node node : nodes) {
             if (node.state() != expectedState)
                 throw new IllegalArgumentException(node + " is not in the " + node.state() + " state");
 
             node = node.with(node.history().recordStateTransition(null, expectedState, Agent.system, clock.instant()));
-            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), nodeSerializer.toJson(node)));
+            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), serialize(node, binary)));
         }
         transaction.commit();
 
@@ -202,6 +203,7 @@ public class CuratorDatabaseClient {
         List<Node> writtenNodes = new ArrayList<>(nodes.size());
 
         CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+        boolean binary = writeBinaryNodes();
         for (Node node : nodes) {
             Node newNode = new Node(node.openStackId(), node.ipAddresses(), node.ipAddressPool().asSet(), node.hostname(),
                                     node.parentHostname(), node.flavor(),
@@ -211,7 +213,7 @@ public class CuratorDatabaseClient {
                                     node.history().recordStateTransition(node.state(), toState, agent, clock.instant()),
                                     node.type());
             curatorTransaction.add(CuratorOperations.delete(toPath(node).getAbsolute()))
-                              .add(CuratorOperations.create(toPath(toState, newNode.hostname()).getAbsolute(), nodeSerializer.toJson(newNode)));
+                              .add(CuratorOperations.create(toPath(toState, newNode.hostname()).getAbsolute(), serialize(newNode, binary)));
             writtenNodes.add(newNode);
         }
 
@@ -279,11 +281,23 @@ public class CuratorDatabaseClient {
         for (Node.State state : states) {
             Optional<byte[]> nodeData = curatorDatabase.getData(toPath(state, hostname));
             if (nodeData.isPresent())
-                return nodeData.map((data) -> nodeSerializer.fromJson(state, data));
+                return nodeData.map((data) -> nodeSerializer.fromBytes(state, data));
         }
         return Optional.empty();
     }
 
+    /**
+     * Returns whether nodes should be written in the binary format.
+     * This can only be enabled when all servers sharing this database are able to read it.
+     */
+    private boolean writeBinaryNodes() {
+        return readFlag(FlagId.binaryNodeFormat).map(Flag::isEnabled).orElse(false);
+    }
+
+    private byte[] serialize(Node node, boolean binary) {
+        return binary ? nodeSerializer.toBinary(node) : nodeSerializer.toJson(node);
+    }
+
     private Path toPath(Node.State nodeState) { return root.append(toDir(nodeState)); }
 
     private Path toPath(Node node) {
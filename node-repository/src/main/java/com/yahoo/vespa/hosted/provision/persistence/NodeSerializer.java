@@ -12,9 +12,11 @@ import com.yahoo.config.provision.NodeFlavors;
 import com.yahoo.config.provision.NodeType;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
+import com.yahoo.slime.Type;
 import com.yahoo.vespa.config.SlimeUtils;
 import com.yahoo.vespa.hosted.provision.Node;
 import com.yahoo.vespa.hosted.provision.node.Agent;
@@ -27,11 +29,17 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
- * Serializes a node to/from JSON.
+ * Serializes a node to/from JSON or a compact binary format.
+ * The binary format is the binary Slime encoding of the same fields as the JSON, except that the history
+ * is stored as a nested binary Slime blob which is not decoded until the history of the node is accessed.
+ * Binary data starts with a byte which can not start JSON, such that both formats can be read.
  * Instances of this are multithread safe and can be reused
  *
  * @author bratseth
@@ -41,6 +49,17 @@ public class NodeSerializer {
     /** The configured node flavors */
     private final NodeFlavors flavors;
 
+    /** The first byte of data in the binary format */
+    private static final byte binaryFormatMarker = 0;
+
+    /** The max number of values of each kind to intern before clearing, to avoid retaining values no longer in use */
+    private static final int maxInternedValues = 10000;
+
+    // Values which are shared by many nodes are interned, to avoid creating (and validating) them for every node
+    private final Map<String, ApplicationId> applicationIds = new ConcurrentHashMap<>();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private final Map<String, String> parentHostnames = new ConcurrentHashMap<>();
+
     // Node fields
     private static final String hostnameKey = "hostname";
     private static final String ipAddressesKey = "ipAddresses";
@@ -96,7 +115,21 @@ public class NodeSerializer {
         }
     }
 
+    public byte[] toBinary(Node node) {
+        Slime slime = new Slime();
+        toSlime(node, slime.setObject(), true);
+        byte[] slimeData = BinaryFormat.encode(slime);
+        byte[] data = new byte[slimeData.length + 1];
+        data[0] = binaryFormatMarker;
+        System.arraycopy(slimeData, 0, data, 1, slimeData.length);
+        return data;
+    }
+
     private void toSlime(Node node, Cursor object) {
+        toSlime(node, object, false);
+    }
+
+    private void toSlime(Node node, Cursor object, boolean binary) {
         object.setString(hostnameKey, node.hostname());
         toSlime(node.ipAddresses(), object.setArray(ipAddressesKey));
         toSlime(node.ipAddressPool().asSet(), object.setArray(ipAddressPoolKey));
@@ -111,7 +144,14 @@ public class NodeSerializer {
         object.setBool(wantToRetireKey, node.status().wantToRetire());
         object.setBool(wantToDeprovisionKey, node.status().wantToDeprovision());
         node.allocation().ifPresent(allocation -> toSlime(allocation, object.setObject(instanceKey)));
-        toSlime(node.history(), object.setArray(historyKey));
+        if (binary) {
+            Slime history = new Slime();
+            toSlime(node.history(), history.setArray());
+            object.setData(historyKey, BinaryFormat.encode(history));
+        }
+        else {
+            toSlime(node.history(), object.setArray(historyKey));
+        }
         object.setString(nodeTypeKey, toString(node.type()));
         node.status().hardwareDivergence().ifPresent(hardwareDivergence -> object.setString(hardwareDivergenceKey,
                                                                                             hardwareDivergence));
@@ -150,6 +190,12 @@ public class NodeSerializer {
         return nodeFromSlime(state, SlimeUtils.jsonToSlime(data).get());
     }
 
+    /** Returns a node from data in either the JSON or the binary format */
+    public Node fromBytes(Node.State state, byte[] data) {
+        if (data.length == 0 || data[0] != binaryFormatMarker) return fromJson(state, data);
+        return nodeFromSlime(state, BinaryFormat.decode(data, 1, data.length - 1).get());
+    }
+
     private Node nodeFromSlime(Node.State state, Inspector object) {
         return new Node(object.field(openStackIdKey).asString(),
                         ipAddressesFromSlime(object, ipAddressesKey),
@@ -188,19 +234,31 @@ public class NodeSerializer {
     }
 
     private ApplicationId applicationIdFromSlime(Inspector object) {
-        return ApplicationId.from(TenantName.from(object.field(tenantIdKey).asString()),
-                                  ApplicationName.from(object.field(applicationIdKey).asString()),
-                                  InstanceName.from(object.field(instanceIdKey).asString()));
+        String tenant = object.field(tenantIdKey).asString();
+        String application = object.field(applicationIdKey).asString();
+        String instance = object.field(instanceIdKey).asString();
+        return intern(applicationIds, tenant + ":" + application + ":" + instance,
+                      __ -> ApplicationId.from(TenantName.from(tenant),
+                                               ApplicationName.from(application),
+                                               InstanceName.from(instance)));
+    }
+
+    private History historyFromSlime(Inspector history) {
+        if (history.type() == Type.DATA) {
+            byte[] data = history.asData();
+            return History.lazy(() -> eventsFromSlime(BinaryFormat.decode(data).get()));
+        }
+        return new History(eventsFromSlime(history));
     }
 
-    private History historyFromSlime(Inspector array) {
+    private List<History.Event> eventsFromSlime(Inspector array) {
         List<History.Event> events = new ArrayList<>();
         array.traverse((ArrayTraverser) (int i, Inspector item) -> {
             History.Event event = eventFromSlime(item);
             if (event != null)
                 events.add(event);
         });
-        return new History(events);
+        return events;
     }
 
     private History.Event eventFromSlime(Inspector object) {
@@ -223,16 +281,27 @@ public class NodeSerializer {
 
     private Optional<Version> versionFromSlime(Inspector object) {
         if ( ! object.valid()) return Optional.empty();
-        return Optional.of(Version.fromString(object.asString()));
+        return Optional.of(intern(versions, object.asString(), Version::fromString));
     }
 
     private Optional<String> parentHostnameFromSlime(Inspector object) {
         if (object.field(parentHostnameKey).valid())
-            return Optional.of(object.field(parentHostnameKey).asString());
+            return Optional.of(intern(parentHostnames, object.field(parentHostnameKey).asString(), Function.identity()));
         else
             return Optional.empty();
     }
 
+    private static <T> T intern(Map<String, T> values, String key, Function<String, T> factory) {
+        T value = values.get(key);
+        if (value != null) return value;
+
+        if (values.size() >= maxInternedValues)
+            values.clear();
+        value = factory.apply(key);
+        values.put(key, value);
+        return value;
+    }
+
     private Optional<String> hardwareDivergenceFromSlime(Inspector object) {
         if (object.field(hardwareDivergenceKey).valid()) {
             return Optional.of(object.field(hardwareDivergenceKey).asString());
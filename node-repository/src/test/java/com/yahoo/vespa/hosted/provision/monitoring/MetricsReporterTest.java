@@ -38,6 +38,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -107,6 +108,10 @@ public class MetricsReporterTest {
         );
         metricsReporter.maintain();
 
+        // Cache metrics depend on timing and on the reads done in this test
+        assertNotNull(metric.values.remove("hostedVespa.nodeRepository.cache.hitRate"));
+        assertNotNull(metric.values.remove("hostedVespa.nodeRepository.cache.refreshes"));
+        assertNotNull(metric.values.remove("hostedVespa.nodeRepository.readLatencyMicros"));
         assertEquals(expectedMetrics, metric.values);
     }
 
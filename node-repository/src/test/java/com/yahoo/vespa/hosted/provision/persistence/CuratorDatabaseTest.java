@@ -3,11 +3,13 @@ package com.yahoo.vespa.hosted.provision.persistence;
 
 import com.yahoo.path.Path;
 import com.yahoo.transaction.NestedTransaction;
+import com.yahoo.vespa.curator.Lock;
 import com.yahoo.vespa.curator.mock.MockCurator;
 import com.yahoo.vespa.curator.transaction.CuratorOperations;
 import com.yahoo.vespa.curator.transaction.CuratorTransaction;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,9 +49,68 @@ public class CuratorDatabaseTest {
         commitCreate("/2/2", database);
         List<String> children1Call3 = database.getChildren(Path.fromString("/1"));
         assertEquals(2, database.getChildren(Path.fromString("/2")).size());
-        assertFalse("We do not reuse cached data in different parts of the tree when there are commits",
-                    children1Call3 == children1Call2);
-        
+        assertTrue("We reuse cached data in different parts of the tree when there are commits",
+                   children1Call3 == children1Call2);
+    }
+
+    @Test
+    public void testCacheIsInvalidatedByChangesFromOtherDatabases() throws Exception {
+        MockCurator curator = new MockCurator();
+        CuratorDatabase database = new CuratorDatabase(curator, Path.fromString("/"), true);
+        CuratorDatabase other = new CuratorDatabase(curator, Path.fromString("/"), true);
+        commitCreate("/1", database);
+        commitCreate("/2", database);
+
+        assertEquals(0, database.getChildren(Path.fromString("/1")).size());
+        assertEquals(0, database.getChildren(Path.fromString("/2")).size());
+        assertFalse(database.getData(Path.fromString("/1/1")).isPresent());
+        List<String> children2 = database.getChildren(Path.fromString("/2"));
+
+        commitCreate("/1/1", other);
+        assertEquals(1, database.getChildren(Path.fromString("/1")).size());
+        assertTrue("A created path is visible", database.getData(Path.fromString("/1/1")).isPresent());
+        assertTrue("Unchanged paths are still cached", children2 == database.getChildren(Path.fromString("/2")));
+
+        NestedTransaction t = new NestedTransaction();
+        other.newCuratorTransactionIn(t).add(CuratorOperations.setData("/1/1", new byte[] { 7 }));
+        t.commit();
+        assertEquals(7, database.getData(Path.fromString("/1/1")).get()[0]);
+
+        t = new NestedTransaction();
+        other.newCuratorTransactionIn(t).add(CuratorOperations.delete("/1/1"));
+        t.commit();
+        assertFalse(database.getData(Path.fromString("/1/1")).isPresent());
+        assertEquals(0, database.getChildren(Path.fromString("/1")).size());
+
+        CuratorDatabase.CacheStats stats = database.cacheStats();
+        assertEquals(10, stats.reads());
+        assertEquals(2, stats.hits());
+        assertEquals(8, stats.misses());
+        assertEquals(5, stats.invalidations());
+    }
+
+    @Test
+    public void testReadsWaitForWatchEventsOnlyAfterLocksAndWrites() throws Exception {
+        MockCurator curator = new MockCurator();
+        CuratorDatabase database = new CuratorDatabase(curator, Path.fromString("/"), true);
+        CuratorDatabase other = new CuratorDatabase(curator, Path.fromString("/"), true);
+        commitCreate("/1", database);
+        commitCreate("/2", database);
+
+        database.getChildren(Path.fromString("/1"));
+        database.getChildren(Path.fromString("/1"));
+        database.getData(Path.fromString("/2"));
+        assertEquals("Reads after a write wait once", 1, database.cacheStats().syncs());
+
+        commitCreate("/1/1", other);
+        assertEquals(1, database.getChildren(Path.fromString("/1")).size());
+        assertEquals("Writes by others are seen by their watch events", 1, database.cacheStats().syncs());
+
+        try (Lock lock = database.lock(Path.fromString("/locks/1"), Duration.ofSeconds(1))) {
+            database.getChildren(Path.fromString("/1"));
+            database.getChildren(Path.fromString("/2"));
+            assertEquals("Reads after acquiring a lock wait once", 2, database.cacheStats().syncs());
+        }
     }
 
     @Test
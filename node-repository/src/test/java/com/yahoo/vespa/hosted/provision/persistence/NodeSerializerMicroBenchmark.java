@@ -0,0 +1,103 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.persistence;
+
+import com.yahoo.component.Version;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.NodeFlavors;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.Node;
+import com.yahoo.vespa.hosted.provision.node.Agent;
+import com.yahoo.vespa.hosted.provision.provisioning.FlavorConfigBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Measures the time spent deserializing 10k active nodes from the JSON and binary formats.
+ */
+public class NodeSerializerMicroBenchmark {
+
+    private static final int nodeCount = 10000;
+
+    private final NodeFlavors flavors = FlavorConfigBuilder.createDummies("default", "large");
+
+    public void benchmark() {
+        NodeSerializer serializer = new NodeSerializer(flavors);
+        List<Node> nodes = createNodes();
+        List<byte[]> json = serialize(nodes, serializer::toJson);
+        List<byte[]> binary = serialize(nodes, serializer::toBinary);
+        System.out.println("Bytes per node: JSON " + size(json) / nodeCount + ", binary " + size(binary) / nodeCount);
+
+        int runs = 20;
+        for (int i = 0; i < runs; i++) { // warmup
+            deserialize(json, serializer, true);
+            deserialize(binary, serializer, true);
+        }
+
+        System.out.println("Time to deserialize " + nodeCount + " nodes:");
+        System.out.println("  JSON: " + time(runs, () -> deserialize(json, serializer, false)) + " ms");
+        System.out.println("  Binary: " + time(runs, () -> deserialize(binary, serializer, false)) + " ms");
+        System.out.println("  Binary, accessing history: " + time(runs, () -> deserialize(binary, serializer, true)) + " ms");
+    }
+
+    private long time(int runs, Runnable task) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            task.run();
+        return (System.nanoTime() - startTime) / runs / 1000000;
+    }
+
+    private void deserialize(List<byte[]> data, NodeSerializer serializer, boolean accessHistory) {
+        int events = 0;
+        for (byte[] nodeData : data) {
+            Node node = serializer.fromBytes(Node.State.active, nodeData);
+            if (accessHistory)
+                events += node.history().events().size();
+        }
+        if (accessHistory && events == 0) throw new IllegalStateException("Expected history events");
+    }
+
+    private List<byte[]> serialize(List<Node> nodes, Function<Node, byte[]> serializer) {
+        List<byte[]> data = new ArrayList<>(nodes.size());
+        for (Node node : nodes)
+            data.add(serializer.apply(node));
+        return data;
+    }
+
+    private long size(List<byte[]> data) {
+        return data.stream().mapToLong(nodeData -> nodeData.length).sum();
+    }
+
+    private List<Node> createNodes() {
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        Instant at = Instant.ofEpochMilli(1500000000000L);
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = Node.create("openStackId" + i,
+                                    Collections.singleton("10.0." + (i / 256) + "." + (i % 256)),
+                                    Collections.emptySet(),
+                                    "node" + i + ".example.com",
+                                    Optional.of("host" + (i / 10) + ".example.com"),
+                                    flavors.getFlavorOrThrow(i % 2 == 0 ? "default" : "large"),
+                                    NodeType.tenant);
+            node = node.with(node.history().recordStateTransition(null, Node.State.provisioned, Agent.system, at));
+            node = node.with(node.history().recordStateTransition(Node.State.provisioned, Node.State.ready, Agent.system, at));
+            node = node.allocate(ApplicationId.from("tenant" + (i % 50), "application" + (i % 100), "default"),
+                                 ClusterMembership.from("container/cluster" + (i % 3) + "/0/" + i, Version.fromString("6.300.10")),
+                                 at);
+            node = node.with(node.history().recordStateTransition(Node.State.reserved, Node.State.active, Agent.application, at));
+            node = node.with(node.status().withVespaVersion(Version.fromString("6.300.10")));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        new NodeSerializerMicroBenchmark().benchmark();
+    }
+
+}
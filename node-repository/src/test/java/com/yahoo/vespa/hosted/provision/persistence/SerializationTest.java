@@ -221,6 +221,34 @@ public class SerializationTest {
         assertEquals(0, copy2.status().failCount());
     }
 
+    @Test
+    public void testBinarySerialization() {
+        Node node = createNode();
+        clock.advance(Duration.ofMinutes(3));
+        node = node.allocate(ApplicationId.from(TenantName.from("myTenant"),
+                                                ApplicationName.from("myApplication"),
+                                                InstanceName.from("myInstance")),
+                             ClusterMembership.from("content/myId/0/0", Vtag.currentVersion),
+                             clock.instant());
+        clock.advance(Duration.ofMinutes(2));
+        node = node.retire(Agent.application, clock.instant());
+        node = node.with(node.status().withVespaVersion(Version.fromString("1.2.3")));
+
+        byte[] binary = nodeSerializer.toBinary(node);
+        byte[] json = nodeSerializer.toJson(node);
+        assertTrue(binary.length < json.length);
+        Node copy = nodeSerializer.fromBytes(Node.State.active, binary);
+        assertEquals(Utf8.toString(json), Utf8.toString(nodeSerializer.toJson(copy)));
+        assertEquals(State.active, copy.state());
+        assertEquals(Agent.application, copy.history().event(History.Event.Type.retired).get().agent());
+        assertEquals(clock.instant().truncatedTo(MILLIS), copy.history().event(History.Event.Type.retired).get().at());
+
+        Node fromJson = nodeSerializer.fromBytes(Node.State.active, json);
+        assertEquals(Utf8.toString(json), Utf8.toString(nodeSerializer.toJson(fromJson)));
+        assertTrue("Repeated values are shared",
+                   fromJson.allocation().get().owner() == copy.allocation().get().owner());
+    }
+
     @Test
     public void serialize_parentHostname() {
         final String parentHostname = "parent.yahoo.com";
@@ -49,7 +49,7 @@ public class Group extends Identifiable {
             }
         }
 
-        ArrayList<Group> merged = new ArrayList<Group>();
+        ArrayList<Group> merged = new ArrayList<>(children.size() + rhs.children.size());
         Iterator<Group> lhsChild = children.iterator(), rhsChild = rhs.children.iterator();
         if (lhsChild.hasNext() && rhsChild.hasNext()) {
             Group lhsGroup = lhsChild.next();
@@ -50,13 +50,12 @@ public class Bucket {
 
     void put(Sample x) {
         UntypedMetric value = get(x);
-        Measurement m = x.getMeasurement();
         switch (x.getMetricType()) {
             case GAUGE:
-                value.put(m.getMagnitude());
+                value.put(x.doubleValue());
                 break;
             case COUNTER:
-                value.add(m.getMagnitude());
+                value.add(x.longValue());
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported metric type: " + x.getMetricType());
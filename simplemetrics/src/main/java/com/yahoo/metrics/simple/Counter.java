@@ -17,10 +17,18 @@ public class Counter {
     private final String name;
     private final MetricReceiver metricReceiver;
 
+    /** The identifier of this at the default position, created once to make updates at it cheap */
+    private final Identifier defaultIdentifier;
+
+    /** Samples at the default position, reused by each thread such that updates at it do not allocate */
+    private final ThreadLocal<Sample> defaultSamples;
+
     Counter(String name, Point defaultPosition, MetricReceiver receiver) {
         this.name = name;
         this.defaultPosition = defaultPosition;
         this.metricReceiver = receiver;
+        this.defaultIdentifier = new Identifier(name, defaultPosition);
+        this.defaultSamples = ThreadLocal.withInitial(() -> new Sample(defaultIdentifier, AssumedType.COUNTER));
     }
 
     /**
@@ -57,7 +65,14 @@ public class Counter {
      *            the point in the metric space at which to add to the metric
      */
     public void add(long n, Point p) {
-        metricReceiver.update(new Sample(new Measurement(Long.valueOf(n)), new Identifier(name, p), AssumedType.COUNTER));
+        if (p == defaultPosition) {
+            Sample sample = defaultSamples.get();
+            sample.setValue(n);
+            metricReceiver.update(sample);
+        }
+        else {
+            metricReceiver.update(new Sample(new Measurement(n), new Identifier(name, p), AssumedType.COUNTER));
+        }
     }
 
     /**
@@ -20,10 +20,18 @@ public class Gauge {
     private final String name;
     private final MetricReceiver receiver;
 
+    /** The identifier of this at the default position, created once to make updates at it cheap */
+    private final Identifier defaultIdentifier;
+
+    /** Samples at the default position, reused by each thread such that updates at it do not allocate */
+    private final ThreadLocal<Sample> defaultSamples;
+
     Gauge(String name, Point defaultPosition, MetricReceiver receiver) {
         this.name = name;
         this.defaultPosition = defaultPosition;
         this.receiver = receiver;
+        this.defaultIdentifier = new Identifier(name, defaultPosition);
+        this.defaultSamples = ThreadLocal.withInitial(() -> new Sample(defaultIdentifier, AssumedType.GAUGE));
     }
 
     /**
@@ -45,7 +53,14 @@ public class Gauge {
      *            position/dimension values for the sample
      */
     public void sample(double x, Point p) {
-        receiver.update(new Sample(new Measurement(Double.valueOf(x)), new Identifier(name, p), AssumedType.GAUGE));
+        if (p == defaultPosition) {
+            Sample sample = defaultSamples.get();
+            sample.setValue(x);
+            receiver.update(sample);
+        }
+        else {
+            receiver.update(new Sample(new Measurement(x), new Identifier(name, p), AssumedType.GAUGE));
+        }
     }
 
     /**
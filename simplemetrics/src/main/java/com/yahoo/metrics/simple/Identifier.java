@@ -12,14 +12,20 @@ public class Identifier {
 
     private final String name;
     private final Point location;
+    private final int hashCode;
 
     public Identifier(String name, Point location) {
         this.name = (name == null ? "" : name);
         this.location = (location == null ? Point.emptyPoint() : location);
+        this.hashCode = computeHashCode();
     }
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + location.hashCode();
@@ -34,6 +40,9 @@ public class Identifier {
         if (getClass() != obj.getClass()) return false;
 
         Identifier other = (Identifier) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
         if (!location.equals(other.location)) {
             return false;
         }
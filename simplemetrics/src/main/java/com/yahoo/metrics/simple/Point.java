@@ -20,6 +20,7 @@ public final class Point implements Context {
 
     private final Value[] location;
     private final String[] dimensions;
+    private final int hashCode;
 
     public Point(Map<String, ?> properties) {
         this(buildParameters(properties));
@@ -38,6 +39,7 @@ public final class Point implements Context {
     Point(String[] dimensions, Value[] location) {
         this.dimensions = dimensions;
         this.location = location;
+        this.hashCode = hashCode(dimensions, location);
     }
 
     private static final Point theEmptyPoint = new Point(new String[0], new Value[0]);
@@ -79,6 +81,10 @@ public final class Point implements Context {
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private static int hashCode(String[] dimensions, Value[] location) {
         final int prime = 31;
         int result = 1;
         result = prime * result + Arrays.hashCode(dimensions);
@@ -15,12 +15,42 @@ public class Sample {
     private final AssumedType metricType;
     private MetricReceiver metricReceiver = null;
 
+    // The value of a sample without a measurement
+    private long longValue;
+    private double doubleValue;
+
     public Sample(Measurement measurement, Identifier id, AssumedType t) {
         this.identifier = id;
         this.measurement = measurement;
         this.metricType = t;
     }
 
+    /**
+     * Creates a sample without a measurement, which is reused for many updates by a single thread
+     * by setting its value before each update, such that updates do not allocate.
+     */
+    Sample(Identifier id, AssumedType t) {
+        this(null, id, t);
+    }
+
+    void setValue(long value) {
+        this.longValue = value;
+        this.doubleValue = value;
+    }
+
+    void setValue(double value) {
+        this.longValue = (long)value;
+        this.doubleValue = value;
+    }
+
+    long longValue() {
+        return measurement == null ? longValue : measurement.getMagnitude().longValue();
+    }
+
+    double doubleValue() {
+        return measurement == null ? doubleValue : measurement.getMagnitude().doubleValue();
+    }
+
     Identifier getIdentifier() {
         return identifier;
     }
@@ -37,14 +37,14 @@ public class UntypedMetric {
         }
     }
 
-    void add(Number x) {
+    void add(long x) {
         outputFormat = AssumedType.COUNTER;
-        count += x.longValue();
+        count += x;
     }
 
-    void put(Number x) {
+    void put(double x) {
         outputFormat = AssumedType.GAUGE;
-        current = x.doubleValue();
+        current = x;
         if (histogram != null) {
             histogram.recordValue(current);
         }
@@ -0,0 +1,83 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple.jdisc;
+
+import com.yahoo.container.jdisc.state.MetricHistogram;
+import org.HdrHistogram.DoubleHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+
+import com.yahoo.log.LogLevel;
+
+/**
+ * A metric histogram backed by an HdrHistogram {@link DoubleHistogram}.
+ * The encoded form is the compressed HdrHistogram encoding in base64, which can be
+ * decoded by {@link #decode} and merged with histograms from other containers.
+ */
+public final class HdrMetricHistogram implements MetricHistogram {
+
+    private static final Logger log = Logger.getLogger(HdrMetricHistogram.class.getName());
+
+    /** Never modified after construction */
+    private final DoubleHistogram histogram;
+
+    private HdrMetricHistogram(DoubleHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    @Override
+    public double getValueAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public MetricHistogram merge(MetricHistogram other) {
+        if ( ! (other instanceof HdrMetricHistogram))
+            throw new IllegalArgumentException("Cannot merge " + this + " with " + other);
+        DoubleHistogram merged = copy(histogram);
+        try {
+            merged.add(((HdrMetricHistogram)other).histogram);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // some config scenarios may lead to differing histogram settings
+            log.log(LogLevel.WARNING, "Had trouble merging histograms: " + e.getMessage());
+        }
+        return new HdrMetricHistogram(merged);
+    }
+
+    @Override
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    /** Returns a metric histogram of a copy of the given histogram, at a cost linear in its number of buckets */
+    public static HdrMetricHistogram copyOf(DoubleHistogram histogram) {
+        return new HdrMetricHistogram(copy(histogram));
+    }
+
+    /** Returns an auto-resizing copy of the given histogram, as DoubleHistogram.copy() does not auto-resize */
+    private static DoubleHistogram copy(DoubleHistogram histogram) {
+        DoubleHistogram copy = new DoubleHistogram(histogram.getNumberOfSignificantValueDigits());
+        copy.add(histogram);
+        return copy;
+    }
+
+    /** Returns the histogram encoded in the given string, produced by {@link #encode} */
+    public static HdrMetricHistogram decode(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            return new HdrMetricHistogram(copy(DoubleHistogram.decodeFromCompressedByteBuffer(buffer, 0)));
+        }
+        catch (DataFormatException e) {
+            throw new IllegalArgumentException("Could not decode histogram '" + encoded + "'", e);
+        }
+    }
+
+    @Override
+    public String toString() { return "histogram of " + histogram.getTotalCount() + " values"; }
+
+}
@@ -69,7 +69,8 @@ class SnapshotConverter {
                 return GaugeMetric.newInstance(val.getLast(), val.getMax(), val.getMin(), val.getSum(), val.getCount());
             } else {
                 return GaugeMetric.newInstance(val.getLast(), val.getMax(), val.getMin(), val.getSum(), val.getCount(),
-                        Optional.of(buildPercentileList(val.getHistogram())));
+                                               buildPercentileList(val.getHistogram()),
+                                               HdrMetricHistogram.copyOf(val.getHistogram()));
             }
         }
     }
@@ -108,4 +108,40 @@ public class CounterTest {
         assertEquals(twoToThePowerOfFourtyeight, x.get(0).getValue().getCount());
     }
 
+    @Test
+    public final void testAddAtDefaultAndEqualExplicitPoint() throws InterruptedException {
+        final String metricName = "unitTestCounter";
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        Counter c = receiver.declareCounter(metricName, p);
+        c.add();
+        c.add(2, p);
+        c.add(4, receiver.pointBuilder().set("x", 2L).build());
+        Bucket b = receiver.getSnapshot();
+        List<Entry<Point, UntypedMetric>> x = b.getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(p, x.get(0).getKey());
+        assertEquals(7L, x.get(0).getValue().getCount());
+    }
+
+
+    @Test
+    public final void testConcurrentAddsAtDefaultPoint() throws InterruptedException {
+        final String metricName = "unitTestCounter";
+        Counter c = receiver.declareCounter(metricName, receiver.pointBuilder().set("x", 2L).build());
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++)
+                    c.add(3);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        c.add();
+        List<Entry<Point, UntypedMetric>> x = receiver.getSnapshot().getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(8 * 10000 * 3 + 1, x.get(0).getValue().getCount());
+    }
+
 }
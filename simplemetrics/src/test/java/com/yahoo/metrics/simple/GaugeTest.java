@@ -80,4 +80,18 @@ public class GaugeTest {
         assertEquals(Math.E, x.get(0).getValue().getLast(), 1e-15);
     }
 
+
+    @Test
+    public final void testRepeatedSamplesAtDefaultPoint() throws InterruptedException {
+        final String metricName = "unitTestGauge";
+        Gauge g = receiver.declareGauge(metricName);
+        for (int i = 1; i <= 100; i++)
+            g.sample(i);
+        UntypedMetric value = receiver.getSnapshot().getValuesByMetricName().get(metricName).get(0).getValue();
+        assertEquals(100, value.getCount());
+        assertEquals(100.0d, value.getMax(), 0.0d);
+        assertEquals(5050.0d, value.getSum(), 0.0d);
+        assertEquals(100.0d, value.getLast(), 0.0d);
+    }
+
 }
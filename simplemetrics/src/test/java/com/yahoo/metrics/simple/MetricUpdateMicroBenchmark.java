@@ -0,0 +1,72 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput and heap allocation of updating declared counters and gauges from many threads concurrently.
+ */
+public class MetricUpdateMicroBenchmark {
+
+    private static final int threadCount = 64;
+    private static final int updatesPerThread = 1000000;
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public void benchmark() throws InterruptedException {
+        MetricReceiver.MockReceiver receiver = new MetricReceiver.MockReceiver();
+        Point point = receiver.pointBuilder().set("chain", "default").set("endpoint", "search").build();
+        Counter counter = receiver.declareCounter("queries", point);
+        Gauge gauge = receiver.declareGauge("latency", point);
+
+        run(counter, gauge); // warmup
+        receiver.getSnapshot();
+
+        allocatedBytes.set(0);
+        long startTime = System.currentTimeMillis();
+        run(counter, gauge);
+        long totalTime = Math.max(1, System.currentTimeMillis() - startTime);
+        long updates = 2L * threadCount * updatesPerThread;
+        System.out.println(updates + " updates from " + threadCount + " threads in " + totalTime + " ms: " +
+                           (updates * 1000 / totalTime) + " updates/second, " +
+                           (allocatedBytes.get() / updates) + " bytes allocated per update");
+        System.out.println("Aggregated count: " +
+                           receiver.getSnapshot().getValuesByMetricName().get("queries").get(0).getValue().getCount());
+    }
+
+    private void run(Counter counter, Gauge gauge) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                long allocatedAtStart = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                for (int j = 0; j < updatesPerThread; j++) {
+                    counter.add();
+                    gauge.sample(j);
+                }
+                allocatedBytes.addAndGet(threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new MetricUpdateMicroBenchmark().benchmark();
+    }
+
+}
@@ -4,12 +4,15 @@ package com.yahoo.metrics.simple.jdisc;
 import com.yahoo.container.jdisc.state.CountMetric;
 import com.yahoo.container.jdisc.state.GaugeMetric;
 import com.yahoo.container.jdisc.state.MetricDimensions;
+import com.yahoo.container.jdisc.state.MetricHistogram;
 import com.yahoo.container.jdisc.state.MetricSet;
 import com.yahoo.container.jdisc.state.MetricSnapshot;
 import com.yahoo.container.jdisc.state.MetricValue;
 import com.yahoo.metrics.simple.Bucket;
+import com.yahoo.metrics.simple.Gauge;
 import com.yahoo.metrics.simple.Identifier;
 import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.MetricSettings;
 import com.yahoo.metrics.simple.Point;
 import com.yahoo.metrics.simple.UntypedMetric;
 import org.junit.Test;
@@ -17,6 +20,7 @@ import org.junit.Test;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -74,4 +78,31 @@ public class SnapshotConverterTest {
         }
     }
 
+
+    @Test
+    public void testHistogramConversionAndMerging() {
+        GaugeMetric first = convertHistogramGauge(1, 100);
+        GaugeMetric second = convertHistogramGauge(101, 200);
+        assertEquals(99.0, first.getPercentiles().get().get(1).second, 0.5);
+        assertEquals(199.0, second.getPercentiles().get().get(1).second, 0.5);
+
+        MetricHistogram merged = first.getHistogram().get().merge(second.getHistogram().get());
+        assertEquals(198.0, merged.getValueAtPercentile(99), 1.0);
+        assertEquals(100.0, merged.getValueAtPercentile(50), 0.5);
+        assertEquals("Unmodified by merging", 99.0, first.getHistogram().get().getValueAtPercentile(99), 0.5);
+
+        MetricHistogram decoded = HdrMetricHistogram.decode(merged.encode());
+        assertEquals(198.0, decoded.getValueAtPercentile(99), 1.0);
+        assertEquals(100.0, decoded.getValueAtPercentile(50), 0.5);
+    }
+
+    private GaugeMetric convertHistogramGauge(int from, int to) {
+        MetricReceiver receiver = new MetricReceiver.MockReceiver();
+        Gauge gauge = receiver.declareGauge("latency", Optional.empty(), new MetricSettings.Builder().histogram(true).build());
+        for (int i = from; i <= to; i++)
+            gauge.sample(i);
+        MetricSnapshot snapshot = new SnapshotConverter(receiver.getSnapshot()).convert();
+        return (GaugeMetric)snapshot.iterator().next().getValue().get("latency");
+    }
+
 }
@@ -144,6 +144,7 @@ public final class ConnectionParams {
 
         /**
          * Set whether compression of document operations during communication to server should be enabled.
+         * Operations are compressed with lz4 when the gateway supports it, and gzip otherwise.
          *
          * @param useCompression true if compression should be enabled.
          * @return pointer to builder.
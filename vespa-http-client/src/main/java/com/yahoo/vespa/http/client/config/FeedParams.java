@@ -33,7 +33,15 @@ public final class FeedParams {
     public enum DataFormat {
         /** UTF-8-encoded XML. Preamble is not necessary. */
         XML_UTF8,
-        JSON_UTF8
+        JSON_UTF8,
+        /**
+         * Document operations on the binary document format, which the gateway can pass on without parsing them.
+         * Each operation is a byte giving the operation type (0: put, 1: update, 2: remove), followed by the
+         * test-and-set condition as an int length and that many bytes of UTF-8 (length 0 if there is no condition),
+         * followed by the document, document update or document id serialized by VespaDocumentSerializerHead.
+         * This is only supported by gateways using version 3 of the protocol.
+         */
+        BINARY
     }
     /**
      * Mutable class used to instantiate a {@link FeedParams}.
@@ -31,5 +31,7 @@ public final class Headers {
     public static final String OUTSTANDING_REQUESTS = "X-Yahoo-Outstanding-Requests";
     public static final String HOSTNAME = "X-Yahoo-Hostname";
     public static final String SILENTUPGRADE = "X-Yahoo-Silent-Upgrade";
+    // The max milliseconds the server may hold a request without operations until it has replies to return.
+    public static final String MAX_REPLY_WAIT = "X-Yahoo-Feed-Max-Reply-Wait";
 
 }
@@ -11,6 +11,7 @@ import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.Encoder;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.client.core.ServerResponseException;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.http.Header;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
@@ -31,6 +32,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -58,6 +60,8 @@ class ApacheGatewayConnection implements GatewayConnection {
     private static final byte[] END_OF_FEED_XML = "\n</vespafeed>\n".getBytes(StandardCharsets.UTF_8);
     private static final byte[] START_OF_FEED_JSON = "[".getBytes(StandardCharsets.UTF_8);
     private static final byte[] END_OF_FEED_JSON = "]".getBytes(StandardCharsets.UTF_8);
+    // Short enough that documents arriving while waiting for replies are not delayed much
+    private static final int MAX_REPLY_WAIT_MILLIS = 100;
     private final byte[] startOfFeed;
     private final byte[] endOfFeed;
     private final Endpoint endpoint;
@@ -68,6 +72,8 @@ class ApacheGatewayConnection implements GatewayConnection {
     private String sessionId;
     private final String clientId;
     private int negotiatedVersion = -1;
+    /** The encoding used to compress requests: lz4 if the gateway accepts it, gzip otherwise */
+    private String contentEncoding = "gzip";
     private final HttpClientFactory httpClientFactory;
     private final String shardingKey = UUID.randomUUID().toString().substring(0, 5);
 
@@ -85,15 +91,23 @@ class ApacheGatewayConnection implements GatewayConnection {
         this.httpClientFactory = httpClientFactory;
         this.connectionParams = connectionParams;
         this.httpClient = null;
-        boolean isJson = feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8;
-        if (isJson) {
-            startOfFeed = START_OF_FEED_JSON;
-            endOfFeed = END_OF_FEED_JSON;
-        } else {
-            startOfFeed = START_OF_FEED_XML;
-            endOfFeed = END_OF_FEED_XML;
+        switch (feedParams.getDataFormat()) {
+            case JSON_UTF8:
+                startOfFeed = START_OF_FEED_JSON;
+                endOfFeed = END_OF_FEED_JSON;
+                break;
+            case BINARY: // each operation stands alone
+                startOfFeed = new byte[0];
+                endOfFeed = new byte[0];
+                break;
+            default:
+                startOfFeed = START_OF_FEED_XML;
+                endOfFeed = END_OF_FEED_XML;
         }
         this.clientId = clientId;
+        if (feedParams.getDataFormat() == FeedParams.DataFormat.BINARY && ! connectionParams.isEnableV3Protocol()) {
+            throw new IllegalArgumentException("The binary data format requires version 3 of the protocol.");
+        }
         if (connectionParams.isEnableV3Protocol()) {
             if (this.clientId == null) {
                 throw new RuntimeException("Set to support version 3, but got no client Id.");
@@ -124,33 +138,38 @@ class ApacheGatewayConnection implements GatewayConnection {
 
     // Protected for easier testing only.
     protected static InputStreamEntity zipAndCreateEntity(final InputStream inputStream) throws IOException {
+        return compressAndCreateEntity(inputStream, "gzip");
+    }
+
+    // Protected for easier testing only.
+    protected static InputStreamEntity compressAndCreateEntity(final InputStream inputStream, String contentEncoding)
+            throws IOException {
         byte[] buffer = new byte[4096];
-        GZIPOutputStream gzos = null;
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            gzos = new GZIPOutputStream(baos);
+        try (OutputStream compressed = "lz4".equals(contentEncoding) ? new LZ4BlockOutputStream(baos)
+                                                                       : new GZIPOutputStream(baos)) {
             while (inputStream.available() > 0) {
                 int length = inputStream.read(buffer);
-                gzos.write(buffer, 0,length);
-            }
-        } finally {
-            if (gzos != null)  {
-                gzos.close();
+                compressed.write(buffer, 0,length);
             }
         }
-        byte[] fooGzippedBytes = baos.toByteArray();
-        return new InputStreamEntity(new ByteArrayInputStream(fooGzippedBytes), -1);
+        byte[] compressedBytes = baos.toByteArray();
+        return new InputStreamEntity(new ByteArrayInputStream(compressedBytes), -1);
     }
 
     private InputStream write(List<Document> docs, boolean drain, boolean useCompression)
             throws ServerResponseException, IOException {
         HttpPost httpPost = createPost(drain, useCompression, false /* this is not hanshake */);
+        if (docs.isEmpty() && ! drain && negotiatedVersion == 3) {
+            // Nothing to send, so let the gateway hold the request until it has replies for us
+            httpPost.setHeader(Headers.MAX_REPLY_WAIT, String.valueOf(MAX_REPLY_WAIT_MILLIS));
+        }
 
         final ByteBuffer[] buffers = getDataWithStartAndEndOfFeed(docs, negotiatedVersion);
         final InputStream inputStream = new ByteBufferInputStream(buffers);
         final InputStreamEntity reqEntity;
         if (useCompression ) {
-            reqEntity = zipAndCreateEntity(inputStream);
+            reqEntity = compressAndCreateEntity(inputStream, contentEncoding);
         } else {
             reqEntity = new InputStreamEntity(inputStream, -1);
         }
@@ -206,11 +225,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             }
         }
         if (!isHandshake) {
-            if (feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8) {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.JSON_UTF8.name());
-            } else {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.XML_UTF8.name());
-            }
+            httpPost.setHeader(Headers.DATA_FORMAT, feedParams.getDataFormat().name());
             if (feedParams.getPriority() != null) {
                 httpPost.setHeader(Headers.PRIORITY, feedParams.getPriority());
             }
@@ -237,7 +252,7 @@ class ApacheGatewayConnection implements GatewayConnection {
         });
 
         if (useCompression) {
-            httpPost.setHeader("Content-Encoding", "gzip");
+            httpPost.setHeader("Content-Encoding", contentEncoding);
         }
         return httpPost;
     }
@@ -260,6 +275,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             verifyServerResponseCode(response);
             verifyServerVersion(response.getFirstHeader(Headers.VERSION));
             verifySessionHeader(response.getFirstHeader(Headers.SESSION_ID));
+            negotiateContentEncoding(response.getFirstHeader("Accept-Encoding"));
         } catch (ServerResponseException e) {
             httpPost.abort();
             throw e;
@@ -351,6 +367,16 @@ class ApacheGatewayConnection implements GatewayConnection {
         this.negotiatedVersion = serverVersion;
     }
 
+    /** Uses lz4 if the gateway has told it accepts lz4 requests, as it is much cheaper than gzip to compress */
+    private void negotiateContentEncoding(Header acceptEncodingHeader) {
+        boolean acceptsLz4 = false;
+        if (acceptEncodingHeader != null) {
+            for (String encoding : acceptEncodingHeader.getValue().split(","))
+                acceptsLz4 |= encoding.trim().equals("lz4");
+        }
+        contentEncoding = acceptsLz4 ? "lz4" : "gzip";
+    }
+
     private String createUri() {
         StringBuilder u = new StringBuilder();
         u.append(endpoint.isUseSsl() ? "https://" : "http://");
@@ -388,6 +414,11 @@ class ApacheGatewayConnection implements GatewayConnection {
         }
     }
 
+    @Override
+    public boolean awaitsReplies() {
+        return negotiatedVersion == 3;
+    }
+
     @Override
     public void close() {
         httpClient = null;
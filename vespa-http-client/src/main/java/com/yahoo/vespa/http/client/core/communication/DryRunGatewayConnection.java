@@ -55,6 +55,9 @@ public class DryRunGatewayConnection implements GatewayConnection {
     @Override
     public void handshake() throws ServerResponseException, IOException { }
 
+    @Override
+    public boolean awaitsReplies() { return false; }
+
     @Override
     public void close() { }
 
@@ -20,6 +20,9 @@ public interface GatewayConnection {
 
     void handshake() throws ServerResponseException, IOException;
 
+    /** Returns whether the gateway holds requests writing no operations until it has replies to return */
+    boolean awaitsReplies();
+
     void close();
 
 }
@@ -288,10 +288,11 @@ class IOThread implements Runnable, AutoCloseable {
         }
         log.finest("Awaiting " + pendingResultQueueSize + " results.");
         ProcessResponse processResponse = feedDocumentAndProcessResults(nextDocsForFeeding);
-        if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0) {
+        if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0
+                && ! client.awaitsReplies()) {
             try {
                 // Max outstanding document operations, no more results on server side, wait a bit
-                // before asking again.
+                // before asking again. Not needed when the gateway already waited for results.
                 Thread.sleep(300);
             } catch (InterruptedException e) {
                 // Ignore
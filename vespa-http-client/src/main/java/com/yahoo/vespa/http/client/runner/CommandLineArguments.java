@@ -140,7 +140,7 @@ public class CommandLineArguments {
     private long timeoutArg = 180;
 
     @Option(name = {"--useCompression"},
-            description = "Use compression over network.")
+            description = "Use compression over network (lz4 if supported by the gateway, gzip otherwise).")
     private boolean useCompressionArg = false;
 
     @Option(name = {"--useDynamicThrottling"},
@@ -8,6 +8,7 @@ import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.client.core.ServerResponseException;
+import net.jpountz.lz4.LZ4BlockInputStream;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
@@ -24,18 +25,23 @@ import org.junit.rules.ExpectedException;
 import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.stub;
@@ -175,6 +181,92 @@ public class ApacheGatewayConnectionTest {
         apacheGatewayConnection.writeOperations(documents);
     }
 
+    @Test
+    public void testBinaryDocumentHeaderAndData() throws Exception {
+        final FeedParams feedParams = new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.BINARY).build();
+        final ConnectionParams connectionParams = new ConnectionParams.Builder()
+                .setEnableV3Protocol(true)
+                .build();
+        final byte[] operation = new byte[] { 0, 0, 0, 0, 0, 7 };
+        final Document document = new Document("42", operation, null);
+
+        final AtomicInteger requestsReceived = new AtomicInteger(0);
+        // This is the fake server, checks that the DATA_FORMAT header is set and that operations are not enveloped.
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            final Header header = post.getFirstHeader(Headers.DATA_FORMAT);
+            if (requestsReceived.incrementAndGet() == 1) { // handshake
+                assertEquals(null, header);
+                return httpResponse("clientId", "3");
+            }
+            assertNotNull(header);
+            assertEquals(FeedParams.DataFormat.BINARY.name(), header.getValue());
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            post.getEntity().writeTo(content);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write((document.getOperationId() + " 6\n").getBytes(StandardCharsets.US_ASCII));
+            expected.write(operation);
+            assertArrayEquals(expected.toByteArray(), content.toByteArray());
+            return httpResponse("clientId", "3");
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(
+                        Endpoint.create("hostname", 666, false),
+                        feedParams,
+                        "",
+                        connectionParams,
+                        mockFactory,
+                        "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(document));
+        assertEquals(2, requestsReceived.get());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBinaryDataFormatRequiresV3() throws Exception {
+        new ApacheGatewayConnection(
+                Endpoint.create("hostname", 666, false),
+                new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.BINARY).build(),
+                "",
+                new ConnectionParams.Builder().setEnableV3Protocol(false).build(),
+                mock(ApacheGatewayConnection.HttpClientFactory.class),
+                "clientId");
+    }
+
+    @Test
+    public void testOnlyRequestsWithoutOperationsWaitForReplies() throws Exception {
+        final FeedParams feedParams = new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.JSON_UTF8).build();
+        final ConnectionParams connectionParams = new ConnectionParams.Builder()
+                .setEnableV3Protocol(true)
+                .build();
+
+        final List<String> maxReplyWaits = new ArrayList<>();
+        // This is the fake server, records the MAX_REPLY_WAIT header of each request.
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            final Header header = post.getFirstHeader(Headers.MAX_REPLY_WAIT);
+            maxReplyWaits.add(header == null ? null : header.getValue());
+            return httpResponse("clientId", "3");
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(
+                        Endpoint.create("hostname", 666, false),
+                        feedParams,
+                        "",
+                        connectionParams,
+                        mockFactory,
+                        "clientId");
+        apacheGatewayConnection.connect();
+        assertFalse(apacheGatewayConnection.awaitsReplies());
+        apacheGatewayConnection.handshake();
+        assertTrue(apacheGatewayConnection.awaitsReplies());
+        apacheGatewayConnection.writeOperations(Collections.emptyList());
+        apacheGatewayConnection.writeOperations(Collections.singletonList(createDoc("42", "content", true)));
+        apacheGatewayConnection.drain();
+        assertEquals(Arrays.asList(null, "100", null, null), maxReplyWaits);
+    }
+
     @Test
     public void testZipAndCreateEntity() throws IOException {
         final String testString = "Hello world";
@@ -240,6 +332,47 @@ public class ApacheGatewayConnectionTest {
         apacheGatewayConnection.writeOperations(documents);
     }
 
+    @Test
+    public void testLz4CompressedWriteOperationsWhenAcceptedByServer() throws Exception {
+        final ConnectionParams connectionParams = new ConnectionParams.Builder()
+                .setUseCompression(true)
+                .build();
+        final Document doc = createDoc("42", "Hello, I am the document data.", false);
+
+        final List<String> contentEncodings = new ArrayList<>();
+        // This is the fake server, which accepts lz4 and checks that the operations are lz4 compressed.
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            final Header header = post.getFirstHeader("Content-Encoding");
+            contentEncodings.add(header == null ? null : header.getValue());
+            if (header != null) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                try (InputStream in = new LZ4BlockInputStream(post.getEntity().getContent())) {
+                    byte[] buffer = new byte[4096];
+                    for (int length; (length = in.read(buffer)) >= 0; )
+                        content.write(buffer, 0, length);
+                }
+                assertEquals(doc.getOperationId() + " 38\n<vespafeed>\nHello, I am the document data.\n</vespafeed>\n",
+                             new String(content.toByteArray(), StandardCharsets.UTF_8));
+            }
+            HttpResponse response = httpResponse("clientId", "3");
+            addMockedHeader(response, "Accept-Encoding", "gzip, lz4", null);
+            return response;
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(
+                        Endpoint.create("hostname", 666, false),
+                        new FeedParams.Builder().build(),
+                        "",
+                        connectionParams,
+                        mockFactory,
+                        "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(doc));
+        assertEquals(Arrays.asList(null, "lz4"), contentEncodings);
+    }
+
     @Test
     public void dynamic_headers_are_added_to_the_response() throws IOException, ServerResponseException, InterruptedException {
         ConnectionParams.HeaderProvider headerProvider = mock(ConnectionParams.HeaderProvider.class);
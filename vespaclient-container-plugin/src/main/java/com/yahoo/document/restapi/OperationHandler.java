@@ -30,6 +30,10 @@ public interface OperationHandler {
         public final Optional<String> fieldSet;
         public final Optional<Integer> concurrency;
         public final Optional<String> bucketSpace;
+        /** The number of disjoint slices of the bucket space the visitable buckets are divided into */
+        public final Optional<Integer> slices;
+        /** The slice to visit, in the range [0, slices) */
+        public final Optional<Integer> sliceId;
 
         /** @deprecated Use a VisitOptions.Builder instead */
         // TODO: Remove on Vespa 7
@@ -41,6 +45,8 @@ public interface OperationHandler {
             this.fieldSet = Optional.empty();
             this.concurrency = Optional.empty();
             this.bucketSpace = Optional.empty();
+            this.slices = Optional.empty();
+            this.sliceId = Optional.empty();
         }
 
         private VisitOptions(Builder builder) {
@@ -50,6 +56,8 @@ public interface OperationHandler {
             this.fieldSet = Optional.ofNullable(builder.fieldSet);
             this.concurrency = Optional.ofNullable(builder.concurrency);
             this.bucketSpace = Optional.ofNullable(builder.bucketSpace);
+            this.slices = Optional.ofNullable(builder.slices);
+            this.sliceId = Optional.ofNullable(builder.sliceId);
         }
 
         public static class Builder {
@@ -59,6 +67,8 @@ public interface OperationHandler {
             String fieldSet;
             Integer concurrency;
             String bucketSpace;
+            Integer slices;
+            Integer sliceId;
 
             public Builder cluster(String cluster) {
                 this.cluster = cluster;
@@ -90,6 +100,16 @@ public interface OperationHandler {
                 return this;
             }
 
+            public Builder slices(Integer slices) {
+                this.slices = slices;
+                return this;
+            }
+
+            public Builder sliceId(Integer sliceId) {
+                this.sliceId = sliceId;
+                return this;
+            }
+
             public VisitOptions build() {
                 return new VisitOptions(this);
             }
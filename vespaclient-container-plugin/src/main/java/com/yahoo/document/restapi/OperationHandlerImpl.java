@@ -431,12 +431,29 @@ public class OperationHandlerImpl implements OperationHandler {
         params.setPriority(DocumentProtocol.Priority.NORMAL_4);
         params.setVisitRemoves(false);
 
+        if (options.slices.isPresent() || options.sliceId.isPresent()) {
+            try {
+                params.slice(options.slices.orElse(1), options.sliceId.orElse(0));
+            } catch (IllegalArgumentException e) {
+                throw new RestApiException(Response.createErrorResponse(400, e.getMessage(), restUri, RestUri.apiErrorCodes.ERROR_ID_BASIC_USAGE));
+            }
+        }
+
         if (options.continuation.isPresent()) {
             try {
                 params.setResumeToken(ProgressToken.fromSerializedString(options.continuation.get()));
             } catch (Exception e) {
                 throw new RestApiException(Response.createErrorResponse(500, ExceptionUtils.getStackTrace(e), restUri, RestUri.apiErrorCodes.UNSPECIFIED));
             }
+            ProgressToken token = params.getResumeToken();
+            if (token.getSlices() != params.getSlices() || token.getSliceId() != params.getSliceId()) {
+                throw new RestApiException(Response.createErrorResponse(
+                        400,
+                        "The continuation is for slice " + token.getSliceId() + " of " + token.getSlices() +
+                        " slices, and must be passed with the same 'slices' and 'sliceId'",
+                        restUri,
+                        RestUri.apiErrorCodes.ERROR_ID_BASIC_USAGE));
+            }
         }
         return params;
     }
@@ -24,6 +24,7 @@ import com.yahoo.document.restapi.RestApiException;
 import com.yahoo.document.restapi.RestUri;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.VisitorIterator;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
 import com.yahoo.documentapi.messagebus.MessageBusParams;
 import com.yahoo.documentapi.messagebus.loadtypes.LoadTypeSet;
@@ -67,6 +68,8 @@ public class RestApi extends LoggingRequestHandler {
     private static final String FIELD_SET = "fieldSet";
     private static final String CONCURRENCY = "concurrency";
     private static final String BUCKET_SPACE = "bucketSpace";
+    private static final String SLICES = "slices";
+    private static final String SLICE_ID = "sliceId";
     private static final String APPLICATION_JSON = "application/json";
     private final OperationHandler operationHandler;
     private SingleDocumentParser singleDocumentParser;
@@ -319,10 +322,33 @@ public class RestApi extends LoggingRequestHandler {
         Optional.ofNullable(request.getProperty(BUCKET_SPACE)).ifPresent(s -> optionsBuilder.bucketSpace(s));
         parsePositiveIntegerRequestParameter(WANTED_DOCUMENT_COUNT, request).ifPresent(c -> optionsBuilder.wantedDocumentCount(c));
         parsePositiveIntegerRequestParameter(CONCURRENCY, request).ifPresent(c -> optionsBuilder.concurrency(c));
+        sliceFromRequest(request, optionsBuilder);
 
         return optionsBuilder.build();
     }
 
+    /**
+     * Sets the slice of the bucket space to visit, such that a client may visit all the slices in parallel,
+     * each with its own continuation token
+     */
+    private static void sliceFromRequest(HttpRequest request, OperationHandler.VisitOptions.Builder optionsBuilder) {
+        Optional<Integer> slices = parsePositiveIntegerRequestParameter(SLICES, request);
+        if (slices.isPresent() && (Integer.bitCount(slices.get()) != 1 || slices.get() > VisitorIterator.MAX_SLICES))
+            throw new BadRequestParameterException(SLICES, "Expected a power of two no larger than " + VisitorIterator.MAX_SLICES);
+        Optional<String> sliceId = requestProperty(SLICE_ID, request);
+        if (sliceId.isPresent()) {
+            try {
+                int id = Integer.parseInt(sliceId.get());
+                if (id < 0 || id >= slices.orElse(1))
+                    throw new NumberFormatException();
+                optionsBuilder.sliceId(id);
+            } catch (NumberFormatException e) {
+                throw new BadRequestParameterException(SLICE_ID, "Expected non-negative integer less than '" + SLICES + "'");
+            }
+        }
+        slices.ifPresent(s -> optionsBuilder.slices(s));
+    }
+
     /**
      * Escapes all single quotes in input string.
      * @param original non-escaped string that may contain single quotes
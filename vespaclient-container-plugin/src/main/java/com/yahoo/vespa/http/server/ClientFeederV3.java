@@ -15,6 +15,7 @@ import com.yahoo.messagebus.ReplyHandler;
 import com.yahoo.messagebus.Result;
 import com.yahoo.messagebus.shared.SharedSourceSession;
 import com.yahoo.net.HostName;
+import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.core.ErrorCode;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.client.core.OperationStatus;
@@ -29,6 +30,7 @@ import java.time.Instant;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -58,6 +60,7 @@ class ClientFeederV3 {
 
     private final Object monitor = new Object();
     private final StreamReaderV3 streamReaderV3;
+    private final DocumentTypeManager docTypeManager;
     private final AtomicInteger ongoingRequests = new AtomicInteger(0);
     private String hostName;
     private AtomicInteger threadsAvailableForFeeding;
@@ -76,6 +79,7 @@ class ClientFeederV3 {
         this.metric = metric;
         this.threadsAvailableForFeeding = threadsAvailableForFeeding;
         this.streamReaderV3 = new StreamReaderV3(feedReaderFactory, docTypeManager);
+        this.docTypeManager = docTypeManager;
         this.hostName = HostName.getLocalhost();
     }
 
@@ -106,6 +110,21 @@ class ClientFeederV3 {
         }
     }
 
+    /**
+     * Waits for a reply to return to a client which has nothing else to receive, such that it gets replies as soon
+     * as they are available rather than by polling repeatedly, and can keep many operations in flight with one
+     * connection. The waiting thread is busy, so this is only done when there are threads available for feeding.
+     */
+    private void awaitReplies(BlockingQueue<OperationStatus> operations, long maxWaitMillis) throws InterruptedException {
+        OperationStatus status = feedReplies.poll(maxWaitMillis, TimeUnit.MILLISECONDS);
+        if (status == null) return;
+        synchronized (monitor) {
+            outstandingOperations.decrementAndGet();
+            operations.put(status);
+            transferPreviousRepliesToResponse(operations);
+        }
+    }
+
     public HttpResponse handleRequest(HttpRequest request) throws IOException {
         threadsAvailableForFeeding.decrementAndGet();
         ongoingRequests.incrementAndGet();
@@ -137,12 +156,15 @@ class ClientFeederV3 {
             BlockingQueue<OperationStatus> replies = new LinkedBlockingQueue<>();
             try {
                 feed(feederSettings, inputStream, replies, threadsAvailableForFeeding);
-                synchronized (monitor) {
-                    // Handshake requests do not have DATA_FORMAT, we do not want to give responses to
-                    // handshakes as it won't be processed by the client.
-                    if (request.getJDiscRequest().headers().get(Headers.DATA_FORMAT) != null) {
+                // Handshake requests do not have DATA_FORMAT, we do not want to give responses to
+                // handshakes as it won't be processed by the client.
+                if (request.getJDiscRequest().headers().get(Headers.DATA_FORMAT) != null) {
+                    synchronized (monitor) {
                         transferPreviousRepliesToResponse(replies);
                     }
+                    if (replies.isEmpty() && feederSettings.maxReplyWaitMillis > 0 && threadsAvailableForFeeding.get() > 0) {
+                        awaitReplies(replies, feederSettings.maxReplyWaitMillis);
+                    }
                 }
             } catch (InterruptedException e) {
                 // NOP, just terminate
@@ -276,7 +298,12 @@ class ClientFeederV3 {
     /** Returns the next message in the stream, or null if none */
     protected DocumentOperationMessageV3 getNextMessage(
             String operationId, InputStream requestInputStream, FeederSettings settings) throws Exception {
-        VespaXMLFeedReader.Operation operation = streamReaderV3.getNextOperation(requestInputStream, settings);
+        byte[] binaryOperation = null;
+        VespaXMLFeedReader.Operation operation = null;
+        if (settings.dataFormat == FeedParams.DataFormat.BINARY)
+            binaryOperation = streamReaderV3.getNextOperationBytes(requestInputStream);
+        else
+            operation = streamReaderV3.getNextOperation(requestInputStream, settings);
 
         // This is a bit hard to set up while testing, so we accept that things are not perfect.
         if (sourceSession.getResource().session() != null) {
@@ -286,7 +313,9 @@ class ClientFeederV3 {
                     null);
         }
 
-        DocumentOperationMessageV3 message = DocumentOperationMessageV3.create(operation, operationId, metric);
+        DocumentOperationMessageV3 message = binaryOperation != null
+                ? DocumentOperationMessageV3.createFromBinary(binaryOperation, operationId, docTypeManager, metric)
+                : DocumentOperationMessageV3.create(operation, operationId, metric);
         if (message == null) {
             // typical end of feed
             return null;
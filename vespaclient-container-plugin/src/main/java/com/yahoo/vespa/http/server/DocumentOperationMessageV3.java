@@ -1,17 +1,29 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.server;
 
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.document.serialization.DocumentDeserializerFactory;
+import com.yahoo.document.serialization.DocumentSerializer;
+import com.yahoo.document.serialization.DocumentSerializerFactory;
+import com.yahoo.documentapi.messagebus.protocol.AbstractRoutableFactory;
+import com.yahoo.documentapi.messagebus.protocol.LazyDecoder;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.routing.ErrorDirective;
 import com.yahoo.messagebus.routing.Hop;
 import com.yahoo.messagebus.routing.Route;
+import com.yahoo.text.Utf8;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
 import com.yahoo.yolean.Exceptions;
 
@@ -24,6 +36,25 @@ import com.yahoo.yolean.Exceptions;
  */
 class DocumentOperationMessageV3 {
 
+    private static final byte BINARY_PUT = 0;
+    private static final byte BINARY_UPDATE = 1;
+    private static final byte BINARY_REMOVE = 2;
+
+    private static final LazyDecoder putDecoder = (message, in) -> {
+        PutDocumentMessage put = (PutDocumentMessage) message;
+        put.setDocumentPut(new DocumentPut(Document.createDocument(in)));
+        put.setTimestamp(in.getLong(null));
+        put.setCondition(new TestAndSetCondition(AbstractRoutableFactory.decodeString(in)));
+    };
+
+    private static final LazyDecoder updateDecoder = (message, in) -> {
+        UpdateDocumentMessage update = (UpdateDocumentMessage) message;
+        update.setDocumentUpdate(new DocumentUpdate(in));
+        update.setOldTimestamp(in.getLong(null));
+        update.setNewTimestamp(in.getLong(null));
+        update.setCondition(new TestAndSetCondition(AbstractRoutableFactory.decodeString(in)));
+    };
+
     private final String operationId;
     private final Message message;
 
@@ -78,6 +109,90 @@ class DocumentOperationMessageV3 {
         return new DocumentOperationMessageV3(id, msg);
     }
 
+    /**
+     * Creates a message from an operation on the binary data format.
+     * Puts and updates are passed on in serialized form, and are only deserialized if something
+     * on their route needs the document or update. Their framing, id and document type are verified here,
+     * such that malformed operations fail here rather than wherever they are deserialized.
+     *
+     * @throws IllegalArgumentException if the operation is malformed
+     */
+    static DocumentOperationMessageV3 createFromBinary(byte[] operation, String operationId,
+                                                       DocumentTypeManager docTypeManager, Metric metric) {
+        try {
+            DocumentDeserializer in = DocumentDeserializerFactory.createHead(docTypeManager, GrowableByteBuffer.wrap(operation));
+            byte type = in.getByte(null);
+            String condition = decodeCondition(in);
+            int start = in.getBuf().position();
+            switch (type) {
+                case BINARY_PUT:
+                    verifyDocument(in);
+                    metric.add(MetricNames.NUM_PUTS, 1, null /*metricContext*/);
+                    return new DocumentOperationMessageV3(operationId,
+                            new PutDocumentMessage(putDecoder, serialized(operation, start, 1, condition, docTypeManager)));
+                case BINARY_UPDATE:
+                    in.readDocumentId();
+                    in.readDocumentType();
+                    metric.add(MetricNames.NUM_UPDATES, 1, null /*metricContext*/);
+                    return new DocumentOperationMessageV3(operationId,
+                            new UpdateDocumentMessage(updateDecoder, serialized(operation, start, 2, condition, docTypeManager)));
+                case BINARY_REMOVE:
+                    DocumentRemove remove = new DocumentRemove(new DocumentId(in));
+                    if (in.getBuf().remaining() > 0)
+                        throw new IllegalArgumentException(in.getBuf().remaining() + " bytes after the document id");
+                    remove.setCondition(new TestAndSetCondition(condition));
+                    metric.add(MetricNames.NUM_REMOVES, 1, null /*metricContext*/);
+                    return new DocumentOperationMessageV3(operationId, new RemoveDocumentMessage(remove));
+                default:
+                    throw new IllegalArgumentException("Unknown binary operation type " + type);
+            }
+        }
+        catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed binary operation", e);
+        }
+    }
+
+    private static String decodeCondition(DocumentDeserializer in) {
+        int length = in.getInt(null);
+        if (length < 0 || length > in.getBuf().remaining())
+            throw new IllegalArgumentException("Condition length " + length + " is outside the operation");
+        return length == 0 ? "" : Utf8.toString(in.getBytes(null, length));
+    }
+
+    /**
+     * Verifies the version, size, id and type of a serialized document, without deserializing its fields.
+     * The position of the given deserializer is moved past the document type.
+     */
+    private static void verifyDocument(DocumentDeserializer in) {
+        short version = in.getShort(null);
+        if (version != Document.SERIALIZED_VERSION)
+            throw new IllegalArgumentException("Document serialized with version " + version + ", expected " +
+                                               Document.SERIALIZED_VERSION);
+        int size = in.getInt(null);
+        if (size != in.getBuf().remaining())
+            throw new IllegalArgumentException("Document size is " + size + ", but " + in.getBuf().remaining() +
+                                               " bytes remain of the operation");
+        in.readDocumentId();
+        in.getByte(null); // content flags
+        in.readDocumentType();
+    }
+
+    /**
+     * Returns the given serialized document or update followed by the given number of (unset) timestamps
+     * and the condition, which is how the document protocol serializes put and update messages.
+     */
+    private static DocumentDeserializer serialized(byte[] operation, int start, int timestamps, String condition,
+                                                   DocumentTypeManager docTypeManager) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer(operation.length + timestamps * 8);
+        buffer.put(operation, start, operation.length - start);
+        DocumentSerializer out = DocumentSerializerFactory.createHead(buffer);
+        for (int i = 0; i < timestamps; i++)
+            out.putLong(null, 0);
+        AbstractRoutableFactory.encodeString(condition, out);
+        buffer.flip();
+        return DocumentDeserializerFactory.createHead(docTypeManager, buffer);
+    }
+
     static DocumentOperationMessageV3 create(VespaXMLFeedReader.Operation operation, String operationId, Metric metric) {
         switch (operation.getType()) {
             case DOCUMENT:
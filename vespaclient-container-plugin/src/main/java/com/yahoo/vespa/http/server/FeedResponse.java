@@ -47,6 +47,7 @@ public class FeedResponse extends HttpResponse {
         headers().add(Headers.VERSION, Integer.toString(protocolVersion));
         headers().add(Headers.OUTSTANDING_REQUESTS, Integer.toString(outstandingClientOperations));
         headers().add(Headers.HOSTNAME, hostName);
+        headers().add("Accept-Encoding", "gzip, lz4"); // the encodings of requests we can decompress
     }
 
     @Override
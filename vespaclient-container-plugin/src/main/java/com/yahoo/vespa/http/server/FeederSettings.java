@@ -14,12 +14,16 @@ import com.yahoo.vespa.http.client.core.Headers;
 public class FeederSettings {
 
     private static final Route DEFAULT_ROUTE = Route.parse("default");
+    // Bounds the time a request thread can be held by a client waiting for replies
+    private static final long MAX_REPLY_WAIT_MILLIS = 1000;
     public final boolean drain;
     public final Route route;
     public final boolean denyIfBusy;
     public final DataFormat dataFormat;
     public final String priority;
     public final Integer traceLevel;
+    /** The max milliseconds to wait for replies to return if there are none when the request is processed */
+    public final long maxReplyWaitMillis;
 
     public FeederSettings(HttpRequest request) {
         {
@@ -70,6 +74,17 @@ public class FeederSettings {
                 traceLevel = null;
             }
         }
+        maxReplyWaitMillis = parseMaxReplyWait(request.getHeader(Headers.MAX_REPLY_WAIT));
+    }
+
+    /** Returns the given max reply wait bounded by MAX_REPLY_WAIT_MILLIS, or 0, not waiting, if it is missing or invalid */
+    private static long parseMaxReplyWait(String maxReplyWait) {
+        if (maxReplyWait == null) return 0;
+        try {
+            return Math.max(0, Math.min(Long.parseLong(maxReplyWait), MAX_REPLY_WAIT_MILLIS));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
 }
@@ -7,7 +7,9 @@ import com.yahoo.vespa.http.client.core.Encoder;
 import com.yahoo.vespa.http.server.util.ByteLimitedInputStream;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
+import net.jpountz.lz4.LZ4BlockInputStream;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
@@ -43,6 +45,13 @@ public class StreamReaderV3 {
         return op;
     }
 
+    /** Returns the bytes of the next operation, for data formats which are not parsed by a feed reader */
+    public byte[] getNextOperationBytes(InputStream requestInputStream) throws IOException {
+        byte[] operation = new byte[readByteLength(requestInputStream)];
+        new DataInputStream(requestInputStream).readFully(operation);
+        return operation;
+    }
+
     public Optional<String> getNextOperationId(InputStream requestInputStream) throws IOException {
         StringBuilder idBuf = new StringBuilder(100);
         int c;
@@ -78,6 +87,8 @@ public class StreamReaderV3 {
         final String contentEncodingHeader = httpRequest.getHeader("content-encoding");
         if ("gzip".equals(contentEncodingHeader)) {
             return new GZIPInputStream(httpRequest.getData());
+        } else if ("lz4".equals(contentEncodingHeader)) {
+            return new LZ4BlockInputStream(httpRequest.getData());
         } else {
             return httpRequest.getData();
         }
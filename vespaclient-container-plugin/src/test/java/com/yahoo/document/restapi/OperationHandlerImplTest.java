@@ -1,9 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.restapi;
 
+import com.yahoo.document.BucketIdFactory;
 import com.yahoo.documentapi.DocumentAccess;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorIterator;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.SyncParameters;
@@ -297,6 +299,44 @@ public class OperationHandlerImplTest {
         assertThat(((StaticThrottlePolicy)params.getThrottlePolicy()).getMaxPendingCount(), is((int)3));
     }
 
+    @Test
+    public void visit_is_not_sliced_by_default() throws Exception {
+        VisitorParameters params = generatedParametersFromVisitOptions(emptyVisitOptions());
+        assertThat(params.getSlices(), is(1));
+        assertThat(params.getSliceId(), is(0));
+    }
+
+    @Test
+    public void visit_slice_is_propagated_to_visitor_parameters() throws Exception {
+        VisitorParameters params = generatedParametersFromVisitOptions(optionsBuilder().slices(4).sliceId(3).build());
+        assertThat(params.getSlices(), is(4));
+        assertThat(params.getSliceId(), is(3));
+    }
+
+    @Test
+    public void visit_continuation_is_resumed_with_the_slice_it_was_created_with() throws Exception {
+        String continuation = slicedContinuation(4, 3);
+        VisitorParameters params = generatedParametersFromVisitOptions(
+                optionsBuilder().slices(4).sliceId(3).continuation(continuation).build());
+        assertThat(params.getResumeToken().getSliceId(), is(3));
+
+        OperationHandlerImpl handler = new OperationHandlerImplFixture().createHandler();
+        try {
+            handler.visit(dummyVisitUri(), "", optionsBuilder().slices(4).sliceId(2).continuation(continuation).build());
+            fail("Exception expected");
+        } catch (RestApiException e) {
+            assertThat(e.getResponse().getStatus(), is(400));
+            assertThat(renderRestApiExceptionAsString(e),
+                       containsString("The continuation is for slice 3 of 4 slices, and must be passed with the same 'slices' and 'sliceId'"));
+        }
+    }
+
+    private static String slicedContinuation(int slices, int sliceId) throws Exception {
+        ProgressToken progress = new ProgressToken();
+        VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 8, progress, slices, sliceId);
+        return progress.serializeToString();
+    }
+
     @Test
     public void get_field_covers_all_fields_by_default() throws Exception {
         OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
@@ -26,6 +26,8 @@ public class MockedOperationHandler implements OperationHandler {
                 + options.fieldSet.map(s -> String.format(", field set: '%s'", s)).orElse("")
                 + options.concurrency.map(n -> String.format(", concurrency: %d", n)).orElse("")
                 + options.bucketSpace.map(s -> String.format(", bucket space: '%s'", s)).orElse("")
+                + options.slices.map(n -> String.format(", slices: %d", n)).orElse("")
+                + options.sliceId.map(n -> String.format(", slice id: %d", n)).orElse("")
                 + options.cluster.map(s -> String.format(", cluster: '%s'", s)).orElse(""));
     }
 
@@ -477,6 +477,26 @@ public class RestApiTest {
         assertThat(rest, containsString("Invalid 'concurrency' value. Expected positive integer"));
     }
 
+    @Test
+    public void visit_slice_parameters_are_propagated() throws IOException {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=8&sliceId=0", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        String rest = doRest(get);
+        assertThat(rest, containsString("slices: 8, slice id: 0"));
+    }
+
+    @Test
+    public void invalid_visit_slice_parameters_return_error_response() throws IOException {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=6", getFirstListenPort()));
+        assertThat(doRest(new HttpGet(request.getUri())), containsString("Invalid 'slices' value. Expected a power of two no larger than 256"));
+
+        request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=512", getFirstListenPort()));
+        assertThat(doRest(new HttpGet(request.getUri())), containsString("Invalid 'slices' value. Expected a power of two no larger than 256"));
+
+        request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=8&sliceId=8", getFirstListenPort()));
+        assertThat(doRest(new HttpGet(request.getUri())), containsString("Invalid 'sliceId' value. Expected non-negative integer less than 'slices'"));
+    }
+
     private String doRest(HttpRequestBase request) throws IOException {
         HttpClient client = HttpClientBuilder.create().build();
         HttpResponse response = client.execute(request);
@@ -1,7 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.server;
 
+import com.google.common.base.Splitter;
 import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -10,6 +14,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.GZIPOutputStream;
 
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.createRequest;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.render;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.setupFeederHandler;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.wireData;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -67,4 +75,19 @@ public class FeedHandlerCompressionTest {
         assertThat(processedInput.toString(), is(testData));
     }
 
+    @Test
+    public void testFeedLz4CompressedDocuments() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (LZ4BlockOutputStream out = new LZ4BlockOutputStream(compressed)) {
+            out.write(wireData(100));
+        }
+        HttpRequest request = createRequest(new ByteArrayInputStream(compressed.toByteArray()), FeedParams.DataFormat.JSON_UTF8);
+        request.getJDiscRequest().headers().add("Content-Encoding", "lz4");
+        HttpResponse httpResponse = setupFeederHandler().handle(request);
+        assertEquals("gzip, lz4", httpResponse.headers().getFirst("Accept-Encoding"));
+        String result = render(httpResponse);
+        assertEquals(101, Splitter.on("\n").splitToList(result).size());
+        assertTrue(result.startsWith("1230 OK message trace\n"));
+    }
+
 }
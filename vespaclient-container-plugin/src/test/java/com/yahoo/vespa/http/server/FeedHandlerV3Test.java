@@ -0,0 +1,141 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.server;
+
+import com.google.common.base.Splitter;
+import com.yahoo.component.Version;
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.serialization.VespaDocumentSerializerHead;
+import com.yahoo.document.update.FieldUpdate;
+import com.yahoo.documentapi.messagebus.protocol.AbstractRoutableFactory;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.messagebus.Message;
+import com.yahoo.text.Utf8;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.createDoctypeManager;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.createRequest;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.render;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.setupFeederHandler;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests the binary document format of the v3 feed handler.
+ */
+public class FeedHandlerV3Test {
+
+    @Test
+    public void feedBinaryOperations() throws Exception {
+        DocumentTypeManager docTypeManager = createDoctypeManager();
+        DocumentType type = docTypeManager.getDocumentType("testdocument");
+        Document document = new Document(type, "id:testdocument:testdocument::a");
+        document.setFieldValue("title", "fooKey");
+        document.setFieldValue("body", "value");
+        DocumentUpdate update = new DocumentUpdate(type, "id:testdocument:testdocument::b");
+        update.addFieldUpdate(FieldUpdate.createAssign(type.getField("title"), new StringFieldValue("barKey")));
+        DocumentId removed = new DocumentId("id:testdocument:testdocument::c");
+
+        ByteArrayOutputStream wireData = new ByteArrayOutputStream();
+        writeBinaryOperation("1", 0, "", serializer -> serializer.write(document), wireData);
+        writeBinaryOperation("2", 1, "testdocument.title==\"fooKey\"", serializer -> serializer.write(update), wireData);
+        writeBinaryOperation("3", 2, "", serializer -> removed.serialize(serializer), wireData);
+
+        List<Message> messages = new ArrayList<>();
+        HttpRequest request = createRequest(new ByteArrayInputStream(wireData.toByteArray()), FeedParams.DataFormat.BINARY);
+        HttpResponse httpResponse = setupFeederHandler(messages).handle(request);
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        httpResponse.render(outStream);
+        assertThat(Utf8.toString(outStream.toByteArray()), is("1 OK message trace\n2 OK message trace\n3 OK message trace\n"));
+        assertThat(messages.size(), is(3));
+
+        // The messages sent are the same when passed on in serialized form ...
+        DocumentProtocol protocol = new DocumentProtocol(docTypeManager);
+        Version version = new Version(6, 221);
+        List<Message> forwarded = new ArrayList<>();
+        for (Message message : messages)
+            forwarded.add((Message) protocol.decode(version, protocol.encode(version, message)));
+        // ... and when deserialized
+        for (List<Message> sent : Arrays.asList(forwarded, messages)) {
+            assertThat(((PutDocumentMessage) sent.get(0)).getDocumentPut().getDocument(), is(document));
+            assertThat(((UpdateDocumentMessage) sent.get(1)).getDocumentUpdate(), is(update));
+            assertThat(((UpdateDocumentMessage) sent.get(1)).getCondition().getSelection(), is("testdocument.title==\"fooKey\""));
+            assertThat(((RemoveDocumentMessage) sent.get(2)).getDocumentId(), is(removed));
+        }
+    }
+
+    @Test
+    public void malformedBinaryOperationsFailIndividually() throws Exception {
+        DocumentType type = createDoctypeManager().getDocumentType("testdocument");
+        Document document = new Document(type, "id:testdocument:testdocument::a");
+        document.setFieldValue("title", "fooKey");
+        byte[] put = binaryOperation(0, "", serializer -> serializer.write(document));
+        DocumentType unknownType = new DocumentType("unknown");
+        Document unknown = new Document(unknownType, "id:unknown:unknown::a");
+        DocumentId removed = new DocumentId("id:testdocument:testdocument::c");
+        byte[] remove = binaryOperation(2, "", serializer -> removed.serialize(serializer));
+
+        ByteArrayOutputStream wireData = new ByteArrayOutputStream();
+        writeOperation("1", put, wireData);
+        writeOperation("2", Arrays.copyOf(put, put.length - 3), wireData);
+        writeOperation("3", binaryOperation(0, "", serializer -> serializer.write(unknown)), wireData);
+        byte[] badCondition = put.clone();
+        badCondition[1] = 0x7f; // condition length
+        writeOperation("4", badCondition, wireData);
+        writeOperation("5", Arrays.copyOf(remove, remove.length + 1), wireData);
+        writeOperation("6", remove, wireData);
+
+        List<Message> messages = new ArrayList<>();
+        HttpRequest request = createRequest(new ByteArrayInputStream(wireData.toByteArray()), FeedParams.DataFormat.BINARY);
+        List<String> replies = Splitter.on("\n").omitEmptyStrings().splitToList(render(setupFeederHandler(messages).handle(request)));
+        assertThat(replies.size(), is(6));
+        for (String reply : replies) {
+            String operationId = reply.substring(0, reply.indexOf(' '));
+            boolean valid = operationId.equals("1") || operationId.equals("6");
+            assertThat(reply, reply.startsWith(operationId + (valid ? " OK " : " ERROR Malformed{20}binary{20}operation")), is(true));
+        }
+        assertThat(messages.size(), is(2));
+        assertThat(((PutDocumentMessage) messages.get(0)).getDocumentPut().getDocument(), is(document));
+        assertThat(((RemoveDocumentMessage) messages.get(1)).getDocumentId(), is(removed));
+    }
+
+    private void writeBinaryOperation(String operationId, int type, String condition,
+                                      Consumer<VespaDocumentSerializerHead> payload, ByteArrayOutputStream out) throws IOException {
+        writeOperation(operationId, binaryOperation(type, condition, payload), out);
+    }
+
+    private void writeOperation(String operationId, byte[] operation, ByteArrayOutputStream out) throws IOException {
+        out.write(Utf8.toBytes(operationId + " " + Integer.toHexString(operation.length) + "\n"));
+        out.write(operation);
+    }
+
+    private byte[] binaryOperation(int type, String condition, Consumer<VespaDocumentSerializerHead> payload) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        VespaDocumentSerializerHead serializer = new VespaDocumentSerializerHead(buffer);
+        serializer.putByte(null, (byte) type);
+        AbstractRoutableFactory.encodeString(condition, serializer);
+        payload.accept(serializer);
+        buffer.flip();
+        return Arrays.copyOf(buffer.array(), buffer.remaining());
+    }
+
+}
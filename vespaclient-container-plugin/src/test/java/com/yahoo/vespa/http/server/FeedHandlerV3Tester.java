@@ -0,0 +1,141 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.server;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.container.jdisc.messagebus.SessionCache;
+import com.yahoo.container.logging.AccessLog;
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.config.DocumentmanagerConfig;
+import com.yahoo.documentapi.metrics.DocumentApiMetrics;
+import com.yahoo.feedhandler.NullFeedMetric;
+import com.yahoo.jdisc.ReferencedResource;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Result;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.shared.SharedSourceSession;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.text.Utf8;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.Headers;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates v3 feed handlers sending to a mock message bus session, and requests to them.
+ */
+class FeedHandlerV3Tester {
+
+    static String render(HttpResponse httpResponse) throws IOException {
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        httpResponse.render(outStream);
+        return Utf8.toString(outStream.toByteArray());
+    }
+
+    static DocumentTypeManager createDoctypeManager() {
+        DocumentTypeManager docTypeManager = new DocumentTypeManager();
+        DocumentType documentType = new DocumentType("testdocument");
+        documentType.addField("title", DataType.STRING);
+        documentType.addField("body", DataType.STRING);
+        docTypeManager.registerDocumentType(documentType);
+        return docTypeManager;
+    }
+
+    static HttpRequest createRequest(int numberOfDocs) {
+        return createRequest(new ByteArrayInputStream(wireData(numberOfDocs)), FeedParams.DataFormat.JSON_UTF8);
+    }
+
+    /** Returns the given number of JSON put operations in the v3 wire format */
+    static byte[] wireData(int numberOfDocs) {
+        StringBuilder wireData = new StringBuilder();
+        for (int x = 0; x < numberOfDocs; x++) {
+            String docData = "[{\"put\": \"id:testdocument:testdocument::c\", \"fields\": { \"title\": \"fooKey\", \"body\": \"value\"}}]";
+            String operationId = "123" + x;
+            wireData.append(operationId + " " + Integer.toHexString(docData.length()) + "\n" + docData);
+        }
+        return wireData.toString().getBytes();
+    }
+
+    static HttpRequest createRequest(InputStream inputStream, FeedParams.DataFormat dataFormat) {
+        String clientId = "client123";
+        HttpRequest request = HttpRequest.createTestRequest(
+                "http://dummyhostname:19020/reserved-for-internal-use/feedapi",
+                com.yahoo.jdisc.http.HttpRequest.Method.POST,
+                inputStream);
+        request.getJDiscRequest().headers().add(Headers.VERSION, "3");
+        request.getJDiscRequest().headers().add(Headers.DATA_FORMAT, dataFormat.name());
+        request.getJDiscRequest().headers().add(Headers.TIMEOUT, "1000000000");
+        request.getJDiscRequest().headers().add(Headers.CLIENT_ID, clientId);
+        request.getJDiscRequest().headers().add(Headers.PRIORITY, "LOWEST");
+        request.getJDiscRequest().headers().add(Headers.TRACE_LEVEL, "4");
+        request.getJDiscRequest().headers().add(Headers.DRAIN, "true");
+        return request;
+    }
+
+    static FeedHandlerV3 setupFeederHandler() throws Exception {
+        return setupFeederHandler(new ArrayList<>());
+    }
+
+    /** Returns a feed handler which adds the messages it sends to the given list */
+    static FeedHandlerV3 setupFeederHandler(List<Message> sentMessages) throws Exception {
+        return setupFeederHandler(sentMessages, Runnable::run);
+    }
+
+    /**
+     * Returns a feed handler which adds the messages it sends to the given list,
+     * and returns their replies by the given executor
+     */
+    static FeedHandlerV3 setupFeederHandler(List<Message> sentMessages, Executor replyExecutor) throws Exception {
+        Executor threadPool = Executors.newCachedThreadPool();
+        DocumentmanagerConfig docMan = new DocumentmanagerConfig(new DocumentmanagerConfig.Builder().enablecompression(true));
+        FeedHandlerV3 feedHandlerV3 = new FeedHandlerV3(
+                new FeedHandlerV3.Context(threadPool, AccessLog.voidAccessLog(), new NullFeedMetric(true)),
+                docMan,
+                null /* session cache */,
+                null /* thread pool config */,
+                new DocumentApiMetrics(MetricReceiver.nullImplementation, "test")) {
+            @Override
+            protected ReferencedResource<SharedSourceSession> retainSource(
+                    SessionCache sessionCache, SourceSessionParams sessionParams)  {
+                SharedSourceSession sharedSourceSession = mock(SharedSourceSession.class);
+
+                try {
+                    Mockito.stub(sharedSourceSession.sendMessageBlocking(anyObject())).toAnswer((Answer) invocation -> {
+                        Object[] args = invocation.getArguments();
+                        Message message = (Message) args[0];
+                        sentMessages.add(message);
+                        ReplyContext replyContext = (ReplyContext)message.getContext();
+                        replyExecutor.execute(() -> replyContext.feedReplies.add(new OperationStatus("message", replyContext.docId, ErrorCode.OK, false, "trace")));
+                        Result result = mock(Result.class);
+                        when(result.isAccepted()).thenReturn(true);
+                        return result;
+                    });
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+
+                return new ReferencedResource<>(sharedSourceSession, () -> {});
+            }
+        };
+        feedHandlerV3.injectDocumentManangerForTests(createDoctypeManager());
+        return feedHandlerV3;
+    }
+
+}
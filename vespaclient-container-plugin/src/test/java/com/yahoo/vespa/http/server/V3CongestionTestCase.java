@@ -17,6 +17,7 @@ import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.shared.SharedMessageBus;
 import com.yahoo.messagebus.shared.SharedSourceSession;
 import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespaxmlparser.MockFeedReaderFactory;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
@@ -24,12 +25,20 @@ import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.createRequest;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.render;
+import static com.yahoo.vespa.http.server.FeedHandlerV3Tester.setupFeederHandler;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -159,4 +168,76 @@ public class V3CongestionTestCase {
         clientFeederV3.handleRequest(request);
         assertTrue(requests.get() == NUMBER_OF_QUEUE_FULL_RESPONSES);
     }
+
+    @Test
+    public void testWaitingForRepliesKeepsTheThreadBusy() throws InterruptedException {
+        HttpRequest poll = createReplyWaitRequest("1000");
+        threadsAvail.set(10);
+
+        Thread poller = new Thread(() -> {
+            try {
+                clientFeederV3.handleRequest(poll);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        poller.start();
+        while (poller.getState() != Thread.State.TIMED_WAITING && poller.isAlive())
+            Thread.sleep(1);
+        assertEquals("A request waiting for replies is busy", 9, threadsAvail.get());
+        poller.join();
+        assertEquals(10, threadsAvail.get());
+    }
+
+    @Test
+    public void testRepliesAreNotAwaitedWhenNoThreadsAreAvailable() throws IOException {
+        threadsAvail.set(0);
+        long startTime = System.currentTimeMillis();
+        clientFeederV3.handleRequest(createReplyWaitRequest("1000"));
+        assertTrue("Returned without waiting", System.currentTimeMillis() - startTime < 1000);
+        assertEquals(0, threadsAvail.get());
+    }
+
+    @Test
+    public void testInvalidMaxReplyWaitIsIgnored() {
+        assertEquals(0, new FeederSettings(createReplyWaitRequest("soon")).maxReplyWaitMillis);
+        assertEquals(0, new FeederSettings(createReplyWaitRequest("-1")).maxReplyWaitMillis);
+        assertEquals(500, new FeederSettings(createReplyWaitRequest("500")).maxReplyWaitMillis);
+        assertEquals("Bounded", 1000, new FeederSettings(createReplyWaitRequest("60000")).maxReplyWaitMillis);
+    }
+
+    @Test
+    public void testRequestsWithoutOperationsMayWaitForReplies() throws Exception {
+        List<Runnable> pendingReplies = new ArrayList<>();
+        FeedHandlerV3 feedHandlerV3 = setupFeederHandler(new ArrayList<>(), pendingReplies::add);
+        assertEquals("", render(feedHandlerV3.handle(createRequest(1))));
+
+        HttpRequest poll = createRequest(new ByteArrayInputStream(new byte[0]), FeedParams.DataFormat.JSON_UTF8);
+        assertEquals("", render(feedHandlerV3.handle(poll)));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            pendingReplies.forEach(Runnable::run);
+        }).start();
+        HttpRequest waitingPoll = createRequest(new ByteArrayInputStream(new byte[0]), FeedParams.DataFormat.JSON_UTF8);
+        waitingPoll.getJDiscRequest().headers().add(Headers.MAX_REPLY_WAIT, "60000");
+        assertEquals("1230 OK message trace\n", render(feedHandlerV3.handle(waitingPoll)));
+    }
+
+
+    private static HttpRequest createReplyWaitRequest(String maxReplyWait) {
+        HttpRequest poll = HttpRequest.createTestRequest(
+                "http://foo.bar:19020/reserved-for-internal-use/feedapi",
+                com.yahoo.jdisc.http.HttpRequest.Method.POST, new ByteArrayInputStream(new byte[0]));
+        poll.getJDiscRequest().headers().add(Headers.VERSION, "3");
+        poll.getJDiscRequest().headers().add(Headers.CLIENT_ID, "clientId");
+        poll.getJDiscRequest().headers().add(Headers.DATA_FORMAT, FeedParams.DataFormat.XML_UTF8.name());
+        poll.getJDiscRequest().headers().add(Headers.MAX_REPLY_WAIT, maxReplyWait);
+        return poll;
+    }
+
 }
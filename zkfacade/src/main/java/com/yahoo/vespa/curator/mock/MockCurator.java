@@ -22,6 +22,8 @@ import org.apache.curator.framework.api.BackgroundVersionable;
 import org.apache.curator.framework.api.ChildrenDeletable;
 import org.apache.curator.framework.api.CreateBackgroundModeACLable;
 import org.apache.curator.framework.api.CreateBuilder;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.CuratorEventType;
 import org.apache.curator.framework.api.CuratorListener;
 import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.curator.framework.api.DeleteBuilder;
@@ -64,6 +66,7 @@ import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.utils.*;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
@@ -358,12 +361,18 @@ public class MockCurator extends Curator {
 
     }
 
-    /** The regular listener implementation which notifies registered file and directory listeners */
+    /** The regular listener implementation which notifies registered file and directory listeners, and watchers */
     private class ListenerMap extends Listeners {
 
         private final Map<Path, PathChildrenCacheListener> directoryListeners = new HashMap<>();
         private final Map<Path, NodeCacheListener> fileListeners = new HashMap<>();
 
+        /**
+         * One-time watchers of paths. Unlike ZooKeeper this does not distinguish between data, children and
+         * existence watches: All watchers of a path are triggered by any change to it or its children.
+         */
+        private final Map<Path, Set<Watcher>> watchers = new HashMap<>();
+
         public void add(Path path, PathChildrenCacheListener listener) {
             directoryListeners.put(path, listener);
         }
@@ -372,6 +381,10 @@ public class MockCurator extends Curator {
             fileListeners.put(path, listener);
         }
 
+        public void add(Path path, Watcher watcher) {
+            watchers.computeIfAbsent(path, __ -> new HashSet<>()).add(watcher);
+        }
+
         @Override
         public void notify(Path path, PathChildrenCacheEvent event) {
             try {
@@ -388,6 +401,20 @@ public class MockCurator extends Curator {
                     if (path.equals(listener.getKey()))
                         listener.getValue().nodeChanged();
                 }
+
+                switch (event.getType()) {
+                    case CHILD_ADDED:
+                        trigger(path, Watcher.Event.EventType.NodeCreated);
+                        trigger(path.getParentPath(), Watcher.Event.EventType.NodeChildrenChanged);
+                        break;
+                    case CHILD_REMOVED:
+                        trigger(path, Watcher.Event.EventType.NodeDeleted);
+                        trigger(path.getParentPath(), Watcher.Event.EventType.NodeChildrenChanged);
+                        break;
+                    case CHILD_UPDATED:
+                        trigger(path, Watcher.Event.EventType.NodeDataChanged);
+                        break;
+                }
             }
             catch (Exception e) {
                 e.printStackTrace(); // TODO: Remove
@@ -395,6 +422,13 @@ public class MockCurator extends Curator {
             }
         }
 
+        private void trigger(Path path, Watcher.Event.EventType type) {
+            Set<Watcher> triggered = watchers.remove(path);
+            if (triggered == null) return;
+            for (Watcher watcher : triggered)
+                watcher.process(new WatchedEvent(type, Watcher.Event.KeeperState.SyncConnected, path.getAbsolute()));
+        }
+
     }
 
     private class MockCompletionWaiter implements CompletionWaiter {
@@ -719,6 +753,12 @@ public class MockCurator extends Curator {
 
     private class MockBackgroundPathableBuilder<T> implements BackgroundPathable<T>, Watchable<BackgroundPathable<T>> {
 
+        /** The watcher to set on the path of this operation, or null if none */
+        private Watcher watcher = null;
+
+        /** The callback to invoke with the result of this operation, or null if it is not done in the background */
+        protected BackgroundCallback callback = null;
+
         @Override
         public Pathable<T> inBackground() {
             throw new UnsupportedOperationException("Not implemented in MockCurator");
@@ -731,7 +771,8 @@ public class MockCurator extends Curator {
 
         @Override
         public Pathable<T> inBackground(BackgroundCallback backgroundCallback) {
-            throw new UnsupportedOperationException("Not implemented in MockCurator");
+            this.callback = backgroundCallback;
+            return this;
         }
 
         @Override
@@ -756,7 +797,8 @@ public class MockCurator extends Curator {
 
         @Override
         public BackgroundPathable<T> usingWatcher(Watcher watcher) {
-            throw new UnsupportedOperationException("Not implemented in MockCurator");
+            this.watcher = watcher;
+            return this;
         }
 
         @Override
@@ -768,6 +810,12 @@ public class MockCurator extends Curator {
             throw new UnsupportedOperationException("Not implemented in MockCurator");
         }
 
+        /** Sets the watcher of this, if any, on the given path */
+        protected void watch(String path) {
+            if (watcher != null)
+                listeners.add(Path.fromString(path), watcher);
+        }
+
     }
 
     private class MockGetChildrenBuilder extends MockBackgroundPathableBuilder<List<String>> implements GetChildrenBuilder {
@@ -779,7 +827,9 @@ public class MockCurator extends Curator {
 
         @Override
         public List<String> forPath(String path) throws Exception {
-            return getChildren(path, fileSystem.root());
+            List<String> children = getChildren(path, fileSystem.root());
+            watch(path);
+            return children;
         }
 
     }
@@ -788,10 +838,12 @@ public class MockCurator extends Curator {
 
         @Override
         public Stat forPath(String path) throws Exception {
-            if (exists(path, fileSystem.root()))
-                return new Stat(); // A more accurate mock should set the stat fields
-            else
-                return null;
+            Stat stat = exists(path, fileSystem.root()) ? new Stat() : null; // A more accurate mock should set the stat fields
+            watch(path);
+            if (callback == null) return stat;
+
+            callback.processResult(curatorFramework, new MockCuratorEvent(CuratorEventType.EXISTS, path, stat));
+            return null;
         }
 
         @Override
@@ -840,7 +892,9 @@ public class MockCurator extends Curator {
         }
 
         public byte[] forPath(String path) throws Exception {
-            return getData(path, fileSystem.root());
+            byte[] data = getData(path, fileSystem.root());
+            watch(path);
+            return data;
         }
 
     }
@@ -865,6 +919,53 @@ public class MockCurator extends Curator {
 
     }
 
+    /** The result of an operation done in the background, which is always done synchronously in this mock */
+    private static class MockCuratorEvent implements CuratorEvent {
+
+        private final CuratorEventType type;
+        private final String path;
+        private final Stat stat;
+
+        MockCuratorEvent(CuratorEventType type, String path, Stat stat) {
+            this.type = type;
+            this.path = path;
+            this.stat = stat;
+        }
+
+        @Override
+        public CuratorEventType getType() { return type; }
+
+        @Override
+        public int getResultCode() {
+            return stat == null ? KeeperException.Code.NONODE.intValue() : KeeperException.Code.OK.intValue();
+        }
+
+        @Override
+        public String getPath() { return path; }
+
+        @Override
+        public Object getContext() { return null; }
+
+        @Override
+        public Stat getStat() { return stat; }
+
+        @Override
+        public byte[] getData() { return null; }
+
+        @Override
+        public String getName() { return null; }
+
+        @Override
+        public List<String> getChildren() { return null; }
+
+        @Override
+        public List<ACL> getACLList() { return null; }
+
+        @Override
+        public WatchedEvent getWatchedEvent() { return null; }
+
+    }
+
     /** Allows addition of directoryListeners which are never called */
     private class MockListenable<T> implements Listenable<T> {
 